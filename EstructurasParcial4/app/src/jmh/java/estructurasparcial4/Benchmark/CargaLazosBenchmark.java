@@ -0,0 +1,56 @@
+package estructurasparcial4.Benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+// Mide cargarLazosDesdePerfiles() (conectividad de toda la red al arrancar).
+// Con hilos = 1 es la carga secuencial; el resto reparte los arcos en un ForkJoinPool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CargaLazosBenchmark {
+
+    @Param({ "100000", "1000000" })
+    public int usuarios;
+
+    @Param({ "5" })
+    public int amigosPorUsuario;
+
+    @Param({ "1", "2", "4", "8" })
+    public int hilos;
+
+    private GeneradorRedSintetica red;
+    private WeightedQuickUnionUF redSocial;
+
+    @Setup(Level.Trial)
+    public void generar() {
+        red = new GeneradorRedSintetica(usuarios, amigosPorUsuario, GeneradorRedSintetica.CALIDAD_ALEATORIA, 42)
+                .generar();
+    }
+
+    // Cada medición parte de una red sin lazos que comparte el internador del motor
+    @Setup(Level.Invocation)
+    public void prepararRed() {
+        redSocial = new WeightedQuickUnionUF(usuarios, red.getMotor().getInternador());
+        for (Perfil perfil : red.getAlmacenamiento().obtenerPerfiles()) {
+            redSocial.agregarUsuario(perfil.getId());
+        }
+    }
+
+    @Benchmark
+    public String cargarLazosDesdePerfiles() {
+        return red.getMotor().cargarLazosDesdePerfiles(redSocial, hilos);
+    }
+}
@@ -0,0 +1,130 @@
+package estructurasparcial4.Benchmark;
+
+import java.util.Random;
+
+import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Service.AlmacenamientoPerfiles;
+import estructurasparcial4.Service.MotorSugerencias;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+// Genera redes sociales sintéticas para los benchmarks.
+// Las amistades siguen el modelo de Barabási–Albert (enlace preferencial): cada usuario nuevo se une a
+// 'amigosPorUsuario' usuarios existentes elegidos con probabilidad proporcional a su grado, lo que da una
+// distribución de grados de ley de potencias (pocos usuarios "hub" con muchísimos amigos).
+// La semilla es fija para que todas las corridas midan la misma red.
+public class GeneradorRedSintetica {
+
+    // "aleatoria" reparte calidades de 1 a 5; un dígito ("1".."5") usa siempre esa calidad
+    public static final String CALIDAD_ALEATORIA = "aleatoria";
+
+    private final int usuarios;
+    private final int amigosPorUsuario;
+    private final String calidad;
+    private final long semilla;
+
+    private AlmacenamientoPerfiles almacenamiento;
+    private MotorSugerencias motor;
+    private WeightedQuickUnionUF redSocial;
+    private int hub; // índice del usuario con más amigos
+
+    public GeneradorRedSintetica(int usuarios, int amigosPorUsuario, String calidad, long semilla) {
+        if (usuarios <= amigosPorUsuario || amigosPorUsuario <= 0) {
+            throw new IllegalArgumentException("Se requiere usuarios > amigosPorUsuario > 0");
+        }
+        this.usuarios = usuarios;
+        this.amigosPorUsuario = amigosPorUsuario;
+        this.calidad = calidad;
+        this.semilla = semilla;
+    }
+
+    public static String idDe(int usuario) {
+        return "u" + usuario;
+    }
+
+    // Crea perfiles y amistades. La red social (union-find) se deja vacía de lazos para que los
+    // benchmarks de carga la llenen con cargarLazosDesdePerfiles()
+    public GeneradorRedSintetica generar() {
+        Random aleatorio = new Random(semilla);
+        almacenamiento = new AlmacenamientoPerfiles();
+        redSocial = new WeightedQuickUnionUF(usuarios);
+        motor = new MotorSugerencias(almacenamiento, redSocial.getInternador());
+
+        String[] generos = { "Masculino", "Femenino", "Otro" };
+        for (int i = 0; i < usuarios; i++) {
+            almacenamiento.crearPerfil(new Perfil(idDe(i), "Usuario " + aleatorio.nextInt(usuarios),
+                    (short) (13 + aleatorio.nextInt(70)), generos[aleatorio.nextInt(generos.length)]));
+            redSocial.agregarUsuario(idDe(i));
+        }
+
+        // extremos[] guarda cada extremo de cada arista: elegir una posición al azar equivale
+        // a elegir un usuario con probabilidad proporcional a su grado
+        GrafoAmistades grafo = motor.getGrafo();
+        int[] extremos = new int[2 * usuarios * amigosPorUsuario];
+        int cantidadExtremos = 0;
+        int[] grados = new int[usuarios];
+
+        for (int i = 0; i <= amigosPorUsuario; i++) {
+            for (int j = 0; j < i; j++) {
+                grafo.agregarAmistad(i, j, siguienteCalidad(aleatorio));
+                extremos[cantidadExtremos++] = i;
+                extremos[cantidadExtremos++] = j;
+                grados[i]++;
+                grados[j]++;
+            }
+        }
+
+        int destino;
+        for (int i = amigosPorUsuario + 1; i < usuarios; i++) {
+            for (int m = 0; m < amigosPorUsuario; m++) {
+                destino = extremos[aleatorio.nextInt(cantidadExtremos)];
+                if (destino == i || grafo.calidad(i, destino) > 0) {
+                    continue;
+                }
+                grafo.agregarAmistad(i, destino, siguienteCalidad(aleatorio));
+                if (cantidadExtremos + 2 <= extremos.length) {
+                    extremos[cantidadExtremos++] = i;
+                    extremos[cantidadExtremos++] = destino;
+                }
+                grados[i]++;
+                grados[destino]++;
+            }
+        }
+        grafo.compactar();
+
+        hub = 0;
+        for (int i = 1; i < usuarios; i++) {
+            if (grados[i] > grados[hub]) {
+                hub = i;
+            }
+        }
+        return this;
+    }
+
+    private int siguienteCalidad(Random aleatorio) {
+        if (CALIDAD_ALEATORIA.equals(calidad)) {
+            return 1 + aleatorio.nextInt(5);
+        }
+        return Integer.parseInt(calidad);
+    }
+
+    public AlmacenamientoPerfiles getAlmacenamiento() {
+        return almacenamiento;
+    }
+
+    public MotorSugerencias getMotor() {
+        return motor;
+    }
+
+    public WeightedQuickUnionUF getRedSocial() {
+        return redSocial;
+    }
+
+    public int getUsuarios() {
+        return usuarios;
+    }
+
+    public String getIdHub() {
+        return idDe(hub);
+    }
+}
@@ -0,0 +1,78 @@
+package estructurasparcial4.Benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import estructurasparcial4.Util.Metricas;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+// Costo de medir: registrar() con uno y cuatro hilos, y find() con y sin métricas activas
+// (la diferencia es lo que paga cada find() por el muestreo)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricasBenchmark {
+
+    private static final int USUARIOS = 100_000;
+
+    private Metricas metricas;
+    private WeightedQuickUnionUF redSinMetricas;
+    private WeightedQuickUnionUF redConMetricas;
+    private int[] consultas;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        metricas = new Metricas();
+        redSinMetricas = crearRed();
+        redConMetricas = crearRed();
+        redConMetricas.setMetricas(metricas);
+        Random aleatorio = new Random(42);
+        consultas = new int[USUARIOS];
+        for (int i = 0; i < USUARIOS; i++) {
+            consultas[i] = aleatorio.nextInt(USUARIOS);
+        }
+    }
+
+    private static WeightedQuickUnionUF crearRed() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(USUARIOS);
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < USUARIOS; i++) {
+            red.agregarUsuario(GeneradorRedSintetica.idDe(i));
+        }
+        for (int i = 0; i < USUARIOS; i++) {
+            red.union(aleatorio.nextInt(USUARIOS), aleatorio.nextInt(USUARIOS));
+        }
+        return red;
+    }
+
+    @Benchmark
+    public void registrar() {
+        metricas.registrar(Metricas.Operacion.SUGERIR_AMIGOS, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrarCuatroHilos() {
+        metricas.registrar(Metricas.Operacion.SUGERIR_AMIGOS, System.nanoTime());
+    }
+
+    @Benchmark
+    public int findSinMetricas() {
+        return redSinMetricas.find(consultas[siguiente++ % USUARIOS]);
+    }
+
+    @Benchmark
+    public int findConMetricas() {
+        return redConMetricas.find(consultas[siguiente++ % USUARIOS]);
+    }
+}
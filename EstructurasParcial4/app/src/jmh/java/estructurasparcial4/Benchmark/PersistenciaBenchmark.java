@@ -0,0 +1,49 @@
+package estructurasparcial4.Benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import estructurasparcial4.Service.LeerPerfiles;
+
+// Mide guardarPerfiles(): el costo de persistir toda la red en JSON tras un cambio
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PersistenciaBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int usuarios;
+
+    private GeneradorRedSintetica red;
+    private LeerPerfiles lector;
+    private File archivo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        red = new GeneradorRedSintetica(usuarios, 5, GeneradorRedSintetica.CALIDAD_ALEATORIA, 42).generar();
+        archivo = File.createTempFile("perfiles-benchmark", ".json");
+        lector = new LeerPerfiles(archivo.getAbsolutePath());
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        archivo.delete();
+    }
+
+    @Benchmark
+    public void guardarPerfiles() {
+        lector.guardarPerfiles(red.getAlmacenamiento());
+    }
+}
@@ -0,0 +1,90 @@
+package estructurasparcial4.Benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import estructurasparcial4.Model.SugerenciaAmigo;
+import estructurasparcial4.Service.MotorSugerencias;
+import estructurasparcial4.Service.PuntuacionCalidadMaxima;
+import estructurasparcial4.Service.PuntuacionPonderada;
+
+// Mide sugerirAmigos() para usuarios al azar y para el usuario con más amigos (hub),
+// tanto la lista completa como el top-10, con cada estrategia de puntuación
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SugerenciasBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int usuarios;
+
+    @Param({ "5" })
+    public int amigosPorUsuario;
+
+    @Param({ GeneradorRedSintetica.CALIDAD_ALEATORIA })
+    public String calidad;
+
+    // calidadMaxima: la puntuación original; adamicAdar: suma de caminos ponderada por grado;
+    // tresSaltos: adamicAdar más el tercer salto
+    @Param({ "calidadMaxima", "adamicAdar", "tresSaltos" })
+    public String puntuacion;
+
+    private GeneradorRedSintetica red;
+    private MotorSugerencias motor;
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        red = new GeneradorRedSintetica(usuarios, amigosPorUsuario, calidad, 42).generar();
+        motor = red.getMotor();
+        switch (puntuacion) {
+            case "adamicAdar":
+                motor.setEstrategiaPuntuacion(
+                        new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.PRODUCTO, true, 0));
+                break;
+            case "tresSaltos":
+                motor.setEstrategiaPuntuacion(
+                        new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.PRODUCTO, true, 0.25));
+                break;
+            default:
+                motor.setEstrategiaPuntuacion(new PuntuacionCalidadMaxima());
+        }
+        Random aleatorio = new Random(7);
+        consultas = new String[1024];
+        for (int i = 0; i < consultas.length; i++) {
+            consultas[i] = GeneradorRedSintetica.idDe(aleatorio.nextInt(usuarios));
+        }
+    }
+
+    @Benchmark
+    public List<SugerenciaAmigo> sugerirAmigosUsuarioAleatorio() {
+        return motor.sugerirAmigos(consultas[siguiente++ & (consultas.length - 1)]);
+    }
+
+    @Benchmark
+    public List<SugerenciaAmigo> sugerirTop10UsuarioAleatorio() {
+        return motor.sugerirAmigos(consultas[siguiente++ & (consultas.length - 1)], 10);
+    }
+
+    @Benchmark
+    public List<SugerenciaAmigo> sugerirAmigosHub() {
+        return motor.sugerirAmigos(red.getIdHub());
+    }
+
+    @Benchmark
+    public List<SugerenciaAmigo> sugerirTop10Hub() {
+        return motor.sugerirAmigos(red.getIdHub(), 10);
+    }
+}
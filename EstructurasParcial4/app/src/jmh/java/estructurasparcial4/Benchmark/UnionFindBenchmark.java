@@ -0,0 +1,80 @@
+package estructurasparcial4.Benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+// Mide find() sobre una red ya unida y union() construyendo la red desde cero
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UnionFindBenchmark {
+
+    @Param({ "100000", "1000000" })
+    public int usuarios;
+
+    private WeightedQuickUnionUF redUnida;
+    private WeightedQuickUnionUF redVacia;
+    private int[] paresA;
+    private int[] paresB;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void prepararPares() {
+        Random aleatorio = new Random(42);
+        paresA = new int[usuarios];
+        paresB = new int[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            paresA[i] = aleatorio.nextInt(usuarios);
+            paresB[i] = aleatorio.nextInt(usuarios);
+        }
+        redUnida = crearRed();
+        for (int i = 0; i < usuarios; i++) {
+            redUnida.union(paresA[i], paresB[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararRedVacia() {
+        redVacia = crearRed();
+        siguiente = 0;
+    }
+
+    private WeightedQuickUnionUF crearRed() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(usuarios);
+        for (int i = 0; i < usuarios; i++) {
+            red.agregarUsuario(GeneradorRedSintetica.idDe(i));
+        }
+        return red;
+    }
+
+    @Benchmark
+    public int find() {
+        int i = siguiente++ % usuarios;
+        return redUnida.find(paresA[i]);
+    }
+
+    @Benchmark
+    public int union() {
+        int i = siguiente++ % usuarios;
+        redVacia.union(paresA[i], paresB[i]);
+        return redVacia.getCount();
+    }
+
+    @Benchmark
+    public boolean conectadosPorId() {
+        int i = siguiente++ % usuarios;
+        return redUnida.conectados(GeneradorRedSintetica.idDe(paresA[i]), GeneradorRedSintetica.idDe(paresB[i]));
+    }
+}
@@ -2,24 +2,46 @@ package estructurasparcial4;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import estructurasparcial4.Model.CaminoAmistad;
 import estructurasparcial4.Model.Perfil;
 import estructurasparcial4.Model.SugerenciaAmigo;
 import estructurasparcial4.Service.AlmacenamientoPerfiles;
+import estructurasparcial4.Service.BuscadorCaminos;
 import estructurasparcial4.Service.LeerPerfiles;
 import estructurasparcial4.Service.MotorSugerencias;
+import estructurasparcial4.Service.RegistroMutaciones;
+import estructurasparcial4.Service.ServidorApi;
+import estructurasparcial4.Service.SnapshotBinario;
+import estructurasparcial4.Service.VistaEgoRed;
+import estructurasparcial4.Util.Metricas;
+import estructurasparcial4.Util.VistaRedSocial;
 import estructurasparcial4.Util.WeightedQuickUnionUF;
 
 import java.util.List;
 import java.util.Scanner;
 
-// En esta clase se halla el método main que orquesta la aplicación por medio de un menú
+// En esta clase se halla el método main que orquesta la aplicación por medio de un menú.
+// Con el argumento --servidor [puerto] atiende la API HTTP (ServidorApi) en lugar del menú
 public class App {
     private static AlmacenamientoPerfiles almacenamiento;
     private static MotorSugerencias motorSugerencias;
     private static WeightedQuickUnionUF redSocial;
     private static LeerPerfiles lectorPerfiles;
+    private static RegistroMutaciones registroMutaciones;
+    private static SnapshotBinario snapshotBinario;
+    private static BuscadorCaminos buscadorCaminos;
+    private static ServidorApi servidorApi;
+    private static Metricas metricas;
     private static Scanner sc;
     private static final Logger logger = LogManager.getLogger(App.class);
+    private static final int MAX_SUGERENCIAS_MOSTRADAS = 10;
+    // Arcos que puede recorrer una sugerencia antes de cortar (acota la latencia con usuarios muy conectados)
+    private static final int PRESUPUESTO_ARCOS_POR_SUGERENCIA = 1_000_000;
+    // Sugerencias que guarda la cache entre todas las listas (cada lista pesa sus sugerencias + 1)
+    private static final long PESO_MAXIMO_CACHE_SUGERENCIAS = 2_000_000;
+    private static final int PUERTO_POR_DEFECTO = 8080;
+    // Con más usuarios que esto la red se visualiza por componentes (VistaRedSocial) y no usuario por usuario
+    private static final int MAXIMO_USUARIOS_VISTA_COMPLETA = 2000;
 
 
     public static void main(String[] args) {
@@ -29,30 +51,94 @@ public class App {
                                                                   // lo cual es necesario para la visualización segura. Pues si no se establece, el hace una detección automática.
                                                                   // Por tanto, esto evita problemas en ese apartado
             almacenamiento = new AlmacenamientoPerfiles();
-            motorSugerencias = new MotorSugerencias(almacenamiento);
-            redSocial = new WeightedQuickUnionUF(1000);
             sc = new Scanner(System.in);
 
             lectorPerfiles = new LeerPerfiles();
-            lectorPerfiles.cargarPerfilesEnAlmacenamiento(almacenamiento);
-
-            for (Perfil perfil : almacenamiento.obtenerTodosPerfiles().values()) {
-                redSocial.agregarUsuario(perfil.getId());
+            snapshotBinario = new SnapshotBinario(lectorPerfiles.getRutaArchivo() + ".bin");
+
+            if (snapshotBinario.cargar(almacenamiento)) {
+                // Arranque rápido: internador, grafo y red salen ya armados del snapshot binario
+                motorSugerencias = snapshotBinario.getMotor();
+                redSocial = snapshotBinario.getRedSocial();
+            } else {
+                // Sin snapshot binario se importa Perfiles.json.
+                // Se dimensiona la red con la cantidad estimada de perfiles del archivo; después crece sola
+                redSocial = new WeightedQuickUnionUF(lectorPerfiles.estimarCantidadPerfiles());
+                // El motor comparte el internador de la red: grafo y union-find usan los mismos índices
+                motorSugerencias = new MotorSugerencias(almacenamiento, redSocial.getInternador());
+                // Cada perfil pasa al almacenamiento, al grafo y a la red a medida que se lee el archivo
+                lectorPerfiles.cargarPerfilesEnAlmacenamiento(almacenamiento, redSocial,
+                        Runtime.getRuntime().availableProcessors());
+                motorSugerencias.cargarLazosDesdePerfiles(redSocial, Runtime.getRuntime().availableProcessors());
             }
-
-            motorSugerencias.cargarLazosDesdePerfiles(redSocial);
+            motorSugerencias.setPresupuestoArcos(PRESUPUESTO_ARCOS_POR_SUGERENCIA);
+            motorSugerencias.activarCache(PESO_MAXIMO_CACHE_SUGERENCIAS);
+            buscadorCaminos = new BuscadorCaminos(motorSugerencias);
+
+            // Recuperación: snapshot + reproducción del registro de mutaciones (también sobre la red).
+            // Las compactaciones escriben el snapshot binario
+            registroMutaciones = new RegistroMutaciones(lectorPerfiles, almacenamiento);
+            registroMutaciones.usarSnapshotBinario(snapshotBinario, motorSugerencias, redSocial);
+            registroMutaciones.recuperar(motorSugerencias, redSocial);
+            registroMutaciones.iniciar();
+            // La red no sabe separar componentes: las toma de la conectividad dinámica después de cada
+            // eliminación que separa usuarios (y ahora, por las eliminaciones reproducidas)
+            motorSugerencias.vincularRed(redSocial, almacenamiento);
+
+            // Las métricas empiezan después de la recuperación: miden el uso, no el arranque
+            iniciarMetricas();
 
             System.out.println("Sistema inicializado con " + almacenamiento.obtenerTotalPerfiles() + " perfiles");
             logger.info("Sistema inicializado con {} perfiles", almacenamiento.obtenerTotalPerfiles());
 
-            mostrarMenu();
+            if (args.length > 0 && args[0].equals("--servidor")) {
+                iniciarServidor(args.length > 1 ? Integer.parseInt(args[1]) : PUERTO_POR_DEFECTO);
+            } else {
+                mostrarMenu();
+            }
         } catch (Exception e) {
             logger.error("Error crítico al iniciar la aplicación: {}", e.getMessage());
             System.err.println("Error al iniciar la aplicación: " + e.getMessage());
         }
     }
 
-   
+    // El servidor corre en sus propios hilos; al detener el proceso se cierran servidor y registro
+    private static void iniciarServidor(int puerto) throws Exception {
+        servidorApi = new ServidorApi(almacenamiento, motorSugerencias, redSocial, registroMutaciones, buscadorCaminos);
+        servidorApi.iniciar(puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logger.info("Deteniendo servidor API");
+            servidorApi.close();
+            registroMutaciones.close();
+            logger.info("Métricas al detener el servidor:\n{}", metricas.volcar());
+            metricas.close();
+        }, "apagado-servidor"));
+        System.out.println("API escuchando en http://localhost:" + servidorApi.getPuerto() + " (Ctrl+C para detener)");
+    }
+
+    // Latencias de las operaciones principales e indicadores de tamaño de la red, publicados por JMX
+    // (jconsole: estructurasparcial4 > Metricas) y en la opción "Ver métricas" del menú
+    private static void iniciarMetricas() {
+        metricas = new Metricas();
+        almacenamiento.setMetricas(metricas);
+        motorSugerencias.setMetricas(metricas);
+        lectorPerfiles.setMetricas(metricas);
+        redSocial.setMetricas(metricas);
+        metricas.registrarIndicador("perfiles", almacenamiento::obtenerTotalPerfiles);
+        metricas.registrarIndicador("componentes", redSocial::getCount);
+        metricas.registrarIndicador("amistades", () -> motorSugerencias.getGrafo().getCantidadArcos() / 2);
+        metricas.registrarIndicador("aciertosCache", () -> motorSugerencias.getCacheSugerencias() == null
+                ? 0 : motorSugerencias.getCacheSugerencias().getAciertos());
+        metricas.registrarIndicador("fallosCache", () -> motorSugerencias.getCacheSugerencias() == null
+                ? 0 : motorSugerencias.getCacheSugerencias().getFallos());
+        try {
+            metricas.registrarEnJmx();
+            logger.info("Métricas publicadas por JMX como {}", Metricas.NOMBRE_JMX);
+        } catch (IllegalStateException e) {
+            logger.warn("Métricas disponibles solo desde el menú: {}", e.getMessage());
+        }
+    }
+
     private static void mostrarMenu() {
         logger.info("Mostrando menú principal");
         boolean continuar = true;
@@ -66,6 +152,13 @@ public class App {
                 System.out.println("3. Visualizar red social");
                 System.out.println("4. Sugerir amigos");
                 System.out.println("5. Listar todos los perfiles");
+                System.out.println("6. Exportar perfiles a JSON");
+                System.out.println("7. Eliminar lazo de amistad");
+                System.out.println("8. Eliminar perfil");
+                System.out.println("9. Verificar conexión entre usuarios");
+                System.out.println("10. Buscar perfiles por nombre");
+                System.out.println("11. Visualizar red de un usuario");
+                System.out.println("12. Ver métricas");
                 System.out.println("0. Salir");
                 System.out.print("Seleccione una opción: ");
 
@@ -95,6 +188,27 @@ public class App {
                     case 5:
                         listarPerfiles();
                         break;
+                    case 6:
+                        exportarPerfiles();
+                        break;
+                    case 7:
+                        eliminarAmistad();
+                        break;
+                    case 8:
+                        eliminarPerfil();
+                        break;
+                    case 9:
+                        verificarConexion();
+                        break;
+                    case 10:
+                        buscarPorNombre();
+                        break;
+                    case 11:
+                        visualizarEgoRed();
+                        break;
+                    case 12:
+                        System.out.println(metricas.volcar());
+                        break;
                     case 0:
                         continuar = false;
                         logger.info("Usuario saliendo del sistema");
@@ -110,6 +224,10 @@ public class App {
             }
         }
 
+        registroMutaciones.close();
+        logger.info("Métricas al salir:\n{}", metricas.volcar());
+        metricas.close();
+
         try {
             sc.close();
             logger.info("Scanner cerrado correctamente");
@@ -169,9 +287,16 @@ public class App {
 
             try {
                 Perfil nuevoPerfil = new Perfil(userId, nombre, edad, genero);
-                almacenamiento.crearPerfil(nuevoPerfil);
-                redSocial.agregarUsuario(userId);
-                lectorPerfiles.guardarPerfiles(almacenamiento);
+                // El almacenamiento se modifica bajo su monitor porque la compactación lo lee en segundo plano.
+                // La mutación se encola en el registro dentro del mismo bloque (así el orden del registro es
+                // el de aplicación) y el fsync se espera afuera
+                long secuencia;
+                synchronized (almacenamiento) {
+                    almacenamiento.crearPerfil(nuevoPerfil);
+                    redSocial.agregarUsuario(userId);
+                    secuencia = registroMutaciones.encolarPerfilCreado(nuevoPerfil);
+                }
+                registroMutaciones.esperarDurable(secuencia);
                 System.out.println("Perfil creado exitosamente");
                 logger.info("Perfil creado exitosamente: {}", userId);
             } catch (IllegalArgumentException e) {
@@ -225,9 +350,13 @@ public class App {
             }
 
             try {
-                motorSugerencias.generarAmistad(userIdA, userIdB, calidad);
-                redSocial.generarAmistad(userIdA, userIdB, calidad);
-                lectorPerfiles.guardarPerfiles(almacenamiento);
+                long secuencia;
+                synchronized (almacenamiento) {
+                    motorSugerencias.generarAmistad(userIdA, userIdB, calidad);
+                    redSocial.generarAmistad(userIdA, userIdB, calidad);
+                    secuencia = registroMutaciones.encolarAmistad(userIdA, userIdB, calidad);
+                }
+                registroMutaciones.esperarDurable(secuencia);
                 System.out.println("Lazo de amistad creado exitosamente");
                 logger.info("Lazo de amistad creado exitosamente entre {} y {}", userIdA, userIdB);
             } catch (IllegalArgumentException e) {
@@ -246,7 +375,13 @@ public class App {
         System.out.println("\n--- VISUALIZAR RED SOCIAL COMPLETA ---");
         try {
             System.out.println(redSocial.toString());
-            redSocial.visualizarRedSocial(almacenamiento);
+            if (redSocial.getCantidadUsuarios() > MAXIMO_USUARIOS_VISTA_COMPLETA) {
+                System.out.println("Red grande: se muestra una componente por nodo. Clic en una componente para"
+                        + " expandirla y en un usuario para volver a agruparla");
+                new VistaRedSocial(redSocial, motorSugerencias.getGrafo(), almacenamiento).mostrar();
+            } else {
+                redSocial.visualizarRedSocial(almacenamiento);
+            }
             logger.info("Red social visualizada exitosamente");
         } catch (Exception e) {
             logger.error("Error al visualizar red social: {}", e.getMessage());
@@ -268,7 +403,7 @@ public class App {
             }
 
             try {
-                List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos(userId);
+                List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos(userId, MAX_SUGERENCIAS_MOSTRADAS);
 
                 if (sugerencias.isEmpty()) {
                     System.out.println("No hay sugerencias disponibles");
@@ -302,7 +437,7 @@ public class App {
         System.out.println("TODOS LOS PERFILES:");
         try {
             int contador = 1;
-            for (Perfil perfil : almacenamiento.obtenerTodosPerfiles().values()) {
+            for (Perfil perfil : almacenamiento.obtenerPerfiles()) {
                 System.out.println(contador + ". " + perfil.getNombre() + " [" + perfil.getId() + "]");
                 System.out.println("   Edad: " + perfil.getEdad() + " | Género: " + perfil.getGenero());
                 System.out.println("   Amigos: " + perfil.getAmigosDirectos().size());
@@ -314,4 +449,187 @@ public class App {
             System.out.println("Error al listar perfiles: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Exporta los perfiles en el formato JSON de siempre; el arranque usa el snapshot binario
+    private static void exportarPerfiles() {
+        logger.info("Iniciando exportación de perfiles a JSON");
+        System.out.println("\n--- EXPORTAR PERFILES A JSON ---");
+        try {
+            System.out.print("Ruta del archivo (Enter para " + lectorPerfiles.getRutaArchivo() + "): ");
+            String ruta = sc.nextLine();
+            LeerPerfiles exportador = ruta == null || ruta.trim().isEmpty() ? lectorPerfiles : new LeerPerfiles(ruta.trim());
+
+            boolean exportado;
+            synchronized (almacenamiento) {
+                exportado = exportador.guardarPerfiles(almacenamiento);
+            }
+            if (exportado) {
+                System.out.println("Perfiles exportados a " + exportador.getRutaArchivo());
+                logger.info("Perfiles exportados a {}", exportador.getRutaArchivo());
+            } else {
+                System.out.println("Error: no se pudo exportar a " + exportador.getRutaArchivo());
+            }
+        } catch (Exception e) {
+            logger.error("Error al exportar perfiles: {}", e.getMessage());
+            System.out.println("Error al exportar perfiles: " + e.getMessage());
+        }
+    }
+
+    // La conexión se consulta en el motor; la red (WeightedQuickUnionUF) recibe las componentes separadas
+    // cuando la conectividad dinámica publica su próxima época (ver MotorSugerencias.vincularRed)
+    private static void eliminarAmistad() {
+        logger.info("Iniciando eliminación de amistad");
+        System.out.println("\n--- ELIMINAR LAZO DE AMISTAD ---");
+        try {
+            System.out.print("User ID A: ");
+            String userIdA = sc.nextLine();
+            System.out.print("User ID B: ");
+            String userIdB = sc.nextLine();
+
+            long secuencia = -1;
+            synchronized (almacenamiento) {
+                if (motorSugerencias.eliminarAmistad(userIdA, userIdB)) {
+                    secuencia = registroMutaciones.encolarAmistadEliminada(userIdA, userIdB);
+                }
+            }
+            if (secuencia >= 0) {
+                registroMutaciones.esperarDurable(secuencia);
+                System.out.println("Lazo de amistad eliminado");
+                logger.info("Lazo de amistad eliminado entre {} y {}", userIdA, userIdB);
+            } else {
+                System.out.println("No existe un lazo de amistad entre " + userIdA + " y " + userIdB);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("Error al eliminar amistad: {}", e.getMessage());
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error inesperado al eliminar amistad: {}", e.getMessage());
+            System.out.println("Error inesperado: " + e.getMessage());
+        }
+    }
+
+    // Se borran el perfil y todas sus amistades
+    private static void eliminarPerfil() {
+        logger.info("Iniciando eliminación de perfil");
+        System.out.println("\n--- ELIMINAR PERFIL ---");
+        try {
+            System.out.print("User ID: ");
+            String userId = sc.nextLine();
+
+            if (userId == null || userId.trim().isEmpty()) {
+                logger.error("User ID vacío ingresado");
+                System.out.println("Error: User ID no puede estar vacío");
+                return;
+            }
+            if (!almacenamiento.existePerfil(userId)) {
+                System.out.println("Error: Usuario no existe: " + userId);
+                return;
+            }
+
+            long secuencia;
+            synchronized (almacenamiento) {
+                almacenamiento.eliminarPerfil(userId);
+                secuencia = registroMutaciones.encolarPerfilEliminado(userId);
+            }
+            registroMutaciones.esperarDurable(secuencia);
+            System.out.println("Perfil eliminado: " + userId);
+        } catch (Exception e) {
+            logger.error("Error al eliminar perfil: {}", e.getMessage());
+            System.out.println("Error al eliminar perfil: " + e.getMessage());
+        }
+    }
+
+    private static void verificarConexion() {
+        logger.info("Verificando conexión entre usuarios");
+        System.out.println("\n--- VERIFICAR CONEXIÓN ---");
+        try {
+            System.out.print("User ID A: ");
+            String userIdA = sc.nextLine();
+            System.out.print("User ID B: ");
+            String userIdB = sc.nextLine();
+
+            if (!motorSugerencias.conectados(userIdA, userIdB)) {
+                System.out.println(userIdA + " y " + userIdB + " no están conectados");
+                return;
+            }
+            CaminoAmistad camino = buscadorCaminos.caminoMasCorto(userIdA, userIdB);
+            if (camino.isEncontrado()) {
+                System.out.println(userIdA + " y " + userIdB + " están a " + camino.getSaltos() + " grados de separación: "
+                        + String.join(" -> ", camino.getUsuarios()));
+            } else {
+                System.out.println(userIdA + " y " + userIdB + " están conectados, pero el camino supera el límite de búsqueda ("
+                        + buscadorCaminos.getMaxSaltos() + " saltos)");
+            }
+        } catch (Exception e) {
+            logger.error("Error al verificar conexión: {}", e.getMessage());
+            System.out.println("Error al verificar conexión: " + e.getMessage());
+        }
+    }
+
+    // Primero aparecen los amigos y los amigos de amigos del usuario que busca (si se indica)
+    private static void buscarPorNombre() {
+        logger.info("Iniciando búsqueda de perfiles por nombre");
+        System.out.println("\n--- BUSCAR PERFILES POR NOMBRE ---");
+        try {
+            System.out.print("Nombre o comienzo del nombre: ");
+            String texto = sc.nextLine();
+            System.out.print("Su User ID (Enter para omitir): ");
+            String userId = sc.nextLine();
+
+            List<Perfil> encontrados = motorSugerencias.buscarPorNombre(texto,
+                    userId == null || userId.trim().isEmpty() ? null : userId.trim(), MAX_SUGERENCIAS_MOSTRADAS);
+            if (encontrados.isEmpty()) {
+                System.out.println("No se encontraron perfiles");
+            }
+            int contador = 1;
+            for (Perfil perfil : encontrados) {
+                System.out.println(contador + ". " + perfil.getNombre() + " [" + perfil.getId() + "]");
+                contador++;
+            }
+            logger.info("Búsqueda por nombre '{}': {} perfiles", texto, encontrados.size());
+        } catch (Exception e) {
+            logger.error("Error al buscar perfiles por nombre: {}", e.getMessage());
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static void visualizarEgoRed() {
+        logger.info("Iniciando visualización de la red de un usuario");
+        System.out.println("\n--- VISUALIZAR RED DE UN USUARIO ---");
+        try {
+            System.out.print("User ID: ");
+            String userId = sc.nextLine();
+            System.out.print("Saltos desde el usuario (1-3): ");
+            int saltos;
+            try {
+                saltos = Integer.parseInt(sc.nextLine().trim());
+            } catch (NumberFormatException e) {
+                logger.error("Cantidad de saltos no numérica: {}", e.getMessage());
+                System.out.println("Error: Los saltos deben ser un número");
+                return;
+            }
+            if (saltos < 1 || saltos > 3) {
+                logger.error("Cantidad de saltos fuera de rango: {}", saltos);
+                System.out.println("Error: Los saltos deben estar entre 1 y 3");
+                return;
+            }
+            System.out.print("Archivo PNG para guardar la imagen (Enter para abrir una ventana): ");
+            String archivo = sc.nextLine();
+
+            VistaEgoRed vista = new VistaEgoRed(motorSugerencias);
+            if (archivo == null || archivo.trim().isEmpty()) {
+                vista.mostrar(userId == null ? null : userId.trim(), saltos);
+            } else {
+                vista.guardarImagen(userId == null ? null : userId.trim(), saltos, archivo.trim());
+                System.out.println("Imagen guardada en " + archivo.trim());
+            }
+            if (vista.isTruncada()) {
+                System.out.println("La vecindad tiene más de " + vista.getMaxNodos() + " usuarios: se muestran los más cercanos");
+            }
+            logger.info("Red de {} visualizada a {} saltos", userId, saltos);
+        } catch (Exception e) {
+            logger.error("Error al visualizar la red de un usuario: {}", e.getMessage());
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package estructurasparcial4.Model;
+
+import java.util.Collections;
+import java.util.List;
+
+// Clase que representa la respuesta a "¿cómo están conectados A y B?".
+// Si se encontró un camino, contiene los ids de los usuarios desde A hasta B (ambos incluidos) y la
+// calidad de su amistad más débil. Si no, indica si no hay camino o si la búsqueda agotó su
+// presupuesto de saltos o de nodos (en ese caso puede existir un camino más largo).
+public class CaminoAmistad {
+
+    public enum Resultado {
+        ENCONTRADO, SIN_CAMINO, PRESUPUESTO_AGOTADO
+    }
+
+    private final Resultado resultado;
+    private final List<String> usuarios;
+    private final int calidadMinima;
+
+    private CaminoAmistad(Resultado resultado, List<String> usuarios, int calidadMinima) {
+        this.resultado = resultado;
+        this.usuarios = usuarios;
+        this.calidadMinima = calidadMinima;
+    }
+
+    public static CaminoAmistad encontrado(List<String> usuarios, int calidadMinima) {
+        if (usuarios == null || usuarios.isEmpty()) {
+            throw new IllegalArgumentException("El camino debe tener al menos un usuario");
+        }
+        return new CaminoAmistad(Resultado.ENCONTRADO, Collections.unmodifiableList(usuarios), calidadMinima);
+    }
+
+    public static CaminoAmistad sinCamino() {
+        return new CaminoAmistad(Resultado.SIN_CAMINO, Collections.emptyList(), 0);
+    }
+
+    public static CaminoAmistad presupuestoAgotado() {
+        return new CaminoAmistad(Resultado.PRESUPUESTO_AGOTADO, Collections.emptyList(), 0);
+    }
+
+    public Resultado getResultado() {
+        return resultado;
+    }
+
+    public boolean isEncontrado() {
+        return resultado == Resultado.ENCONTRADO;
+    }
+
+    // Ids de A hasta B; vacía si no se encontró camino
+    public List<String> getUsuarios() {
+        return usuarios;
+    }
+
+    // Grados de separación (amistades en el camino); -1 si no se encontró camino
+    public int getSaltos() {
+        return usuarios.isEmpty() ? -1 : usuarios.size() - 1;
+    }
+
+    // Calidad de la amistad más débil del camino (0 si no hay camino o si A y B son el mismo usuario)
+    public int getCalidadMinima() {
+        return calidadMinima;
+    }
+
+    @Override
+    public String toString() {
+        if (!isEncontrado()) {
+            return "CaminoAmistad{" + resultado + "}";
+        }
+        return "CaminoAmistad{" + String.join(" -> ", usuarios) + ", saltos=" + getSaltos()
+                + ", calidadMinima=" + calidadMinima + "}";
+    }
+}
@@ -0,0 +1,71 @@
+package estructurasparcial4.Model;
+
+import java.util.Locale;
+
+// Clase que representa un filtro sobre los atributos de un perfil: rango de edad (ambos extremos
+// incluidos) y, opcionalmente, un género. Se usa para listar perfiles y para acotar las sugerencias.
+// El género se compara sin distinguir mayúsculas ni espacios alrededor ("f" y " F " son lo mismo).
+public class FiltroPerfiles {
+
+    public static final int EDAD_MINIMA = 0;
+    public static final int EDAD_MAXIMA = Short.MAX_VALUE;
+
+    private final int edadMinima;
+    private final int edadMaxima;
+    private final String genero; // normalizado; null = cualquier género
+
+    public FiltroPerfiles(int edadMinima, int edadMaxima, String genero) {
+        if (edadMinima < EDAD_MINIMA || edadMaxima > EDAD_MAXIMA || edadMinima > edadMaxima) {
+            throw new IllegalArgumentException("Rango de edad inválido: " + edadMinima + " a " + edadMaxima);
+        }
+        if (genero != null && genero.trim().isEmpty()) {
+            throw new IllegalArgumentException("Género del filtro no puede ser vacío");
+        }
+        this.edadMinima = edadMinima;
+        this.edadMaxima = edadMaxima;
+        this.genero = genero == null ? null : normalizarGenero(genero);
+    }
+
+    public static FiltroPerfiles porEdad(int edadMinima, int edadMaxima) {
+        return new FiltroPerfiles(edadMinima, edadMaxima, null);
+    }
+
+    public static FiltroPerfiles porGenero(String genero) {
+        if (genero == null) {
+            throw new IllegalArgumentException("Género del filtro no puede ser nulo");
+        }
+        return new FiltroPerfiles(EDAD_MINIMA, EDAD_MAXIMA, genero);
+    }
+
+    // Forma con la que se comparan e indexan los géneros
+    public static String normalizarGenero(String genero) {
+        return genero == null ? "" : genero.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public int getEdadMinima() {
+        return edadMinima;
+    }
+
+    public int getEdadMaxima() {
+        return edadMaxima;
+    }
+
+    // Género normalizado, o null si el filtro acepta cualquiera
+    public String getGenero() {
+        return genero;
+    }
+
+    public boolean tieneRangoEdad() {
+        return edadMinima > EDAD_MINIMA || edadMaxima < EDAD_MAXIMA;
+    }
+
+    public boolean cumple(Perfil perfil) {
+        return perfil != null && perfil.getEdad() >= edadMinima && perfil.getEdad() <= edadMaxima
+                && (genero == null || genero.equals(normalizarGenero(perfil.getGenero())));
+    }
+
+    @Override
+    public String toString() {
+        return "FiltroPerfiles{edad=" + edadMinima + ".." + edadMaxima + (genero == null ? "" : ", genero=" + genero) + "}";
+    }
+}
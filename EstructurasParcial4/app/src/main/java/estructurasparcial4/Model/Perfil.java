@@ -2,9 +2,18 @@ package estructurasparcial4.Model;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.util.HashMap;
+import java.util.function.IntPredicate;
+
+import estructurasparcial4.Util.GrafoAmistades;
 
 // Clase que representa a una persona de la red social. Utilizamos un HashMap para almacenar amigos directos y la calidad de amistad porque resulta más sencillo relacionar el id del amigo
-// con la calidad de amistad
+// con la calidad de amistad.
+// Cuando el perfil entra al motor se vincula al GrafoAmistades: sus amistades pasan al grafo (CSR) y el
+// HashMap se libera; a partir de ahí los métodos de amistad delegan en el grafo, que es seguro para
+// varios hilos. Mientras no está vinculado, el HashMap se protege con el monitor del perfil.
+// Las amistades hacia ids que todavía no tienen perfil no pueden ir al grafo: quedan en amigosSinPerfil
+// (también bajo el monitor) hasta que el motor las pasa al grafo, y getAmigosDirectos() las incluye para
+// que los snapshots no las pierdan.
 public class Perfil {
     private String id;
     private String nombre;
@@ -12,16 +21,22 @@ public class Perfil {
     private String genero;
     private HashMap<String, Integer> amigosDirectos;
 
+    // transient: Gson no los serializa
+    private transient volatile GrafoAmistades grafo;
+    private transient int indice;
+    private transient HashMap<String, Integer> amigosSinPerfil; // null si no hay ninguna
+
     private static final Logger logger = LogManager.getLogger(Perfil.class);
 
     public Perfil(String id, String nombre, short edad, String genero) {
-        logger.info("Creando perfil: {}", id);
         this.id = id;
         this.nombre = nombre;
         this.edad = edad;
         this.genero = genero;
         this.amigosDirectos = new HashMap<>();
-        logger.info("Perfil creado: {}", id);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Perfil creado: {}", id);
+        }
     }
 
     public String getId() {
@@ -40,30 +55,156 @@ public class Perfil {
         return genero;
     }
 
+    // Si el perfil está vinculado al grafo se devuelve una copia construida desde el grafo
     public HashMap<String, Integer> getAmigosDirectos() {
-        return amigosDirectos;
+        if (grafo == null) {
+            synchronized (this) {
+                if (grafo == null) {
+                    return amigosDirectos;
+                }
+            }
+        }
+        HashMap<String, Integer> amigos = grafo.amigosComoMapa(indice);
+        synchronized (this) {
+            if (amigosSinPerfil != null) {
+                amigosSinPerfil.forEach(amigos::putIfAbsent);
+            }
+        }
+        return amigos;
+    }
+
+    // Copia de las amistades hacia ids sin perfil (null si no hay ninguna)
+    public synchronized HashMap<String, Integer> getAmigosSinPerfil() {
+        return amigosSinPerfil != null ? new HashMap<>(amigosSinPerfil) : null;
+    }
+
+    // El amigo ya tiene perfil y el motor pasa la amistad al grafo: devuelve su calidad, o null si el
+    // perfil ya no la tenía (se eliminó mientras estaba pendiente)
+    public synchronized Integer quitarAmigoSinPerfil(String idAmigo) {
+        if (amigosSinPerfil == null) {
+            return null;
+        }
+        Integer calidad = amigosSinPerfil.remove(idAmigo);
+        if (amigosSinPerfil.isEmpty()) {
+            amigosSinPerfil = null;
+        }
+        return calidad;
+    }
+
+    public boolean estaVinculado() {
+        return grafo != null;
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    // Mueve las amistades del perfil al grafo y libera el HashMap. El grafo se publica al final,
+    // cuando ya tiene todos los arcos del perfil.
+    // Solo se pasan los amigos que ya tienen perfil ('tienePerfil' por índice): un id sin perfil no se
+    // agrega al internador (sería un usuario suelto en la red). Esas amistades se devuelven para que
+    // quien vincula las pase al grafo cuando aparezca el perfil (y quedan en amigosSinPerfil); null si no
+    // quedó ninguna
+    public synchronized HashMap<String, Integer> vincularGrafo(GrafoAmistades grafo, int indice, IntPredicate tienePerfil) {
+        if (grafo == null) {
+            throw new IllegalArgumentException("Grafo no puede ser nulo");
+        }
+        if (this.grafo == grafo) {
+            return null;
+        }
+        HashMap<String, Integer> sinPerfil = null;
+        HashMap<String, Integer> amigos = this.grafo != null ? this.grafo.amigosComoMapa(this.indice) : amigosDirectos;
+        if (this.grafo != null && amigosSinPerfil != null) {
+            amigosSinPerfil.forEach(amigos::putIfAbsent);
+        }
+        if (amigos != null) {
+            int amigo;
+            for (HashMap.Entry<String, Integer> entrada : amigos.entrySet()) {
+                amigo = grafo.getInternador().indiceDe(entrada.getKey());
+                if (amigo >= 0 && tienePerfil.test(amigo)) {
+                    grafo.agregarArco(indice, amigo, entrada.getValue());
+                } else {
+                    if (sinPerfil == null) {
+                        sinPerfil = new HashMap<>();
+                    }
+                    sinPerfil.put(entrada.getKey(), entrada.getValue());
+                }
+            }
+        }
+        this.indice = indice;
+        this.amigosSinPerfil = sinPerfil != null ? new HashMap<>(sinPerfil) : null;
+        this.amigosDirectos = null;
+        this.grafo = grafo;
+        return sinPerfil;
     }
 
     public boolean esAmigo(String idAmigo) {
-        return amigosDirectos.containsKey(idAmigo);
+        if (grafo == null) {
+            synchronized (this) {
+                if (grafo == null) {
+                    return amigosDirectos.containsKey(idAmigo);
+                }
+            }
+        }
+        return grafo.calidad(indice, grafo.getInternador().indiceDe(idAmigo)) > 0;
     }
 
     public void agregarAmigo(String idAmigo, int calidadAmistad) {
-        logger.info("Agregando amigo: {} a perfil: {}", idAmigo, this.id);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Agregando amigo: {} a perfil: {}", idAmigo, this.id);
+        }
         if (calidadAmistad < 1 || calidadAmistad > 5) {
             logger.error("Calidad de amistad inválida: {} para amigo: {} en perfil: {}", calidadAmistad, idAmigo, this.id);
             throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
         }
-        amigosDirectos.put(idAmigo, calidadAmistad);
-        logger.info("Amigo agregado: {} a perfil: {}", idAmigo, this.id);
+        if (grafo == null) {
+            synchronized (this) {
+                if (grafo == null) {
+                    amigosDirectos.put(idAmigo, calidadAmistad);
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Amigo agregado: {} a perfil: {}", idAmigo, this.id);
+                    }
+                    return;
+                }
+            }
+        }
+        // Vinculado al grafo, el amigo tiene que ser un usuario conocido: no se agregan ids sueltos al internador
+        int indiceAmigo = grafo.getInternador().indiceDe(idAmigo);
+        if (indiceAmigo < 0) {
+            logger.error("Amigo no existe: {} para perfil: {}", idAmigo, this.id);
+            throw new IllegalArgumentException("Usuario no existe: " + idAmigo);
+        }
+        grafo.agregarArco(indice, indiceAmigo, calidadAmistad);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Amigo agregado: {} a perfil: {}", idAmigo, this.id);
+        }
     }
 
     public void eliminarAmigo(String idAmigo) {
-        amigosDirectos.remove(idAmigo);
+        if (grafo == null) {
+            synchronized (this) {
+                if (grafo == null) {
+                    amigosDirectos.remove(idAmigo);
+                    return;
+                }
+            }
+        }
+        if (quitarAmigoSinPerfil(idAmigo) != null) {
+            return;
+        }
+        grafo.eliminarArco(indice, grafo.getInternador().indiceDe(idAmigo));
     }
 
     public Integer obtenerCalidadAmistad(String idAmigo) {
-        return amigosDirectos.get(idAmigo);
+        if (grafo == null) {
+            synchronized (this) {
+                if (grafo == null) {
+                    return amigosDirectos.get(idAmigo);
+                }
+            }
+        }
+        int calidad = grafo.calidad(indice, grafo.getInternador().indiceDe(idAmigo));
+        return calidad > 0 ? calidad : null;
     }
     
     @Override
@@ -73,7 +214,7 @@ public class Perfil {
                 ", nombre='" + nombre + '\'' +
                 ", edad=" + edad +
                 ", genero='" + genero + '\'' +
-                ", amigosDirectos=" + amigosDirectos +
+                ", amigosDirectos=" + getAmigosDirectos() +
                 '}';
     }
 }
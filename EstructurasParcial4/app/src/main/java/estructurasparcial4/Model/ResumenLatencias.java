@@ -0,0 +1,75 @@
+package estructurasparcial4.Model;
+
+// Clase que representa el resumen de las mediciones de una operación: cuántas veces se ejecutó, cuántas
+// terminaron con error y los percentiles de su latencia en nanosegundos. Es lo que se publica por JMX
+// (cada instancia se ve como un CompositeData) y lo que se imprime al volcar las métricas.
+public class ResumenLatencias {
+
+    private final String operacion;
+    private final long operaciones;
+    private final long errores;
+    private final double promedioNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maximoNanos;
+
+    public ResumenLatencias(String operacion, long operaciones, long errores, double promedioNanos,
+            long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maximoNanos) {
+        if (operacion == null || operacion.trim().isEmpty()) {
+            throw new IllegalArgumentException("Nombre de operación no puede ser nulo o vacío");
+        }
+        this.operacion = operacion;
+        this.operaciones = operaciones;
+        this.errores = errores;
+        this.promedioNanos = promedioNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maximoNanos = maximoNanos;
+    }
+
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public long getOperaciones() {
+        return operaciones;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public double getPromedioNanos() {
+        return promedioNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaximoNanos() {
+        return maximoNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-17s ops=%-10d errores=%-6d prom=%.0fns p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+                operacion, operaciones, errores, promedioNanos, p50Nanos, p90Nanos, p99Nanos, p999Nanos, maximoNanos);
+    }
+}
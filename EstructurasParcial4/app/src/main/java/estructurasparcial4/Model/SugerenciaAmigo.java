@@ -4,27 +4,41 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 // Clase que representa una sugerencia de amigo para un usuario.
-// Contiene el id sugerido, su prioridad y el perfil asociado.
+// Contiene el id sugerido, su prioridad, su puntaje y el perfil asociado.
+// La prioridad (1 a 5) es la mejor calidad de amistad entre el usuario y un amigo en común; el
+// puntaje es el valor con el que se ordenan las sugerencias y depende de la EstrategiaPuntuacion
+// del motor (con la estrategia por defecto coincide con la prioridad).
 public class SugerenciaAmigo implements Comparable<SugerenciaAmigo> {
     private final String idUsuarioSugerido;
     private final int prioridad;
+    private final double puntaje;
     private final Perfil perfil;
 
+    public static final int PRIORIDAD_MINIMA = 1;
+    public static final int PRIORIDAD_MAXIMA = 5;
+
     private static final Logger logger = LogManager.getLogger(SugerenciaAmigo.class);
 
     public SugerenciaAmigo(String idUsuarioSugerido, int prioridad, Perfil perfil) {
-        logger.info("Creando sugerencia de amigo: {}", idUsuarioSugerido);
-        
+        this(idUsuarioSugerido, prioridad, prioridad, perfil);
+    }
+
+    public SugerenciaAmigo(String idUsuarioSugerido, int prioridad, double puntaje, Perfil perfil) {
         if (idUsuarioSugerido == null || idUsuarioSugerido.trim().isEmpty()) {
             logger.error("ID de usuario sugerido es nulo o vacío");
             throw new IllegalArgumentException("ID de usuario sugerido no puede ser nulo o vacío");
         }
         
-        if (prioridad < 1 || prioridad > 5) {
+        if (prioridad < PRIORIDAD_MINIMA || prioridad > PRIORIDAD_MAXIMA) {
             logger.error("Prioridad inválida: {} para usuario sugerido: {}", prioridad, idUsuarioSugerido);
             throw new IllegalArgumentException("Prioridad debe estar entre 1 y 5");
         }
         
+        if (Double.isNaN(puntaje) || Double.isInfinite(puntaje) || puntaje < 0) {
+            logger.error("Puntaje inválido: {} para usuario sugerido: {}", puntaje, idUsuarioSugerido);
+            throw new IllegalArgumentException("Puntaje debe ser un número finito mayor o igual a 0");
+        }
+
         if (perfil == null) {
             logger.error("Perfil es nulo para usuario sugerido: {}", idUsuarioSugerido);
             throw new IllegalArgumentException("Perfil no puede ser nulo");
@@ -32,8 +46,8 @@ public class SugerenciaAmigo implements Comparable<SugerenciaAmigo> {
         
         this.idUsuarioSugerido = idUsuarioSugerido;
         this.prioridad = prioridad;
+        this.puntaje = puntaje;
         this.perfil = perfil;
-        logger.info("Sugerencia de amigo creada: {} con prioridad: {}", idUsuarioSugerido, prioridad);
     }
 
     public String getUserIdSugerido() {
@@ -44,11 +58,15 @@ public class SugerenciaAmigo implements Comparable<SugerenciaAmigo> {
         return prioridad;
     }
 
+    public double getPuntaje() {
+        return puntaje;
+    }
+
     public Perfil getPerfil() {
         return perfil;
     }
 
-    // Ordena por prioridad (mayor prioridad primero).
+    // Ordena por puntaje y luego por prioridad (mayor primero).
     @Override
     public int compareTo(SugerenciaAmigo otra) {
         try {
@@ -56,7 +74,8 @@ public class SugerenciaAmigo implements Comparable<SugerenciaAmigo> {
                 logger.error("Intentando comparar con sugerencia nula");
                 throw new IllegalArgumentException("No se puede comparar con una sugerencia nula");
             }
-            return Integer.compare(otra.prioridad, this.prioridad);
+            int comparacion = Double.compare(otra.puntaje, this.puntaje);
+            return comparacion != 0 ? comparacion : Integer.compare(otra.prioridad, this.prioridad);
         } catch (Exception e) {
             logger.error("Error al comparar sugerencias: {}", e.getMessage());
             throw e;
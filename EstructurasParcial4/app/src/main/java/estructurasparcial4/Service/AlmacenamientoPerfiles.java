@@ -3,21 +3,63 @@ package estructurasparcial4.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Util.Metricas;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-// Clase que guarda y gestiona los perfiles de la red social simulando una base de datos con hashmap
+// Clase que guarda y gestiona los perfiles de la red social simulando una base de datos con hashmap.
+// Es segura para varios hilos: las lecturas (buscarPerfil, existePerfil) van directo al
+// ConcurrentHashMap sin bloquear, y las altas y bajas de un mismo id se serializan con un monitor
+// por franja (lock striping), de modo que la verificación, el aviso a los observadores y la
+// publicación en la tabla ocurren como una sola operación. Ids de franjas distintas no se bloquean.
 public class AlmacenamientoPerfiles {
-    private final HashMap<String, Perfil> tablaPerfiles;
+    private static final int FRANJAS = 64; // potencia de 2
+
+    private final ConcurrentHashMap<String, Perfil> tablaPerfiles;
+    private final Object[] franjas;
+    private final List<ObservadorPerfiles> observadores;
+    private volatile Metricas metricas; // latencia de crearPerfil() (null = no se mide)
     private static final Logger logger = LogManager.getLogger(AlmacenamientoPerfiles.class);
 
     public AlmacenamientoPerfiles() {
         logger.info("Inicializando AlmacenamientoPerfiles");
-        this.tablaPerfiles = new HashMap<>();
+        this.tablaPerfiles = new ConcurrentHashMap<>();
+        this.franjas = new Object[FRANJAS];
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Object();
+        }
+        this.observadores = new CopyOnWriteArrayList<>();
         logger.info("AlmacenamientoPerfiles inicializado");
     }
 
+    // Monitor que protege las altas y bajas del id
+    private Object franjaDe(String idUsuario) {
+        int h = idUsuario.hashCode() * 0x9E3779B9;
+        return franjas[(h ^ (h >>> 16)) & (FRANJAS - 1)];
+    }
+
+    // Registra una estructura que debe enterarse de las altas y bajas de perfiles
+    public void agregarObservador(ObservadorPerfiles observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("Observador no puede ser nulo");
+        }
+        observadores.add(observador);
+    }
+
+    public void setMetricas(Metricas metricas) {
+        this.metricas = metricas;
+    }
+
     public void crearPerfil(Perfil perfil) {
-        logger.info("Intentando crear perfil");
+        if (logger.isTraceEnabled()) {
+            logger.trace("Intentando crear perfil");
+        }
+        Metricas medidas = metricas;
+        long inicio = medidas != null ? System.nanoTime() : 0L;
         try {
             if (perfil == null) {
                 logger.error("Intento de crear perfil nulo");
@@ -29,21 +71,37 @@ public class AlmacenamientoPerfiles {
                 throw new IllegalArgumentException("ID de perfil no puede ser nulo o vacío");
             }
             
-            if (tablaPerfiles.containsKey(perfil.getId())) {
-                logger.error("UserID ya existe: {}", perfil.getId());
-                throw new IllegalArgumentException("UserID ya existe: " + perfil.getId());
+            // Los observadores se enteran antes de publicar el perfil: cuando buscarPerfil() lo
+            // encuentra, el motor ya lo tiene vinculado al grafo
+            synchronized (franjaDe(perfil.getId())) {
+                if (tablaPerfiles.containsKey(perfil.getId())) {
+                    logger.error("UserID ya existe: {}", perfil.getId());
+                    throw new IllegalArgumentException("UserID ya existe: " + perfil.getId());
+                }
+                for (ObservadorPerfiles observador : observadores) {
+                    observador.perfilCreado(perfil);
+                }
+                tablaPerfiles.put(perfil.getId(), perfil);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Perfil creado exitosamente: {}", perfil.getId());
+            }
+            if (medidas != null) {
+                medidas.registrar(Metricas.Operacion.CREAR_PERFIL, inicio);
             }
-            
-            tablaPerfiles.put(perfil.getId(), perfil);
-            logger.info("Perfil creado exitosamente: {}", perfil.getId());
         } catch (Exception e) {
             logger.error("Error al crear perfil: {}", e.getMessage());
+            if (medidas != null) {
+                medidas.registrarError(Metricas.Operacion.CREAR_PERFIL, inicio);
+            }
             throw e;
         }
     }
 
     public Perfil buscarPerfil(String idUsuario) {
-        logger.info("Buscando perfil: {}", idUsuario);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Buscando perfil: {}", idUsuario);
+        }
         try {
             if (idUsuario == null || idUsuario.trim().isEmpty()) {
                 logger.error("ID de usuario nulo o vacío en búsqueda");
@@ -52,9 +110,13 @@ public class AlmacenamientoPerfiles {
             
             Perfil perfil = tablaPerfiles.get(idUsuario);
             if (perfil == null) {
-                logger.warn("Perfil no encontrado: {}", idUsuario);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Perfil no encontrado: {}", idUsuario);
+                }
             } else {
-                logger.info("Perfil encontrado: {}", idUsuario);
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Perfil encontrado: {}", idUsuario);
+                }
             }
             return perfil;
         } catch (Exception e) {
@@ -64,14 +126,18 @@ public class AlmacenamientoPerfiles {
     }
 
     public boolean existePerfil(String idUsuario) {
-        logger.info("Verificando existencia de perfil: {}", idUsuario);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Verificando existencia de perfil: {}", idUsuario);
+        }
         try {
             if (idUsuario == null || idUsuario.trim().isEmpty()) {
                 logger.error("ID de usuario nulo o vacío en verificación");
                 return false;
             }
             boolean existe = tablaPerfiles.containsKey(idUsuario);
-            logger.info("Perfil {} existe: {}", idUsuario, existe);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Perfil {} existe: {}", idUsuario, existe);
+            }
             return existe;
         } catch (Exception e) {
             logger.error("Error al verificar existencia de perfil {}: {}", idUsuario, e.getMessage());
@@ -87,10 +153,18 @@ public class AlmacenamientoPerfiles {
                 throw new IllegalArgumentException("ID de usuario no puede ser nulo o vacío");
             }
             
-            if (!tablaPerfiles.containsKey(idUsuario)) {
+            Perfil eliminado;
+            synchronized (franjaDe(idUsuario)) {
+                eliminado = tablaPerfiles.remove(idUsuario);
+                if (eliminado != null) {
+                    for (ObservadorPerfiles observador : observadores) {
+                        observador.perfilEliminado(eliminado);
+                    }
+                }
+            }
+            if (eliminado == null) {
                 logger.warn("Perfil no encontrado para eliminar: {}", idUsuario);
             } else {
-                tablaPerfiles.remove(idUsuario);
                 logger.info("Perfil eliminado exitosamente: {}", idUsuario);
             }
         } catch (Exception e) {
@@ -100,10 +174,14 @@ public class AlmacenamientoPerfiles {
     }
 
     public int obtenerTotalPerfiles() {
-        logger.info("Obteniendo total de perfiles");
+        if (logger.isTraceEnabled()) {
+            logger.trace("Obteniendo total de perfiles");
+        }
         try {
             int total = tablaPerfiles.size();
-            logger.info("Total de perfiles: {}", total);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Total de perfiles: {}", total);
+            }
             return total;
         } catch (Exception e) {
             logger.error("Error al obtener total de perfiles: {}", e.getMessage());
@@ -111,20 +189,31 @@ public class AlmacenamientoPerfiles {
         }
     }
 
+    // Devuelve una copia de la tabla: modificarla no afecta al almacenamiento
     public HashMap<String, Perfil> obtenerTodosPerfiles() {
         logger.info("Obteniendo todos los perfiles");
         try {
-            logger.info("Total de perfiles retornados: {}", tablaPerfiles.size());
-            return tablaPerfiles;
+            HashMap<String, Perfil> copia = new HashMap<>(tablaPerfiles);
+            logger.info("Total de perfiles retornados: {}", copia.size());
+            return copia;
         } catch (Exception e) {
             logger.error("Error al obtener todos los perfiles: {}", e.getMessage());
             return new HashMap<>();
         }
     }
 
+    // Vista de solo lectura de los perfiles para recorrerlos sin copiar la tabla.
+    // Se puede iterar mientras otros hilos crean o eliminan perfiles: cada perfil se ve a lo sumo una
+    // vez y los cambios concurrentes pueden verse o no (iteración débilmente consistente)
+    public Collection<Perfil> obtenerPerfiles() {
+        return Collections.unmodifiableCollection(tablaPerfiles.values());
+    }
+
     // Método para obtener la calidad de amistad entre dos perfiles
     public Integer obtenerCalidadAmistad(String idPerfilA, String idPerfilB) {
-        logger.info("Obteniendo calidad de amistad entre {} y {}", idPerfilA, idPerfilB);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Obteniendo calidad de amistad entre {} y {}", idPerfilA, idPerfilB);
+        }
         try {
             if (idPerfilA == null || idPerfilB == null) {
                 logger.error("IDs de perfiles nulos en obtención de calidad de amistad");
@@ -135,7 +224,9 @@ public class AlmacenamientoPerfiles {
             if (perfilA != null) {
                 Integer q = perfilA.obtenerCalidadAmistad(idPerfilB);
                 if (q != null) {
-                    logger.info("Calidad de amistad encontrada desde perfil {}: {}", idPerfilA, q);
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Calidad de amistad encontrada desde perfil {}: {}", idPerfilA, q);
+                    }
                     return q;
                 }
             }
@@ -144,12 +235,16 @@ public class AlmacenamientoPerfiles {
             if (perfilB != null) {
                 Integer q = perfilB.obtenerCalidadAmistad(idPerfilA);
                 if (q != null) {
-                    logger.info("Calidad de amistad encontrada desde perfil {}: {}", idPerfilB, q);
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Calidad de amistad encontrada desde perfil {}: {}", idPerfilB, q);
+                    }
                     return q;
                 }
             }
 
-            logger.warn("No se encontró calidad de amistad entre {} y {}", idPerfilA, idPerfilB);
+            if (logger.isDebugEnabled()) {
+                logger.debug("No se encontró calidad de amistad entre {} y {}", idPerfilA, idPerfilB);
+            }
             return null;
         } catch (Exception e) {
             logger.error("Error al obtener calidad de amistad entre {} y {}: {}", idPerfilA, idPerfilB, e.getMessage());
@@ -0,0 +1,161 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import estructurasparcial4.Model.CaminoAmistad;
+import estructurasparcial4.Util.BusquedaBidireccional;
+import estructurasparcial4.Util.ConectividadDinamica;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.InternadorIds;
+import estructurasparcial4.Util.PoolEspacios;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Responde "¿cómo están conectados A y B?" sobre el GrafoAmistades del motor:
+// - caminoMasCorto(): menos grados de separación (búsqueda en anchura bidireccional).
+// - caminoDeMejorCalidad(): el camino cuya amistad más débil es la más fuerte posible y, entre esos,
+//   el más corto. Como la calidad solo vale de 1 a 5, basta probar con calidad mínima 5, 4, ... 1 y
+//   quedarse con la primera que conecta: a lo sumo cinco búsquedas, sin Dijkstra ni colas de prioridad.
+// Antes de buscar se consulta la ConectividadDinamica del motor: si A y B están en componentes
+// distintas se responde sin recorrer el grafo. Cada búsqueda se corta al pasar maxSaltos o maxNodos.
+public class BuscadorCaminos {
+
+    private static final Logger logger = LogManager.getLogger(BuscadorCaminos.class);
+
+    private static final int CALIDAD_MAXIMA = 5;
+
+    private final MotorSugerencias motor;
+    private final GrafoAmistades grafo;
+    private final InternadorIds internador;
+    private final PoolEspacios<BusquedaBidireccional> busquedas = new PoolEspacios<>(BusquedaBidireccional::new);
+
+    private volatile int maxSaltos = 6;
+    private volatile int maxNodos = 1_000_000;
+
+    public BuscadorCaminos(MotorSugerencias motor) {
+        if (motor == null) {
+            logger.error("Motor nulo en constructor de BuscadorCaminos");
+            throw new IllegalArgumentException("Motor de sugerencias no puede ser nulo");
+        }
+        this.motor = motor;
+        this.grafo = motor.getGrafo();
+        this.internador = motor.getInternador();
+    }
+
+    public int getMaxSaltos() {
+        return maxSaltos;
+    }
+
+    public void setMaxSaltos(int maxSaltos) {
+        if (maxSaltos < 1) {
+            logger.error("Máximo de saltos inválido: {}", maxSaltos);
+            throw new IllegalArgumentException("El máximo de saltos debe ser mayor que 0");
+        }
+        this.maxSaltos = maxSaltos;
+    }
+
+    public int getMaxNodos() {
+        return maxNodos;
+    }
+
+    public void setMaxNodos(int maxNodos) {
+        if (maxNodos < 2) {
+            logger.error("Máximo de nodos inválido: {}", maxNodos);
+            throw new IllegalArgumentException("El máximo de nodos debe ser al menos 2");
+        }
+        this.maxNodos = maxNodos;
+    }
+
+    public CaminoAmistad caminoMasCorto(String idUsuarioA, String idUsuarioB) {
+        return buscar(idUsuarioA, idUsuarioB, false);
+    }
+
+    public CaminoAmistad caminoDeMejorCalidad(String idUsuarioA, String idUsuarioB) {
+        return buscar(idUsuarioA, idUsuarioB, true);
+    }
+
+    private CaminoAmistad buscar(String idUsuarioA, String idUsuarioB, boolean mejorCalidad) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Buscando camino entre {} y {} (mejor calidad: {})", idUsuarioA, idUsuarioB, mejorCalidad);
+        }
+        try {
+            int indiceA = indiceDeUsuario(idUsuarioA);
+            int indiceB = indiceDeUsuario(idUsuarioB);
+            if (indiceA == indiceB) {
+                return CaminoAmistad.encontrado(List.of(idUsuarioA), 0);
+            }
+            ConectividadDinamica conectividad = motor.getConectividad();
+            if (!conectividad.puedenEstarConectados(indiceA, indiceB)) {
+                return CaminoAmistad.sinCamino();
+            }
+
+            BusquedaBidireccional busqueda = busquedas.tomar();
+            int saltos = maxSaltos;
+            int nodos = maxNodos;
+            grafo.cerrojoLectura().lock();
+            try {
+                if (!mejorCalidad) {
+                    return construirResultado(busqueda.buscar(grafo, indiceA, indiceB, 1, saltos, nodos), busqueda);
+                }
+                // Con calidad mínima alta el subgrafo es más chico: si no conecta, la búsqueda falla rápido
+                boolean agotado = false;
+                int resultado;
+                for (int calidad = CALIDAD_MAXIMA; calidad >= 1; calidad--) {
+                    resultado = busqueda.buscar(grafo, indiceA, indiceB, calidad, saltos, nodos);
+                    if (resultado == BusquedaBidireccional.CONECTADOS) {
+                        return construirResultado(resultado, busqueda);
+                    }
+                    agotado |= resultado == BusquedaBidireccional.SIN_PRESUPUESTO;
+                }
+                return agotado ? CaminoAmistad.presupuestoAgotado() : CaminoAmistad.sinCamino();
+            } finally {
+                grafo.cerrojoLectura().unlock();
+                busquedas.devolver(busqueda);
+            }
+        } catch (Exception e) {
+            logger.error("Error al buscar camino entre {} y {}: {}", idUsuarioA, idUsuarioB, e.getMessage());
+            throw e;
+        }
+    }
+
+    // Requiere el cerrojo de lectura
+    private CaminoAmistad construirResultado(int resultado, BusquedaBidireccional busqueda) {
+        if (resultado == BusquedaBidireccional.SEPARADOS) {
+            return CaminoAmistad.sinCamino();
+        }
+        if (resultado == BusquedaBidireccional.SIN_PRESUPUESTO) {
+            return CaminoAmistad.presupuestoAgotado();
+        }
+        int[] nodos = busqueda.camino();
+        List<String> usuarios = new ArrayList<>(nodos.length);
+        int calidad = CALIDAD_MAXIMA;
+        for (int i = 0; i < nodos.length; i++) {
+            usuarios.add(internador.idDe(nodos[i]));
+            if (i > 0) {
+                calidad = Math.min(calidad, calidadEntre(nodos[i - 1], nodos[i]));
+            }
+        }
+        return CaminoAmistad.encontrado(usuarios, calidad);
+    }
+
+    // El camino sigue arcos de ida; si solo existiera el de vuelta, vale ese
+    private int calidadEntre(int a, int b) {
+        int calidad = grafo.calidad(a, b);
+        return calidad > 0 ? calidad : grafo.calidad(b, a);
+    }
+
+    private int indiceDeUsuario(String idUsuario) {
+        if (idUsuario == null || idUsuario.trim().isEmpty()) {
+            logger.error("ID de usuario nulo o vacío en búsqueda de camino");
+            throw new IllegalArgumentException("ID de usuario no puede ser nulo o vacío");
+        }
+        int indice = internador.indiceDe(idUsuario);
+        if (indice < 0 || !motor.getAlmacenamiento().existePerfil(idUsuario)) {
+            logger.error("Usuario no existe: {}", idUsuario);
+            throw new IllegalArgumentException("Usuario no existe: " + idUsuario);
+        }
+        return indice;
+    }
+}
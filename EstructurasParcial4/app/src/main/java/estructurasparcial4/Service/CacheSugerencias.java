@@ -0,0 +1,156 @@
+package estructurasparcial4.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import estructurasparcial4.Model.SugerenciaAmigo;
+
+// Cache LRU de las listas de sugerencias por usuario (índice del internador) que usa MotorSugerencias.
+// - El tamaño se mide en peso: cada entrada pesa sus sugerencias + 1, así una lista larga de un hub
+//   ocupa lo que ocupa en memoria y no lo mismo que una vacía. Al pasar pesoMaximo se desaloja la
+//   entrada usada hace más tiempo.
+// - Una entrada guarda el top-k pedido; sirve para cualquier k menor (el top-k es prefijo del orden
+//   completo) y, si trajo menos de k sugerencias, para cualquier k.
+// - La invalidación la decide el motor (sabe qué usuarios cambian con cada amistad). Además la cache
+//   recuerda la versión del grafo que tiene en cuenta: si el grafo cambió por otro camino, se vacía.
+// Los contadores de aciertos, fallos, desalojos e invalidaciones sirven para dimensionarla.
+public class CacheSugerencias {
+
+    private final long pesoMaximo;
+    private final LinkedHashMap<Integer, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long pesoActual;
+    private long versionGrafo;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public CacheSugerencias(long pesoMaximo) {
+        if (pesoMaximo < 1) {
+            throw new IllegalArgumentException("El peso máximo de la cache debe ser mayor que 0");
+        }
+        this.pesoMaximo = pesoMaximo;
+    }
+
+    // Copia de las k primeras sugerencias guardadas para el usuario, o null si no hay una lista que sirva
+    public List<SugerenciaAmigo> buscar(int usuario, int k) {
+        Entrada entrada;
+        synchronized (this) {
+            entrada = entradas.get(usuario);
+        }
+        if (entrada == null || (!entrada.completa() && k > entrada.kSolicitado)) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        List<SugerenciaAmigo> sugerencias = entrada.sugerencias;
+        return new ArrayList<>(sugerencias.subList(0, Math.min(k, sugerencias.size())));
+    }
+
+    // Guarda el resultado de pedir kSolicitado sugerencias. No se guarda si por sí solo supera pesoMaximo
+    public void guardar(int usuario, int kSolicitado, List<SugerenciaAmigo> sugerencias) {
+        Entrada nueva = new Entrada(kSolicitado, new ArrayList<>(sugerencias));
+        if (nueva.peso() > pesoMaximo) {
+            return;
+        }
+        synchronized (this) {
+            Entrada anterior = entradas.put(usuario, nueva);
+            if (anterior != null) {
+                pesoActual -= anterior.peso();
+            }
+            pesoActual += nueva.peso();
+
+            Iterator<Map.Entry<Integer, Entrada>> masAntiguas = entradas.entrySet().iterator();
+            while (pesoActual > pesoMaximo && masAntiguas.hasNext()) {
+                pesoActual -= masAntiguas.next().getValue().peso();
+                masAntiguas.remove();
+                desalojos.increment();
+            }
+        }
+    }
+
+    public synchronized void invalidar(int usuario) {
+        Entrada eliminada = entradas.remove(usuario);
+        if (eliminada != null) {
+            pesoActual -= eliminada.peso();
+            invalidaciones.increment();
+        }
+    }
+
+    public synchronized void limpiar() {
+        invalidaciones.add(entradas.size());
+        entradas.clear();
+        pesoActual = 0;
+    }
+
+    // Si la cache no tiene en cuenta la versión actual del grafo (alguien lo cambió sin avisar) se vacía
+    public synchronized void sincronizar(long versionActual) {
+        if (versionActual != versionGrafo) {
+            limpiar();
+            versionGrafo = versionActual;
+        }
+    }
+
+    // El motor ya invalidó lo que cambió hasta esta versión
+    public synchronized void aceptarVersion(long versionActual) {
+        versionGrafo = versionActual;
+    }
+
+    public synchronized int tamano() {
+        return entradas.size();
+    }
+
+    public synchronized long getPeso() {
+        return pesoActual;
+    }
+
+    public long getPesoMaximo() {
+        return pesoMaximo;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    public long getInvalidaciones() {
+        return invalidaciones.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheSugerencias{entradas=" + tamano() + ", peso=" + getPeso() + "/" + pesoMaximo
+                + ", aciertos=" + getAciertos() + ", fallos=" + getFallos() + ", desalojos=" + getDesalojos()
+                + ", invalidaciones=" + getInvalidaciones() + "}";
+    }
+
+    private static final class Entrada {
+        private final int kSolicitado;
+        private final List<SugerenciaAmigo> sugerencias;
+
+        private Entrada(int kSolicitado, List<SugerenciaAmigo> sugerencias) {
+            this.kSolicitado = kSolicitado;
+            this.sugerencias = sugerencias;
+        }
+
+        private boolean completa() {
+            return sugerencias.size() < kSolicitado;
+        }
+
+        private long peso() {
+            return sugerencias.size() + 1L;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package estructurasparcial4.Service;
+
+// Interfaz para decidir cómo puntúa MotorSugerencias a cada candidato.
+// El motor recorre los caminos usuario -> amigo -> candidato (y, si se pide, un tercer salto
+// usuario -> amigo -> intermedio -> candidato) y por cada camino pide un aporte que luego acumula.
+// Los métodos se llaman por cada arco recorrido: deben ser rápidos, sin estado y seguros entre hilos.
+public interface EstrategiaPuntuacion {
+
+    // Peso del nodo intermedio de un camino según su cantidad de amigos (por ejemplo, Adamic-Adar).
+    // Se llama una vez por intermedio, no por arco
+    double pesoIntermedio(int grado);
+
+    // Aporte del camino usuario -(calidadConAmigo)- amigo -(calidadAmigoCandidato)- candidato
+    double aporteSegundoSalto(int calidadConAmigo, int calidadAmigoCandidato, double pesoAmigo);
+
+    // Aporte de extender hasta el candidato, por un arco de calidad 'calidadArco', el puntaje que ya
+    // tiene un candidato de segundo salto. Solo se usa si usaTercerSalto()
+    double aporteTercerSalto(double puntajeIntermedio, int calidadArco, double pesoIntermedio);
+
+    boolean usaTercerSalto();
+
+    // Combina el puntaje acumulado de un candidato con el aporte de otro camino (suma, máximo, ...)
+    double acumular(double actual, double aporte);
+
+    // false si pesoIntermedio() no mira el grado: el motor se ahorra calcularlo
+    default boolean necesitaGrado() {
+        return true;
+    }
+}
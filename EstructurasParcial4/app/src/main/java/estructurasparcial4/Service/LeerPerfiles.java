@@ -2,18 +2,36 @@ package estructurasparcial4.Service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import com.google.gson.reflect.TypeToken;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Util.Metricas;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
 
-import java.lang.reflect.Type;
-
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.gson.Gson;
 
@@ -22,81 +40,232 @@ public class LeerPerfiles {
     // Se usa para cargar perfiles al inicio y guardarlos cuando cambian.
     private final Gson gson;
     private static final String RUTA_ARCHIVO = "C:\\Users\\david\\Documents\\GitHub\\Parcial4\\EstructurasParcial4\\app\\src\\main\\resources\\Perfiles.json";
-    private List<Perfil> perfilesCargados;
+    private final String rutaArchivo;
+    private int perfilesLeidos;
     private boolean archivoLeido;
+    private volatile Metricas metricas; // latencia de guardarPerfiles() (null = no se mide)
+    private static final int BYTES_ESTIMADOS_POR_PERFIL = 160; // JSON con sangría, unos 3 amigos por perfil
+    private static final int TAMANO_LOTE = 1024; // perfiles por lote en la carga paralela
     private static final Logger logger = LogManager.getLogger(LeerPerfiles.class);
 
-    // Inicializa el lector con Gson y lista vacía.
+    // Inicializa el lector con Gson.
     public LeerPerfiles() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.perfilesCargados = new ArrayList<>();
+        this(RUTA_ARCHIVO);
+    }
+
+    // Permite leer y escribir otro archivo (pruebas, benchmarks, otros entornos)
+    public LeerPerfiles(String rutaArchivo) {
+        if (rutaArchivo == null || rutaArchivo.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ruta de archivo no puede ser nula o vacía");
+        }
+        this.rutaArchivo = rutaArchivo;
+        this.gson = new GsonBuilder().setPrettyPrinting()
+                .registerTypeAdapter(Perfil.class, serializadorPerfil())
+                .create();
+        this.perfilesLeidos = 0;
         this.archivoLeido = false;
     }
 
-    // Lee el archivo JSON una sola vez y guarda los perfiles en memoria.
-    public void leerArchivo() {
+    // Los perfiles vinculados al grafo no guardan sus amistades en el campo amigosDirectos,
+    // así que se serializan a mano usando getAmigosDirectos() (mismo formato del archivo)
+    private static JsonSerializer<Perfil> serializadorPerfil() {
+        return (perfil, tipo, contexto) -> {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", perfil.getId());
+            json.addProperty("nombre", perfil.getNombre());
+            json.addProperty("edad", perfil.getEdad());
+            json.addProperty("genero", perfil.getGenero());
+            JsonObject amigos = new JsonObject();
+            HashMap<String, Integer> amigosDirectos = perfil.getAmigosDirectos();
+            if (amigosDirectos != null) {
+                amigosDirectos.forEach(amigos::addProperty);
+            }
+            json.add("amigosDirectos", amigos);
+            return json;
+        };
+    }
+
+    // Estimación de la cantidad de perfiles a partir del tamaño del archivo, sin leerlo.
+    // Sirve como pista de capacidad para las estructuras que se dimensionan por número de usuarios.
+    public int estimarCantidadPerfiles() {
+        try {
+            long estimado = Files.size(Paths.get(rutaArchivo)) / BYTES_ESTIMADOS_POR_PERFIL;
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, estimado));
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    // Cantidad de perfiles leídos del archivo en la última carga.
+    public int obtenerCantidadPerfiles() {
+        return perfilesLeidos;
+    }
+
+    // Carga los perfiles del archivo en el Almacenamiento (ignora duplicados).
+    public void cargarPerfilesEnAlmacenamiento(AlmacenamientoPerfiles almacenamiento) {
+        cargarPerfilesEnAlmacenamiento(almacenamiento, null, 1);
+    }
+
+    // Igual que la anterior y además registra cada perfil en la red social a medida que se lee.
+    public void cargarPerfilesEnAlmacenamiento(AlmacenamientoPerfiles almacenamiento, WeightedQuickUnionUF redSocial) {
+        cargarPerfilesEnAlmacenamiento(almacenamiento, redSocial, 1);
+    }
+
+    // El archivo se recorre en streaming con JsonReader: cada perfil pasa al almacenamiento (y a la red)
+    // apenas se lee, sin guardar la lista completa en memoria. El archivo se lee una sola vez.
+    // Con hilos > 1 el lector arma lotes de registros JSON y los hilos de trabajo los convierten a
+    // Perfil; los lotes se insertan en el orden del archivo y solo hay unos pocos en vuelo a la vez,
+    // así la memoria no depende del tamaño del archivo.
+    public void cargarPerfilesEnAlmacenamiento(AlmacenamientoPerfiles almacenamiento, WeightedQuickUnionUF redSocial,
+            int hilos) {
+        if (almacenamiento == null) {
+            throw new IllegalArgumentException("Almacenamiento no puede ser nulo");
+        }
+        if (hilos < 1) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser al menos 1");
+        }
         if (archivoLeido) return;
+        archivoLeido = true;
+        perfilesLeidos = 0;
 
-        try (FileReader lectorArchivo = new FileReader(RUTA_ARCHIVO)) {
-            logger.info("Leyendo el archivo de perfiles: {}", RUTA_ARCHIVO);
+        try (JsonReader lectorJson = new JsonReader(Files.newBufferedReader(Paths.get(rutaArchivo), StandardCharsets.UTF_8))) {
+            logger.info("Leyendo el archivo de perfiles: {}", rutaArchivo);
 
-            Type tipoLista = new TypeToken<List<Perfil>>() {}.getType();
-            List<Perfil> perfilesLeidos = gson.fromJson(lectorArchivo, tipoLista);
-            
-            if (perfilesLeidos != null) {
-                perfilesCargados = perfilesLeidos;
+            if (lectorJson.peek() != JsonToken.BEGIN_ARRAY) {
+                logger.warn("Archivo JSON vacío o inválido, no se cargaron perfiles");
+                return;
+            }
+            lectorJson.beginArray();
+            if (hilos == 1) {
+                while (lectorJson.hasNext()) {
+                    registrarPerfil(gson.fromJson(lectorJson, Perfil.class), almacenamiento, redSocial);
+                }
             } else {
-                perfilesCargados = new ArrayList<>();
-                logger.warn("Archivo JSON vacío o inválido, inicializando lista vacía");
+                cargarEnParalelo(lectorJson, almacenamiento, redSocial, hilos);
             }
-            
-            archivoLeido = true;
-            logger.info("Archivo de perfiles leído exitosamente. Perfiles encontrados: {}", perfilesCargados.size());
-        } catch (IOException e) {
+            lectorJson.endArray();
+            logger.info("Perfiles cargados en almacenamiento: {}", perfilesLeidos);
+        } catch (EOFException e) {
+            logger.warn("Archivo JSON vacío, no se cargaron perfiles");
+        } catch (IOException | JsonParseException e) {
             logger.error("Error al leer el archivo: {}", e.getMessage());
-            perfilesCargados = new ArrayList<>();
-            archivoLeido = true;
-            logger.warn("Inicializando con lista vacía debido al error");
+            logger.warn("Se conservan los {} perfiles cargados antes del error", perfilesLeidos);
+        }
+    }
+
+    private void cargarEnParalelo(JsonReader lectorJson, AlmacenamientoPerfiles almacenamiento,
+            WeightedQuickUnionUF redSocial, int hilos) throws IOException {
+        ExecutorService trabajadores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "carga-perfiles");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        ArrayDeque<Future<List<Perfil>>> enVuelo = new ArrayDeque<>();
+        int maximoEnVuelo = hilos * 2;
+        try {
+            List<JsonElement> lote = new ArrayList<>(TAMANO_LOTE);
+            while (lectorJson.hasNext()) {
+                lote.add(JsonParser.parseReader(lectorJson));
+                if (lote.size() == TAMANO_LOTE) {
+                    enVuelo.add(trabajadores.submit(convertirLote(lote)));
+                    lote = new ArrayList<>(TAMANO_LOTE);
+                    if (enVuelo.size() >= maximoEnVuelo) {
+                        insertarLote(enVuelo.poll(), almacenamiento, redSocial);
+                    }
+                }
+            }
+            if (!lote.isEmpty()) {
+                enVuelo.add(trabajadores.submit(convertirLote(lote)));
+            }
+            while (!enVuelo.isEmpty()) {
+                insertarLote(enVuelo.poll(), almacenamiento, redSocial);
+            }
+        } finally {
+            trabajadores.shutdownNow();
         }
     }
 
-    // Devuelve la lista leída del archivo (o vacía si no hay datos).
-    public List<Perfil> obtenerPerfilesLeidos() {
-        return perfilesCargados;
+    private Callable<List<Perfil>> convertirLote(List<JsonElement> lote) {
+        return () -> {
+            List<Perfil> perfiles = new ArrayList<>(lote.size());
+            for (JsonElement elemento : lote) {
+                perfiles.add(gson.fromJson(elemento, Perfil.class));
+            }
+            return perfiles;
+        };
     }
 
-    // Carga los perfiles leídos en el Almacenamiento (ignora duplicados).
-    public void cargarPerfilesEnAlmacenamiento(AlmacenamientoPerfiles almacenamiento) {
-        if (!archivoLeido) {
-            leerArchivo();
+    private void insertarLote(Future<List<Perfil>> lote, AlmacenamientoPerfiles almacenamiento,
+            WeightedQuickUnionUF redSocial) throws IOException {
+        try {
+            for (Perfil perfil : lote.get()) {
+                registrarPerfil(perfil, almacenamiento, redSocial);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Carga de perfiles interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new JsonParseException("Error al convertir perfiles: " + e.getCause().getMessage(), e.getCause());
         }
+    }
 
-        if (perfilesCargados == null || perfilesCargados.isEmpty()) {
-            logger.info("No hay perfiles para cargar desde el archivo");
+    private void registrarPerfil(Perfil perfil, AlmacenamientoPerfiles almacenamiento, WeightedQuickUnionUF redSocial) {
+        if (perfil == null) {
             return;
         }
-
-        for (Perfil perfil : perfilesCargados) {
-            try {
-                almacenamiento.crearPerfil(perfil);
-            } catch (IllegalArgumentException e) {
-                logger.warn("No se pudo cargar perfil {}: {}", perfil.getId(), e.getMessage());
+        perfilesLeidos++;
+        try {
+            almacenamiento.crearPerfil(perfil);
+            if (redSocial != null) {
+                redSocial.agregarUsuario(perfil.getId());
             }
+        } catch (IllegalArgumentException e) {
+            logger.warn("No se pudo cargar perfil {}: {}", perfil.getId(), e.getMessage());
         }
-
-        logger.info("Perfiles cargados en almacenamiento: {}", perfilesCargados.size());
     }
 
     // Guarda todos los perfiles del almacenamiento en el archivo JSON.
-    public void guardarPerfiles(AlmacenamientoPerfiles almacenamiento) {
-        try (FileWriter escritorArchivo = new FileWriter(RUTA_ARCHIVO)) {
-            List<Perfil> todosPerfiles = new ArrayList<>(almacenamiento.obtenerTodosPerfiles().values());
+    // Se escribe en un archivo temporal y luego se reemplaza el original, así una caída
+    // a mitad de escritura no deja el archivo corrupto. Devuelve true si se guardó.
+    public boolean guardarPerfiles(AlmacenamientoPerfiles almacenamiento) {
+        Metricas medidas = metricas;
+        long inicio = medidas != null ? System.nanoTime() : 0L;
+        boolean guardado = escribirPerfiles(almacenamiento);
+        if (medidas != null) {
+            if (guardado) {
+                medidas.registrar(Metricas.Operacion.GUARDAR_PERFILES, inicio);
+            } else {
+                medidas.registrarError(Metricas.Operacion.GUARDAR_PERFILES, inicio);
+            }
+        }
+        return guardado;
+    }
+
+    private boolean escribirPerfiles(AlmacenamientoPerfiles almacenamiento) {
+        Path destino = Paths.get(rutaArchivo);
+        Path temporal = Paths.get(rutaArchivo + ".tmp");
+        try (Writer escritorArchivo = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            List<Perfil> todosPerfiles = new ArrayList<>(almacenamiento.obtenerPerfiles());
             gson.toJson(todosPerfiles, escritorArchivo);
-            logger.info("Perfiles guardados exitosamente en: {}", RUTA_ARCHIVO);
         } catch (IOException e) {
             logger.error("Error al guardar perfiles: {}", e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Perfiles guardados exitosamente en: {}", rutaArchivo);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error al guardar perfiles: {}", e.getMessage());
+            return false;
         }
     }
-}
 
+    public void setMetricas(Metricas metricas) {
+        this.metricas = metricas;
+    }
 
+    public String getRutaArchivo() {
+        return rutaArchivo;
+    }
+}
@@ -0,0 +1,269 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import estructurasparcial4.Model.SugerenciaAmigo;
+import estructurasparcial4.Util.InternadorIds;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Proceso por lotes que calcula el top-k de sugerencias de todos los perfiles (por ejemplo, para los
+// correos diarios de "personas que quizá conozcas") y lo escribe en un archivo de texto, una línea por
+// usuario: id, y por cada sugerencia id y puntaje, separados por tabulaciones.
+// - Los usuarios se recorren por índice del internador en bloques de USUARIOS_POR_BLOQUE. Cada bloque
+//   es una tarea de un ForkJoinPool (robo de trabajo entre hilos): un bloque de hubs tarda más que uno
+//   de usuarios con pocos amigos y los hilos libres toman los bloques que quedan.
+// - Los bloques se escriben en orden. Como mucho hay 'bloquesEnVuelo' bloques calculados o en cálculo
+//   a la vez, así la memoria queda acotada sin importar la cantidad de usuarios.
+// - Cada PUNTO_CONTROL_CADA_BLOQUES bloques se hace fsync del archivo y se guarda un punto de control
+//   (siguiente índice y bytes válidos del archivo). Si el proceso se corta o se cancela, la próxima
+//   ejecución con el mismo destino y el mismo k trunca el archivo a esos bytes y sigue desde ahí.
+// Cada usuario se calcula con el cerrojo de lectura del grafo, así que las altas que lleguen mientras
+// corre el lote se ven a partir del usuario siguiente.
+public class LoteSugerencias {
+
+    private static final Logger logger = LogManager.getLogger(LoteSugerencias.class);
+
+    private static final int USUARIOS_POR_BLOQUE = 1024;
+    private static final int PUNTO_CONTROL_CADA_BLOQUES = 64;
+    private static final int MAGIA_PUNTO_CONTROL = 0x4C4F5445; // "LOTE"
+
+    // Recibe los avances del lote desde el hilo que escribe el archivo
+    public interface ObservadorProgreso {
+        void progreso(int usuariosProcesados, int totalUsuarios);
+    }
+
+    private final MotorSugerencias motor;
+    private final InternadorIds internador;
+    private final int k;
+    private final int hilos;
+    private final int bloquesEnVuelo;
+    private ObservadorProgreso observador;
+
+    private volatile boolean cancelado;
+    private volatile int usuariosProcesados;
+    private volatile int totalUsuarios;
+    private volatile long lineasEscritas; // usuarios con perfil escritos en la última ejecución
+
+    public LoteSugerencias(MotorSugerencias motor, int k, int hilos) {
+        if (motor == null) {
+            logger.error("Motor nulo en constructor de LoteSugerencias");
+            throw new IllegalArgumentException("Motor de sugerencias no puede ser nulo");
+        }
+        if (k <= 0) {
+            logger.error("Cantidad de sugerencias inválida en lote: {}", k);
+            throw new IllegalArgumentException("La cantidad de sugerencias debe ser mayor que 0");
+        }
+        if (hilos < 1) {
+            logger.error("Cantidad de hilos inválida en lote: {}", hilos);
+            throw new IllegalArgumentException("La cantidad de hilos debe ser mayor que 0");
+        }
+        this.motor = motor;
+        this.internador = motor.getInternador();
+        this.k = k;
+        this.hilos = hilos;
+        this.bloquesEnVuelo = hilos * 4;
+    }
+
+    public void setObservadorProgreso(ObservadorProgreso observador) {
+        this.observador = observador;
+    }
+
+    // Pide que el lote se detenga después del bloque en curso; queda un punto de control para reanudar
+    public void cancelar() {
+        cancelado = true;
+    }
+
+    public int getUsuariosProcesados() {
+        return usuariosProcesados;
+    }
+
+    public int getTotalUsuarios() {
+        return totalUsuarios;
+    }
+
+    public long getLineasEscritas() {
+        return lineasEscritas;
+    }
+
+    public static Path rutaPuntoControl(Path destino) {
+        return destino.resolveSibling(destino.getFileName() + ".progreso");
+    }
+
+    // Calcula y escribe las sugerencias de todos los usuarios en 'destino', retomando un lote anterior
+    // si quedó su punto de control. Devuelve true si terminó y false si se canceló antes
+    public boolean ejecutar(Path destino) throws IOException {
+        if (destino == null) {
+            logger.error("Destino nulo en lote de sugerencias");
+            throw new IllegalArgumentException("El archivo de destino no puede ser nulo");
+        }
+        logger.info("Iniciando lote de sugerencias (k = {}, {} hilos) hacia {}", k, hilos, destino);
+        cancelado = false;
+        lineasEscritas = 0;
+        Path rutaControl = rutaPuntoControl(destino);
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try (FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long[] control = leerPuntoControl(rutaControl, salida.size());
+            int desde = (int) control[0];
+            long bytesValidos = control[1];
+            if (desde > 0) {
+                logger.info("Reanudando lote de sugerencias desde el usuario {} ({} bytes ya escritos)", desde, bytesValidos);
+            }
+            salida.truncate(bytesValidos);
+            salida.position(bytesValidos);
+
+            int total = internador.tamano();
+            totalUsuarios = total;
+            usuariosProcesados = desde;
+
+            ArrayDeque<Future<byte[]>> enCurso = new ArrayDeque<>(bloquesEnVuelo);
+            int siguienteBloque = desde;
+            int escritoHasta = desde;
+            int bloquesSinControl = 0;
+            while (escritoHasta < total && !cancelado) {
+                while (enCurso.size() < bloquesEnVuelo && siguienteBloque < total) {
+                    int inicio = siguienteBloque;
+                    int fin = Math.min(total, inicio + USUARIOS_POR_BLOQUE);
+                    enCurso.add(pool.submit(() -> calcularBloque(inicio, fin)));
+                    siguienteBloque = fin;
+                }
+                escribirCompleto(salida, esperar(enCurso.poll()));
+                escritoHasta = Math.min(total, escritoHasta + USUARIOS_POR_BLOQUE);
+                usuariosProcesados = escritoHasta;
+                if (observador != null) {
+                    observador.progreso(escritoHasta, total);
+                }
+                if (++bloquesSinControl == PUNTO_CONTROL_CADA_BLOQUES) {
+                    guardarPuntoControl(salida, rutaControl, escritoHasta);
+                    bloquesSinControl = 0;
+                }
+            }
+            for (Future<byte[]> pendiente : enCurso) {
+                pendiente.cancel(false);
+            }
+
+            if (escritoHasta < total) {
+                guardarPuntoControl(salida, rutaControl, escritoHasta);
+                logger.info("Lote de sugerencias cancelado en el usuario {} de {}", escritoHasta, total);
+                return false;
+            }
+            salida.force(false);
+            Files.deleteIfExists(rutaControl);
+            logger.info("Lote de sugerencias terminado: {} usuarios, {} líneas escritas en esta ejecución",
+                    total, lineasEscritas);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error en el lote de sugerencias hacia {}: {}", destino, e.getMessage());
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Una línea por usuario con perfil del rango [inicio, fin), ya codificada en UTF-8
+    private byte[] calcularBloque(int inicio, int fin) {
+        StringBuilder texto = new StringBuilder(USUARIOS_POR_BLOQUE * 32);
+        List<SugerenciaAmigo> sugerencias;
+        for (int indice = inicio; indice < fin; indice++) {
+            sugerencias = motor.sugerirAmigosPorIndice(indice, k);
+            if (sugerencias == null) {
+                continue;
+            }
+            texto.append(internador.idDe(indice));
+            for (SugerenciaAmigo sugerencia : sugerencias) {
+                texto.append('\t').append(sugerencia.getUserIdSugerido())
+                        .append('\t').append(sugerencia.getPuntaje());
+            }
+            texto.append('\n');
+        }
+        return texto.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] esperar(Future<byte[]> bloque) throws IOException {
+        try {
+            return bloque.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelado = true;
+            throw new IOException("Lote de sugerencias interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al calcular sugerencias: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void escribirCompleto(FileChannel salida, byte[] datos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(datos);
+        while (buffer.hasRemaining()) {
+            salida.write(buffer);
+        }
+        for (byte b : datos) {
+            if (b == '\n') {
+                lineasEscritas++;
+            }
+        }
+    }
+
+    // El archivo se fuerza a disco antes de publicar el punto de control que lo nombra, y el punto de
+    // control se reemplaza de forma atómica: nunca apunta a bytes que no estén escritos
+    private void guardarPuntoControl(FileChannel salida, Path rutaControl, int siguienteIndice) throws IOException {
+        salida.force(false);
+        Path temporal = rutaControl.resolveSibling(rutaControl.getFileName() + ".tmp");
+        try (OutputStream archivo = Files.newOutputStream(temporal);
+                DataOutputStream datos = new DataOutputStream(archivo)) {
+            datos.writeInt(MAGIA_PUNTO_CONTROL);
+            datos.writeInt(k);
+            datos.writeInt(siguienteIndice);
+            datos.writeLong(salida.position());
+        }
+        Files.move(temporal, rutaControl, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // {siguiente índice, bytes válidos}. Sin punto de control usable (no existe, es de otro k o el archivo
+    // es más corto de lo que dice) se empieza de cero
+    private long[] leerPuntoControl(Path rutaControl, long tamanoSalida) {
+        if (!Files.exists(rutaControl)) {
+            return new long[] { 0, 0 };
+        }
+        try (InputStream archivo = Files.newInputStream(rutaControl);
+                DataInputStream datos = new DataInputStream(archivo)) {
+            int magia = datos.readInt();
+            int kGuardado = datos.readInt();
+            int siguienteIndice = datos.readInt();
+            long bytesValidos = datos.readLong();
+            if (magia == MAGIA_PUNTO_CONTROL && kGuardado == k && siguienteIndice >= 0
+                    && bytesValidos >= 0 && bytesValidos <= tamanoSalida) {
+                return new long[] { siguienteIndice, bytesValidos };
+            }
+            logger.warn("Punto de control {} no corresponde a este lote; se empieza de cero", rutaControl);
+        } catch (IOException e) {
+            logger.warn("No se pudo leer el punto de control {}: {}; se empieza de cero", rutaControl, e.getMessage());
+        }
+        return new long[] { 0, 0 };
+    }
+
+    @Override
+    public String toString() {
+        return "LoteSugerencias{k=" + k + ", hilos=" + hilos + ", procesados=" + usuariosProcesados + "/"
+                + totalUsuarios + "}";
+    }
+}
@@ -2,37 +2,369 @@ package estructurasparcial4.Service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import estructurasparcial4.Model.FiltroPerfiles;
 import estructurasparcial4.Model.Perfil;
 import estructurasparcial4.Model.SugerenciaAmigo;
-import java.util.PriorityQueue;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import estructurasparcial4.Util.BosqueUnionFind;
+import estructurasparcial4.Util.ConectividadDinamica;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.IndiceNombres;
+import estructurasparcial4.Util.IndicePerfiles;
+import estructurasparcial4.Util.InternadorIds;
+import estructurasparcial4.Util.Metricas;
+import estructurasparcial4.Util.PoolEspacios;
 import estructurasparcial4.Util.WeightedQuickUnionUF;
 
 // Clase que contiene la lógica para generar lazos y sugerir amigos.
 // Se apoya en `AlmacenamientoPerfiles` para leer perfiles y en el arbol
 // para representar la red cuando es necesario.
-public class MotorSugerencias {
+// Las amistades viven en un GrafoAmistades (CSR) indexado por el InternadorIds; cada perfil
+// del almacenamiento se vincula al grafo al crearse (ver ObservadorPerfiles).
+// Concurrencia: las sugerencias recorren el grafo con su cerrojo de lectura (en paralelo entre sí) y las
+// altas de perfiles y amistades toman el de escritura, que también protege perfilesPorIndice, el
+// IndicePerfiles (edad y género por índice, para listar perfiles y filtrar sugerencias) y el
+// IndiceNombres (prefijos de nombres para la búsqueda mientras se escribe).
+public class MotorSugerencias implements ObservadorPerfiles {
     private final AlmacenamientoPerfiles almacenamiento;
+    private final InternadorIds internador;
+    private final GrafoAmistades grafo;
+    private Perfil[] perfilesPorIndice; // perfilesPorIndice[i] = perfil del usuario con índice i (null si no existe)
+    private final IndicePerfiles indicePerfiles = new IndicePerfiles();
+    private final IndiceNombres indiceNombres = new IndiceNombres();
     private static final Logger logger = LogManager.getLogger(MotorSugerencias.class);
 
+    // Buffers reutilizables para sugerirAmigos() y buscarPorNombre(): evitan crear mapas y objetos por
+    // petición. Se prestan de un pool con tantos espacios como procesadores (ver PoolEspacios)
+    private final PoolEspacios<EspacioTrabajo> espacios = new PoolEspacios<>(EspacioTrabajo::new);
+
+    // Las sugerencias registran su detalle en TRACE; en INFO queda una línea de resumen cada MUESTREO_RESUMEN peticiones
+    private static final int MUESTREO_RESUMEN = 1024;
+    private final AtomicLong peticionesSugerencias = new AtomicLong();
+
+    // Estrategia y presupuesto que usan las sugerencias cuando no se indican en la llamada.
+    // El presupuesto es la cantidad máxima de arcos que recorre una petición: un usuario con
+    // amigos muy conectados (hubs) deja de explorar al agotarlo en lugar de recorrer medio grafo
+    private volatile EstrategiaPuntuacion estrategiaPuntuacion = new PuntuacionCalidadMaxima();
+    private volatile int presupuestoArcos = Integer.MAX_VALUE;
+
+    // Cache opcional de las sugerencias con la estrategia configurada (null = desactivada).
+    // Se consulta y se llena con el cerrojo de lectura y se invalida con el de escritura
+    private volatile CacheSugerencias cache;
+
+    // Métricas de latencia de sugerirAmigos() y generarAmistad() (null = no se miden)
+    private volatile Metricas metricas;
+
+    // Conectividad que soporta eliminaciones; se arma la primera vez que se consulta
+    private volatile ConectividadDinamica conectividad;
+    private WeightedQuickUnionUF redVinculada; // ver vincularRed()
+
+    // Amistades que nombran a un id todavía sin perfil: id -> [usados, origen, calidad, origen, calidad...].
+    // El id no se agrega al internador (sería un usuario suelto en la red y en sus componentes); los arcos
+    // pasan al grafo cuando se crea su perfil. Es un índice para encontrar los orígenes: la amistad en sí
+    // la guarda el perfil de origen (Perfil.getAmigosSinPerfil()), que es lo que se escribe en los
+    // snapshots. Protegido por el cerrojo de escritura del grafo
+    private final HashMap<String, int[]> amistadesPendientes = new HashMap<>();
+    private static final int CALIDAD_MAXIMA = SugerenciaAmigo.PRIORIDAD_MAXIMA;
+    // Arcos que recorre la búsqueda por nombre para encontrar amigos y amigos de amigos que coinciden
+    private static final int PRESUPUESTO_ARCOS_BUSQUEDA_NOMBRE = 20_000;
+
     // Constructor: recibe el almacenamiento de perfiles que usará.
     public MotorSugerencias(AlmacenamientoPerfiles almacenamiento) {
+        this(almacenamiento, new InternadorIds());
+    }
+
+    // Constructor que comparte el internador con la red social (WeightedQuickUnionUF.getInternador())
+    // para que ambos usen los mismos índices
+    public MotorSugerencias(AlmacenamientoPerfiles almacenamiento, InternadorIds internador) {
+        this(almacenamiento, crearGrafo(internador));
+    }
+
+    // Constructor que usa un grafo ya construido (por ejemplo, el cargado de un SnapshotBinario)
+    public MotorSugerencias(AlmacenamientoPerfiles almacenamiento, GrafoAmistades grafo) {
         logger.info("Inicializando MotorSugerencias");
         if (almacenamiento == null) {
             logger.error("Almacenamiento nulo en constructor de MotorSugerencias");
             throw new IllegalArgumentException("Almacenamiento no puede ser nulo");
         }
+        if (grafo == null) {
+            logger.error("Grafo nulo en constructor de MotorSugerencias");
+            throw new IllegalArgumentException("Grafo no puede ser nulo");
+        }
         this.almacenamiento = almacenamiento;
+        this.internador = grafo.getInternador();
+        this.grafo = grafo;
+        this.perfilesPorIndice = new Perfil[Math.max(16, internador.tamano())];
+
+        // Primero se registra como observador para no perder perfiles creados mientras se recorre;
+        // vincular dos veces el mismo perfil no tiene efecto
+        almacenamiento.agregarObservador(this);
+        for (Perfil perfil : almacenamiento.obtenerPerfiles()) {
+            perfilCreado(perfil);
+        }
         logger.info("MotorSugerencias inicializado");
     }
 
+    private static GrafoAmistades crearGrafo(InternadorIds internador) {
+        if (internador == null) {
+            logger.error("Internador nulo en constructor de MotorSugerencias");
+            throw new IllegalArgumentException("Internador no puede ser nulo");
+        }
+        return new GrafoAmistades(internador);
+    }
+
+    public AlmacenamientoPerfiles getAlmacenamiento() {
+        return almacenamiento;
+    }
+
+    public GrafoAmistades getGrafo() {
+        return grafo;
+    }
+
+    public InternadorIds getInternador() {
+        return internador;
+    }
+
+    public EstrategiaPuntuacion getEstrategiaPuntuacion() {
+        return estrategiaPuntuacion;
+    }
+
+    // Cambiar la estrategia o el presupuesto cambia todas las sugerencias: se vacía la cache
+    public void setEstrategiaPuntuacion(EstrategiaPuntuacion estrategiaPuntuacion) {
+        if (estrategiaPuntuacion == null) {
+            logger.error("Estrategia de puntuación nula");
+            throw new IllegalArgumentException("Estrategia de puntuación no puede ser nula");
+        }
+        grafo.cerrojoEscritura().lock();
+        try {
+            this.estrategiaPuntuacion = estrategiaPuntuacion;
+            limpiarCache();
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+        logger.info("Estrategia de puntuación: {}", estrategiaPuntuacion);
+    }
+
+    public int getPresupuestoArcos() {
+        return presupuestoArcos;
+    }
+
+    public void setPresupuestoArcos(int presupuestoArcos) {
+        if (presupuestoArcos < 1) {
+            logger.error("Presupuesto de arcos inválido: {}", presupuestoArcos);
+            throw new IllegalArgumentException("El presupuesto de arcos debe ser mayor que 0");
+        }
+        grafo.cerrojoEscritura().lock();
+        try {
+            this.presupuestoArcos = presupuestoArcos;
+            limpiarCache();
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+        logger.info("Presupuesto de arcos por sugerencia: {}", presupuestoArcos);
+    }
+
+    // Activa la cache de sugerencias con un peso máximo (cantidad total de sugerencias guardadas)
+    public void activarCache(long pesoMaximo) {
+        CacheSugerencias nueva = new CacheSugerencias(pesoMaximo);
+        grafo.cerrojoEscritura().lock();
+        try {
+            nueva.aceptarVersion(grafo.getVersion());
+            cache = nueva;
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+        logger.info("Cache de sugerencias activada con peso máximo {}", pesoMaximo);
+    }
+
+    public void desactivarCache() {
+        grafo.cerrojoEscritura().lock();
+        try {
+            cache = null;
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+        logger.info("Cache de sugerencias desactivada");
+    }
+
+    public void setMetricas(Metricas metricas) {
+        this.metricas = metricas;
+    }
+
+    // null si la cache está desactivada
+    public CacheSugerencias getCacheSugerencias() {
+        return cache;
+    }
+
+    // Requiere el cerrojo de escritura
+    private void limpiarCache() {
+        CacheSugerencias actual = cache;
+        if (actual != null) {
+            actual.limpiar();
+            actual.aceptarVersion(grafo.getVersion());
+        }
+    }
+
+    // Invalida las sugerencias que pueden cambiar cuando cambian los arcos o el perfil de 'nodo': las de
+    // los usuarios a distancia <= saltos (más uno si la estrategia usa el tercer salto). Se llama con el
+    // cerrojo de escritura, después del cambio y con la cache sincronizada con la versión de antes
+    private void invalidarCacheAlrededor(CacheSugerencias actual, int nodo, int saltos) {
+        if (actual.tamano() > 0) {
+            int alcance = estrategiaPuntuacion.usaTercerSalto() ? saltos + 1 : saltos;
+            // Con un hub la vecindad puede ser enorme: pasado este límite sale más barato vaciar la cache
+            int limite = Math.max(1024, actual.tamano() * 4);
+            if (invalidarVecindad(actual, nodo, alcance, limite) <= 0) {
+                actual.limpiar();
+            }
+        }
+        actual.aceptarVersion(grafo.getVersion());
+    }
+
+    // Recorrido en profundidad hasta 'saltos' arcos; los nodos repetidos solo gastan presupuesto
+    private int invalidarVecindad(CacheSugerencias actual, int nodo, int saltos, int presupuesto) {
+        actual.invalidar(nodo);
+        if (--presupuesto <= 0 || saltos == 0) {
+            return presupuesto;
+        }
+        for (int e = grafo.inicioCsr(nodo), fin = grafo.finCsr(nodo); e < fin && presupuesto > 0; e++) {
+            if (grafo.calidadCsr(e) > 0) {
+                presupuesto = invalidarVecindad(actual, grafo.vecinoCsr(e), saltos - 1, presupuesto);
+            }
+        }
+        for (int d = grafo.primerDelta(nodo); d >= 0 && presupuesto > 0; d = grafo.siguienteDelta(d)) {
+            if (grafo.calidadDelta(d) > 0) {
+                presupuesto = invalidarVecindad(actual, grafo.vecinoDelta(d), saltos - 1, presupuesto);
+            }
+        }
+        return presupuesto;
+    }
+
+    // Vincula el perfil nuevo al grafo: sus amistades pasan al CSR
+    @Override
+    public void perfilCreado(Perfil perfil) {
+        grafo.cerrojoEscritura().lock();
+        try {
+            int indice = internador.agregar(perfil.getId());
+            if (indice >= perfilesPorIndice.length) {
+                perfilesPorIndice = Arrays.copyOf(perfilesPorIndice,
+                        Math.max(indice + 1, perfilesPorIndice.length + (perfilesPorIndice.length >> 1)));
+            }
+            CacheSugerencias actual = cache;
+            if (actual != null) {
+                actual.sincronizar(grafo.getVersion());
+            }
+            perfilesPorIndice[indice] = perfil;
+            indicePerfiles.agregar(indice, perfil.getEdad(), perfil.getGenero());
+            indiceNombres.agregar(indice, perfil.getNombre());
+            HashMap<String, Integer> sinPerfil = perfil.vincularGrafo(grafo, indice, amigo -> perfilPorIndice(amigo) != null);
+            if (sinPerfil != null) {
+                for (HashMap.Entry<String, Integer> amistad : sinPerfil.entrySet()) {
+                    anotarAmistadPendiente(amistad.getKey(), indice, amistad.getValue());
+                }
+            }
+            int[] pendientes = amistadesPendientes.remove(perfil.getId());
+            if (pendientes != null) {
+                Perfil origen;
+                Integer calidad;
+                for (int i = 1; i < pendientes[0]; i += 2) {
+                    // El perfil de origen es quien sabe si la amistad sigue (pudo eliminarla mientras tanto)
+                    origen = perfilPorIndice(pendientes[i]);
+                    calidad = origen != null ? origen.quitarAmigoSinPerfil(perfil.getId()) : null;
+                    if (calidad != null) {
+                        grafo.agregarArco(pendientes[i], indice, calidad);
+                    }
+                }
+            }
+            // El perfil nuevo es candidato para los usuarios a dos saltos
+            if (actual != null) {
+                invalidarCacheAlrededor(actual, indice, 2);
+            }
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+    }
+
+    // Requiere el cerrojo de escritura del grafo
+    private void anotarAmistadPendiente(String idAmigo, int origen, int calidad) {
+        int[] pares = amistadesPendientes.get(idAmigo);
+        if (pares == null) {
+            pares = new int[5];
+            pares[0] = 1;
+        } else if (pares[0] + 2 > pares.length) {
+            pares = Arrays.copyOf(pares, pares.length << 1);
+        }
+        pares[pares[0]] = origen;
+        pares[pares[0] + 1] = calidad;
+        pares[0] += 2;
+        amistadesPendientes.put(idAmigo, pares);
+    }
+
+    // Amistades hacia ids que todavía no tienen perfil (no están en el grafo ni en la red)
+    public int getCantidadAmistadesPendientes() {
+        grafo.cerrojoLectura().lock();
+        try {
+            int cantidad = 0;
+            for (int[] pares : amistadesPendientes.values()) {
+                cantidad += pares[0] >> 1;
+            }
+            return cantidad;
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    // Un perfil eliminado deja de aparecer como candidato y se borran todas sus amistades (también en
+    // los amigos), así deja de conectar a nadie y no queda rastro de sus lazos
+    @Override
+    public void perfilEliminado(Perfil perfil) {
+        grafo.cerrojoEscritura().lock();
+        try {
+            int indice = internador.indiceDe(perfil.getId());
+            if (indice >= 0 && indice < perfilesPorIndice.length && perfilesPorIndice[indice] == perfil) {
+                perfilesPorIndice[indice] = null;
+                indicePerfiles.quitar(indice);
+                indiceNombres.quitar(indice);
+                CacheSugerencias actual = cache;
+                if (actual != null) {
+                    // Se invalida antes de borrar los arcos: después ya no se llega a sus amigos
+                    actual.sincronizar(grafo.getVersion());
+                    invalidarCacheAlrededor(actual, indice, 2);
+                }
+                int amistades = grafo.eliminarArcosDe(indice);
+                if (actual != null) {
+                    actual.aceptarVersion(grafo.getVersion());
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Eliminadas {} amistades del perfil {}", amistades, perfil.getId());
+                }
+            }
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+    }
+
+    // Perfil del usuario con ese índice, o null si no existe en el almacenamiento.
+    // Requiere alguno de los cerrojos del grafo
+    private Perfil perfilPorIndice(int indice) {
+        return indice >= 0 && indice < perfilesPorIndice.length ? perfilesPorIndice[indice] : null;
+    }
+
     // Crea la relación de amistad entre dos usuarios en el almacenamiento.
     // No toca la estructura UF; solo actualiza los perfiles.
     public void generarAmistad(String idUsuarioA, String idUsuarioB, int calidad) {
-        logger.info("Generando amistad entre {} y {} con calidad {}", idUsuarioA, idUsuarioB, calidad);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Generando amistad entre {} y {} con calidad {}", idUsuarioA, idUsuarioB, calidad);
+        }
+        Metricas medidas = metricas;
+        long inicio = medidas != null ? System.nanoTime() : 0L;
         try {
             if (idUsuarioA == null || idUsuarioA.trim().isEmpty()) {
                 logger.error("ID de usuario A nulo o vacío");
@@ -62,131 +394,769 @@ public class MotorSugerencias {
                 throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
             }
 
-            perfilA.agregarAmigo(idUsuarioB, calidad);
-            perfilB.agregarAmigo(idUsuarioA, calidad);
-            logger.info("Amistad generada exitosamente entre {} y {}", idUsuarioA, idUsuarioB);
+            // Bajo el cerrojo de escritura se confirma que ambos perfiles siguen existiendo: así la
+            // amistad no puede quedar colgando de un perfil eliminado entre la búsqueda y la escritura
+            grafo.cerrojoEscritura().lock();
+            try {
+                int indiceA = internador.indiceDe(idUsuarioA);
+                int indiceB = internador.indiceDe(idUsuarioB);
+                if (perfilPorIndice(indiceA) != perfilA || perfilPorIndice(indiceB) != perfilB) {
+                    logger.error("Uno o ambos usuarios fueron eliminados. Usuario A: {}, Usuario B: {}", idUsuarioA, idUsuarioB);
+                    throw new IllegalArgumentException("Uno o ambos usuarios no existen");
+                }
+                CacheSugerencias actual = cache;
+                if (actual != null) {
+                    actual.sincronizar(grafo.getVersion());
+                }
+                grafo.agregarAmistad(indiceA, indiceB, calidad);
+                // Solo cambia la vecindad a dos saltos de A, B y sus amigos directos
+                if (actual != null) {
+                    invalidarCacheAlrededor(actual, indiceA, 1);
+                    invalidarCacheAlrededor(actual, indiceB, 1);
+                }
+            } finally {
+                grafo.cerrojoEscritura().unlock();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Amistad generada exitosamente entre {} y {}", idUsuarioA, idUsuarioB);
+            }
+            if (medidas != null) {
+                medidas.registrar(Metricas.Operacion.GENERAR_AMISTAD, inicio);
+            }
         } catch (Exception e) {
             logger.error("Error al generar amistad: {}", e.getMessage());
+            if (medidas != null) {
+                medidas.registrarError(Metricas.Operacion.GENERAR_AMISTAD, inicio);
+            }
             throw e;
         }
     }
 
+    // Elimina la amistad entre dos usuarios en ambos sentidos. Devuelve true si existía
+    public boolean eliminarAmistad(String idUsuarioA, String idUsuarioB) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Eliminando amistad entre {} y {}", idUsuarioA, idUsuarioB);
+        }
+        try {
+            if (idUsuarioA == null || idUsuarioA.trim().isEmpty()) {
+                logger.error("ID de usuario A nulo o vacío");
+                throw new IllegalArgumentException("ID de usuario A no puede ser nulo o vacío");
+            }
+
+            if (idUsuarioB == null || idUsuarioB.trim().isEmpty()) {
+                logger.error("ID de usuario B nulo o vacío");
+                throw new IllegalArgumentException("ID de usuario B no puede ser nulo o vacío");
+            }
+
+            int indiceA = internador.indiceDe(idUsuarioA);
+            int indiceB = internador.indiceDe(idUsuarioB);
+            if (indiceA < 0 || indiceB < 0) {
+                return false;
+            }
+
+            boolean existia;
+            grafo.cerrojoEscritura().lock();
+            try {
+                CacheSugerencias actual = cache;
+                if (actual != null) {
+                    // Igual que en perfilEliminado, se invalida con los arcos todavía en el grafo
+                    actual.sincronizar(grafo.getVersion());
+                    invalidarCacheAlrededor(actual, indiceA, 1);
+                    invalidarCacheAlrededor(actual, indiceB, 1);
+                }
+                existia = grafo.eliminarAmistad(indiceA, indiceB);
+                if (actual != null) {
+                    actual.aceptarVersion(grafo.getVersion());
+                }
+            } finally {
+                grafo.cerrojoEscritura().unlock();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Amistad entre {} y {} eliminada: {}", idUsuarioA, idUsuarioB, existia);
+            }
+            return existia;
+        } catch (Exception e) {
+            logger.error("Error al eliminar amistad: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    // A diferencia de WeightedQuickUnionUF, responde bien después de eliminar amistades o perfiles.
+    // Un usuario inexistente no está conectado con nadie
+    public boolean conectados(String idUsuarioA, String idUsuarioB) {
+        int indiceA = internador.indiceDe(idUsuarioA);
+        int indiceB = internador.indiceDe(idUsuarioB);
+        if (indiceA < 0 || indiceB < 0) {
+            return false;
+        }
+        return getConectividad().conectados(indiceA, indiceB);
+    }
+
+    // Mantiene las componentes de la red al día con las eliminaciones, que la red sola no puede separar:
+    // cada época nueva de la conectividad dinámica reemplaza las componentes de la red, y los usuarios
+    // que ya no tienen perfil quedan marcados como eliminados (no cuentan como componente). 'monitor' es el
+    // que sincroniza a quienes modifican la red (el almacenamiento en App y ServidorApi). También se
+    // copian ahora, por si hubo eliminaciones antes de armar la conectividad (por ejemplo, al recuperar).
+    // Vincular otra vez la misma red no tiene efecto
+    public void vincularRed(WeightedQuickUnionUF redSocial, Object monitor) {
+        if (redSocial == null || monitor == null) {
+            logger.error("Red o monitor nulos al vincular la red");
+            throw new IllegalArgumentException("Red y monitor no pueden ser nulos");
+        }
+        if (redSocial.getInternador() != internador) {
+            throw new IllegalArgumentException("La red debe compartir el internador del motor");
+        }
+        // El monitor de la red se toma afuera de este: quien modifica la red lo tiene y puede llegar aquí
+        synchronized (this) {
+            if (redVinculada == redSocial) {
+                return;
+            }
+            redVinculada = redSocial;
+        }
+        ConectividadDinamica dinamica = getConectividad();
+        Runnable copiarComponentes = () -> {
+            synchronized (monitor) {
+                redSocial.reconstruirComponentes(etiquetasRed(dinamica, redSocial.getCantidadUsuarios()));
+            }
+        };
+        dinamica.agregarAlPublicarEpoca(copiarComponentes);
+        copiarComponentes.run();
+        logger.info("Red vinculada a la conectividad dinámica: {} componentes", redSocial.getCount());
+    }
+
+    // Componentes de la época actual con -1 para los índices sin perfil
+    private int[] etiquetasRed(ConectividadDinamica dinamica, int usuarios) {
+        int[] etiquetas = dinamica.etiquetasComponentes(usuarios);
+        grafo.cerrojoLectura().lock();
+        try {
+            for (int i = 0; i < usuarios; i++) {
+                if (perfilPorIndice(i) == null) {
+                    etiquetas[i] = -1;
+                }
+            }
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+        return etiquetas;
+    }
+
+    public ConectividadDinamica getConectividad() {
+        ConectividadDinamica actual = conectividad;
+        if (actual == null) {
+            synchronized (this) {
+                actual = conectividad;
+                if (actual == null) {
+                    logger.info("Armando la conectividad dinámica del grafo");
+                    actual = new ConectividadDinamica(grafo);
+                    conectividad = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
     // Calcula y devuelve una lista de sugerencias de amigos para un usuario.
-    // Solo se usa la calidad de amistad del amigo directo como prioridad.
+    // El puntaje depende de la estrategia configurada (por defecto, la calidad de amistad del amigo directo).
     public List<SugerenciaAmigo> sugerirAmigos(String idUsuario) {
-        logger.info("Generando sugerencias de amigos para usuario: {}", idUsuario);
+        return sugerirAmigos(idUsuario, Integer.MAX_VALUE);
+    }
+
+    // Igual que sugerirAmigos(idUsuario) pero devuelve solo las k mejores sugerencias, con el mismo
+    // orden (puntaje desc, nombre asc). Cuesta O(n + k log k) para n candidatos y el resultado ocupa O(k)
+    // Si la cache está activada se responde desde ella cuando tiene la lista del usuario
+    public List<SugerenciaAmigo> sugerirAmigos(String idUsuario, int k) {
+        return sugerir(idUsuario, k, null, null);
+    }
+
+    // Top-k con una estrategia de puntuación distinta de la configurada en el motor (no usa la cache)
+    public List<SugerenciaAmigo> sugerirAmigos(String idUsuario, int k, EstrategiaPuntuacion estrategia) {
+        if (estrategia == null) {
+            logger.error("Estrategia de puntuación nula en sugerencias");
+            throw new IllegalArgumentException("Estrategia de puntuación no puede ser nula");
+        }
+        return sugerir(idUsuario, k, estrategia, null);
+    }
+
+    // Top-k solo entre los candidatos que cumplen el filtro (por ejemplo, edad de 20 a 30), con la
+    // estrategia configurada. Cada candidato se comprueba en O(1) contra el IndicePerfiles (no usa la cache)
+    public List<SugerenciaAmigo> sugerirAmigos(String idUsuario, int k, FiltroPerfiles filtro) {
+        if (filtro == null) {
+            logger.error("Filtro nulo en sugerencias");
+            throw new IllegalArgumentException("Filtro no puede ser nulo");
+        }
+        return sugerir(idUsuario, k, null, filtro);
+    }
+
+    // Perfiles que cumplen el filtro, ordenados por id. Recorre solo el índice más selectivo del filtro
+    // (edad o género), no todo el almacenamiento
+    public List<Perfil> buscarPerfiles(FiltroPerfiles filtro) {
+        if (filtro == null) {
+            logger.error("Filtro nulo en búsqueda de perfiles");
+            throw new IllegalArgumentException("Filtro no puede ser nulo");
+        }
+        List<Perfil> perfiles = new ArrayList<>();
+        grafo.cerrojoLectura().lock();
+        try {
+            indicePerfiles.recorrer(filtro, indice -> perfiles.add(perfilesPorIndice[indice]));
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+        perfiles.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return perfiles;
+    }
+
+    // Página de hasta 'limite' perfiles que cumplen el filtro (null = todos), en orden de alta (índice) a
+    // partir del índice 'desde'. Sin filtro se recorren los índices y se corta al llenar la página; con
+    // filtro se recorre el IndicePerfiles (IndicePerfiles.recorrerDesde()), así un filtro selectivo cuesta
+    // según sus coincidencias y no según la red. La página siguiente empieza en getIndice() + 1 del último
+    // perfil devuelto
+    public List<Perfil> listarPerfiles(FiltroPerfiles filtro, int desde, int limite) {
+        if (desde < 0 || limite <= 0) {
+            logger.error("Página inválida: desde {} límite {}", desde, limite);
+            throw new IllegalArgumentException("El inicio no puede ser negativo y el límite debe ser mayor que 0");
+        }
+        List<Perfil> perfiles = new ArrayList<>(Math.min(limite, 1024));
+        grafo.cerrojoLectura().lock();
+        try {
+            Perfil[] porIndice = perfilesPorIndice;
+            if (filtro != null) {
+                indicePerfiles.recorrerDesde(filtro, desde, limite, indice -> perfiles.add(porIndice[indice]));
+                return perfiles;
+            }
+            for (int indice = desde; indice < porIndice.length && perfiles.size() < limite; indice++) {
+                if (porIndice[indice] != null) {
+                    perfiles.add(porIndice[indice]);
+                }
+            }
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+        return perfiles;
+    }
+
+    public int contarPerfiles(FiltroPerfiles filtro) {
+        if (filtro == null) {
+            logger.error("Filtro nulo al contar perfiles");
+            throw new IllegalArgumentException("Filtro no puede ser nulo");
+        }
+        grafo.cerrojoLectura().lock();
+        try {
+            return indicePerfiles.contar(filtro);
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    // Búsqueda mientras se escribe: hasta 'limite' perfiles con alguna palabra del nombre que empieza con
+    // 'prefijo' (sin distinguir mayúsculas ni tildes). Primero los amigos de quien busca, después los
+    // amigos de sus amigos (ambos por nombre) y después el resto en orden alfabético.
+    // idBuscador puede ser null (solo orden alfabético); quien busca no aparece en el resultado.
+    // Costo: el vecindario acotado por PRESUPUESTO_ARCOS_BUSQUEDA_NOMBRE más O(log n + limite) en el índice
+    public List<Perfil> buscarPorNombre(String prefijo, String idBuscador, int limite) {
+        String normalizado = IndiceNombres.normalizar(prefijo);
+        if (normalizado.isEmpty()) {
+            logger.error("Prefijo vacío en búsqueda por nombre");
+            throw new IllegalArgumentException("El texto a buscar no puede ser vacío");
+        }
+        if (limite <= 0) {
+            logger.error("Límite inválido en búsqueda por nombre: {}", limite);
+            throw new IllegalArgumentException("El límite debe ser mayor que 0");
+        }
+        EspacioTrabajo espacio = espacios.tomar();
+        List<Perfil> resultados = new ArrayList<>(Math.min(limite, 64));
+        grafo.cerrojoLectura().lock();
+        try {
+            espacio.preparar(internador.tamano());
+            int indiceBuscador = idBuscador == null ? -1 : internador.indiceDe(idBuscador);
+            List<Perfil> cercanos = indiceBuscador >= 0 && perfilPorIndice(indiceBuscador) != null
+                    ? cercanosQueCoinciden(indiceBuscador, normalizado, espacio)
+                    : List.of();
+            // La marca evita repetir perfiles (y excluye al buscador) al completar desde el índice
+            int marca = espacio.nuevaMarca();
+            if (indiceBuscador >= 0) {
+                espacio.marcaAmigo[indiceBuscador] = marca;
+            }
+            Perfil cercano;
+            for (int i = 0; i < cercanos.size() && resultados.size() < limite; i++) {
+                cercano = cercanos.get(i);
+                espacio.marcaAmigo[cercano.getIndice()] = marca;
+                resultados.add(cercano);
+            }
+            if (resultados.size() < limite) {
+                indiceNombres.recorrerPrefijo(normalizado, indice -> {
+                    if (espacio.marcaAmigo[indice] != marca && perfilPorIndice(indice) != null) {
+                        espacio.marcaAmigo[indice] = marca;
+                        resultados.add(perfilesPorIndice[indice]);
+                    }
+                    return resultados.size() < limite;
+                });
+            }
+        } finally {
+            espacio.limpiar();
+            grafo.cerrojoLectura().unlock();
+            espacios.devolver(espacio);
+        }
+        return resultados;
+    }
+
+    // Amigos y amigos de amigos del buscador que coinciden con el prefijo, ordenados por cercanía y nombre.
+    // La cercanía queda en espacio.puntaje (2 = amigo, 1 = amigo de un amigo).
+    // Requiere el cerrojo de lectura; el que llama limpia el espacio
+    private List<Perfil> cercanosQueCoinciden(int indiceBuscador, String prefijo, EspacioTrabajo espacio) {
+        int directos = recolectarAmigosDirectos(indiceBuscador, espacio.nuevaMarca(), espacio);
+        int amigo;
+        for (int i = 0; i < directos; i++) {
+            amigo = (int) espacio.amigosDirectos[i];
+            espacio.puntaje[amigo] = 2;
+            espacio.agregarTocado(amigo);
+        }
+        int arcos = directos;
+        int vecino;
+        for (int i = 0; i < directos && arcos < PRESUPUESTO_ARCOS_BUSQUEDA_NOMBRE; i++) {
+            amigo = (int) espacio.amigosDirectos[i];
+            for (int e = grafo.inicioCsr(amigo), fin = grafo.finCsr(amigo); e < fin && arcos < PRESUPUESTO_ARCOS_BUSQUEDA_NOMBRE; e++, arcos++) {
+                vecino = grafo.vecinoCsr(e);
+                if (grafo.calidadCsr(e) > 0 && espacio.puntaje[vecino] == 0 && vecino != indiceBuscador) {
+                    espacio.puntaje[vecino] = 1;
+                    espacio.agregarTocado(vecino);
+                }
+            }
+            for (int d = grafo.primerDelta(amigo); d >= 0 && arcos < PRESUPUESTO_ARCOS_BUSQUEDA_NOMBRE; d = grafo.siguienteDelta(d), arcos++) {
+                vecino = grafo.vecinoDelta(d);
+                if (grafo.calidadDelta(d) > 0 && espacio.puntaje[vecino] == 0 && vecino != indiceBuscador) {
+                    espacio.puntaje[vecino] = 1;
+                    espacio.agregarTocado(vecino);
+                }
+            }
+        }
+
+        List<Perfil> cercanos = new ArrayList<>();
+        int candidato;
+        for (int i = 0; i < espacio.cantidadTocados; i++) {
+            candidato = espacio.tocados[i];
+            if (perfilPorIndice(candidato) != null && indiceNombres.coincide(candidato, prefijo)) {
+                cercanos.add(perfilesPorIndice[candidato]);
+            }
+        }
+        int[] puntaje = espacio.puntaje;
+        cercanos.sort((a, b) -> {
+            int comparacion = Integer.compare(puntaje[b.getIndice()], puntaje[a.getIndice()]);
+            if (comparacion != 0) {
+                return comparacion;
+            }
+            comparacion = indiceNombres.nombreNormalizado(a.getIndice())
+                    .compareTo(indiceNombres.nombreNormalizado(b.getIndice()));
+            return comparacion != 0 ? comparacion : a.getId().compareTo(b.getId());
+        });
+        return cercanos;
+    }
+
+    // estrategia == null: la configurada en el motor; con cache solo si además no hay filtro
+    private List<SugerenciaAmigo> sugerir(String idUsuario, int k, EstrategiaPuntuacion estrategia,
+            FiltroPerfiles filtro) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Generando sugerencias de amigos para usuario: {}", idUsuario);
+        }
+        // Solo una de cada MUESTREO_RESUMEN peticiones mide su tiempo y deja una línea de resumen en INFO
+        long peticion = peticionesSugerencias.incrementAndGet();
+        boolean muestreada = peticion % MUESTREO_RESUMEN == 0 && logger.isInfoEnabled();
+        Metricas medidas = metricas;
+        long inicio = muestreada || medidas != null ? System.nanoTime() : 0L;
         try {
             if (idUsuario == null || idUsuario.trim().isEmpty()) {
                 logger.error("ID de usuario nulo o vacío en sugerencias");
                 throw new IllegalArgumentException("ID de usuario no puede ser nulo o vacío");
             }
 
+            if (k <= 0) {
+                logger.error("Cantidad de sugerencias inválida: {}", k);
+                throw new IllegalArgumentException("La cantidad de sugerencias debe ser mayor que 0");
+            }
+
             Perfil perfilUsuario = almacenamiento.buscarPerfil(idUsuario);
             if (perfilUsuario == null) {
                 logger.error("Usuario no existe: {}", idUsuario);
                 throw new IllegalArgumentException("Usuario no existe: " + idUsuario);
             }
 
-            HashMap<String, SugerenciaAmigo> candidatosPorId = new HashMap<>();
-            HashMap<String, Integer> amigosUsuario = perfilUsuario.getAmigosDirectos();
-
-            String amigoDirectoId = null;
-            int calidadConAmigoDirecto = 0;
-            Perfil perfilAmigoDirecto = null;
-            HashMap<String, Integer> amigosDelAmigoDirecto = null;
-            String candidatoId = null;
-            Perfil perfilCandidato = null;
-            SugerenciaAmigo candidatoExistente = null;
-
-            for (HashMap.Entry<String, Integer> entradaAmigo : amigosUsuario.entrySet()) {
-                amigoDirectoId = entradaAmigo.getKey();
-                calidadConAmigoDirecto = entradaAmigo.getValue();
-
-                perfilAmigoDirecto = almacenamiento.buscarPerfil(amigoDirectoId);
-                if (perfilAmigoDirecto == null)
-                    continue;
-
-                amigosDelAmigoDirecto = perfilAmigoDirecto.getAmigosDirectos();
-                if (amigosDelAmigoDirecto == null)
-                    continue;
-
-                for (java.util.Iterator<String> it = amigosDelAmigoDirecto.keySet().iterator(); it.hasNext();) {
-                    candidatoId = it.next();
-                    if (candidatoId.equals(idUsuario))
-                        continue;
-                    if (amigosUsuario.containsKey(candidatoId))
-                        continue;
-
-                    perfilCandidato = almacenamiento.buscarPerfil(candidatoId);
-                    if (perfilCandidato == null)
-                        continue;
-
-                    candidatoExistente = candidatosPorId.get(candidatoId);
-                    if (candidatoExistente == null || calidadConAmigoDirecto > candidatoExistente.getPrioridad()) {
-                        candidatosPorId.put(candidatoId,
-                                new SugerenciaAmigo(candidatoId, calidadConAmigoDirecto, perfilCandidato));
+            // Los candidatos se acumulan en arrays indexados por nodo; los objetos
+            // SugerenciaAmigo solo se crean para el resultado final
+            EspacioTrabajo espacio = espacios.tomar();
+            List<SugerenciaAmigo> resultados = null;
+            int candidatos = 0;
+            long arcosRevisados = 0;
+            boolean desdeCache = false;
+            grafo.cerrojoLectura().lock();
+            try {
+                // La estrategia, el presupuesto y la cache se leen con el cerrojo tomado: quien los
+                // cambia toma el de escritura y vacía la cache, así no se guarda un resultado viejo
+                EstrategiaPuntuacion usada = estrategia != null ? estrategia : estrategiaPuntuacion;
+                CacheSugerencias cacheUsada = estrategia == null && filtro == null ? cache : null;
+                int indiceUsuario = internador.indiceDe(idUsuario);
+                if (cacheUsada != null) {
+                    cacheUsada.sincronizar(grafo.getVersion());
+                    resultados = cacheUsada.buscar(indiceUsuario, k);
+                    desdeCache = resultados != null;
+                }
+                if (resultados == null) {
+                    try {
+                        resultados = calcularSugerencias(indiceUsuario, k, usada, filtro, espacio);
+                        candidatos = espacio.cantidadTocados;
+                        arcosRevisados = espacio.arcosRevisados;
+                    } finally {
+                        espacio.limpiar();
+                    }
+                    if (cacheUsada != null) {
+                        cacheUsada.guardar(indiceUsuario, k, resultados);
                     }
                 }
+            } finally {
+                grafo.cerrojoLectura().unlock();
+                espacios.devolver(espacio);
             }
-
-            PriorityQueue<SugerenciaAmigo> colaPriorizada = new PriorityQueue<>(candidatosPorId.values());
-
-            List<SugerenciaAmigo> resultados = new ArrayList<>();
-            while (!colaPriorizada.isEmpty()) {
-                resultados.add(colaPriorizada.poll());
+            if (logger.isTraceEnabled()) {
+                logger.trace("Sugerencias generadas para {}: {} sugerencias encontradas", idUsuario, resultados.size());
+            }
+            if (muestreada) {
+                logger.info("Resumen de sugerencias (1 de cada {}): petición {}, usuario {}, {} candidatos, {} sugerencias, {} arcos, cache {}, {} µs",
+                        MUESTREO_RESUMEN, peticion, idUsuario, candidatos, resultados.size(), arcosRevisados,
+                        desdeCache ? "acierto" : "fallo", (System.nanoTime() - inicio) / 1000);
+            }
+            if (medidas != null) {
+                medidas.registrar(Metricas.Operacion.SUGERIR_AMIGOS, inicio);
             }
-
-            resultados = ordenarPorPrioridadYNombre(resultados);
-            logger.info("Sugerencias generadas para {}: {} sugerencias encontradas", idUsuario, resultados.size());
 
             return resultados;
         } catch (Exception e) {
             logger.error("Error al sugerir amigos para {}: {}", idUsuario, e.getMessage());
+            if (medidas != null) {
+                medidas.registrarError(Metricas.Operacion.SUGERIR_AMIGOS, inicio);
+            }
             throw e;
         }
     }
 
+    // Para procesos por lotes (ver LoteSugerencias): top-k del usuario con ese índice y la estrategia
+    // configurada, sin pasar por la cache (recorrer a todos los usuarios solo la llenaría de listas que
+    // no se vuelven a pedir). Devuelve null si el índice no tiene perfil
+    public List<SugerenciaAmigo> sugerirAmigosPorIndice(int indiceUsuario, int k) {
+        if (k <= 0) {
+            logger.error("Cantidad de sugerencias inválida: {}", k);
+            throw new IllegalArgumentException("La cantidad de sugerencias debe ser mayor que 0");
+        }
+        EspacioTrabajo espacio = espacios.tomar();
+        grafo.cerrojoLectura().lock();
+        try {
+            if (perfilPorIndice(indiceUsuario) == null) {
+                return null;
+            }
+            return calcularSugerencias(indiceUsuario, k, estrategiaPuntuacion, null, espacio);
+        } finally {
+            espacio.limpiar();
+            grafo.cerrojoLectura().unlock();
+            espacios.devolver(espacio);
+        }
+    }
+
+    // Top-k del usuario con la estrategia dada, solo entre los candidatos que cumplen el filtro (si hay).
+    // Requiere el cerrojo de lectura; el que llama limpia el espacio
+    private List<SugerenciaAmigo> calcularSugerencias(int indiceUsuario, int k, EstrategiaPuntuacion estrategia,
+            FiltroPerfiles filtro, EspacioTrabajo espacio) {
+        espacio.preparar(internador.tamano());
+        calcularCandidatos(indiceUsuario, espacio, estrategia, presupuestoArcos);
+        int tocados = espacio.cantidadTocados;
+        if (filtro != null) {
+            // Los candidatos que no cumplen quedan al final de tocados: no se ordenan, pero limpiar() los borra
+            espacio.cantidadTocados = separarPorFiltro(espacio, filtro);
+        }
+        // Con la puntuación original el puntaje es la prioridad (1 a 5) y se ordena por cubetas
+        int cantidad = estrategia instanceof PuntuacionCalidadMaxima
+                ? ordenarPorPrioridadYNombre(espacio, k)
+                : ordenarPorPuntajeYNombre(espacio, k);
+        List<SugerenciaAmigo> resultados = materializar(espacio, cantidad);
+        espacio.cantidadTocados = tocados;
+        return resultados;
+    }
+
+    // Deja primero en tocados los candidatos que cumplen el filtro y devuelve cuántos son.
+    // El filtro se aplica después de puntuar: con el tercer salto, un candidato que no cumple puede
+    // seguir siendo el intermedio que lleva hasta uno que sí
+    private int separarPorFiltro(EspacioTrabajo espacio, FiltroPerfiles filtro) {
+        int[] tocados = espacio.tocados;
+        int aceptados = 0;
+        int candidato;
+        for (int i = 0; i < espacio.cantidadTocados; i++) {
+            candidato = tocados[i];
+            if (indicePerfiles.cumple(candidato, filtro)) {
+                tocados[i] = tocados[aceptados];
+                tocados[aceptados++] = candidato;
+            }
+        }
+        return aceptados;
+    }
+
+    // Recorre amigos y amigos de amigos en el CSR (y un salto más si la estrategia lo pide). Deja en
+    // espacio.tocados los candidatos, en espacio.puntaje[candidato] la mejor calidad de amistad entre el
+    // usuario y un amigo en común (la prioridad) y en espacio.puntajeReal[candidato] el puntaje acumulado.
+    // Los amigos directos se expanden de mayor a menor calidad, así al agotar el presupuesto de arcos
+    // lo que queda sin recorrer son los caminos menos valiosos
+    private void calcularCandidatos(int indiceUsuario, EspacioTrabajo espacio, EstrategiaPuntuacion estrategia,
+            int presupuesto) {
+        int marca = espacio.nuevaMarca();
+        espacio.marcaAmigo[indiceUsuario] = marca;
+        int directos = recolectarAmigosDirectos(indiceUsuario, marca, espacio);
+        espacio.arcosRevisados = directos;
+
+        long amigo;
+        for (int i = 0; i < directos && espacio.arcosRevisados < presupuesto; i++) {
+            amigo = espacio.amigosDirectos[i];
+            evaluarAmigosDe((int) amigo, CALIDAD_MAXIMA - (int) (amigo >>> 32), marca, espacio, estrategia,
+                    presupuesto);
+        }
+        if (estrategia.usaTercerSalto()) {
+            evaluarTercerSalto(marca, espacio, estrategia, presupuesto);
+        }
+    }
+
+    // Marca al usuario y a sus amigos directos y deja en espacio.amigosDirectos los que tienen perfil,
+    // codificados como (CALIDAD_MAXIMA - calidad) << 32 | nodo para ordenarlos por calidad descendente
+    private int recolectarAmigosDirectos(int indiceUsuario, int marca, EspacioTrabajo espacio) {
+        int[] marcaAmigo = espacio.marcaAmigo;
+        int directos = 0;
+        int calidad;
+        int amigo;
+        for (int e = grafo.inicioCsr(indiceUsuario), fin = grafo.finCsr(indiceUsuario); e < fin; e++) {
+            calidad = grafo.calidadCsr(e);
+            if (calidad > 0) {
+                amigo = grafo.vecinoCsr(e);
+                marcaAmigo[amigo] = marca;
+                if (perfilPorIndice(amigo) != null) {
+                    directos = espacio.agregarAmigoDirecto(directos, amigo, calidad);
+                }
+            }
+        }
+        for (int d = grafo.primerDelta(indiceUsuario); d >= 0; d = grafo.siguienteDelta(d)) {
+            calidad = grafo.calidadDelta(d);
+            if (calidad > 0) {
+                amigo = grafo.vecinoDelta(d);
+                marcaAmigo[amigo] = marca;
+                if (perfilPorIndice(amigo) != null) {
+                    directos = espacio.agregarAmigoDirecto(directos, amigo, calidad);
+                }
+            }
+        }
+        Arrays.sort(espacio.amigosDirectos, 0, directos);
+        return directos;
+    }
+
+    private void evaluarAmigosDe(int amigoDirecto, int calidadConAmigoDirecto, int marca, EspacioTrabajo espacio,
+            EstrategiaPuntuacion estrategia, int presupuesto) {
+        double peso = estrategia.pesoIntermedio(estrategia.necesitaGrado() ? gradoAproximado(amigoDirecto) : 0);
+        int calidad;
+        for (int e = grafo.inicioCsr(amigoDirecto), fin = grafo.finCsr(amigoDirecto); e < fin; e++) {
+            calidad = grafo.calidadCsr(e);
+            if (calidad > 0) {
+                if (++espacio.arcosRevisados > presupuesto)
+                    return;
+                evaluarCandidato(grafo.vecinoCsr(e), calidadConAmigoDirecto,
+                        estrategia.aporteSegundoSalto(calidadConAmigoDirecto, calidad, peso), marca, espacio, estrategia);
+            }
+        }
+        for (int d = grafo.primerDelta(amigoDirecto); d >= 0; d = grafo.siguienteDelta(d)) {
+            calidad = grafo.calidadDelta(d);
+            if (calidad > 0) {
+                if (++espacio.arcosRevisados > presupuesto)
+                    return;
+                evaluarCandidato(grafo.vecinoDelta(d), calidadConAmigoDirecto,
+                        estrategia.aporteSegundoSalto(calidadConAmigoDirecto, calidad, peso), marca, espacio, estrategia);
+            }
+        }
+    }
+
+    private void evaluarCandidato(int candidato, int prioridad, double aporte, int marca, EspacioTrabajo espacio,
+            EstrategiaPuntuacion estrategia) {
+        // El propio usuario y sus amigos directos tienen la marca de esta petición
+        if (espacio.marcaAmigo[candidato] == marca || perfilPorIndice(candidato) == null)
+            return;
+
+        int actual = espacio.puntaje[candidato];
+        if (actual == 0) {
+            espacio.agregarTocado(candidato);
+            espacio.puntajeReal[candidato] = aporte;
+        } else {
+            espacio.puntajeReal[candidato] = estrategia.acumular(espacio.puntajeReal[candidato], aporte);
+        }
+        if (prioridad > actual) {
+            espacio.puntaje[candidato] = prioridad;
+        }
+    }
+
+    // Tercer salto: cada candidato de segundo salto extiende su puntaje a sus amigos. Los aportes se
+    // juntan aparte (espacio.aporteTercero) para que el puntaje del intermedio no cambie mientras se
+    // recorre, y al final se combinan con el puntaje de segundo salto
+    private void evaluarTercerSalto(int marca, EspacioTrabajo espacio, EstrategiaPuntuacion estrategia,
+            int presupuesto) {
+        int segundos = espacio.cantidadTocados;
+        double[] aporteTercero = espacio.aporteTercero();
+        int intermedio;
+        int prioridad;
+        double base;
+        double peso;
+        int calidad;
+        for (int i = 0; i < segundos && espacio.arcosRevisados < presupuesto; i++) {
+            intermedio = espacio.tocados[i];
+            prioridad = espacio.puntaje[intermedio];
+            base = espacio.puntajeReal[intermedio];
+            peso = estrategia.pesoIntermedio(estrategia.necesitaGrado() ? gradoAproximado(intermedio) : 0);
+            for (int e = grafo.inicioCsr(intermedio), fin = grafo.finCsr(intermedio); e < fin; e++) {
+                calidad = grafo.calidadCsr(e);
+                if (calidad > 0) {
+                    if (++espacio.arcosRevisados > presupuesto)
+                        break;
+                    acumularTercerSalto(grafo.vecinoCsr(e), prioridad,
+                            estrategia.aporteTercerSalto(base, calidad, peso), marca, espacio, estrategia);
+                }
+            }
+            for (int d = grafo.primerDelta(intermedio); d >= 0; d = grafo.siguienteDelta(d)) {
+                calidad = grafo.calidadDelta(d);
+                if (calidad > 0) {
+                    if (++espacio.arcosRevisados > presupuesto)
+                        break;
+                    acumularTercerSalto(grafo.vecinoDelta(d), prioridad,
+                            estrategia.aporteTercerSalto(base, calidad, peso), marca, espacio, estrategia);
+                }
+            }
+        }
+
+        int candidato;
+        for (int i = 0; i < espacio.cantidadTocados; i++) {
+            candidato = espacio.tocados[i];
+            if (aporteTercero[candidato] != 0) {
+                espacio.puntajeReal[candidato] = i < segundos
+                        ? estrategia.acumular(espacio.puntajeReal[candidato], aporteTercero[candidato])
+                        : aporteTercero[candidato];
+                aporteTercero[candidato] = 0;
+            }
+        }
+    }
+
+    private void acumularTercerSalto(int candidato, int prioridad, double aporte, int marca, EspacioTrabajo espacio,
+            EstrategiaPuntuacion estrategia) {
+        if (espacio.marcaAmigo[candidato] == marca || perfilPorIndice(candidato) == null)
+            return;
+
+        int actual = espacio.puntaje[candidato];
+        if (actual == 0) {
+            espacio.agregarTocado(candidato);
+            espacio.puntajeReal[candidato] = 0;
+        }
+        if (prioridad > actual) {
+            espacio.puntaje[candidato] = prioridad;
+        }
+        double[] aporteTercero = espacio.aporteTercero;
+        aporteTercero[candidato] = aporteTercero[candidato] == 0 ? aporte
+                : estrategia.acumular(aporteTercero[candidato], aporte);
+    }
+
+    // Grado del nodo contando también los arcos eliminados que siguen en el CSR; alcanza para ponderar
+    // y es O(1) salvo por el delta, que se mantiene corto entre compactaciones
+    private int gradoAproximado(int nodo) {
+        int grado = grafo.finCsr(nodo) - grafo.inicioCsr(nodo);
+        for (int d = grafo.primerDelta(nodo); d >= 0; d = grafo.siguienteDelta(d)) {
+            grado++;
+        }
+        return grado;
+    }
+
+    // Crea los objetos SugerenciaAmigo para los primeros 'cantidad' candidatos ya ordenados
+    private List<SugerenciaAmigo> materializar(EspacioTrabajo espacio, int cantidad) {
+        List<SugerenciaAmigo> resultados = new ArrayList<>(cantidad);
+        Perfil perfilCandidato;
+        int candidato;
+        for (int i = 0; i < cantidad; i++) {
+            candidato = espacio.tocados[i];
+            perfilCandidato = perfilesPorIndice[candidato];
+            resultados.add(new SugerenciaAmigo(perfilCandidato.getId(), espacio.puntaje[candidato],
+                    espacio.puntajeReal[candidato], perfilCandidato));
+        }
+        return resultados;
+    }
+
     // Carga los lazos de amistad almacenados en los perfiles hacia la
     // estructura de red (WeightedQuickUnionUF). Esta operación centraliza
     // la lógica de creación de lazos en el motor de sugerencias
     public String cargarLazosDesdePerfiles(WeightedQuickUnionUF redSocial) {
-        logger.info("Cargando lazos desde perfiles a la red social");
+        return cargarLazosDesdePerfiles(redSocial, 1);
+    }
+
+    // Carga masiva de la conectividad repartida en 'hilos' hilos de un ForkJoinPool:
+    // 1. Los ids se traducen a índices de la red una sola vez (nada si comparten internador).
+    // 2. Cada hilo recorre un rango de nodos del CSR con una cantidad parecida de arcos y une en su
+    //    propio BosqueUnionFind solo el arco nodo -> vecino con nodo < vecino (o hacia un vecino sin
+    //    perfil, cuya fila no se recorre): cada amistad se procesa una vez en lugar de dos.
+    // 3. Los bosques se fusionan de a pares en paralelo y el resultado se aplana.
+    // 4. Los arcos saltados se revisan contra el bosque plano (dos lecturas por arco); solo una amistad
+    //    guardada en una sola dirección puede faltar todavía, y esas se unen al final.
+    // 5. La red recibe a lo sumo un enlace por nodo (nodo -> raíz de su componente).
+    // Los bosques por hilo no comparten nada mientras unen, así que no hace falta un union-find con CAS:
+    // uno compartido pagaba un CAS por enlace y con un hilo era más lento que la red. Las consultas de
+    // conectividad en paralelo las responde ConectividadDinamica con el cerrojo de lectura del grafo.
+    public String cargarLazosDesdePerfiles(WeightedQuickUnionUF redSocial, int hilos) {
+        logger.info("Cargando lazos desde perfiles a la red social con {} hilos", hilos);
         try {
             if (redSocial == null) {
                 logger.error("Red social nula en carga de lazos");
                 throw new IllegalArgumentException("Red social no puede ser nula");
             }
+            if (hilos < 1) {
+                logger.error("Cantidad de hilos inválida en carga de lazos: {}", hilos);
+                throw new IllegalArgumentException("La cantidad de hilos debe ser al menos 1");
+            }
 
             StringBuilder resultado = new StringBuilder();
-            int lazosCreados = 0;
-
-            HashMap<String, Integer> amigos;
-            java.util.Iterator<Map.Entry<String, Integer>> iterador;
-            Map.Entry<String, Integer> entrada;
-            String idDeAmigo;
-            int calidad;
-
-            for (Perfil perfil : almacenamiento.obtenerTodosPerfiles().values()) {
-                amigos = perfil.getAmigosDirectos();
-                if (amigos == null)
-                    continue;
-                iterador = amigos.entrySet().iterator();
-                while (iterador.hasNext()) {
-                    entrada = iterador.next();
-                    idDeAmigo = entrada.getKey();
-                    calidad = entrada.getValue();
-
-                    if (!redSocial.conectados(perfil.getId(), idDeAmigo)) {
-                        try {
-                            redSocial.generarAmistad(perfil.getId(), idDeAmigo, calidad);
-                            lazosCreados++;
-                        } catch (Exception e) {
-                            logger.error("Error al crear lazo entre {} y {}: {}", perfil.getId(), idDeAmigo,
-                                    e.getMessage());
-                            throw new IllegalArgumentException("Error al crear lazo: " + e.getMessage());
-                        }
+            int lazosCreados;
+
+            // El cerrojo de lectura lo toma este hilo y bloquea a los escritores mientras trabajan los
+            // demás; lo que ya estaba escrito les es visible porque las tareas se envían después
+            grafo.cerrojoLectura().lock();
+            ForkJoinPool pool = hilos > 1 ? new ForkJoinPool(hilos) : null;
+            try {
+                int totalNodos = internador.tamano();
+                int[] indiceEnRed = traducirIndices(redSocial, totalNodos);
+                int[] cortes = repartirNodos(totalNodos, hilos);
+                int partes = cortes.length - 1;
+
+                BosqueUnionFind[] bosques = new BosqueUnionFind[partes];
+                ejecutarEnPool(pool, partes, parte -> {
+                    bosques[parte] = new BosqueUnionFind(totalNodos);
+                    unirArcosHaciaAdelante(bosques[parte], indiceEnRed, cortes[parte], cortes[parte + 1]);
+                });
+                for (int paso = 1; paso < partes; paso *= 2) {
+                    int salto = paso;
+                    ejecutarEnPool(pool, (partes - salto + 2 * salto - 1) / (2 * salto), par -> {
+                        int destino = par * 2 * salto;
+                        bosques[destino].fusionar(bosques[destino + salto]);
+                        bosques[destino + salto] = null;
+                    });
+                }
+                BosqueUnionFind bosque = bosques[0];
+                bosque.aplanar();
+
+                int[][] faltantes = new int[partes][];
+                ejecutarEnPool(pool, partes,
+                        parte -> faltantes[parte] = buscarArcosSinUnir(bosque, indiceEnRed, cortes[parte], cortes[parte + 1]));
+                for (int[] pares : faltantes) {
+                    for (int i = 1; i < pares[0]; i += 2) {
+                        bosque.union(pares[i], pares[i + 1]);
                     }
                 }
+
+                lazosCreados = volcarEnRed(bosque, redSocial, indiceEnRed);
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+                grafo.cerrojoLectura().unlock();
             }
             resultado.append("Lazos de amistad cargados: ").append(lazosCreados).append(System.lineSeparator());
             logger.info("Lazos cargados exitosamente: {}", lazosCreados);
@@ -197,83 +1167,393 @@ public class MotorSugerencias {
         }
     }
 
+    // Índice en la red de cada nodo del grafo (-1 si la red no lo tiene), o null si comparten
+    // internador y los índices valen tal cual. Corre en un solo hilo: sincronizar hace crecer la red
+    private int[] traducirIndices(WeightedQuickUnionUF redSocial, int totalNodos) {
+        if (redSocial.getInternador() == internador) {
+            // Registra en la red los perfiles que el grafo agregó al internador compartido
+            redSocial.sincronizarConInternador();
+            return null;
+        }
+        int[] indiceEnRed = new int[totalNodos];
+        for (int nodo = 0; nodo < totalNodos; nodo++) {
+            indiceEnRed[nodo] = redSocial.indiceDe(internador.idDe(nodo));
+        }
+        return indiceEnRed;
+    }
+
+    // Cortes [c0 = 0, c1, ..., cn = totalNodos] con una cantidad parecida de arcos CSR por rango.
+    // offsets[] ya es la suma acumulada de arcos, así cada corte es una búsqueda binaria
+    private int[] repartirNodos(int totalNodos, int partes) {
+        int nodosCsr = Math.min(grafo.getNodosCsr(), totalNodos);
+        long arcosCsr = nodosCsr > 0 ? grafo.finCsr(nodosCsr - 1) : 0;
+        partes = (int) Math.max(1, Math.min(partes, Math.min(totalNodos, arcosCsr / 1024 + 1)));
+
+        int[] cortes = new int[partes + 1];
+        long objetivo;
+        int bajo;
+        int alto;
+        int medio;
+        for (int k = 1; k < partes; k++) {
+            objetivo = arcosCsr * k / partes;
+            bajo = cortes[k - 1];
+            alto = nodosCsr;
+            while (bajo < alto) {
+                medio = (bajo + alto) >>> 1;
+                if (grafo.inicioCsr(medio) < objetivo) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            cortes[k] = bajo;
+        }
+        cortes[partes] = totalNodos;
+        return cortes;
+    }
+
+    // Une en el bosque los arcos de los nodos [desde, hasta) que apuntan a un índice mayor o a un
+    // vecino sin perfil. Valida, igual que antes, que ambos extremos existan en la red
+    private void unirArcosHaciaAdelante(BosqueUnionFind bosque, int[] indiceEnRed, int desde, int hasta) {
+        int vecino;
+        for (int nodo = desde; nodo < hasta; nodo++) {
+            if (perfilPorIndice(nodo) == null)
+                continue;
+            for (int e = grafo.inicioCsr(nodo), fin = grafo.finCsr(nodo); e < fin; e++) {
+                vecino = grafo.vecinoCsr(e);
+                if (grafo.calidadCsr(e) > 0 && esArcoHaciaAdelante(nodo, vecino)) {
+                    validarLazo(indiceEnRed, nodo, vecino);
+                    bosque.union(nodo, vecino);
+                }
+            }
+            for (int d = grafo.primerDelta(nodo); d >= 0; d = grafo.siguienteDelta(d)) {
+                vecino = grafo.vecinoDelta(d);
+                if (grafo.calidadDelta(d) > 0 && esArcoHaciaAdelante(nodo, vecino)) {
+                    validarLazo(indiceEnRed, nodo, vecino);
+                    bosque.union(nodo, vecino);
+                }
+            }
+        }
+    }
+
+    private boolean esArcoHaciaAdelante(int nodo, int vecino) {
+        return nodo < vecino || perfilPorIndice(vecino) == null;
+    }
+
+    private void validarLazo(int[] indiceEnRed, int nodo, int vecino) {
+        if (indiceEnRed != null && (indiceEnRed[nodo] < 0 || indiceEnRed[vecino] < 0)) {
+            logger.error("Error al crear lazo desde {}: Uno o ambos usuarios no existen", internador.idDe(nodo));
+            throw new IllegalArgumentException("Error al crear lazo: Uno o ambos usuarios no existen");
+        }
+    }
+
+    // Arcos saltados por unirArcosHaciaAdelante() cuyos extremos siguen en componentes distintas
+    // (amistades guardadas en una sola dirección). Devuelve [2 * pares + 1, a0, b0, a1, b1, ...]
+    private int[] buscarArcosSinUnir(BosqueUnionFind bosque, int[] indiceEnRed, int desde, int hasta) {
+        int[] pares = new int[1];
+        int usados = 1;
+        int raiz;
+        int vecino;
+        for (int nodo = desde; nodo < hasta; nodo++) {
+            if (perfilPorIndice(nodo) == null)
+                continue;
+            raiz = bosque.find(nodo);
+            for (int e = grafo.inicioCsr(nodo), fin = grafo.finCsr(nodo); e < fin; e++) {
+                vecino = grafo.vecinoCsr(e);
+                if (grafo.calidadCsr(e) > 0 && !esArcoHaciaAdelante(nodo, vecino) && bosque.find(vecino) != raiz) {
+                    validarLazo(indiceEnRed, nodo, vecino);
+                    pares = agregarPar(pares, usados, nodo, vecino);
+                    usados += 2;
+                }
+            }
+            for (int d = grafo.primerDelta(nodo); d >= 0; d = grafo.siguienteDelta(d)) {
+                vecino = grafo.vecinoDelta(d);
+                if (grafo.calidadDelta(d) > 0 && !esArcoHaciaAdelante(nodo, vecino) && bosque.find(vecino) != raiz) {
+                    validarLazo(indiceEnRed, nodo, vecino);
+                    pares = agregarPar(pares, usados, nodo, vecino);
+                    usados += 2;
+                }
+            }
+        }
+        pares[0] = usados;
+        return pares;
+    }
+
+    private static int[] agregarPar(int[] pares, int usados, int a, int b) {
+        if (usados + 2 > pares.length) {
+            pares = Arrays.copyOf(pares, Math.max(usados + 2, pares.length * 2));
+        }
+        pares[usados] = a;
+        pares[usados + 1] = b;
+        return pares;
+    }
+
+    // Pasa las componentes del bosque a la red uniendo cada nodo con su raíz. Devuelve los lazos
+    // que unieron componentes distintas de la red
+    private int volcarEnRed(BosqueUnionFind bosque, WeightedQuickUnionUF redSocial, int[] indiceEnRed) {
+        int lazosCreados = 0;
+        int raiz;
+        int indiceNodo;
+        int indiceRaiz;
+        for (int nodo = 0, total = bosque.tamano(); nodo < total; nodo++) {
+            raiz = bosque.find(nodo);
+            if (raiz == nodo)
+                continue;
+            indiceNodo = indiceEnRed == null ? nodo : indiceEnRed[nodo];
+            indiceRaiz = indiceEnRed == null ? raiz : indiceEnRed[raiz];
+            if (!redSocial.conectados(indiceNodo, indiceRaiz)) {
+                redSocial.union(indiceNodo, indiceRaiz);
+                lazosCreados++;
+            }
+        }
+        return lazosCreados;
+    }
+
+    // Corre tarea(0 .. cantidad - 1) en el pool y espera a todas; sin pool, en este mismo hilo
+    private static void ejecutarEnPool(ForkJoinPool pool, int cantidad, IntConsumer tarea) {
+        if (pool == null || cantidad == 1) {
+            for (int i = 0; i < cantidad; i++) {
+                tarea.accept(i);
+            }
+            return;
+        }
+        List<Future<?>> enCurso = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            int indice = i;
+            enCurso.add(pool.submit(() -> tarea.accept(indice)));
+        }
+        try {
+            for (Future<?> futuro : enCurso) {
+                futuro.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga de lazos interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al cargar lazos: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     // Se le dio a la IA la implementación de un Mergesort para que lo adaptará a nuestro caso: ordena por prioridad (desc) y por nombre
     // (asc)
     // Se eligió este algoritmo por su eficiencia O(n Logn)
-    private List<SugerenciaAmigo> ordenarPorPrioridadYNombre(List<SugerenciaAmigo> lista) {
-        logger.info("Ordenando sugerencias por prioridad y nombre");
-        try {
-            if (lista == null || lista.size() <= 1)
-                return lista;
-            return ordenarRecursivo(lista, 0, lista.size() - 1);
-        } catch (Exception e) {
-            logger.error("Error al ordenar sugerencias: {}", e.getMessage());
-            return lista;
+    // Ahora trabaja sobre los índices de espacio.tocados con un buffer auxiliar reutilizable en lugar
+    // de crear sublistas en cada nivel. Como la prioridad va de 1 a 5, primero se reparten los candidatos
+    // en cubetas por prioridad (counting sort) y el Mergesort solo ordena por nombre dentro de cada cubeta.
+    // Deja en espacio.tocados[0 .. resultado) los 'limite' mejores candidatos ya ordenados.
+    // Solo se ordena lo que entra en el resultado: las cubetas completas se ordenan enteras y de la
+    // cubeta donde se alcanza el límite se seleccionan primero los nombres menores (quickselect).
+    // Solo vale si el puntaje de cada candidato es su prioridad (PuntuacionCalidadMaxima)
+    private int ordenarPorPrioridadYNombre(EspacioTrabajo espacio, int limite) {
+        int cantidad = espacio.cantidadTocados;
+        if (cantidad <= 1)
+            return cantidad;
+
+        int[] tocados = espacio.tocados;
+        int[] auxiliar = espacio.auxiliar(cantidad);
+        int[] inicioCubeta = espacio.inicioCubeta;
+        int[] siguiente = espacio.siguienteCubeta;
+        int prioridad;
+
+        Arrays.fill(inicioCubeta, 0);
+
+        // Cuenta por cubeta; la cubeta 0 es la de prioridad máxima
+        for (int i = 0; i < cantidad; i++) {
+            prioridad = espacio.puntaje[tocados[i]];
+            inicioCubeta[SugerenciaAmigo.PRIORIDAD_MAXIMA - prioridad + 1]++;
+        }
+        for (int c = 1; c < inicioCubeta.length; c++) {
+            inicioCubeta[c] += inicioCubeta[c - 1];
         }
+        System.arraycopy(inicioCubeta, 0, siguiente, 0, inicioCubeta.length);
+        for (int i = 0; i < cantidad; i++) {
+            prioridad = espacio.puntaje[tocados[i]];
+            auxiliar[siguiente[SugerenciaAmigo.PRIORIDAD_MAXIMA - prioridad]++] = tocados[i];
+        }
+        System.arraycopy(auxiliar, 0, tocados, 0, cantidad);
+
+        int resultado = Math.min(limite, cantidad);
+        int inicio;
+        int fin;
+        for (int c = 0; c + 1 < inicioCubeta.length && inicioCubeta[c] < resultado; c++) {
+            inicio = inicioCubeta[c];
+            fin = Math.min(inicioCubeta[c + 1], resultado);
+            if (fin < inicioCubeta[c + 1]) {
+                seleccionarMejores(espacio, tocados, inicio, inicioCubeta[c + 1] - 1, fin - inicio);
+            }
+            if (fin - inicio > 1) {
+                ordenarRecursivo(espacio, tocados, auxiliar, inicio, fin - 1);
+            }
+        }
+        return resultado;
     }
 
-    private List<SugerenciaAmigo> ordenarRecursivo(List<SugerenciaAmigo> lista, int izq, int der) {
-        try {
-            if (izq == der) {
-                List<SugerenciaAmigo> listaUnidad = new ArrayList<>();
-                listaUnidad.add(lista.get(izq));
-                return listaUnidad;
-            }
-            int medio = (izq + der) >>> 1;
-            List<SugerenciaAmigo> izquierda = ordenarRecursivo(lista, izq, medio);
-            List<SugerenciaAmigo> derecha = ordenarRecursivo(lista, medio + 1, der);
-            return fusionar(izquierda, derecha);
-        } catch (Exception e) {
-            logger.error("Error en ordenamiento recursivo: {}", e.getMessage());
-            throw e;
+    // Con otras estrategias el puntaje es un número real y no se reparte en cubetas: se seleccionan los
+    // 'limite' mejores por puntaje y nombre (quickselect) y el Mergesort ordena solo esos
+    private int ordenarPorPuntajeYNombre(EspacioTrabajo espacio, int limite) {
+        int cantidad = espacio.cantidadTocados;
+        if (cantidad <= 1)
+            return cantidad;
+
+        int[] tocados = espacio.tocados;
+        int resultado = Math.min(limite, cantidad);
+        if (resultado < cantidad) {
+            seleccionarMejores(espacio, tocados, 0, cantidad - 1, resultado);
         }
+        ordenarRecursivo(espacio, tocados, espacio.auxiliar(resultado), 0, resultado - 1);
+        return resultado;
     }
 
-    private List<SugerenciaAmigo> fusionar(List<SugerenciaAmigo> izquierda, List<SugerenciaAmigo> derecha) {
-        try {
-            int indiceIzquierda = 0, indiceDerecha = 0;
-            List<SugerenciaAmigo> listaFusionada = new ArrayList<>(izquierda.size() + derecha.size());
-            int comparacionPrioridad;
-            SugerenciaAmigo candidatoIzquierda;
-            SugerenciaAmigo candidatoDerecha;
-            String nombreIzquierda;
-            String nombreDerecha;
-            while (indiceIzquierda < izquierda.size() && indiceDerecha < derecha.size()) {
-                candidatoIzquierda = izquierda.get(indiceIzquierda);
-                candidatoDerecha = derecha.get(indiceDerecha);
-
-                comparacionPrioridad = Integer.compare(candidatoDerecha.getPrioridad(),
-                        candidatoIzquierda.getPrioridad());
-
-                if (comparacionPrioridad == 0) {
-                    nombreIzquierda = candidatoIzquierda.getPerfil().getNombre();
-                    nombreDerecha = candidatoDerecha.getPerfil().getNombre();
-                    comparacionPrioridad = nombreIzquierda.compareToIgnoreCase(nombreDerecha);
-                }
-
-                if (comparacionPrioridad < 0) {
-                    listaFusionada.add(candidatoIzquierda);
-                    indiceIzquierda++;
-                } else if (comparacionPrioridad > 0) {
-                    listaFusionada.add(candidatoDerecha);
-                    indiceDerecha++;
-                } else {
-                    listaFusionada.add(candidatoIzquierda);
-                    indiceIzquierda++;
+    // Quickselect: reordena nodos[izq..der] para que los 'cantidad' primeros sean los mejores según
+    // compararCandidatos() (sin ordenarlos entre sí). O(n) esperado
+    private void seleccionarMejores(EspacioTrabajo espacio, int[] nodos, int izq, int der, int cantidad) {
+        int objetivo = izq + cantidad - 1;
+        int pivote;
+        int i;
+        int j;
+        int temporal;
+        while (izq < der) {
+            pivote = nodos[(izq + der) >>> 1];
+            i = izq;
+            j = der;
+            while (i <= j) {
+                while (compararCandidatos(espacio, nodos[i], pivote) < 0) {
+                    i++;
+                }
+                while (compararCandidatos(espacio, nodos[j], pivote) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    temporal = nodos[i];
+                    nodos[i++] = nodos[j];
+                    nodos[j--] = temporal;
+                }
+            }
+            if (objetivo <= j) {
+                der = j;
+            } else if (objetivo >= i) {
+                izq = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void ordenarRecursivo(EspacioTrabajo espacio, int[] nodos, int[] auxiliar, int izq, int der) {
+        if (izq >= der)
+            return;
+        int medio = (izq + der) >>> 1;
+        ordenarRecursivo(espacio, nodos, auxiliar, izq, medio);
+        ordenarRecursivo(espacio, nodos, auxiliar, medio + 1, der);
+        fusionar(espacio, nodos, auxiliar, izq, medio, der);
+    }
+
+    private void fusionar(EspacioTrabajo espacio, int[] nodos, int[] auxiliar, int izq, int medio, int der) {
+        System.arraycopy(nodos, izq, auxiliar, izq, der - izq + 1);
+        int indiceIzquierda = izq, indiceDerecha = medio + 1, destino = izq;
+        while (indiceIzquierda <= medio && indiceDerecha <= der) {
+            if (compararCandidatos(espacio, auxiliar[indiceIzquierda], auxiliar[indiceDerecha]) <= 0) {
+                nodos[destino++] = auxiliar[indiceIzquierda++];
+            } else {
+                nodos[destino++] = auxiliar[indiceDerecha++];
+            }
+        }
+        while (indiceIzquierda <= medio) {
+            nodos[destino++] = auxiliar[indiceIzquierda++];
+        }
+        while (indiceDerecha <= der) {
+            nodos[destino++] = auxiliar[indiceDerecha++];
+        }
+    }
+
+    // Puntaje descendente; a igual puntaje, nombre ascendente (sin distinguir mayúsculas) y luego el índice
+    private int compararCandidatos(EspacioTrabajo espacio, int nodoA, int nodoB) {
+        int comparacion = Double.compare(espacio.puntajeReal[nodoB], espacio.puntajeReal[nodoA]);
+        if (comparacion != 0)
+            return comparacion;
+        comparacion = perfilesPorIndice[nodoA].getNombre().compareToIgnoreCase(perfilesPorIndice[nodoB].getNombre());
+        return comparacion != 0 ? comparacion : Integer.compare(nodoA, nodoB);
+    }
+
+    // Buffers de trabajo de una petición (prestados por el pool). puntaje, puntajeReal y marcaAmigo están indexados por nodo;
+    // tocados lista los nodos con puntaje != 0 para poder limpiarlos en O(candidatos).
+    // puntajeReal solo vale para los nodos tocados (se escribe al tocarlos) y aporteTercero se crea
+    // la primera vez que una petición usa el tercer salto
+    private static final class EspacioTrabajo {
+        private int[] puntaje = new int[0];
+        private double[] puntajeReal = new double[0];
+        private double[] aporteTercero = new double[0];
+        private int[] marcaAmigo = new int[0];
+        private int[] tocados = new int[64];
+        private int[] auxiliar = new int[64];
+        private long[] amigosDirectos = new long[64];
+        private final int[] inicioCubeta = new int[SugerenciaAmigo.PRIORIDAD_MAXIMA + 1];
+        private final int[] siguienteCubeta = new int[SugerenciaAmigo.PRIORIDAD_MAXIMA + 1];
+        private int cantidadTocados;
+        private int marcaActual;
+        private long arcosRevisados;
+
+        // Ajusta los arrays indexados por nodo al tamaño actual de la red
+        private void preparar(int nodos) {
+            if (puntaje.length < nodos) {
+                int capacidad = Math.max(nodos, puntaje.length + (puntaje.length >> 1));
+                puntaje = Arrays.copyOf(puntaje, capacidad);
+                puntajeReal = new double[capacidad];
+                marcaAmigo = Arrays.copyOf(marcaAmigo, capacidad);
+                if (aporteTercero.length > 0) {
+                    aporteTercero = new double[capacidad];
                 }
             }
+            cantidadTocados = 0;
+            arcosRevisados = 0;
+        }
 
-            while (indiceIzquierda < izquierda.size()) {
-                listaFusionada.add(izquierda.get(indiceIzquierda++));
+        private double[] aporteTercero() {
+            if (aporteTercero.length < puntaje.length) {
+                aporteTercero = new double[puntaje.length];
             }
-            while (indiceDerecha < derecha.size()) {
-                listaFusionada.add(derecha.get(indiceDerecha++));
+            return aporteTercero;
+        }
+
+        // Cada petición usa una marca distinta, así marcaAmigo no hay que limpiarlo
+        private int nuevaMarca() {
+            if (++marcaActual == Integer.MAX_VALUE) {
+                Arrays.fill(marcaAmigo, 0);
+                marcaActual = 1;
             }
+            return marcaActual;
+        }
 
-            return listaFusionada;
-        } catch (Exception e) {
-            logger.error("Error al fusionar listas: {}", e.getMessage());
-            throw e;
+        private void agregarTocado(int nodo) {
+            if (cantidadTocados == tocados.length) {
+                tocados = Arrays.copyOf(tocados, tocados.length << 1);
+            }
+            tocados[cantidadTocados++] = nodo;
+        }
+
+        private int agregarAmigoDirecto(int cantidad, int amigo, int calidad) {
+            if (cantidad == amigosDirectos.length) {
+                amigosDirectos = Arrays.copyOf(amigosDirectos, amigosDirectos.length << 1);
+            }
+            amigosDirectos[cantidad] = ((long) (CALIDAD_MAXIMA - calidad) << 32) | amigo;
+            return cantidad + 1;
+        }
+
+        private int[] auxiliar(int cantidad) {
+            if (auxiliar.length < cantidad) {
+                auxiliar = new int[Math.max(cantidad, auxiliar.length << 1)];
+            }
+            return auxiliar;
+        }
+
+        private void limpiar() {
+            for (int i = 0; i < cantidadTocados; i++) {
+                puntaje[tocados[i]] = 0;
+            }
+            cantidadTocados = 0;
         }
     }
 }
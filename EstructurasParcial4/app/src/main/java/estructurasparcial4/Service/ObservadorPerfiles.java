@@ -0,0 +1,13 @@
+package estructurasparcial4.Service;
+
+import estructurasparcial4.Model.Perfil;
+
+// Interfaz para las estructuras que deben mantenerse al día con los perfiles
+// del almacenamiento (por ejemplo, el grafo del motor de sugerencias).
+// AlmacenamientoPerfiles avisa después de cada alta y baja exitosa.
+public interface ObservadorPerfiles {
+
+    void perfilCreado(Perfil perfil);
+
+    void perfilEliminado(Perfil perfil);
+}
@@ -0,0 +1,42 @@
+package estructurasparcial4.Service;
+
+// Puntuación original del motor: el puntaje del candidato es la mejor calidad de amistad entre el
+// usuario y un amigo en común (1 a 5). No cuenta cuántos amigos en común hay ni usa el tercer salto.
+// Es final porque el motor la reconoce para ordenar por cubetas de prioridad
+public final class PuntuacionCalidadMaxima implements EstrategiaPuntuacion {
+
+    @Override
+    public double pesoIntermedio(int grado) {
+        return 1.0;
+    }
+
+    @Override
+    public double aporteSegundoSalto(int calidadConAmigo, int calidadAmigoCandidato, double pesoAmigo) {
+        return calidadConAmigo;
+    }
+
+    @Override
+    public double aporteTercerSalto(double puntajeIntermedio, int calidadArco, double pesoIntermedio) {
+        return 0.0;
+    }
+
+    @Override
+    public boolean usaTercerSalto() {
+        return false;
+    }
+
+    @Override
+    public double acumular(double actual, double aporte) {
+        return Math.max(actual, aporte);
+    }
+
+    @Override
+    public boolean necesitaGrado() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "PuntuacionCalidadMaxima";
+    }
+}
@@ -0,0 +1,83 @@
+package estructurasparcial4.Service;
+
+// Puntuación que suma todos los caminos hasta el candidato, así pesa la cantidad de amigos en común:
+// - Cada camino de dos saltos aporta su calidad normalizada a [0, 1]: el producto (a/5)*(b/5) o la
+//   media (a+b)/10 de las calidades de sus dos arcos.
+// - Con Adamic-Adar el aporte se divide por log(grado) del amigo en común: un amigo con miles de
+//   amigos dice poco sobre cada uno de ellos.
+// - Con pesoTercerSalto > 0 los candidatos de segundo salto extienden su puntaje un salto más,
+//   multiplicado por ese peso y por la calidad del arco (c/5).
+public class PuntuacionPonderada implements EstrategiaPuntuacion {
+
+    public enum CombinacionCalidad {
+        PRODUCTO,
+        SUMA
+    }
+
+    private final CombinacionCalidad combinacion;
+    private final boolean adamicAdar;
+    private final double pesoTercerSalto;
+
+    public PuntuacionPonderada(CombinacionCalidad combinacion, boolean adamicAdar, double pesoTercerSalto) {
+        if (combinacion == null) {
+            throw new IllegalArgumentException("La combinación de calidades no puede ser nula");
+        }
+        if (Double.isNaN(pesoTercerSalto) || pesoTercerSalto < 0 || pesoTercerSalto > 1) {
+            throw new IllegalArgumentException("El peso del tercer salto debe estar entre 0 y 1");
+        }
+        this.combinacion = combinacion;
+        this.adamicAdar = adamicAdar;
+        this.pesoTercerSalto = pesoTercerSalto;
+    }
+
+    public CombinacionCalidad getCombinacion() {
+        return combinacion;
+    }
+
+    public boolean usaAdamicAdar() {
+        return adamicAdar;
+    }
+
+    public double getPesoTercerSalto() {
+        return pesoTercerSalto;
+    }
+
+    @Override
+    public double pesoIntermedio(int grado) {
+        return adamicAdar ? 1.0 / Math.log(Math.max(2, grado)) : 1.0;
+    }
+
+    @Override
+    public double aporteSegundoSalto(int calidadConAmigo, int calidadAmigoCandidato, double pesoAmigo) {
+        double calidadCamino = combinacion == CombinacionCalidad.PRODUCTO
+                ? (calidadConAmigo * calidadAmigoCandidato) / 25.0
+                : (calidadConAmigo + calidadAmigoCandidato) / 10.0;
+        return calidadCamino * pesoAmigo;
+    }
+
+    @Override
+    public double aporteTercerSalto(double puntajeIntermedio, int calidadArco, double pesoIntermedio) {
+        return pesoTercerSalto * puntajeIntermedio * (calidadArco / 5.0) * pesoIntermedio;
+    }
+
+    @Override
+    public boolean usaTercerSalto() {
+        return pesoTercerSalto > 0;
+    }
+
+    @Override
+    public double acumular(double actual, double aporte) {
+        return actual + aporte;
+    }
+
+    @Override
+    public boolean necesitaGrado() {
+        return adamicAdar;
+    }
+
+    @Override
+    public String toString() {
+        return "PuntuacionPonderada{combinacion=" + combinacion + ", adamicAdar=" + adamicAdar
+                + ", pesoTercerSalto=" + pesoTercerSalto + "}";
+    }
+}
@@ -0,0 +1,612 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Registro de escritura anticipada (write-ahead log) de las mutaciones de la red.
+// En lugar de reescribir todo Perfiles.json en cada cambio, cada mutación (perfil creado o eliminado,
+// amistad agregada o eliminada) se agrega al final de un archivo binario:
+//   [int longitud][int crc32][payload]
+// Las escrituras se acumulan en un buffer y un único hilo las vuelca con FileChannel y hace fsync;
+// todos los registros que llegaron mientras tanto comparten ese fsync (group commit).
+// El orden del registro debe ser el orden en que se aplicaron las mutaciones (una amistad reproducida
+// antes que el perfil que la crea se perdería). Por eso quien modifica el almacenamiento bajo su monitor
+// encola el registro con encolarX() dentro de ese mismo bloque, y espera el fsync con esperarDurable()
+// afuera, para que los demás no esperen al disco con el monitor tomado. registrarX() hace las dos cosas.
+// Si una escritura o un fsync fallan, el registro se detiene para siempre: se cierra el archivo, los que
+// esperaban y los que intenten encolar reciben una excepción. Seguir agregando lotes detrás de un lote
+// perdido (o de medio registro) haría que esperarDurable() confirmara mutaciones que la recuperación
+// descartaría, porque reproducirArchivo() se detiene en el primer registro inválido.
+// Periódicamente se compacta: se rota el registro, se escribe un snapshot (JSON con LeerPerfiles o,
+// si se configuró, un SnapshotBinario) y se borra el registro viejo. Al arrancar se carga el snapshot
+// y se reproduce el registro.
+// Reproducir es idempotente (perfil existente se ignora, amistad repetida solo fija la calidad,
+// eliminar lo que ya no existe no hace nada),
+// así que no importa si el snapshot ya incluía parte del registro.
+public class RegistroMutaciones implements AutoCloseable {
+
+    private static final byte TIPO_PERFIL_CREADO = 1;
+    private static final byte TIPO_AMISTAD_AGREGADA = 2;
+    private static final byte TIPO_AMISTAD_ELIMINADA = 3;
+    private static final byte TIPO_PERFIL_ELIMINADO = 4;
+    private static final int TAMANO_CABECERA = 8;
+    private static final int TAMANO_MAXIMO_REGISTRO = 1 << 20; // una longitud mayor indica basura
+    private static final long UMBRAL_COMPACTACION_BYTES = 64L * 1024 * 1024;
+    private static final long INTERVALO_REVISION_SEGUNDOS = 30;
+
+    private static final Logger logger = LogManager.getLogger(RegistroMutaciones.class);
+
+    private final LeerPerfiles lector;
+    private final AlmacenamientoPerfiles almacenamiento;
+    private final Path rutaRegistro;
+    private final Path rutaCompactando; // registro rotado mientras se escribe el snapshot
+    private final long umbralCompactacion;
+
+    // Si se configuran, la compactación escribe el snapshot binario en lugar del JSON
+    private SnapshotBinario snapshotBinario;
+    private MotorSugerencias motorSnapshot;
+    private WeightedQuickUnionUF redSnapshot;
+
+    // Estado compartido entre los hilos que registran y el hilo de commit (protegido por cerrojo)
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayTrabajo = cerrojo.newCondition();
+    private final Condition progreso = cerrojo.newCondition();
+    private ByteBuffer pendiente = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer enEscritura = ByteBuffer.allocate(64 * 1024);
+    private long secuenciaRegistrada;
+    private long secuenciaDurable;
+    private long rotacionesSolicitadas;
+    private long rotacionesHechas;
+    private long bytesEnRegistro;
+    private IOException errorEscritura;
+    private boolean iniciado;
+    private boolean cerrado;
+
+    private FileChannel canal; // solo lo usa el hilo de commit
+    private Thread hiloCommit;
+    private ScheduledExecutorService compactador;
+    private final ReentrantLock cerrojoCompactacion = new ReentrantLock();
+
+    public RegistroMutaciones(LeerPerfiles lector, AlmacenamientoPerfiles almacenamiento) {
+        this(lector, almacenamiento, lector.getRutaArchivo() + ".wal", UMBRAL_COMPACTACION_BYTES);
+    }
+
+    public RegistroMutaciones(LeerPerfiles lector, AlmacenamientoPerfiles almacenamiento, String rutaRegistro,
+            long umbralCompactacion) {
+        if (lector == null || almacenamiento == null) {
+            throw new IllegalArgumentException("Lector y almacenamiento no pueden ser nulos");
+        }
+        if (rutaRegistro == null || rutaRegistro.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ruta del registro no puede ser nula o vacía");
+        }
+        this.lector = lector;
+        this.almacenamiento = almacenamiento;
+        this.rutaRegistro = Paths.get(rutaRegistro);
+        this.rutaCompactando = Paths.get(rutaRegistro + ".compactando");
+        this.umbralCompactacion = umbralCompactacion;
+    }
+
+    // Hace que la compactación escriba el snapshot binario de motor y red en lugar de Perfiles.json.
+    // Debe configurarse antes de iniciar()
+    public void usarSnapshotBinario(SnapshotBinario snapshot, MotorSugerencias motor, WeightedQuickUnionUF redSocial) {
+        if (snapshot == null || motor == null || redSocial == null) {
+            throw new IllegalArgumentException("Snapshot, motor y red no pueden ser nulos");
+        }
+        cerrojo.lock();
+        try {
+            if (iniciado) {
+                throw new IllegalStateException("El snapshot debe configurarse antes de iniciar el registro");
+            }
+            this.snapshotBinario = snapshot;
+            this.motorSnapshot = motor;
+            this.redSnapshot = redSocial;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // ==================== RECUPERACIÓN ====================
+
+    // Reproduce sobre el almacenamiento (ya cargado desde el snapshot) las mutaciones del registro.
+    // Debe llamarse antes de iniciar(). Devuelve la cantidad de mutaciones reproducidas
+    public int recuperar(MotorSugerencias motor) {
+        return recuperar(motor, null);
+    }
+
+    // Igual que recuperar(motor) pero además registra en la red los perfiles y amistades reproducidos,
+    // para cuando la red ya viene armada (snapshot binario) y no se vuelve a cargar desde los perfiles
+    public int recuperar(MotorSugerencias motor, WeightedQuickUnionUF redSocial) {
+        if (motor == null) {
+            throw new IllegalArgumentException("Motor no puede ser nulo");
+        }
+        cerrojo.lock();
+        try {
+            if (iniciado) {
+                throw new IllegalStateException("La recuperación debe hacerse antes de iniciar el registro");
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        int reproducidas = 0;
+        try {
+            // Si el proceso cayó a mitad de una compactación, el registro rotado va primero
+            reproducidas += reproducirArchivo(rutaCompactando, motor, redSocial);
+            reproducidas += reproducirArchivo(rutaRegistro, motor, redSocial);
+        } catch (IOException e) {
+            logger.error("Error al recuperar el registro de mutaciones: {}", e.getMessage());
+            throw new IllegalStateException("No se pudo recuperar el registro de mutaciones: " + e.getMessage(), e);
+        }
+        logger.info("Recuperación completada: {} mutaciones reproducidas", reproducidas);
+        return reproducidas;
+    }
+
+    private int reproducirArchivo(Path ruta, MotorSugerencias motor, WeightedQuickUnionUF redSocial) throws IOException {
+        if (!Files.exists(ruta)) {
+            return 0;
+        }
+        int reproducidas = 0;
+        long posicionValida = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(ruta), 1 << 16);
+                DataInputStream datos = new DataInputStream(entrada)) {
+            int longitud;
+            int crcEsperado;
+            byte[] payload;
+            while (true) {
+                try {
+                    longitud = datos.readInt();
+                    crcEsperado = datos.readInt();
+                    if (longitud <= 0 || longitud > TAMANO_MAXIMO_REGISTRO) {
+                        break;
+                    }
+                    payload = new byte[longitud];
+                    datos.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != crcEsperado) {
+                    break;
+                }
+                aplicar(payload, motor, redSocial);
+                reproducidas++;
+                posicionValida += TAMANO_CABECERA + longitud;
+            }
+        }
+
+        // Un registro incompleto al final (caída a mitad de escritura) se descarta
+        if (Files.size(ruta) > posicionValida) {
+            logger.warn("Registro {} truncado en el byte {} (escritura incompleta)", ruta, posicionValida);
+            try (FileChannel canalTruncado = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+                canalTruncado.truncate(posicionValida);
+            }
+        }
+        return reproducidas;
+    }
+
+    private void aplicar(byte[] payload, MotorSugerencias motor, WeightedQuickUnionUF redSocial) throws IOException {
+        DataInputStream datos = new DataInputStream(new ByteArrayInputStream(payload));
+        byte tipo = datos.readByte();
+        if (tipo == TIPO_PERFIL_CREADO) {
+            String id = datos.readUTF();
+            String nombre = datos.readUTF();
+            short edad = datos.readShort();
+            String genero = datos.readUTF();
+            if (!almacenamiento.existePerfil(id)) {
+                almacenamiento.crearPerfil(new Perfil(id, nombre, edad, genero));
+            }
+            if (redSocial != null) {
+                redSocial.agregarUsuario(id);
+            }
+        } else if (tipo == TIPO_AMISTAD_AGREGADA) {
+            String idA = datos.readUTF();
+            String idB = datos.readUTF();
+            int calidad = datos.readByte();
+            try {
+                motor.generarAmistad(idA, idB, calidad);
+                if (redSocial != null) {
+                    redSocial.generarAmistad(idA, idB, calidad);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("No se pudo reproducir la amistad {}-{}: {}", idA, idB, e.getMessage());
+            }
+        } else if (tipo == TIPO_AMISTAD_ELIMINADA) {
+            String idA = datos.readUTF();
+            String idB = datos.readUTF();
+            motor.eliminarAmistad(idA, idB);
+        } else if (tipo == TIPO_PERFIL_ELIMINADO) {
+            String id = datos.readUTF();
+            if (almacenamiento.existePerfil(id)) {
+                almacenamiento.eliminarPerfil(id);
+            }
+        } else {
+            logger.warn("Tipo de mutación desconocido en el registro: {}", tipo);
+        }
+    }
+
+    // ==================== ESCRITURA ====================
+
+    // Abre el registro para agregar y arranca el hilo de commit y la compactación periódica
+    public void iniciar() {
+        cerrojo.lock();
+        try {
+            if (iniciado) {
+                return;
+            }
+            canal = abrirCanal(rutaRegistro);
+            bytesEnRegistro = canal.size();
+            iniciado = true;
+        } catch (IOException e) {
+            logger.error("Error al abrir el registro de mutaciones: {}", e.getMessage());
+            throw new IllegalStateException("No se pudo abrir el registro de mutaciones: " + e.getMessage(), e);
+        } finally {
+            cerrojo.unlock();
+        }
+
+        hiloCommit = new Thread(this::cicloCommit, "registro-mutaciones-commit");
+        hiloCommit.setDaemon(true);
+        hiloCommit.start();
+
+        compactador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "registro-mutaciones-compactacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        compactador.scheduleWithFixedDelay(this::compactarSiEsNecesario, INTERVALO_REVISION_SEGUNDOS,
+                INTERVALO_REVISION_SEGUNDOS, TimeUnit.SECONDS);
+        logger.info("Registro de mutaciones iniciado en {} ({} bytes)", rutaRegistro, bytesEnRegistro);
+    }
+
+    public void registrarPerfilCreado(Perfil perfil) {
+        esperarDurable(encolarPerfilCreado(perfil));
+    }
+
+    public void registrarAmistad(String idUsuarioA, String idUsuarioB, int calidad) {
+        esperarDurable(encolarAmistad(idUsuarioA, idUsuarioB, calidad));
+    }
+
+    public void registrarAmistadEliminada(String idUsuarioA, String idUsuarioB) {
+        esperarDurable(encolarAmistadEliminada(idUsuarioA, idUsuarioB));
+    }
+
+    public void registrarPerfilEliminado(String idUsuario) {
+        esperarDurable(encolarPerfilEliminado(idUsuario));
+    }
+
+    // Las operaciones encolarX() dejan el registro en el buffer, en orden, sin esperar al disco.
+    // Devuelven su número de secuencia para esperarDurable()
+    public long encolarPerfilCreado(Perfil perfil) {
+        if (perfil == null) {
+            throw new IllegalArgumentException("Perfil no puede ser null");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            datos.writeByte(TIPO_PERFIL_CREADO);
+            datos.writeUTF(perfil.getId());
+            datos.writeUTF(perfil.getNombre());
+            datos.writeShort(perfil.getEdad());
+            datos.writeUTF(perfil.getGenero());
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al codificar perfil: " + e.getMessage(), e);
+        }
+        return encolar(bytes.toByteArray());
+    }
+
+    public long encolarAmistad(String idUsuarioA, String idUsuarioB, int calidad) {
+        if (idUsuarioA == null || idUsuarioB == null) {
+            throw new IllegalArgumentException("IDs de usuario no pueden ser nulos");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            datos.writeByte(TIPO_AMISTAD_AGREGADA);
+            datos.writeUTF(idUsuarioA);
+            datos.writeUTF(idUsuarioB);
+            datos.writeByte(calidad);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al codificar amistad: " + e.getMessage(), e);
+        }
+        return encolar(bytes.toByteArray());
+    }
+
+    public long encolarAmistadEliminada(String idUsuarioA, String idUsuarioB) {
+        if (idUsuarioA == null || idUsuarioB == null) {
+            throw new IllegalArgumentException("IDs de usuario no pueden ser nulos");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            datos.writeByte(TIPO_AMISTAD_ELIMINADA);
+            datos.writeUTF(idUsuarioA);
+            datos.writeUTF(idUsuarioB);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al codificar amistad eliminada: " + e.getMessage(), e);
+        }
+        return encolar(bytes.toByteArray());
+    }
+
+    public long encolarPerfilEliminado(String idUsuario) {
+        if (idUsuario == null) {
+            throw new IllegalArgumentException("ID de usuario no puede ser nulo");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            datos.writeByte(TIPO_PERFIL_ELIMINADO);
+            datos.writeUTF(idUsuario);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al codificar perfil eliminado: " + e.getMessage(), e);
+        }
+        return encolar(bytes.toByteArray());
+    }
+
+    // Espera a que el hilo de commit haga durable (fsync) el registro con esa secuencia y los anteriores
+    public void esperarDurable(long secuencia) {
+        cerrojo.lock();
+        try {
+            while (secuenciaDurable < secuencia && errorEscritura == null) {
+                progreso.awaitUninterruptibly();
+            }
+            if (secuenciaDurable < secuencia) {
+                throw new IllegalStateException("Error al escribir el registro de mutaciones: " + errorEscritura.getMessage());
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Deja el registro en el buffer y despierta al hilo de commit
+    private long encolar(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        cerrojo.lock();
+        try {
+            if (!iniciado || cerrado) {
+                throw new IllegalStateException("El registro de mutaciones no está abierto");
+            }
+            if (errorEscritura != null) {
+                throw new IllegalStateException("El registro de mutaciones se detuvo por un error de escritura: "
+                        + errorEscritura.getMessage());
+            }
+            if (pendiente.remaining() < TAMANO_CABECERA + payload.length) {
+                pendiente = ampliar(pendiente, TAMANO_CABECERA + payload.length);
+            }
+            pendiente.putInt(payload.length);
+            pendiente.putInt((int) crc.getValue());
+            pendiente.put(payload);
+            hayTrabajo.signal();
+            return ++secuenciaRegistrada;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private static ByteBuffer ampliar(ByteBuffer buffer, int adicional) {
+        ByteBuffer nuevo = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + adicional));
+        buffer.flip();
+        nuevo.put(buffer);
+        return nuevo;
+    }
+
+    // Hilo de commit: toma todo lo pendiente, lo escribe, hace un solo fsync y despierta a los que esperaban
+    private void cicloCommit() {
+        ByteBuffer lote;
+        long secuenciaLote;
+        boolean rotar;
+        while (true) {
+            cerrojo.lock();
+            try {
+                while (pendiente.position() == 0 && rotacionesSolicitadas == rotacionesHechas && !cerrado) {
+                    hayTrabajo.awaitUninterruptibly();
+                }
+                if (cerrado && pendiente.position() == 0) {
+                    return;
+                }
+                lote = pendiente;
+                pendiente = enEscritura;
+                enEscritura = lote;
+                secuenciaLote = secuenciaRegistrada;
+                rotar = rotacionesSolicitadas != rotacionesHechas;
+            } finally {
+                cerrojo.unlock();
+            }
+
+            IOException error = null;
+            long escritos = lote.position();
+            try {
+                lote.flip();
+                while (lote.hasRemaining()) {
+                    canal.write(lote);
+                }
+                if (escritos > 0) {
+                    canal.force(false);
+                }
+                if (rotar) {
+                    rotarRegistro();
+                }
+            } catch (IOException e) {
+                logger.error("Error al escribir el registro de mutaciones: {}", e.getMessage());
+                error = e;
+            } finally {
+                lote.clear();
+            }
+
+            if (error != null) {
+                detenerPorError(error);
+                return;
+            }
+
+            cerrojo.lock();
+            try {
+                secuenciaDurable = secuenciaLote;
+                bytesEnRegistro = rotar ? 0 : bytesEnRegistro + escritos;
+                if (rotar) {
+                    rotacionesHechas = rotacionesSolicitadas;
+                }
+                progreso.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    // Después de un error de escritura no se escribe nada más: el archivo puede tener medio lote al final
+    // y todo lo que se agregara detrás se perdería al recuperar
+    private void detenerPorError(IOException error) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.error("Error al cerrar el registro de mutaciones tras una falla: {}", e.getMessage());
+        }
+        cerrojo.lock();
+        try {
+            errorEscritura = error;
+            pendiente.clear();
+            rotacionesHechas = rotacionesSolicitadas;
+            progreso.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+        logger.error("Registro de mutaciones detenido; las mutaciones siguientes no serán durables");
+    }
+
+    // Cierra el registro actual, lo renombra como ".compactando" y abre uno vacío.
+    // Si quedó un ".compactando" de una compactación fallida, el registro actual se agrega a su final
+    private void rotarRegistro() throws IOException {
+        canal.close();
+        if (Files.exists(rutaCompactando)) {
+            try (FileChannel origen = FileChannel.open(rutaRegistro, StandardOpenOption.READ);
+                    FileChannel destino = FileChannel.open(rutaCompactando, StandardOpenOption.WRITE,
+                            StandardOpenOption.APPEND)) {
+                long posicion = 0;
+                long tamano = origen.size();
+                while (posicion < tamano) {
+                    posicion += origen.transferTo(posicion, tamano - posicion, destino);
+                }
+                destino.force(false);
+            }
+            Files.delete(rutaRegistro);
+        } else {
+            Files.move(rutaRegistro, rutaCompactando, StandardCopyOption.ATOMIC_MOVE);
+        }
+        canal = abrirCanal(rutaRegistro);
+    }
+
+    // Abre el archivo del registro para agregar al final (las pruebas lo reemplazan para simular fallas)
+    protected FileChannel abrirCanal(Path ruta) throws IOException {
+        return FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // ==================== COMPACTACIÓN ====================
+
+    public long getBytesEnRegistro() {
+        cerrojo.lock();
+        try {
+            return bytesEnRegistro;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public void compactarSiEsNecesario() {
+        if (getBytesEnRegistro() >= umbralCompactacion) {
+            compactar();
+        }
+    }
+
+    // Rota el registro, escribe el snapshot y borra el registro rotado.
+    // El almacenamiento se lee bajo su monitor: quien lo modifique debe sincronizar sobre él
+    public void compactar() {
+        if (!cerrojoCompactacion.tryLock()) {
+            return;
+        }
+        try {
+            long objetivo;
+            cerrojo.lock();
+            try {
+                if (!iniciado || cerrado) {
+                    return;
+                }
+                objetivo = ++rotacionesSolicitadas;
+                hayTrabajo.signal();
+                while (rotacionesHechas < objetivo && errorEscritura == null) {
+                    progreso.awaitUninterruptibly();
+                }
+                if (errorEscritura != null) {
+                    logger.error("No se pudo rotar el registro para compactar");
+                    return;
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+
+            boolean guardado;
+            synchronized (almacenamiento) {
+                guardado = snapshotBinario != null
+                        ? snapshotBinario.guardar(almacenamiento, motorSnapshot, redSnapshot)
+                        : lector.guardarPerfiles(almacenamiento);
+            }
+            // Si el snapshot falló, el registro rotado se conserva para la siguiente compactación
+            if (!guardado) {
+                logger.error("No se pudo escribir el snapshot; se conserva {}", rutaCompactando);
+                return;
+            }
+            Files.deleteIfExists(rutaCompactando);
+            logger.info("Registro de mutaciones compactado en snapshot {}",
+                    snapshotBinario != null ? snapshotBinario.getRuta() : lector.getRutaArchivo());
+        } catch (IOException e) {
+            logger.error("Error al compactar el registro de mutaciones: {}", e.getMessage());
+        } finally {
+            cerrojoCompactacion.unlock();
+        }
+    }
+
+    // Vuelca lo pendiente, detiene los hilos y cierra el archivo
+    @Override
+    public void close() {
+        cerrojo.lock();
+        try {
+            if (!iniciado || cerrado) {
+                return;
+            }
+            cerrado = true;
+            hayTrabajo.signal();
+        } finally {
+            cerrojo.unlock();
+        }
+        compactador.shutdownNow();
+        try {
+            hiloCommit.join();
+            canal.close();
+            logger.info("Registro de mutaciones cerrado");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Error al cerrar el registro de mutaciones: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import estructurasparcial4.Model.CaminoAmistad;
+import estructurasparcial4.Model.FiltroPerfiles;
+import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Model.SugerenciaAmigo;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+// Servidor HTTP/JSON embebido que expone la red social sin pasar por el menú de consola.
+// Usa el HttpServer del JDK con un hilo virtual por petición: una petición que espera (el fsync del
+// registro de mutaciones, el cerrojo del grafo) no ocupa un hilo del sistema, así que la cantidad de
+// conexiones abiertas no está atada a un pool de hilos.
+// - Contrapresión: a lo sumo maxPeticionesEnCurso peticiones se atienden a la vez. Las que llegan de
+//   más se responden enseguida con 503 y Retry-After en lugar de encolarse sin límite.
+// - Las conexiones son persistentes (HTTP/1.1 keep-alive); las peticiones que un cliente envía seguidas
+//   por la misma conexión se leen y responden en orden.
+// - Los cuerpos de más de MAX_BYTES_CUERPO se rechazan con 413.
+// Las altas siguen el mismo camino que el menú: almacenamiento, red y registro de mutaciones (encolado)
+// bajo el monitor del almacenamiento y, fuera de él, la espera del fsync (la respuesta sale cuando la
+// mutación ya es durable).
+//
+// Rutas:
+//   POST /perfiles      {"id", "nombre", "edad", "genero"}
+//   GET  /perfiles?edadMin=20&edadMax=30&genero=F&desde=0  (filtros opcionales; páginas de a lo sumo
+//                                                       MAX_PERFILES_LISTADOS en orden de alta, "siguiente"
+//                                                       es el "desde" de la página que sigue)
+//   GET  /buscar?q=texto&usuario=ID&n=10              (búsqueda por nombre; usuario opcional, ordena por cercanía)
+//   POST /amistades     {"usuarioA", "usuarioB", "calidad"}
+//   GET  /sugerencias?usuario=ID&k=10                 (admite los mismos filtros que /perfiles)
+//   GET  /conexion?a=ID&b=ID
+//   GET  /estadisticas
+public class ServidorApi implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ServidorApi.class);
+
+    private static final int MAX_BYTES_CUERPO = 16 * 1024;
+    private static final int K_POR_DEFECTO = 10;
+    private static final int K_MAXIMO = 100;
+    private static final int MAX_PERFILES_LISTADOS = 1000;
+    private static final int BACKLOG_CONEXIONES = 4096;
+    private static final int MAX_PETICIONES_POR_DEFECTO = 10_000;
+
+    private final AlmacenamientoPerfiles almacenamiento;
+    private final MotorSugerencias motor;
+    private final WeightedQuickUnionUF redSocial;
+    private final RegistroMutaciones registro;
+    private final BuscadorCaminos buscadorCaminos;
+    private final Gson gson = new Gson();
+
+    private int maxPeticionesEnCurso = MAX_PETICIONES_POR_DEFECTO;
+    private Semaphore permisos;
+    private HttpServer servidor;
+    private ExecutorService ejecutor;
+
+    private final LongAdder peticionesAtendidas = new LongAdder();
+    private final LongAdder peticionesRechazadas = new LongAdder();
+
+    public ServidorApi(AlmacenamientoPerfiles almacenamiento, MotorSugerencias motor, WeightedQuickUnionUF redSocial,
+            RegistroMutaciones registro, BuscadorCaminos buscadorCaminos) {
+        if (almacenamiento == null || motor == null || redSocial == null || registro == null || buscadorCaminos == null) {
+            logger.error("Dependencia nula en constructor de ServidorApi");
+            throw new IllegalArgumentException("Almacenamiento, motor, red, registro y buscador no pueden ser nulos");
+        }
+        this.almacenamiento = almacenamiento;
+        this.motor = motor;
+        this.redSocial = redSocial;
+        this.registro = registro;
+        this.buscadorCaminos = buscadorCaminos;
+        // Las componentes de la red (estadísticas) siguen a las eliminaciones
+        motor.vincularRed(redSocial, almacenamiento);
+    }
+
+    public int getMaxPeticionesEnCurso() {
+        return maxPeticionesEnCurso;
+    }
+
+    // Debe configurarse antes de iniciar()
+    public void setMaxPeticionesEnCurso(int maxPeticionesEnCurso) {
+        if (maxPeticionesEnCurso < 1) {
+            logger.error("Máximo de peticiones en curso inválido: {}", maxPeticionesEnCurso);
+            throw new IllegalArgumentException("El máximo de peticiones en curso debe ser mayor que 0");
+        }
+        if (servidor != null) {
+            throw new IllegalStateException("El límite de peticiones debe configurarse antes de iniciar el servidor");
+        }
+        this.maxPeticionesEnCurso = maxPeticionesEnCurso;
+    }
+
+    // Arranca el servidor en el puerto indicado (0 elige uno libre; ver getPuerto())
+    public synchronized void iniciar(int puerto) throws IOException {
+        if (puerto < 0 || puerto > 65535) {
+            logger.error("Puerto inválido: {}", puerto);
+            throw new IllegalArgumentException("El puerto debe estar entre 0 y 65535");
+        }
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        try {
+            permisos = new Semaphore(maxPeticionesEnCurso);
+            ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+            servidor = HttpServer.create(new InetSocketAddress(puerto), BACKLOG_CONEXIONES);
+            servidor.setExecutor(ejecutor);
+            servidor.createContext("/perfiles", conLimite(this::perfiles));
+            servidor.createContext("/buscar", conLimite(this::buscarPorNombre));
+            servidor.createContext("/amistades", conLimite(this::generarAmistad));
+            servidor.createContext("/sugerencias", conLimite(this::sugerirAmigos));
+            servidor.createContext("/conexion", conLimite(this::verificarConexion));
+            servidor.createContext("/estadisticas", conLimite(this::estadisticas));
+            servidor.start();
+            logger.info("Servidor API escuchando en el puerto {} (máximo {} peticiones en curso)", getPuerto(),
+                    maxPeticionesEnCurso);
+        } catch (IOException e) {
+            logger.error("Error al iniciar el servidor API en el puerto {}: {}", puerto, e.getMessage());
+            servidor = null;
+            if (ejecutor != null) {
+                ejecutor.shutdownNow();
+            }
+            throw e;
+        }
+    }
+
+    public int getPuerto() {
+        if (servidor == null) {
+            throw new IllegalStateException("El servidor no está iniciado");
+        }
+        return servidor.getAddress().getPort();
+    }
+
+    public long getPeticionesAtendidas() {
+        return peticionesAtendidas.sum();
+    }
+
+    public long getPeticionesRechazadas() {
+        return peticionesRechazadas.sum();
+    }
+
+    public int getPeticionesEnCurso() {
+        Semaphore actual = permisos;
+        return actual == null ? 0 : maxPeticionesEnCurso - actual.availablePermits();
+    }
+
+    // ==================== RUTAS ====================
+
+    private void perfiles(HttpExchange intercambio) throws IOException {
+        if ("GET".equals(intercambio.getRequestMethod())) {
+            listarPerfiles(intercambio);
+        } else {
+            crearPerfil(intercambio);
+        }
+    }
+
+    private void listarPerfiles(HttpExchange intercambio) throws IOException {
+        HashMap<String, String> parametros = parametrosDe(intercambio);
+        FiltroPerfiles filtro = filtroDe(parametros);
+        int desde = parametros.containsKey("desde") ? enteroDeTexto(parametros.get("desde"), "desde") : 0;
+        if (desde < 0) {
+            throw new IllegalArgumentException("desde no puede ser negativo");
+        }
+        // Una página se arma recorriendo solo hasta llenarla; sin filtro el total sale del almacenamiento
+        List<Perfil> encontrados = motor.listarPerfiles(filtro, desde, MAX_PERFILES_LISTADOS);
+
+        JsonArray lista = new JsonArray(encontrados.size());
+        JsonObject elemento;
+        for (Perfil perfil : encontrados) {
+            elemento = new JsonObject();
+            elemento.addProperty("id", perfil.getId());
+            elemento.addProperty("nombre", perfil.getNombre());
+            elemento.addProperty("edad", perfil.getEdad());
+            elemento.addProperty("genero", perfil.getGenero());
+            lista.add(elemento);
+        }
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("total", filtro == null ? almacenamiento.obtenerTotalPerfiles() : motor.contarPerfiles(filtro));
+        respuesta.add("perfiles", lista);
+        if (encontrados.size() == MAX_PERFILES_LISTADOS) {
+            respuesta.addProperty("siguiente", encontrados.get(encontrados.size() - 1).getIndice() + 1);
+        }
+        responder(intercambio, 200, respuesta);
+    }
+
+    private void buscarPorNombre(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "GET");
+        HashMap<String, String> parametros = parametrosDe(intercambio);
+        String texto = parametroObligatorio(parametros, "q");
+        int limite = K_POR_DEFECTO;
+        if (parametros.containsKey("n")) {
+            limite = enteroDeTexto(parametros.get("n"), "n");
+            if (limite < 1 || limite > K_MAXIMO) {
+                throw new IllegalArgumentException("n debe estar entre 1 y " + K_MAXIMO);
+            }
+        }
+        List<Perfil> encontrados = motor.buscarPorNombre(texto, parametros.get("usuario"), limite);
+
+        JsonArray lista = new JsonArray(encontrados.size());
+        JsonObject elemento;
+        for (Perfil perfil : encontrados) {
+            elemento = new JsonObject();
+            elemento.addProperty("id", perfil.getId());
+            elemento.addProperty("nombre", perfil.getNombre());
+            lista.add(elemento);
+        }
+        JsonObject respuesta = new JsonObject();
+        respuesta.add("perfiles", lista);
+        responder(intercambio, 200, respuesta);
+    }
+
+    private void crearPerfil(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "POST");
+        JsonObject cuerpo = leerCuerpo(intercambio);
+        int edad = enteroDe(cuerpo, "edad");
+        if (edad <= 0 || edad > 120) {
+            throw new IllegalArgumentException("Edad debe estar entre 1 y 120");
+        }
+        Perfil nuevoPerfil = new Perfil(textoDe(cuerpo, "id"), textoDe(cuerpo, "nombre"), (short) edad,
+                textoDe(cuerpo, "genero"));
+        // El registro se encola en el mismo bloque para que su orden sea el de aplicación; el fsync se
+        // espera afuera
+        long secuencia;
+        synchronized (almacenamiento) {
+            almacenamiento.crearPerfil(nuevoPerfil);
+            redSocial.agregarUsuario(nuevoPerfil.getId());
+            secuencia = registro.encolarPerfilCreado(nuevoPerfil);
+        }
+        registro.esperarDurable(secuencia);
+
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("id", nuevoPerfil.getId());
+        responder(intercambio, 201, respuesta);
+    }
+
+    private void generarAmistad(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "POST");
+        JsonObject cuerpo = leerCuerpo(intercambio);
+        String idUsuarioA = textoDe(cuerpo, "usuarioA");
+        String idUsuarioB = textoDe(cuerpo, "usuarioB");
+        int calidad = enteroDe(cuerpo, "calidad");
+        if (calidad < 1 || calidad > 5) {
+            throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
+        }
+        long secuencia;
+        synchronized (almacenamiento) {
+            motor.generarAmistad(idUsuarioA, idUsuarioB, calidad);
+            redSocial.generarAmistad(idUsuarioA, idUsuarioB, calidad);
+            secuencia = registro.encolarAmistad(idUsuarioA, idUsuarioB, calidad);
+        }
+        registro.esperarDurable(secuencia);
+
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("usuarioA", idUsuarioA);
+        respuesta.addProperty("usuarioB", idUsuarioB);
+        respuesta.addProperty("calidad", calidad);
+        responder(intercambio, 201, respuesta);
+    }
+
+    private void sugerirAmigos(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "GET");
+        HashMap<String, String> parametros = parametrosDe(intercambio);
+        String idUsuario = parametroObligatorio(parametros, "usuario");
+        int k = K_POR_DEFECTO;
+        if (parametros.containsKey("k")) {
+            k = enteroDeTexto(parametros.get("k"), "k");
+            if (k < 1 || k > K_MAXIMO) {
+                throw new IllegalArgumentException("k debe estar entre 1 y " + K_MAXIMO);
+            }
+        }
+        FiltroPerfiles filtro = filtroDe(parametros);
+        List<SugerenciaAmigo> sugerencias = filtro == null ? motor.sugerirAmigos(idUsuario, k)
+                : motor.sugerirAmigos(idUsuario, k, filtro);
+
+        JsonArray lista = new JsonArray(sugerencias.size());
+        JsonObject elemento;
+        for (SugerenciaAmigo sugerencia : sugerencias) {
+            elemento = new JsonObject();
+            elemento.addProperty("id", sugerencia.getUserIdSugerido());
+            elemento.addProperty("nombre", sugerencia.getPerfil().getNombre());
+            elemento.addProperty("prioridad", sugerencia.getPrioridad());
+            elemento.addProperty("puntaje", sugerencia.getPuntaje());
+            lista.add(elemento);
+        }
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("usuario", idUsuario);
+        respuesta.add("sugerencias", lista);
+        responder(intercambio, 200, respuesta);
+    }
+
+    private void verificarConexion(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "GET");
+        HashMap<String, String> parametros = parametrosDe(intercambio);
+        String idUsuarioA = parametroObligatorio(parametros, "a");
+        String idUsuarioB = parametroObligatorio(parametros, "b");
+        if (!almacenamiento.existePerfil(idUsuarioA) || !almacenamiento.existePerfil(idUsuarioB)) {
+            throw new IllegalArgumentException("Usuario no existe: "
+                    + (almacenamiento.existePerfil(idUsuarioA) ? idUsuarioB : idUsuarioA));
+        }
+
+        JsonObject respuesta = new JsonObject();
+        boolean conectados = motor.conectados(idUsuarioA, idUsuarioB);
+        respuesta.addProperty("conectados", conectados);
+        if (conectados) {
+            CaminoAmistad camino = buscadorCaminos.caminoMasCorto(idUsuarioA, idUsuarioB);
+            if (camino.isEncontrado()) {
+                respuesta.addProperty("saltos", camino.getSaltos());
+                respuesta.add("camino", gson.toJsonTree(camino.getUsuarios()));
+            }
+        }
+        responder(intercambio, 200, respuesta);
+    }
+
+    private void estadisticas(HttpExchange intercambio) throws IOException {
+        exigirMetodo(intercambio, "GET");
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("perfiles", almacenamiento.obtenerTotalPerfiles());
+        respuesta.addProperty("componentes", redSocial.getCount());
+        respuesta.addProperty("versionGrafo", motor.getGrafo().getVersion());
+        CacheSugerencias cache = motor.getCacheSugerencias();
+        if (cache != null) {
+            JsonObject datosCache = new JsonObject();
+            datosCache.addProperty("aciertos", cache.getAciertos());
+            datosCache.addProperty("fallos", cache.getFallos());
+            datosCache.addProperty("listas", cache.tamano());
+            respuesta.add("cache", datosCache);
+        }
+        respuesta.addProperty("peticionesEnCurso", getPeticionesEnCurso());
+        respuesta.addProperty("peticionesAtendidas", getPeticionesAtendidas());
+        respuesta.addProperty("peticionesRechazadas", getPeticionesRechazadas());
+        responder(intercambio, 200, respuesta);
+    }
+
+    // ==================== INFRAESTRUCTURA ====================
+
+    // Errores que ya traen su código HTTP (método no permitido, cuerpo demasiado grande, ruta inexistente)
+    private static final class ErrorHttp extends RuntimeException {
+        private final int codigo;
+
+        private ErrorHttp(int codigo, String mensaje) {
+            super(mensaje);
+            this.codigo = codigo;
+        }
+    }
+
+    private interface Ruta {
+        void atender(HttpExchange intercambio) throws IOException;
+    }
+
+    // Aplica la contrapresión y traduce las excepciones a respuestas JSON con su código
+    private HttpHandler conLimite(Ruta ruta) {
+        return intercambio -> {
+            try (intercambio) {
+                if (!permisos.tryAcquire()) {
+                    peticionesRechazadas.increment();
+                    intercambio.getResponseHeaders().set("Retry-After", "1");
+                    responderError(intercambio, 503, "Servidor saturado, intente de nuevo");
+                    return;
+                }
+                try {
+                    if (!intercambio.getRequestURI().getPath().equals(intercambio.getHttpContext().getPath())) {
+                        throw new ErrorHttp(404, "Ruta no encontrada: " + intercambio.getRequestURI().getPath());
+                    }
+                    ruta.atender(intercambio);
+                    peticionesAtendidas.increment();
+                } catch (ErrorHttp e) {
+                    responderError(intercambio, e.codigo, e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    logger.error("Petición inválida en {}: {}", intercambio.getRequestURI().getPath(), e.getMessage());
+                    responderError(intercambio, 400, e.getMessage());
+                } catch (IOException e) {
+                    logger.error("Error de E/S en {}: {}", intercambio.getRequestURI().getPath(), e.getMessage());
+                    throw e;
+                } catch (Exception e) {
+                    logger.error("Error inesperado en {}: {}", intercambio.getRequestURI().getPath(), e.getMessage());
+                    responderError(intercambio, 500, "Error interno: " + e.getMessage());
+                } finally {
+                    permisos.release();
+                }
+            }
+        };
+    }
+
+    private static void exigirMetodo(HttpExchange intercambio, String metodo) {
+        if (!metodo.equals(intercambio.getRequestMethod())) {
+            intercambio.getResponseHeaders().set("Allow", metodo);
+            throw new ErrorHttp(405, "Método no permitido: " + intercambio.getRequestMethod());
+        }
+    }
+
+    private static JsonObject leerCuerpo(HttpExchange intercambio) throws IOException {
+        byte[] bytes;
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            bytes = entrada.readNBytes(MAX_BYTES_CUERPO + 1);
+        }
+        if (bytes.length > MAX_BYTES_CUERPO) {
+            throw new ErrorHttp(413, "El cuerpo supera los " + MAX_BYTES_CUERPO + " bytes");
+        }
+        try {
+            JsonElement json = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8));
+            if (!json.isJsonObject()) {
+                throw new IllegalArgumentException("El cuerpo debe ser un objeto JSON");
+            }
+            return json.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getMessage());
+        }
+    }
+
+    private static String textoDe(JsonObject cuerpo, String campo) {
+        JsonElement valor = cuerpo.get(campo);
+        if (valor == null || !valor.isJsonPrimitive() || valor.getAsString().trim().isEmpty()) {
+            throw new IllegalArgumentException("Falta el campo " + campo);
+        }
+        return valor.getAsString();
+    }
+
+    private static int enteroDe(JsonObject cuerpo, String campo) {
+        JsonElement valor = cuerpo.get(campo);
+        if (valor == null || !valor.isJsonPrimitive() || !valor.getAsJsonPrimitive().isNumber()) {
+            throw new IllegalArgumentException("El campo " + campo + " debe ser un número");
+        }
+        return enteroDeTexto(valor.getAsString(), campo);
+    }
+
+    private static int enteroDeTexto(String texto, String campo) {
+        try {
+            return Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + campo + " debe ser un número entero");
+        }
+    }
+
+    private static HashMap<String, String> parametrosDe(HttpExchange intercambio) {
+        HashMap<String, String> parametros = new HashMap<>();
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        int separador;
+        for (String par : consulta.split("&")) {
+            separador = par.indexOf('=');
+            if (separador > 0) {
+                parametros.put(URLDecoder.decode(par.substring(0, separador), StandardCharsets.UTF_8),
+                        URLDecoder.decode(par.substring(separador + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parametros;
+    }
+
+    // null si la consulta no trae edadMin, edadMax ni genero
+    private static FiltroPerfiles filtroDe(HashMap<String, String> parametros) {
+        if (!parametros.containsKey("edadMin") && !parametros.containsKey("edadMax") && !parametros.containsKey("genero")) {
+            return null;
+        }
+        int edadMinima = parametros.containsKey("edadMin") ? enteroDeTexto(parametros.get("edadMin"), "edadMin")
+                : FiltroPerfiles.EDAD_MINIMA;
+        int edadMaxima = parametros.containsKey("edadMax") ? enteroDeTexto(parametros.get("edadMax"), "edadMax")
+                : FiltroPerfiles.EDAD_MAXIMA;
+        return new FiltroPerfiles(edadMinima, edadMaxima, parametros.get("genero"));
+    }
+
+    private static String parametroObligatorio(HashMap<String, String> parametros, String nombre) {
+        String valor = parametros.get(nombre);
+        if (valor == null || valor.trim().isEmpty()) {
+            throw new IllegalArgumentException("Falta el parámetro " + nombre);
+        }
+        return valor;
+    }
+
+    private void responderError(HttpExchange intercambio, int codigo, String mensaje) throws IOException {
+        JsonObject respuesta = new JsonObject();
+        respuesta.addProperty("error", mensaje);
+        responder(intercambio, codigo, respuesta);
+    }
+
+    private void responder(HttpExchange intercambio, int codigo, JsonObject respuesta) throws IOException {
+        byte[] bytes = gson.toJson(respuesta).getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    // Deja de aceptar conexiones y espera hasta un segundo a que terminen las peticiones en curso
+    @Override
+    public synchronized void close() {
+        if (servidor == null) {
+            return;
+        }
+        servidor.stop(1);
+        ejecutor.shutdownNow();
+        servidor = null;
+        logger.info("Servidor API detenido ({} peticiones atendidas, {} rechazadas)", getPeticionesAtendidas(),
+                getPeticionesRechazadas());
+    }
+
+    @Override
+    public String toString() {
+        return "ServidorApi{enCurso=" + getPeticionesEnCurso() + ", atendidas=" + getPeticionesAtendidas()
+                + ", rechazadas=" + getPeticionesRechazadas() + "}";
+    }
+}
@@ -0,0 +1,542 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.InternadorIds;
+import estructurasparcial4.Util.WeightedQuickUnionUF;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+
+// Snapshot binario de toda la red: ids internados, atributos de los perfiles, grafo CSR con calidades
+// y los arrays parent/size del union-find. Se escribe y se lee con FileChannel.map, así que al arrancar
+// los arrays se copian por bloques desde el archivo mapeado: no se parsea JSON, no se recalculan los
+// hash del internador, no se reconstruye el CSR ni se vuelven a unir los lazos en la red.
+// Perfiles.json queda como formato de importación/exportación (LeerPerfiles).
+//
+// Formato (little endian), versión 2:
+//   cabecera: magico, version, cantidadIds, tamanoTabla, cantidadPerfiles, nodosCsr, arcosCsr, usuariosRed,
+//             componentesRed, bytesIds, bytesNombres, bytesGeneros, cantidadPendientes, bytesPendientes (int)
+//             y tamanoTotal (long)
+//   ids:      int[cantidadIds] fin de cada id + byte[bytesIds] ids en UTF-8 (en orden de índice)
+//   tabla:    int[tamanoTabla] ranuras del InternadorIds
+//   perfiles: int[] índice, short[] edad, int[] fin de nombre + byte[] nombres, int[] fin de género + byte[] géneros
+//   pendientes: amistades hacia ids sin perfil (Perfil.getAmigosSinPerfil(), no están en el grafo):
+//             int[] posición del perfil de origen en la sección de perfiles, byte[] calidad,
+//             int[] fin de id + byte[] ids del amigo
+//   grafo:    int[nodosCsr + 1] offsets, int[arcosCsr] vecinos, byte[arcosCsr] calidades
+//   red:      int[usuariosRed] parent, int[usuariosRed] size
+//   cola:     magico (un archivo truncado no lo tiene)
+// Se escribe en <ruta>.tmp y se renombra de forma atómica, igual que el snapshot JSON.
+public class SnapshotBinario {
+
+    private static final int MAGICO = 0x42344650; // "PF4B"
+    public static final int VERSION = 2; // 2: sección de amistades pendientes
+    private static final int TAMANO_CABECERA = 14 * Integer.BYTES + Long.BYTES;
+    private static final int TAMANO_VENTANA = 64 << 20; // se mapea el archivo por ventanas de 64 MB
+
+    private static final Logger logger = LogManager.getLogger(SnapshotBinario.class);
+
+    private final Path ruta;
+    private MotorSugerencias motor;
+    private WeightedQuickUnionUF redSocial;
+
+    public SnapshotBinario(String ruta) {
+        if (ruta == null || ruta.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ruta del snapshot no puede ser nula o vacía");
+        }
+        this.ruta = Paths.get(ruta);
+    }
+
+    public String getRuta() {
+        return ruta.toString();
+    }
+
+    public boolean existe() {
+        return Files.exists(ruta);
+    }
+
+    // Motor y red reconstruidos por la última llamada exitosa a cargar()
+    public MotorSugerencias getMotor() {
+        return motor;
+    }
+
+    public WeightedQuickUnionUF getRedSocial() {
+        return redSocial;
+    }
+
+    // ==================== ESCRITURA ====================
+
+    // Escribe el snapshot de la red. Nadie debe modificar almacenamiento ni red mientras tanto
+    // (quien los modifica sincroniza sobre el almacenamiento). Compacta el grafo antes de escribirlo.
+    // La red debe compartir el internador del motor
+    public boolean guardar(AlmacenamientoPerfiles almacenamiento, MotorSugerencias motor,
+            WeightedQuickUnionUF redSocial) {
+        if (almacenamiento == null || motor == null || redSocial == null) {
+            throw new IllegalArgumentException("Almacenamiento, motor y red no pueden ser nulos");
+        }
+        if (redSocial.getInternador() != motor.getInternador()) {
+            throw new IllegalArgumentException("La red debe compartir el internador del motor");
+        }
+        long inicio = System.nanoTime();
+        GrafoAmistades grafo = motor.getGrafo();
+
+        // Se compacta con el cerrojo de escritura y se baja a lectura para escribir: las sugerencias
+        // siguen respondiendo mientras se escribe el archivo
+        grafo.cerrojoEscritura().lock();
+        try {
+            grafo.compactar();
+            grafo.cerrojoLectura().lock();
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+        try {
+            return escribir(almacenamiento, motor.getInternador(), grafo, redSocial, inicio);
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    private boolean escribir(AlmacenamientoPerfiles almacenamiento, InternadorIds internador, GrafoAmistades grafo,
+            WeightedQuickUnionUF redSocial, long inicio) {
+        int cantidadIds = internador.tamano();
+        int[] finIds = new int[cantidadIds];
+        byte[] ids = codificar(cantidadIds, internador::idDe, finIds);
+
+        Perfil[] perfiles = almacenamiento.obtenerPerfiles().toArray(new Perfil[0]);
+        int cantidadPerfiles = perfiles.length;
+        int[] indices = new int[cantidadPerfiles];
+        short[] edades = new short[cantidadPerfiles];
+        for (int i = 0; i < cantidadPerfiles; i++) {
+            indices[i] = internador.indiceDe(perfiles[i].getId());
+            if (indices[i] < 0) {
+                throw new IllegalArgumentException("Perfil sin índice en el internador: " + perfiles[i].getId());
+            }
+            edades[i] = perfiles[i].getEdad();
+        }
+        int[] finNombres = new int[cantidadPerfiles];
+        byte[] nombres = codificar(cantidadPerfiles, i -> perfiles[i].getNombre(), finNombres);
+        int[] finGeneros = new int[cantidadPerfiles];
+        byte[] generos = codificar(cantidadPerfiles, i -> perfiles[i].getGenero(), finGeneros);
+
+        ArrayList<String> idsPendientes = new ArrayList<>();
+        ArrayList<Integer> posicionesPendientes = new ArrayList<>();
+        ArrayList<Integer> calidadesPendientes = new ArrayList<>();
+        HashMap<String, Integer> sinPerfil;
+        for (int i = 0; i < cantidadPerfiles; i++) {
+            sinPerfil = perfiles[i].getAmigosSinPerfil();
+            if (sinPerfil != null) {
+                for (HashMap.Entry<String, Integer> amistad : sinPerfil.entrySet()) {
+                    idsPendientes.add(amistad.getKey());
+                    posicionesPendientes.add(i);
+                    calidadesPendientes.add(amistad.getValue());
+                }
+            }
+        }
+        int cantidadPendientes = idsPendientes.size();
+        int[] finPendientes = new int[cantidadPendientes];
+        byte[] pendientes = codificar(cantidadPendientes, idsPendientes::get, finPendientes);
+
+        int nodosCsr = grafo.getNodosCsr();
+        int arcosCsr = nodosCsr > 0 ? grafo.finCsr(nodosCsr - 1) : 0;
+        int usuariosRed = redSocial.getCantidadUsuarios();
+        long tamanoTotal = calcularTamano(cantidadIds, ids.length, internador.tamanoTabla(), cantidadPerfiles,
+                nombres.length, generos.length, cantidadPendientes, pendientes.length, nodosCsr, arcosCsr, usuariosRed);
+
+        Path temporal = Paths.get(ruta + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ArchivoMapeado archivo = new ArchivoMapeado(canal, FileChannel.MapMode.READ_WRITE, tamanoTotal);
+
+            archivo.escribirEntero(MAGICO);
+            archivo.escribirEntero(VERSION);
+            archivo.escribirEntero(cantidadIds);
+            archivo.escribirEntero(internador.tamanoTabla());
+            archivo.escribirEntero(cantidadPerfiles);
+            archivo.escribirEntero(nodosCsr);
+            archivo.escribirEntero(arcosCsr);
+            archivo.escribirEntero(usuariosRed);
+            archivo.escribirEntero(redSocial.getCount());
+            archivo.escribirEntero(ids.length);
+            archivo.escribirEntero(nombres.length);
+            archivo.escribirEntero(generos.length);
+            archivo.escribirEntero(cantidadPendientes);
+            archivo.escribirEntero(pendientes.length);
+            archivo.escribirLargo(tamanoTotal);
+
+            archivo.escribirEnteros(finIds);
+            archivo.escribirBytes(ids);
+            for (int i = 0, tabla = internador.tamanoTabla(); i < tabla; i++) {
+                archivo.escribirEntero(internador.ranura(i));
+            }
+
+            archivo.escribirEnteros(indices);
+            archivo.escribirCortos(edades);
+            archivo.escribirEnteros(finNombres);
+            archivo.escribirBytes(nombres);
+            archivo.escribirEnteros(finGeneros);
+            archivo.escribirBytes(generos);
+
+            for (int i = 0; i < cantidadPendientes; i++) {
+                archivo.escribirEntero(posicionesPendientes.get(i));
+            }
+            for (int i = 0; i < cantidadPendientes; i++) {
+                archivo.escribirByte((byte) (int) calidadesPendientes.get(i));
+            }
+            archivo.escribirEnteros(finPendientes);
+            archivo.escribirBytes(pendientes);
+
+            for (int v = 0; v < nodosCsr; v++) {
+                archivo.escribirEntero(grafo.inicioCsr(v));
+            }
+            archivo.escribirEntero(arcosCsr);
+            for (int e = 0; e < arcosCsr; e++) {
+                archivo.escribirEntero(grafo.vecinoCsr(e));
+            }
+            for (int e = 0; e < arcosCsr; e++) {
+                archivo.escribirByte((byte) grafo.calidadCsr(e));
+            }
+
+            for (int i = 0; i < usuariosRed; i++) {
+                archivo.escribirEntero(redSocial.padreDe(i));
+            }
+            for (int i = 0; i < usuariosRed; i++) {
+                archivo.escribirEntero(redSocial.tamanoDe(i));
+            }
+            archivo.escribirEntero(MAGICO);
+            archivo.forzar();
+        } catch (IOException e) {
+            logger.error("Error al escribir el snapshot binario: {}", e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Error al reemplazar el snapshot binario: {}", e.getMessage());
+            return false;
+        }
+        logger.info("Snapshot binario guardado en {}: {} perfiles, {} arcos, {} bytes en {} ms", ruta,
+                cantidadPerfiles, arcosCsr, tamanoTotal, (System.nanoTime() - inicio) / 1_000_000);
+        return true;
+    }
+
+    // Concatena los textos en UTF-8; fines[i] es la posición donde termina el texto i
+    private static byte[] codificar(int cantidad, IntFunction<String> texto, int[] fines) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(16, cantidad * 8));
+        byte[] bytes;
+        for (int i = 0; i < cantidad; i++) {
+            bytes = texto.apply(i).getBytes(StandardCharsets.UTF_8);
+            salida.write(bytes, 0, bytes.length);
+            fines[i] = salida.size();
+        }
+        return salida.toByteArray();
+    }
+
+    private static long calcularTamano(int cantidadIds, int bytesIds, int tamanoTabla, int cantidadPerfiles,
+            int bytesNombres, int bytesGeneros, int cantidadPendientes, int bytesPendientes, int nodosCsr, int arcosCsr,
+            int usuariosRed) {
+        return TAMANO_CABECERA
+                + (long) cantidadIds * Integer.BYTES + bytesIds
+                + (long) tamanoTabla * Integer.BYTES
+                + (long) cantidadPerfiles * (Integer.BYTES + Short.BYTES + 2 * Integer.BYTES) + bytesNombres + bytesGeneros
+                + (long) cantidadPendientes * (Integer.BYTES + 1 + Integer.BYTES) + bytesPendientes
+                + ((long) nodosCsr + 1) * Integer.BYTES + (long) arcosCsr * (Integer.BYTES + 1)
+                + (long) usuariosRed * 2 * Integer.BYTES
+                + Integer.BYTES;
+    }
+
+    // ==================== LECTURA ====================
+
+    // Carga el snapshot en el almacenamiento (que debe estar vacío) y reconstruye motor y red
+    // (ver getMotor() y getRedSocial()). Devuelve false si no hay snapshot o si es inválido;
+    // en ese caso el almacenamiento no se modifica
+    public boolean cargar(AlmacenamientoPerfiles almacenamiento) {
+        if (almacenamiento == null) {
+            throw new IllegalArgumentException("Almacenamiento no puede ser nulo");
+        }
+        if (almacenamiento.obtenerTotalPerfiles() > 0) {
+            throw new IllegalArgumentException("El almacenamiento debe estar vacío para cargar el snapshot");
+        }
+        if (!existe()) {
+            logger.info("No existe snapshot binario en {}", ruta);
+            return false;
+        }
+        long inicio = System.nanoTime();
+
+        InternadorIds internador;
+        GrafoAmistades grafo;
+        WeightedQuickUnionUF red;
+        int[] indices;
+        short[] edades;
+        String[] nombres;
+        String[] generos;
+        int[] posicionesPendientes;
+        byte[] calidadesPendientes;
+        String[] idsPendientes;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            ArchivoMapeado archivo = new ArchivoMapeado(canal, FileChannel.MapMode.READ_ONLY, canal.size());
+            if (canal.size() < TAMANO_CABECERA || archivo.leerEntero() != MAGICO) {
+                throw new IllegalArgumentException("no es un snapshot binario");
+            }
+            int version = archivo.leerEntero();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("versión " + version + " no soportada (se esperaba " + VERSION + ")");
+            }
+            int cantidadIds = leerCantidad(archivo);
+            int tamanoTabla = leerCantidad(archivo);
+            int cantidadPerfiles = leerCantidad(archivo);
+            int nodosCsr = leerCantidad(archivo);
+            int arcosCsr = leerCantidad(archivo);
+            int usuariosRed = leerCantidad(archivo);
+            int componentesRed = leerCantidad(archivo);
+            int bytesIds = leerCantidad(archivo);
+            int bytesNombres = leerCantidad(archivo);
+            int bytesGeneros = leerCantidad(archivo);
+            int cantidadPendientes = leerCantidad(archivo);
+            int bytesPendientes = leerCantidad(archivo);
+            long tamanoTotal = archivo.leerLargo();
+            if (tamanoTotal != canal.size() || tamanoTotal != calcularTamano(cantidadIds, bytesIds, tamanoTabla,
+                    cantidadPerfiles, bytesNombres, bytesGeneros, cantidadPendientes, bytesPendientes, nodosCsr,
+                    arcosCsr, usuariosRed)) {
+                throw new IllegalArgumentException("tamaño inconsistente (archivo truncado o dañado)");
+            }
+
+            String[] ids = decodificar(archivo.leerEnteros(cantidadIds), archivo.leerBytes(bytesIds));
+            internador = new InternadorIds(ids, cantidadIds, archivo.leerEnteros(tamanoTabla));
+
+            indices = archivo.leerEnteros(cantidadPerfiles);
+            edades = archivo.leerCortos(cantidadPerfiles);
+            nombres = decodificar(archivo.leerEnteros(cantidadPerfiles), archivo.leerBytes(bytesNombres));
+            generos = decodificar(archivo.leerEnteros(cantidadPerfiles), archivo.leerBytes(bytesGeneros));
+            for (int indice : indices) {
+                if (indice < 0 || indice >= cantidadIds) {
+                    throw new IllegalArgumentException("índice de perfil fuera de rango: " + indice);
+                }
+            }
+
+            posicionesPendientes = archivo.leerEnteros(cantidadPendientes);
+            calidadesPendientes = archivo.leerBytes(cantidadPendientes);
+            idsPendientes = decodificar(archivo.leerEnteros(cantidadPendientes), archivo.leerBytes(bytesPendientes));
+            for (int i = 0; i < cantidadPendientes; i++) {
+                if (posicionesPendientes[i] < 0 || posicionesPendientes[i] >= cantidadPerfiles) {
+                    throw new IllegalArgumentException("perfil de amistad pendiente fuera de rango: " + posicionesPendientes[i]);
+                }
+                if (calidadesPendientes[i] < 1 || calidadesPendientes[i] > 5) {
+                    throw new IllegalArgumentException("calidad de amistad pendiente inválida: " + calidadesPendientes[i]);
+                }
+            }
+
+            int[] offsets = archivo.leerEnteros(nodosCsr + 1);
+            grafo = new GrafoAmistades(internador, offsets, archivo.leerEnteros(arcosCsr), archivo.leerBytes(arcosCsr));
+
+            int[] parent = archivo.leerEnteros(usuariosRed);
+            int[] size = archivo.leerEnteros(usuariosRed);
+            red = new WeightedQuickUnionUF(internador, usuariosRed > 0 ? parent : new int[1],
+                    usuariosRed > 0 ? size : new int[1], usuariosRed, componentesRed);
+
+            if (archivo.leerEntero() != MAGICO) {
+                throw new IllegalArgumentException("falta la marca de fin de archivo");
+            }
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            logger.error("Snapshot binario inválido en {}: {}", ruta, e.getMessage());
+            return false;
+        }
+
+        // A partir de aquí todo está validado: el motor usa el grafo cargado y cada perfil nuevo
+        // solo se vincula a su índice, sin tocar el CSR. Las amistades pendientes van en el perfil antes
+        // de crearlo: al vincularse, el motor las vuelve a anotar como pendientes (su id no tiene perfil)
+        MotorSugerencias motorCargado = new MotorSugerencias(almacenamiento, grafo);
+        Perfil[] perfiles = new Perfil[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            perfiles[i] = new Perfil(internador.idDe(indices[i]), nombres[i], edades[i], generos[i]);
+        }
+        for (int i = 0; i < idsPendientes.length; i++) {
+            perfiles[posicionesPendientes[i]].agregarAmigo(idsPendientes[i], calidadesPendientes[i]);
+        }
+        for (Perfil perfil : perfiles) {
+            almacenamiento.crearPerfil(perfil);
+        }
+        this.motor = motorCargado;
+        this.redSocial = red;
+        logger.info("Snapshot binario cargado desde {}: {} perfiles, {} arcos en {} ms", ruta, indices.length,
+                grafo.getCantidadArcos(), (System.nanoTime() - inicio) / 1_000_000);
+        return true;
+    }
+
+    private static int leerCantidad(ArchivoMapeado archivo) throws IOException {
+        int cantidad = archivo.leerEntero();
+        if (cantidad < 0) {
+            throw new IllegalArgumentException("cantidad negativa en la cabecera: " + cantidad);
+        }
+        return cantidad;
+    }
+
+    private static String[] decodificar(int[] fines, byte[] bytes) {
+        String[] textos = new String[fines.length];
+        int inicio = 0;
+        for (int i = 0; i < fines.length; i++) {
+            if (fines[i] < inicio || fines[i] > bytes.length) {
+                throw new IllegalArgumentException("texto fuera de rango en la posición " + i);
+            }
+            textos[i] = new String(bytes, inicio, fines[i] - inicio, StandardCharsets.UTF_8);
+            inicio = fines[i];
+        }
+        return textos;
+    }
+
+    // Recorre un archivo mapeado por ventanas de TAMANO_VENTANA (un MappedByteBuffer no puede pasar de 2 GB).
+    // Los arrays se copian por bloques con las vistas IntBuffer/ShortBuffer del buffer mapeado
+    private static final class ArchivoMapeado {
+        private final FileChannel canal;
+        private final FileChannel.MapMode modo;
+        private final long tamano;
+        private MappedByteBuffer ventana;
+        private long inicioVentana;
+
+        private ArchivoMapeado(FileChannel canal, FileChannel.MapMode modo, long tamano) {
+            this.canal = canal;
+            this.modo = modo;
+            this.tamano = tamano;
+        }
+
+        // Garantiza que la ventana actual tenga al menos 'bytes' disponibles; si no, mapea la siguiente
+        private void asegurar(int bytes) throws IOException {
+            if (ventana != null && ventana.remaining() >= bytes) {
+                return;
+            }
+            long posicion = ventana == null ? 0 : inicioVentana + ventana.position();
+            if (posicion + bytes > tamano) {
+                throw new BufferUnderflowException();
+            }
+            if (ventana != null && modo == FileChannel.MapMode.READ_WRITE) {
+                ventana.force();
+            }
+            inicioVentana = posicion;
+            ventana = canal.map(modo, posicion, Math.min(TAMANO_VENTANA, tamano - posicion));
+            ventana.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void forzar() {
+            if (ventana != null) {
+                ventana.force();
+            }
+        }
+
+        private void escribirEntero(int valor) throws IOException {
+            asegurar(Integer.BYTES);
+            ventana.putInt(valor);
+        }
+
+        private void escribirLargo(long valor) throws IOException {
+            asegurar(Long.BYTES);
+            ventana.putLong(valor);
+        }
+
+        private void escribirByte(byte valor) throws IOException {
+            asegurar(1);
+            ventana.put(valor);
+        }
+
+        private void escribirEnteros(int[] valores) throws IOException {
+            int hechos = 0;
+            int bloque;
+            while (hechos < valores.length) {
+                asegurar(Integer.BYTES);
+                bloque = Math.min(valores.length - hechos, ventana.remaining() / Integer.BYTES);
+                ventana.asIntBuffer().put(valores, hechos, bloque);
+                ventana.position(ventana.position() + bloque * Integer.BYTES);
+                hechos += bloque;
+            }
+        }
+
+        private void escribirCortos(short[] valores) throws IOException {
+            int hechos = 0;
+            int bloque;
+            while (hechos < valores.length) {
+                asegurar(Short.BYTES);
+                bloque = Math.min(valores.length - hechos, ventana.remaining() / Short.BYTES);
+                ventana.asShortBuffer().put(valores, hechos, bloque);
+                ventana.position(ventana.position() + bloque * Short.BYTES);
+                hechos += bloque;
+            }
+        }
+
+        private void escribirBytes(byte[] valores) throws IOException {
+            int hechos = 0;
+            int bloque;
+            while (hechos < valores.length) {
+                asegurar(1);
+                bloque = Math.min(valores.length - hechos, ventana.remaining());
+                ventana.put(valores, hechos, bloque);
+                hechos += bloque;
+            }
+        }
+
+        private int leerEntero() throws IOException {
+            asegurar(Integer.BYTES);
+            return ventana.getInt();
+        }
+
+        private long leerLargo() throws IOException {
+            asegurar(Long.BYTES);
+            return ventana.getLong();
+        }
+
+        private int[] leerEnteros(int cantidad) throws IOException {
+            int[] valores = new int[cantidad];
+            int hechos = 0;
+            int bloque;
+            while (hechos < cantidad) {
+                asegurar(Integer.BYTES);
+                bloque = Math.min(cantidad - hechos, ventana.remaining() / Integer.BYTES);
+                ventana.asIntBuffer().get(valores, hechos, bloque);
+                ventana.position(ventana.position() + bloque * Integer.BYTES);
+                hechos += bloque;
+            }
+            return valores;
+        }
+
+        private short[] leerCortos(int cantidad) throws IOException {
+            short[] valores = new short[cantidad];
+            int hechos = 0;
+            int bloque;
+            while (hechos < cantidad) {
+                asegurar(Short.BYTES);
+                bloque = Math.min(cantidad - hechos, ventana.remaining() / Short.BYTES);
+                ventana.asShortBuffer().get(valores, hechos, bloque);
+                ventana.position(ventana.position() + bloque * Short.BYTES);
+                hechos += bloque;
+            }
+            return valores;
+        }
+
+        private byte[] leerBytes(int cantidad) throws IOException {
+            byte[] valores = new byte[cantidad];
+            int hechos = 0;
+            int bloque;
+            while (hechos < cantidad) {
+                asegurar(1);
+                bloque = Math.min(cantidad - hechos, ventana.remaining());
+                ventana.get(valores, hechos, bloque);
+                hechos += bloque;
+            }
+            return valores;
+        }
+    }
+}
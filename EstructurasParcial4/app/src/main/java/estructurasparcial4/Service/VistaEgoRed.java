@@ -0,0 +1,241 @@
+package estructurasparcial4.Service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.SingleGraph;
+import org.graphstream.stream.file.FileSinkImages;
+
+import estructurasparcial4.Model.SugerenciaAmigo;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.InternadorIds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Vista de la red centrada en un usuario (ego-red): el usuario, todos los que están a lo sumo a 'saltos'
+// amistades de él y las amistades entre ellos, con el grosor de cada arista según la calidad.
+// Las sugerencias del MotorSugerencias para el usuario se resaltan (y se agregan si quedaron fuera).
+// - Se arma con una búsqueda en anchura acotada por saltos y por maxNodos desde el usuario: el costo
+//   depende del tamaño de la vecindad, no de la red. Si se llega a maxNodos la vista queda truncada.
+// - mostrar() abre la ventana de GraphStream; guardarImagen() escribe un PNG con FileSinkImages sin
+//   abrir ninguna ventana (sirve en servidores sin pantalla; en Linux sin DISPLAY Java ya corre en modo
+//   headless).
+// El grafo se lee con su cerrojo de lectura, así que puede usarse mientras otros hilos lo modifican.
+public class VistaEgoRed {
+
+    private static final Logger logger = LogManager.getLogger(VistaEgoRed.class);
+
+    private static final String ATRIBUTO_NIVEL = "nivel";
+
+    private static final String HOJA_ESTILO =
+            "node { fill-color: lightblue; size: 20px; text-size: 12px; text-alignment: under; }" +
+            "node.centro { fill-color: tomato; size: 30px; }" +
+            "node.sugerencia { fill-color: orange; stroke-mode: plain; stroke-color: darkorange; stroke-width: 2px; }" +
+            "edge { fill-color: gray; size-mode: dyn-size; size: 1px; }";
+
+    private final MotorSugerencias motor;
+    private final GrafoAmistades grafo;
+    private final InternadorIds internador;
+
+    private int maxNodos = 500;
+    private int maxSugerencias = 10;
+    private boolean truncada;
+
+    public VistaEgoRed(MotorSugerencias motor) {
+        if (motor == null) {
+            logger.error("Motor nulo en constructor de VistaEgoRed");
+            throw new IllegalArgumentException("Motor de sugerencias no puede ser nulo");
+        }
+        this.motor = motor;
+        this.grafo = motor.getGrafo();
+        this.internador = motor.getInternador();
+    }
+
+    public int getMaxNodos() {
+        return maxNodos;
+    }
+
+    public void setMaxNodos(int maxNodos) {
+        if (maxNodos < 1) {
+            logger.error("Máximo de nodos inválido: {}", maxNodos);
+            throw new IllegalArgumentException("El máximo de nodos debe ser mayor que 0");
+        }
+        this.maxNodos = maxNodos;
+    }
+
+    public void setMaxSugerencias(int maxSugerencias) {
+        if (maxSugerencias < 0) {
+            logger.error("Máximo de sugerencias inválido: {}", maxSugerencias);
+            throw new IllegalArgumentException("El máximo de sugerencias no puede ser negativo");
+        }
+        this.maxSugerencias = maxSugerencias;
+    }
+
+    // true si la última vista construida se cortó por maxNodos
+    public boolean isTruncada() {
+        return truncada;
+    }
+
+    // Arma la ego-red del usuario. Cada nodo lleva el atributo "nivel" (saltos desde el usuario; las
+    // sugerencias que no estaban en la vecindad quedan con -1) y cada arista el atributo "calidad"
+    public SingleGraph construir(String idUsuario, int saltos) {
+        if (saltos < 1) {
+            logger.error("Cantidad de saltos inválida: {}", saltos);
+            throw new IllegalArgumentException("La cantidad de saltos debe ser mayor que 0");
+        }
+        if (idUsuario == null || motor.getAlmacenamiento().buscarPerfil(idUsuario) == null) {
+            logger.error("Usuario no existe para la ego-red: {}", idUsuario);
+            throw new IllegalArgumentException("Usuario no existe: " + idUsuario);
+        }
+        int centro = internador.indiceDe(idUsuario);
+        try {
+            // Las sugerencias se piden antes de tomar el cerrojo: el motor toma los suyos
+            HashSet<Integer> sugeridos = new HashSet<>();
+            if (maxSugerencias > 0) {
+                int indice;
+                for (SugerenciaAmigo sugerencia : motor.sugerirAmigos(idUsuario, maxSugerencias)) {
+                    indice = internador.indiceDe(sugerencia.getUserIdSugerido());
+                    if (indice >= 0) {
+                        sugeridos.add(indice);
+                    }
+                }
+            }
+
+            SingleGraph vista = new SingleGraph("Ego-red de " + idUsuario);
+            vista.setAttribute("ui.stylesheet", HOJA_ESTILO);
+            grafo.cerrojoLectura().lock();
+            try {
+                HashMap<Integer, Integer> nivelPorIndice = recorrerVecindad(centro, saltos);
+                List<Integer> mostrados = new ArrayList<>(nivelPorIndice.keySet());
+                for (int sugerido : sugeridos) {
+                    if (!nivelPorIndice.containsKey(sugerido)) {
+                        nivelPorIndice.put(sugerido, -1);
+                        mostrados.add(sugerido);
+                    }
+                }
+                Node nodo;
+                for (int indice : mostrados) {
+                    nodo = vista.addNode(internador.idDe(indice));
+                    nodo.setAttribute("ui.label", internador.idDe(indice));
+                    nodo.setAttribute(ATRIBUTO_NIVEL, nivelPorIndice.get(indice));
+                    if (indice == centro) {
+                        nodo.setAttribute("ui.class", "centro");
+                    } else if (sugeridos.contains(indice)) {
+                        nodo.setAttribute("ui.class", "sugerencia");
+                    }
+                }
+                for (int indice : mostrados) {
+                    agregarAristas(vista, indice, nivelPorIndice);
+                }
+            } finally {
+                grafo.cerrojoLectura().unlock();
+            }
+            logger.info("Ego-red de {} construida: {} nodos, {} aristas{}", idUsuario, vista.getNodeCount(),
+                    vista.getEdgeCount(), truncada ? " (truncada)" : "");
+            return vista;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error al construir ego-red de {}: {}", idUsuario, e.getMessage());
+            throw e;
+        }
+    }
+
+    public void mostrar(String idUsuario, int saltos) {
+        construir(idUsuario, saltos).display();
+    }
+
+    // Dibuja la ego-red en un PNG sin abrir ventanas. La disposición se calcula completa antes de dibujar
+    public void guardarImagen(String idUsuario, int saltos, String archivo) throws IOException {
+        if (archivo == null || archivo.trim().isEmpty()) {
+            logger.error("Archivo vacío para la imagen de la ego-red");
+            throw new IllegalArgumentException("El archivo de la imagen no puede estar vacío");
+        }
+        SingleGraph vista = construir(idUsuario, saltos);
+        FileSinkImages imagen = new FileSinkImages(FileSinkImages.OutputType.PNG, FileSinkImages.Resolutions.HD720);
+        imagen.setLayoutPolicy(FileSinkImages.LayoutPolicy.COMPUTED_FULLY_AT_NEW_IMAGE);
+        imagen.setQuality(FileSinkImages.Quality.HIGH);
+        imagen.setStyleSheet(HOJA_ESTILO);
+        try {
+            imagen.writeAll(vista, archivo);
+            logger.info("Imagen de la ego-red de {} guardada en {}", idUsuario, archivo);
+        } catch (IOException e) {
+            logger.error("Error al guardar la imagen de la ego-red en {}: {}", archivo, e.getMessage());
+            throw e;
+        }
+    }
+
+    // Búsqueda en anchura desde el centro hasta 'saltos' niveles o maxNodos nodos.
+    // Devuelve índice -> nivel. Requiere el cerrojo de lectura
+    private HashMap<Integer, Integer> recorrerVecindad(int centro, int saltos) {
+        HashMap<Integer, Integer> nivelPorIndice = new HashMap<>();
+        ArrayList<Integer> cola = new ArrayList<>();
+        nivelPorIndice.put(centro, 0);
+        cola.add(centro);
+        truncada = false;
+        int nodo;
+        int nivel;
+        int vecino;
+        for (int i = 0; i < cola.size(); i++) {
+            nodo = cola.get(i);
+            nivel = nivelPorIndice.get(nodo);
+            if (nivel == saltos) {
+                break; // la cola está por niveles: los que siguen también están en el último
+            }
+            for (int e = grafo.inicioCsr(nodo), fin = grafo.finCsr(nodo); e < fin; e++) {
+                vecino = grafo.vecinoCsr(e);
+                if (grafo.calidadCsr(e) > 0 && !nivelPorIndice.containsKey(vecino)) {
+                    if (nivelPorIndice.size() == maxNodos) {
+                        truncada = true;
+                        return nivelPorIndice;
+                    }
+                    nivelPorIndice.put(vecino, nivel + 1);
+                    cola.add(vecino);
+                }
+            }
+            for (int d = grafo.primerDelta(nodo); d >= 0; d = grafo.siguienteDelta(d)) {
+                vecino = grafo.vecinoDelta(d);
+                if (grafo.calidadDelta(d) > 0 && !nivelPorIndice.containsKey(vecino)) {
+                    if (nivelPorIndice.size() == maxNodos) {
+                        truncada = true;
+                        return nivelPorIndice;
+                    }
+                    nivelPorIndice.put(vecino, nivel + 1);
+                    cola.add(vecino);
+                }
+            }
+        }
+        return nivelPorIndice;
+    }
+
+    // Aristas del nodo hacia otros nodos de la vista con índice mayor (así cada amistad se agrega una vez)
+    private void agregarAristas(SingleGraph vista, int indice, HashMap<Integer, Integer> enVista) {
+        int vecino;
+        for (int e = grafo.inicioCsr(indice), fin = grafo.finCsr(indice); e < fin; e++) {
+            vecino = grafo.vecinoCsr(e);
+            if (grafo.calidadCsr(e) > 0 && indice < vecino && enVista.containsKey(vecino)) {
+                agregarArista(vista, indice, vecino, grafo.calidadCsr(e));
+            }
+        }
+        for (int d = grafo.primerDelta(indice); d >= 0; d = grafo.siguienteDelta(d)) {
+            vecino = grafo.vecinoDelta(d);
+            if (grafo.calidadDelta(d) > 0 && indice < vecino && enVista.containsKey(vecino)) {
+                agregarArista(vista, indice, vecino, grafo.calidadDelta(d));
+            }
+        }
+    }
+
+    private void agregarArista(SingleGraph vista, int a, int b, int calidad) {
+        String idA = internador.idDe(a);
+        String idB = internador.idDe(b);
+        String idArista = idA + "-" + idB;
+        if (vista.getEdge(idArista) == null) {
+            Edge arista = vista.addEdge(idArista, idA, idB, false);
+            arista.setAttribute("calidad", calidad);
+            arista.setAttribute("ui.size", calidad);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package estructurasparcial4.Util;
+
+import java.util.Arrays;
+
+// Union-find de un solo hilo para cargas masivas: cada hilo arma su propio bosque con una parte de
+// los lazos y al final los bosques se fusionan (ver MotorSugerencias.cargarLazosDesdePerfiles).
+// También es el bosque de cada época de ConectividadDinamica.
+// - padre[i] guarda el padre + 1 y 0 significa raíz, así un bosque recién creado ya son n componentes
+//   unitarias sin recorrer el array para inicializarlo (y crecer es solo copiar los arrays).
+// - Union by rank con un byte por nodo (el rango nunca pasa de 31) y find() con path halving.
+// No es seguro para varios hilos, salvo raiz() (o find() después de aplanar()) mientras nadie une.
+public class BosqueUnionFind {
+
+    private int[] padre;
+    private byte[] rango;
+    private int enlaces; // uniones exitosas; componentes = tamano() - enlaces
+
+    public BosqueUnionFind(int nodos) {
+        if (nodos < 0) {
+            throw new IllegalArgumentException("La cantidad de nodos no puede ser negativa");
+        }
+        this.padre = new int[nodos];
+        this.rango = new byte[nodos];
+    }
+
+    public int tamano() {
+        return padre.length;
+    }
+
+    public int getCount() {
+        return padre.length - enlaces;
+    }
+
+    // Agrega nodos unitarios hasta tener al menos 'nodos'; crece x1.5 para que agregar sea O(1) amortizado
+    public void asegurarTamano(int nodos) {
+        if (nodos > padre.length) {
+            int nuevoTamano = Math.max(nodos, padre.length + (padre.length >> 1));
+            padre = Arrays.copyOf(padre, nuevoTamano);
+            rango = Arrays.copyOf(rango, nuevoTamano);
+        }
+    }
+
+    // Raíz del nodo sin acortar caminos: no escribe, así varios hilos pueden consultar a la vez.
+    // Con union by rank la altura es O(log n)
+    public int raiz(int nodo) {
+        validate(nodo);
+        int actual = nodo;
+        int siguiente;
+        while ((siguiente = padre[actual]) != 0) {
+            actual = siguiente - 1;
+        }
+        return actual;
+    }
+
+    public int find(int nodo) {
+        validate(nodo);
+        int actual = nodo;
+        int siguiente;
+        int abuelo;
+        while ((siguiente = padre[actual]) != 0) {
+            siguiente--;
+            abuelo = padre[siguiente];
+            if (abuelo == 0) {
+                return siguiente;
+            }
+            // Path halving: el nodo pasa a apuntar a su abuelo
+            padre[actual] = abuelo;
+            actual = abuelo - 1;
+        }
+        return actual;
+    }
+
+    // Une las componentes de p y q. Devuelve true si estaban separadas
+    public boolean union(int p, int q) {
+        int raizP = find(p);
+        int raizQ = find(q);
+        if (raizP == raizQ) {
+            return false;
+        }
+        if (rango[raizP] < rango[raizQ]) {
+            padre[raizP] = raizQ + 1;
+        } else {
+            if (rango[raizP] == rango[raizQ]) {
+                rango[raizP]++;
+            }
+            padre[raizQ] = raizP + 1;
+        }
+        enlaces++;
+        return true;
+    }
+
+    // Agrega a este bosque las uniones de otro del mismo tamaño: basta unir cada nodo con su padre
+    // en el otro bosque, sin buscar allí las raíces
+    public void fusionar(BosqueUnionFind otro) {
+        if (otro == null || otro.padre.length != padre.length) {
+            throw new IllegalArgumentException("Solo se pueden fusionar bosques del mismo tamaño");
+        }
+        int[] padreOtro = otro.padre;
+        for (int nodo = 0; nodo < padreOtro.length; nodo++) {
+            if (padreOtro[nodo] != 0) {
+                union(nodo, padreOtro[nodo] - 1);
+            }
+        }
+    }
+
+    // Deja cada nodo apuntando directo a su raíz: después find() es O(1) y no modifica el bosque
+    public void aplanar() {
+        for (int nodo = 0; nodo < padre.length; nodo++) {
+            if (padre[nodo] != 0) {
+                padre[nodo] = find(nodo) + 1;
+            }
+        }
+    }
+
+    private void validate(int nodo) {
+        if (nodo < 0 || nodo >= padre.length) {
+            throw new IllegalArgumentException("Índice " + nodo + " no es válido (0.." + (padre.length - 1) + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BosqueUnionFind{nodos=" + tamano() + ", componentes=" + getCount() + "}";
+    }
+}
@@ -0,0 +1,186 @@
+package estructurasparcial4.Util;
+
+import java.util.Arrays;
+
+// Búsqueda en anchura bidireccional entre dos nodos de un GrafoAmistades, sobre los arrays del CSR y
+// del delta (sin objetos por nodo ni por arco):
+// - Se expande por niveles completos el lado con la frontera más chica, así entre dos hubs no se
+//   recorre toda la vecindad de uno. El primer cruce entre los dos lados da un camino de largo mínimo.
+// - Solo se siguen arcos con calidad >= calidadMinima; con 1 valen todos los arcos vivos.
+// - Corta con SIN_PRESUPUESTO si el camino tendría más de maxSaltos arcos o si se visitan más de
+//   maxNodos nodos, para acotar la latencia en grafos grandes.
+// - Los arrays se reutilizan entre búsquedas: visita[v] guarda la marca de la búsqueda y del lado que
+//   visitó v, y cambiar de marca evita limpiarlos. Una instancia la usa un solo hilo a la vez
+//   (se prestan con PoolEspacios).
+// Quien busca debe tener tomado alguno de los cerrojos del grafo durante la búsqueda y al pedir camino().
+public class BusquedaBidireccional {
+
+    public static final int CONECTADOS = 0;
+    public static final int SEPARADOS = 1;
+    public static final int SIN_PRESUPUESTO = 2;
+
+    private static final int SIN_PADRE = -1;
+
+    private int[] visita = new int[0];
+    private int[] padre = new int[0];
+    private int[] colaA = new int[0];
+    private int[] colaB = new int[0];
+    private int marca;
+
+    // Resultado de la última búsqueda
+    private int origen;
+    private int destino;
+    private int encuentroA = SIN_PADRE; // arco encuentroA -> encuentroB por donde se cruzaron los lados
+    private int encuentroB = SIN_PADRE;
+    private int visitados;
+
+    public int buscar(GrafoAmistades grafo, int a, int b, int calidadMinima, int maxSaltos, int maxNodos) {
+        preparar(grafo.getInternador().tamano());
+        origen = a;
+        destino = b;
+        encuentroA = SIN_PADRE;
+        encuentroB = SIN_PADRE;
+        visitados = 1;
+        if (a == b) {
+            return CONECTADOS;
+        }
+        int marcaA = nuevaMarca();
+        int marcaB = nuevaMarca();
+        visita[a] = marcaA;
+        visita[b] = marcaB;
+        padre[a] = SIN_PADRE;
+        padre[b] = SIN_PADRE;
+        colaA[0] = a;
+        colaB[0] = b;
+        visitados = 2;
+        int inicioA = 0;
+        int finA = 1;
+        int inicioB = 0;
+        int finB = 1;
+        int saltos = 0; // niveles expandidos entre los dos lados = largo del camino si se cruzan ahora
+        boolean ladoA;
+        int[] cola;
+        int inicio;
+        int fin;
+        int propia;
+        int ajena;
+        int nodo;
+        int vecino;
+        while (inicioA < finA && inicioB < finB) {
+            if (saltos >= maxSaltos) {
+                return SIN_PRESUPUESTO;
+            }
+            saltos++;
+            ladoA = finA - inicioA <= finB - inicioB;
+            cola = ladoA ? colaA : colaB;
+            inicio = ladoA ? inicioA : inicioB;
+            fin = ladoA ? finA : finB;
+            propia = ladoA ? marcaA : marcaB;
+            ajena = ladoA ? marcaB : marcaA;
+            for (int nivelFin = fin; inicio < nivelFin; inicio++) {
+                nodo = cola[inicio];
+                for (int e = grafo.inicioCsr(nodo), limite = grafo.finCsr(nodo); e < limite; e++) {
+                    if (grafo.calidadCsr(e) < calidadMinima) {
+                        continue;
+                    }
+                    vecino = grafo.vecinoCsr(e);
+                    if (visita[vecino] == ajena) {
+                        registrarEncuentro(ladoA, nodo, vecino);
+                        return CONECTADOS;
+                    }
+                    if (visita[vecino] != propia) {
+                        visita[vecino] = propia;
+                        padre[vecino] = nodo;
+                        cola[fin++] = vecino;
+                        visitados++;
+                    }
+                }
+                for (int d = grafo.primerDelta(nodo); d >= 0; d = grafo.siguienteDelta(d)) {
+                    if (grafo.calidadDelta(d) < calidadMinima) {
+                        continue;
+                    }
+                    vecino = grafo.vecinoDelta(d);
+                    if (visita[vecino] == ajena) {
+                        registrarEncuentro(ladoA, nodo, vecino);
+                        return CONECTADOS;
+                    }
+                    if (visita[vecino] != propia) {
+                        visita[vecino] = propia;
+                        padre[vecino] = nodo;
+                        cola[fin++] = vecino;
+                        visitados++;
+                    }
+                }
+                if (visitados > maxNodos) {
+                    return SIN_PRESUPUESTO;
+                }
+            }
+            if (ladoA) {
+                inicioA = inicio;
+                finA = fin;
+            } else {
+                inicioB = inicio;
+                finB = fin;
+            }
+        }
+        // Uno de los lados agotó su componente sin cruzarse con el otro
+        return SEPARADOS;
+    }
+
+    // Nodos del camino de la última búsqueda (de a hasta b), o null si no terminó en CONECTADOS
+    public int[] camino() {
+        if (origen == destino) {
+            return new int[] { origen };
+        }
+        if (encuentroA == SIN_PADRE) {
+            return null;
+        }
+        int largoA = 0;
+        for (int nodo = encuentroA; nodo != SIN_PADRE; nodo = padre[nodo]) {
+            largoA++;
+        }
+        int largoB = 0;
+        for (int nodo = encuentroB; nodo != SIN_PADRE; nodo = padre[nodo]) {
+            largoB++;
+        }
+        int[] camino = new int[largoA + largoB];
+        int posicion = largoA - 1;
+        for (int nodo = encuentroA; nodo != SIN_PADRE; nodo = padre[nodo]) {
+            camino[posicion--] = nodo;
+        }
+        posicion = largoA;
+        for (int nodo = encuentroB; nodo != SIN_PADRE; nodo = padre[nodo]) {
+            camino[posicion++] = nodo;
+        }
+        return camino;
+    }
+
+    // Nodos que visitó la última búsqueda (para métricas y para ajustar presupuestos)
+    public int getVisitados() {
+        return visitados;
+    }
+
+    private void registrarEncuentro(boolean ladoA, int nodo, int vecino) {
+        encuentroA = ladoA ? nodo : vecino;
+        encuentroB = ladoA ? vecino : nodo;
+    }
+
+    private void preparar(int nodos) {
+        if (visita.length < nodos) {
+            int capacidad = Math.max(nodos, visita.length + (visita.length >> 1));
+            visita = new int[capacidad];
+            padre = new int[capacidad];
+            colaA = new int[capacidad];
+            colaB = new int[capacidad];
+            marca = 0;
+        }
+    }
+
+    private int nuevaMarca() {
+        if (marca == Integer.MAX_VALUE) {
+            Arrays.fill(visita, 0);
+            marca = 0;
+        }
+        return ++marca;
+    }
+}
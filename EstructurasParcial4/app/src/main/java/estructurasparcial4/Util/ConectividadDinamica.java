@@ -0,0 +1,364 @@
+package estructurasparcial4.Util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Conectividad de un GrafoAmistades que, a diferencia de WeightedQuickUnionUF, también responde bien
+// después de eliminar amistades (o perfiles). Funciona por épocas:
+// - Cada época es un BosqueUnionFind armado con todos los arcos del grafo. Los arcos nuevos se unen al
+//   bosque al momento (avisa el grafo como ObservadorArcos), así que sin eliminaciones es exacto.
+// - Al eliminar una amistad se busca un camino de reemplazo entre los dos extremos con un recorrido
+//   acotado (casi siempre tienen amigos en común). Si aparece, las componentes no cambiaron y el bosque
+//   sigue exacto. Si no, la época queda "sucia" y se programa una reconstrucción en segundo plano.
+// - Un bosque sucio solo puede sobrar conexiones, nunca faltarlas: si dice "separados", es verdad.
+//   Si dice "conectados", se confirma con una búsqueda en anchura bidireccional sobre el grafo, acotada
+//   a PRESUPUESTO_CONSULTA nodos. Si no alcanza, la consulta no responde con la época vieja (sería una
+//   conexión que la eliminación pudo cortar): arma ella misma la reconstrucción pendiente, o espera la
+//   que ya está en curso, y responde con la época nueva.
+// - La reconstrucción copia los arrays del grafo (con el cerrojo de lectura, solo lo que dura la copia)
+//   y arma el bosque nuevo sobre la copia sin ningún cerrojo. Los arcos agregados mientras tanto se
+//   anotan y se unen al bosque nuevo antes de publicarlo; si mientras tanto una eliminación separó
+//   usuarios, la época nueva nace sucia y se programa otra reconstrucción.
+// Las consultas toman el cerrojo de lectura y pueden correr en paralelo.
+// Quien guarda componentes por su cuenta (la red WeightedQuickUnionUF, que no sabe separarlas) se entera
+// de cada época nueva con agregarAlPublicarEpoca() y puede copiarlas con etiquetasComponentes().
+public class ConectividadDinamica implements ObservadorArcos, AutoCloseable {
+
+    private static final long RETARDO_RECONSTRUCCION_MS = 500; // junta varias eliminaciones seguidas
+    private static final int PRESUPUESTO_REEMPLAZO = 4096; // nodos que puede visitar la búsqueda de reemplazo
+    private static final int PRESUPUESTO_CONSULTA = 1 << 16; // nodos que puede visitar una consulta con la época sucia
+
+    private final GrafoAmistades grafo;
+    private final InternadorIds internador;
+    private volatile Epoca epoca;
+
+    private final ScheduledExecutorService reconstructor;
+    private final AtomicBoolean reconstruccionPendiente = new AtomicBoolean();
+    // Las consultas toman una búsqueda del pool antes del cerrojo de lectura. arcoEliminado() corre con el
+    // cerrojo de escritura (un solo hilo a la vez) y usa la suya, sin esperar al pool
+    private final PoolEspacios<BusquedaBidireccional> busquedas = new PoolEspacios<>(BusquedaBidireccional::new);
+    private final BusquedaBidireccional busquedaReemplazo = new BusquedaBidireccional();
+
+    // Cambios que llegan mientras se arma una época sobre una copia del grafo. Los escribe el observador
+    // con el cerrojo de escritura; reconstruir() los inicia y los lee con el de lectura
+    private boolean reconstruyendo;
+    private int[] arcosDuranteReconstruccion = new int[64]; // pares origen, destino
+    private int cantidadArcosDuranteReconstruccion;
+    private boolean separacionDuranteReconstruccion;
+
+    private final LongAdder consultasDirectas = new LongAdder();
+    private final LongAdder consultasConRecorrido = new LongAdder();
+    private final LongAdder reemplazosEncontrados = new LongAdder();
+    private final LongAdder reconstrucciones = new LongAdder();
+    private final LongAdder consultasSinPresupuesto = new LongAdder();
+
+    private final List<Runnable> alPublicarEpoca = new CopyOnWriteArrayList<>();
+
+    public ConectividadDinamica(GrafoAmistades grafo) {
+        if (grafo == null) {
+            throw new IllegalArgumentException("Grafo no puede ser nulo");
+        }
+        this.grafo = grafo;
+        this.internador = grafo.getInternador();
+        this.reconstructor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "conectividad-reconstruccion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        // Con el cerrojo de escritura ningún arco puede cambiar entre armar la primera época y registrarse
+        grafo.cerrojoEscritura().lock();
+        try {
+            epoca = new Epoca(construirBosque(grafo), 0);
+            grafo.agregarObservador(this);
+        } finally {
+            grafo.cerrojoEscritura().unlock();
+        }
+    }
+
+    public boolean conectados(int indiceA, int indiceB) {
+        validarNodo(indiceA);
+        validarNodo(indiceB);
+        if (indiceA == indiceB) {
+            return true;
+        }
+        long epocaSinPresupuesto;
+        while (true) {
+            BusquedaBidireccional busqueda = busquedas.tomar();
+            grafo.cerrojoLectura().lock();
+            try {
+                Epoca actual = epoca;
+                if (raizEn(actual.bosque, indiceA) != raizEn(actual.bosque, indiceB)) {
+                    consultasDirectas.increment();
+                    return false;
+                }
+                if (!actual.sucia) {
+                    consultasDirectas.increment();
+                    return true;
+                }
+                consultasConRecorrido.increment();
+                int resultado = buscarCamino(busqueda, indiceA, indiceB, PRESUPUESTO_CONSULTA);
+                if (resultado != BusquedaBidireccional.SIN_PRESUPUESTO) {
+                    return resultado == BusquedaBidireccional.CONECTADOS;
+                }
+                consultasSinPresupuesto.increment();
+                epocaSinPresupuesto = actual.numero;
+            } finally {
+                grafo.cerrojoLectura().unlock();
+                busquedas.devolver(busqueda);
+            }
+            // Demasiado grande para recorrerla en una consulta: se responde con una época posterior
+            reconstruirSiNoHayPosterior(epocaSinPresupuesto);
+        }
+    }
+
+    // Solo mira el bosque, sin recorrer el grafo: false asegura que están separados y true puede ser una
+    // conexión que ya no existe si hay una reconstrucción pendiente. Sirve para descartar rápido
+    // antes de una búsqueda de caminos
+    public boolean puedenEstarConectados(int indiceA, int indiceB) {
+        validarNodo(indiceA);
+        validarNodo(indiceB);
+        grafo.cerrojoLectura().lock();
+        try {
+            BosqueUnionFind bosque = epoca.bosque;
+            return raizEn(bosque, indiceA) == raizEn(bosque, indiceB);
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    // Etiqueta de componente de los nodos 0 .. nodos - 1 según la época vigente: dos nodos tienen la misma
+    // etiqueta si el bosque los tiene en la misma componente. Con la época sucia puede sobrar conexiones
+    // (se corrige en la próxima época)
+    public int[] etiquetasComponentes(int nodos) {
+        if (nodos < 0 || nodos > internador.tamano()) {
+            throw new IllegalArgumentException("Cantidad de nodos inválida: " + nodos);
+        }
+        int[] etiquetas = new int[nodos];
+        grafo.cerrojoLectura().lock();
+        try {
+            BosqueUnionFind bosque = epoca.bosque;
+            for (int nodo = 0; nodo < nodos; nodo++) {
+                etiquetas[nodo] = raizEn(bosque, nodo);
+            }
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+        return etiquetas;
+    }
+
+    // La acción corre después de publicar cada época nueva, en el hilo que reconstruyó y sin cerrojos
+    // del grafo tomados (puede tomar los suyos y después los del grafo)
+    public void agregarAlPublicarEpoca(Runnable accion) {
+        if (accion == null) {
+            throw new IllegalArgumentException("Acción no puede ser nula");
+        }
+        alPublicarEpoca.add(accion);
+    }
+
+    // Número de la época vigente: aumenta con cada reconstrucción
+    public long getEpoca() {
+        return epoca.numero;
+    }
+
+    // true si hubo eliminaciones que separaron usuarios desde la última reconstrucción
+    public boolean isReconstruccionPendiente() {
+        grafo.cerrojoLectura().lock();
+        try {
+            return epoca.sucia;
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    public long getConsultasDirectas() {
+        return consultasDirectas.sum();
+    }
+
+    public long getConsultasConRecorrido() {
+        return consultasConRecorrido.sum();
+    }
+
+    public long getReemplazosEncontrados() {
+        return reemplazosEncontrados.sum();
+    }
+
+    public long getReconstrucciones() {
+        return reconstrucciones.sum();
+    }
+
+    // Consultas con la época sucia que agotaron el presupuesto y tuvieron que esperar una época nueva
+    public long getConsultasSinPresupuesto() {
+        return consultasSinPresupuesto.sum();
+    }
+
+    // Con el cerrojo de escritura del grafo tomado (lo llama el grafo)
+    @Override
+    public void arcoAgregado(int origen, int destino) {
+        BosqueUnionFind bosque = epoca.bosque;
+        bosque.asegurarTamano(Math.max(origen, destino) + 1);
+        bosque.union(origen, destino);
+        if (reconstruyendo) {
+            if (cantidadArcosDuranteReconstruccion + 2 > arcosDuranteReconstruccion.length) {
+                arcosDuranteReconstruccion = Arrays.copyOf(arcosDuranteReconstruccion,
+                        arcosDuranteReconstruccion.length << 1);
+            }
+            arcosDuranteReconstruccion[cantidadArcosDuranteReconstruccion++] = origen;
+            arcosDuranteReconstruccion[cantidadArcosDuranteReconstruccion++] = destino;
+        }
+    }
+
+    // Con el cerrojo de escritura del grafo tomado (lo llama el grafo)
+    @Override
+    public void arcoEliminado(int origen, int destino) {
+        Epoca actual = epoca;
+        if ((actual.sucia && !reconstruyendo) || grafo.calidad(destino, origen) > 0) {
+            // Ya se va a reconstruir, o la amistad sigue en el otro sentido. Durante una reconstrucción
+            // se busca igual: la copia tiene el arco, así que la época nueva solo es exacta si hay reemplazo
+            return;
+        }
+        int resultado = buscarCamino(busquedaReemplazo, origen, destino, PRESUPUESTO_REEMPLAZO);
+        if (resultado == BusquedaBidireccional.CONECTADOS) {
+            reemplazosEncontrados.increment();
+            return;
+        }
+        actual.sucia = true;
+        if (reconstruyendo) {
+            separacionDuranteReconstruccion = true;
+        }
+        programarReconstruccion();
+    }
+
+    // Arma y publica una época nueva ahora mismo, en el hilo que llama. Las consultas y las escrituras
+    // siguen mientras se arma: solo esperan lo que dura la copia del grafo
+    public void reconstruir() {
+        armarEpoca();
+        for (Runnable accion : alPublicarEpoca) {
+            accion.run();
+        }
+    }
+
+    // Arma y publica una época nueva salvo que otro hilo ya haya publicado una posterior a 'numero': las
+    // consultas que agotan el presupuesto a la vez esperan y comparten una sola reconstrucción
+    private void reconstruirSiNoHayPosterior(long numero) {
+        synchronized (this) {
+            if (epoca.numero > numero) {
+                return;
+            }
+            armarEpoca();
+        }
+        for (Runnable accion : alPublicarEpoca) {
+            accion.run();
+        }
+    }
+
+    private synchronized void armarEpoca() {
+        GrafoAmistades copia;
+        grafo.cerrojoLectura().lock();
+        try {
+            copia = grafo.copiar();
+            reconstruyendo = true;
+            cantidadArcosDuranteReconstruccion = 0;
+            separacionDuranteReconstruccion = false;
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+
+        BosqueUnionFind bosque = construirBosque(copia);
+
+        Epoca nueva;
+        grafo.cerrojoLectura().lock();
+        try {
+            for (int i = 0; i < cantidadArcosDuranteReconstruccion; i += 2) {
+                bosque.asegurarTamano(Math.max(arcosDuranteReconstruccion[i], arcosDuranteReconstruccion[i + 1]) + 1);
+                bosque.union(arcosDuranteReconstruccion[i], arcosDuranteReconstruccion[i + 1]);
+            }
+            nueva = new Epoca(bosque, epoca.numero + 1);
+            nueva.sucia = separacionDuranteReconstruccion;
+            epoca = nueva;
+            reconstruyendo = false;
+            reconstrucciones.increment();
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+        if (nueva.sucia) {
+            programarReconstruccion();
+        }
+    }
+
+    private void programarReconstruccion() {
+        if (reconstruccionPendiente.compareAndSet(false, true)) {
+            reconstructor.schedule(() -> {
+                reconstruccionPendiente.set(false);
+                reconstruir();
+            }, RETARDO_RECONSTRUCCION_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Requiere alguno de los cerrojos de 'fuente', salvo que sea una copia que nadie más usa
+    private BosqueUnionFind construirBosque(GrafoAmistades fuente) {
+        int nodos = internador.tamano();
+        BosqueUnionFind bosque = new BosqueUnionFind(nodos);
+        for (int nodo = 0; nodo < nodos; nodo++) {
+            for (int e = fuente.inicioCsr(nodo), fin = fuente.finCsr(nodo); e < fin; e++) {
+                if (fuente.calidadCsr(e) > 0) {
+                    bosque.union(nodo, fuente.vecinoCsr(e));
+                }
+            }
+            for (int d = fuente.primerDelta(nodo); d >= 0; d = fuente.siguienteDelta(d)) {
+                if (fuente.calidadDelta(d) > 0) {
+                    bosque.union(nodo, fuente.vecinoDelta(d));
+                }
+            }
+        }
+        bosque.aplanar();
+        return bosque;
+    }
+
+    // Los usuarios registrados después de armar el bosque y todavía sin amigos son su propia raíz
+    private static int raizEn(BosqueUnionFind bosque, int nodo) {
+        return nodo < bosque.tamano() ? bosque.raiz(nodo) : nodo;
+    }
+
+    // Camino entre a y b por arcos vivos, visitando a lo sumo 'limite' nodos. Requiere alguno de los cerrojos
+    private int buscarCamino(BusquedaBidireccional busqueda, int a, int b, int limite) {
+        return busqueda.buscar(grafo, a, b, 1, Integer.MAX_VALUE, limite);
+    }
+
+    private void validarNodo(int nodo) {
+        if (nodo < 0 || nodo >= internador.tamano()) {
+            throw new IllegalArgumentException("Índice " + nodo + " no es válido (0.." + (internador.tamano() - 1) + ")");
+        }
+    }
+
+    @Override
+    public void close() {
+        grafo.quitarObservador(this);
+        reconstructor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "ConectividadDinamica{epoca=" + getEpoca() + ", sucia=" + isReconstruccionPendiente()
+                + ", consultasDirectas=" + getConsultasDirectas() + ", consultasConRecorrido="
+                + getConsultasConRecorrido() + ", reconstrucciones=" + getReconstrucciones() + "}";
+    }
+
+    // Bosque de una época. 'sucia' se escribe con el cerrojo de escritura del grafo (o antes de publicar
+    // la época) y se lee con alguno de los dos, así que no necesita ser volatile
+    private static final class Epoca {
+        private final BosqueUnionFind bosque;
+        private final long numero;
+        private boolean sucia;
+
+        private Epoca(BosqueUnionFind bosque, long numero) {
+            this.bosque = bosque;
+            this.numero = numero;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package estructurasparcial4.Util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Grafo de amistades indexado por los mismos enteros que usa WeightedQuickUnionUF (InternadorIds).
+// Se guarda en formato CSR (compressed sparse row):
+//   los vecinos del nodo v están en vecinos[offsets[v] .. offsets[v + 1]) y su calidad en calidades[]
+// Así cada arco ocupa un int y un byte, sin Integer, sin entradas de mapa y sin repetir el id String.
+// Las amistades nuevas van a un buffer delta (listas enlazadas por nodo sobre arrays) que se
+// compacta dentro del CSR cuando crece demasiado.
+// Los arcos son dirigidos: una amistad A-B se guarda como A->B y B->A, igual que en los perfiles.
+// Una calidad 0 marca un arco eliminado; la compactación lo descarta.
+// Los ObservadorArcos registrados se enteran de cada arco que aparece o desaparece.
+// Concurrencia: un cerrojo de lectura/escritura protege los arrays. Los métodos públicos lo toman solos;
+// el recorrido directo (inicioCsr, vecinoCsr, primerDelta, ...) exige que quien recorre tenga tomado
+// cerrojoLectura() durante todo el recorrido, porque una escritura puede compactar y cambiar los arrays.
+// Así muchas lecturas (sugerencias) corren en paralelo y las escrituras se serializan.
+public class GrafoAmistades {
+
+    private static final int SIN_DELTA = -1;
+    private static final int UMBRAL_MINIMO_DELTA = 1024;
+
+    private final InternadorIds internador;
+
+    // Parte compacta (CSR)
+    private int[] offsets; // offsets.length = nodosCsr + 1
+    private int[] vecinos;
+    private byte[] calidades;
+    private int nodosCsr; // número de nodos cubiertos por offsets
+
+    // Parte mutable (delta): deltaCabeza[v] es el primer arco nuevo de v, deltaSiguiente enlaza el resto
+    private int[] deltaCabeza;
+    private int[] deltaSiguiente;
+    private int[] deltaDestino;
+    private byte[] deltaCalidad;
+    private int deltaCantidad;
+
+    private long arcos; // arcos vivos (calidad > 0) en CSR + delta
+    private long version; // aumenta con cada arco agregado, modificado o eliminado (compactar no la cambia)
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final List<ObservadorArcos> observadores = new CopyOnWriteArrayList<>();
+
+    public GrafoAmistades(InternadorIds internador) {
+        if (internador == null) {
+            throw new IllegalArgumentException("Internador no puede ser nulo");
+        }
+        this.internador = internador;
+        this.offsets = new int[1];
+        this.vecinos = new int[0];
+        this.calidades = new byte[0];
+        this.nodosCsr = 0;
+        this.deltaCabeza = new int[Math.max(16, internador.tamano())];
+        Arrays.fill(deltaCabeza, SIN_DELTA);
+        this.deltaSiguiente = new int[64];
+        this.deltaDestino = new int[64];
+        this.deltaCalidad = new byte[64];
+        this.deltaCantidad = 0;
+        this.arcos = 0;
+    }
+
+    // Crea el grafo directamente desde un CSR ya armado (SnapshotBinario). Los arrays pasan a ser del grafo
+    public GrafoAmistades(InternadorIds internador, int[] offsets, int[] vecinos, byte[] calidades) {
+        this(internador);
+        if (offsets == null || vecinos == null || calidades == null || offsets.length == 0) {
+            throw new IllegalArgumentException("Arrays del CSR no pueden ser nulos o vacíos");
+        }
+        int nodos = offsets.length - 1;
+        if (nodos > internador.tamano() || offsets[0] != 0 || offsets[nodos] != vecinos.length
+                || calidades.length != vecinos.length) {
+            throw new IllegalArgumentException("CSR inconsistente con " + nodos + " nodos y " + vecinos.length + " arcos");
+        }
+        for (int v = 0; v < nodos; v++) {
+            if (offsets[v] > offsets[v + 1]) {
+                throw new IllegalArgumentException("Offsets del CSR no son crecientes en el nodo " + v);
+            }
+        }
+        long vivos = 0;
+        for (int e = 0; e < vecinos.length; e++) {
+            if (vecinos[e] < 0 || vecinos[e] >= internador.tamano() || calidades[e] < 0 || calidades[e] > 5) {
+                throw new IllegalArgumentException("Arco inválido en la posición " + e + " del CSR");
+            }
+            if (calidades[e] > 0) {
+                vivos++;
+            }
+        }
+        this.offsets = offsets;
+        this.vecinos = vecinos;
+        this.calidades = calidades;
+        this.nodosCsr = nodos;
+        this.arcos = vivos;
+    }
+
+    // Copia de un grafo (ver copiar()). Comparte el internador y no tiene observadores
+    private GrafoAmistades(GrafoAmistades original) {
+        this.internador = original.internador;
+        this.offsets = original.offsets.clone();
+        this.vecinos = original.vecinos.clone();
+        this.calidades = original.calidades.clone();
+        this.nodosCsr = original.nodosCsr;
+        this.deltaCabeza = original.deltaCabeza.clone();
+        this.deltaCantidad = original.deltaCantidad;
+        int capacidadDelta = Math.max(64, original.deltaCantidad);
+        this.deltaSiguiente = Arrays.copyOf(original.deltaSiguiente, capacidadDelta);
+        this.deltaDestino = Arrays.copyOf(original.deltaDestino, capacidadDelta);
+        this.deltaCalidad = Arrays.copyOf(original.deltaCalidad, capacidadDelta);
+        this.arcos = original.arcos;
+        this.version = original.version;
+    }
+
+    // Foto del grafo para recorrerla sin tener tomado el cerrojo de este (ConectividadDinamica arma así
+    // su bosque). Son copias de arrays en bloque: el cerrojo de lectura se tiene mucho menos que lo que
+    // llevaría recorrer el grafo
+    public GrafoAmistades copiar() {
+        cerrojo.readLock().lock();
+        try {
+            return new GrafoAmistades(this);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public InternadorIds getInternador() {
+        return internador;
+    }
+
+    public void agregarObservador(ObservadorArcos observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("Observador no puede ser nulo");
+        }
+        observadores.add(observador);
+    }
+
+    public void quitarObservador(ObservadorArcos observador) {
+        observadores.remove(observador);
+    }
+
+    // Cerrojos compartidos con quien recorre el grafo o necesita varias operaciones atómicas
+    public Lock cerrojoLectura() {
+        return cerrojo.readLock();
+    }
+
+    public Lock cerrojoEscritura() {
+        return cerrojo.writeLock();
+    }
+
+    public long getCantidadArcos() {
+        cerrojo.readLock().lock();
+        try {
+            return arcos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // Permite a quien guarda resultados derivados del grafo (por ejemplo, la cache de sugerencias)
+    // detectar cambios que no pasaron por él
+    public long getVersion() {
+        cerrojo.readLock().lock();
+        try {
+            return version;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public int getCantidadDelta() {
+        return deltaCantidad;
+    }
+
+    // Nodos cubiertos por la parte CSR (los demás solo pueden tener arcos en el delta)
+    public int getNodosCsr() {
+        return nodosCsr;
+    }
+
+    // ---- Recorrido directo sobre los arrays (sin iteradores ni objetos) ----
+    // Uso típico:
+    //   for (int e = grafo.inicioCsr(v); e < grafo.finCsr(v); e++) { grafo.vecinoCsr(e); grafo.calidadCsr(e); }
+    //   for (int d = grafo.primerDelta(v); d >= 0; d = grafo.siguienteDelta(d)) { grafo.vecinoDelta(d); ... }
+    // Una calidad 0 indica arco eliminado y debe saltarse. Requieren cerrojoLectura() tomado.
+
+    public int inicioCsr(int nodo) {
+        return nodo < nodosCsr ? offsets[nodo] : 0;
+    }
+
+    public int finCsr(int nodo) {
+        return nodo < nodosCsr ? offsets[nodo + 1] : 0;
+    }
+
+    public int vecinoCsr(int posicion) {
+        return vecinos[posicion];
+    }
+
+    public int calidadCsr(int posicion) {
+        return calidades[posicion];
+    }
+
+    public int primerDelta(int nodo) {
+        return nodo < deltaCabeza.length ? deltaCabeza[nodo] : SIN_DELTA;
+    }
+
+    public int siguienteDelta(int posicion) {
+        return deltaSiguiente[posicion];
+    }
+
+    public int vecinoDelta(int posicion) {
+        return deltaDestino[posicion];
+    }
+
+    public int calidadDelta(int posicion) {
+        return deltaCalidad[posicion];
+    }
+
+    // Número de amigos vivos del nodo
+    public int grado(int nodo) {
+        cerrojo.readLock().lock();
+        try {
+            return contarGrado(nodo);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private int contarGrado(int nodo) {
+        int grado = 0;
+        for (int e = inicioCsr(nodo), fin = finCsr(nodo); e < fin; e++) {
+            if (calidades[e] > 0) {
+                grado++;
+            }
+        }
+        for (int d = primerDelta(nodo); d != SIN_DELTA; d = deltaSiguiente[d]) {
+            if (deltaCalidad[d] > 0) {
+                grado++;
+            }
+        }
+        return grado;
+    }
+
+    // Calidad del arco origen->destino o 0 si no existe
+    public int calidad(int origen, int destino) {
+        cerrojo.readLock().lock();
+        try {
+            for (int e = inicioCsr(origen), fin = finCsr(origen); e < fin; e++) {
+                if (vecinos[e] == destino) {
+                    return calidades[e];
+                }
+            }
+            for (int d = primerDelta(origen); d != SIN_DELTA; d = deltaSiguiente[d]) {
+                if (deltaDestino[d] == destino) {
+                    return deltaCalidad[d];
+                }
+            }
+            return 0;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // Agrega el arco origen->destino o actualiza su calidad si ya existía
+    public void agregarArco(int origen, int destino, int calidad) {
+        cerrojo.writeLock().lock();
+        try {
+            if (calidad < 1 || calidad > 5) {
+                throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
+            }
+            validarNodo(origen);
+            validarNodo(destino);
+            version++;
+
+            int anterior = actualizarCalidad(origen, destino, (byte) calidad);
+            if (anterior >= 0) {
+                if (anterior == 0) {
+                    avisarAgregado(origen, destino);
+                }
+                return;
+            }
+
+            asegurarNodo(origen);
+            if (deltaCantidad == deltaDestino.length) {
+                int nuevaCapacidad = deltaDestino.length << 1;
+                deltaSiguiente = Arrays.copyOf(deltaSiguiente, nuevaCapacidad);
+                deltaDestino = Arrays.copyOf(deltaDestino, nuevaCapacidad);
+                deltaCalidad = Arrays.copyOf(deltaCalidad, nuevaCapacidad);
+            }
+            int posicion = deltaCantidad++;
+            deltaDestino[posicion] = destino;
+            deltaCalidad[posicion] = (byte) calidad;
+            deltaSiguiente[posicion] = deltaCabeza[origen];
+            deltaCabeza[origen] = posicion;
+            arcos++;
+
+            if (deltaCantidad >= Math.max(UMBRAL_MINIMO_DELTA, vecinos.length >> 3)) {
+                compactar();
+            }
+            avisarAgregado(origen, destino);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Agrega la amistad en ambos sentidos, de forma atómica para los lectores
+    public void agregarAmistad(int a, int b, int calidad) {
+        cerrojo.writeLock().lock();
+        try {
+            agregarArco(a, b, calidad);
+            agregarArco(b, a, calidad);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Marca el arco origen->destino como eliminado. Devuelve true si existía
+    public boolean eliminarArco(int origen, int destino) {
+        cerrojo.writeLock().lock();
+        try {
+            if (origen < 0 || destino < 0) {
+                return false;
+            }
+            if (actualizarCalidad(origen, destino, (byte) 0) > 0) {
+                version++;
+                for (ObservadorArcos observador : observadores) {
+                    observador.arcoEliminado(origen, destino);
+                }
+                return true;
+            }
+            return false;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Elimina la amistad en ambos sentidos, de forma atómica para los lectores. Devuelve true si existía
+    public boolean eliminarAmistad(int a, int b) {
+        cerrojo.writeLock().lock();
+        try {
+            boolean ida = eliminarArco(a, b);
+            boolean vuelta = eliminarArco(b, a);
+            return ida || vuelta;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Elimina todas las amistades del nodo (sus arcos y los arcos de vuelta de sus amigos).
+    // Un arco que llegue al nodo sin arco de ida no se encuentra sin recorrer todo el grafo y se deja.
+    // Devuelve la cantidad de amigos que tenía
+    public int eliminarArcosDe(int nodo) {
+        cerrojo.writeLock().lock();
+        try {
+            if (nodo < 0) {
+                return 0;
+            }
+            int[] amigos = new int[contarGrado(nodo)];
+            int cantidad = 0;
+            for (int e = inicioCsr(nodo), fin = finCsr(nodo); e < fin; e++) {
+                if (calidades[e] > 0) {
+                    amigos[cantidad++] = vecinos[e];
+                }
+            }
+            for (int d = primerDelta(nodo); d != SIN_DELTA; d = deltaSiguiente[d]) {
+                if (deltaCalidad[d] > 0) {
+                    amigos[cantidad++] = deltaDestino[d];
+                }
+            }
+            for (int amigo : amigos) {
+                eliminarAmistad(nodo, amigo);
+            }
+            return cantidad;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private void avisarAgregado(int origen, int destino) {
+        for (ObservadorArcos observador : observadores) {
+            observador.arcoAgregado(origen, destino);
+        }
+    }
+
+    // Cambia la calidad de un arco existente (0 = eliminar).
+    // Devuelve la calidad anterior o -1 si el arco no existe
+    private int actualizarCalidad(int origen, int destino, byte calidad) {
+        int anterior;
+        for (int e = inicioCsr(origen), fin = finCsr(origen); e < fin; e++) {
+            if (vecinos[e] == destino) {
+                anterior = calidades[e];
+                ajustarConteo(calidades[e], calidad);
+                calidades[e] = calidad;
+                return anterior;
+            }
+        }
+        for (int d = primerDelta(origen); d != SIN_DELTA; d = deltaSiguiente[d]) {
+            if (deltaDestino[d] == destino) {
+                anterior = deltaCalidad[d];
+                ajustarConteo(deltaCalidad[d], calidad);
+                deltaCalidad[d] = calidad;
+                return anterior;
+            }
+        }
+        return -1;
+    }
+
+    private void ajustarConteo(byte anterior, byte nueva) {
+        if (anterior == 0 && nueva > 0) {
+            arcos++;
+        } else if (anterior > 0 && nueva == 0) {
+            arcos--;
+        }
+    }
+
+    // Reconstruye el CSR incorporando el delta y descartando los arcos eliminados. O(V + E)
+    public void compactar() {
+        cerrojo.writeLock().lock();
+        try {
+            int nodos = Math.max(nodosCsr, Math.min(deltaCabeza.length, internador.tamano()));
+            int[] nuevosOffsets = new int[nodos + 1];
+
+            // Primera pasada: grado vivo de cada nodo
+            for (int v = 0; v < nodos; v++) {
+                nuevosOffsets[v + 1] = nuevosOffsets[v] + contarGrado(v);
+            }
+
+            int total = nuevosOffsets[nodos];
+            int[] nuevosVecinos = new int[total];
+            byte[] nuevasCalidades = new byte[total];
+            int posicion;
+
+            // Segunda pasada: copia los arcos vivos (primero los del CSR, después los del delta)
+            for (int v = 0; v < nodos; v++) {
+                posicion = nuevosOffsets[v];
+                for (int e = inicioCsr(v), fin = finCsr(v); e < fin; e++) {
+                    if (calidades[e] > 0) {
+                        nuevosVecinos[posicion] = vecinos[e];
+                        nuevasCalidades[posicion++] = calidades[e];
+                    }
+                }
+                copiarDeltaInvertido(primerDelta(v), nuevosVecinos, nuevasCalidades, nuevosOffsets[v + 1]);
+            }
+
+            offsets = nuevosOffsets;
+            vecinos = nuevosVecinos;
+            calidades = nuevasCalidades;
+            nodosCsr = nodos;
+            arcos = total;
+
+            Arrays.fill(deltaCabeza, SIN_DELTA);
+            deltaCantidad = 0;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // La lista delta está en orden inverso de inserción; se copia de atrás hacia adelante
+    // para que el CSR conserve el orden en que se crearon las amistades
+    private void copiarDeltaInvertido(int cabeza, int[] destinoVecinos, byte[] destinoCalidades, int fin) {
+        int posicion = fin - 1;
+        for (int d = cabeza; d != SIN_DELTA; d = deltaSiguiente[d]) {
+            if (deltaCalidad[d] > 0) {
+                destinoVecinos[posicion] = deltaDestino[d];
+                destinoCalidades[posicion--] = deltaCalidad[d];
+            }
+        }
+    }
+
+    // Devuelve los amigos del nodo como mapa id -> calidad (para serialización y compatibilidad con Perfil)
+    public HashMap<String, Integer> amigosComoMapa(int nodo) {
+        cerrojo.readLock().lock();
+        try {
+            HashMap<String, Integer> amigos = new HashMap<>();
+            for (int e = inicioCsr(nodo), fin = finCsr(nodo); e < fin; e++) {
+                if (calidades[e] > 0) {
+                    amigos.put(internador.idDe(vecinos[e]), (int) calidades[e]);
+                }
+            }
+            for (int d = primerDelta(nodo); d != SIN_DELTA; d = deltaSiguiente[d]) {
+                if (deltaCalidad[d] > 0) {
+                    amigos.put(internador.idDe(deltaDestino[d]), (int) deltaCalidad[d]);
+                }
+            }
+            return amigos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void validarNodo(int nodo) {
+        if (nodo < 0 || nodo >= internador.tamano()) {
+            throw new IllegalArgumentException("Índice " + nodo + " no es válido (0.." + (internador.tamano() - 1) + ")");
+        }
+    }
+
+    private void asegurarNodo(int nodo) {
+        if (nodo >= deltaCabeza.length) {
+            int anterior = deltaCabeza.length;
+            int nuevaCapacidad = Math.max(nodo + 1, anterior + (anterior >> 1) + 1);
+            deltaCabeza = Arrays.copyOf(deltaCabeza, nuevaCapacidad);
+            Arrays.fill(deltaCabeza, anterior, nuevaCapacidad, SIN_DELTA);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package estructurasparcial4.Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias en nanosegundos con cubetas log-lineales (la idea de HdrHistogram con 4 bits
+// de precisión):
+// - Los valores 0..15 tienen una cubeta cada uno. De ahí en más cada potencia de 2 se parte en 16
+//   cubetas iguales, así el error relativo de un percentil es a lo sumo 1/16 (6,25 %) para cualquier
+//   valor entre 1 ns y Long.MAX_VALUE, con 960 contadores fijos (sin memoria por registro).
+// - registrar() es un incremento atómico de la cubeta y una suma en un LongAdder: decenas de
+//   nanosegundos, sin cerrojos ni asignaciones, así puede quedar activo en producción.
+// - Los percentiles devuelven el mayor valor de la cubeta (como highestEquivalentValue de HdrHistogram).
+// Las lecturas recorren los contadores mientras otros hilos registran: cada contador es exacto, pero el
+// resumen no es una foto atómica del histograma.
+public class HistogramaLatencias {
+
+    private static final int BITS_SUBCUBETA = 4;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = SUBCUBETAS + (63 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+    private final LongAdder sumaNanos = new LongAdder();
+
+    public void registrar(long nanos) {
+        registrar(nanos, 1);
+    }
+
+    // Registra 'cantidad' ocurrencias del mismo valor (para mediciones por muestreo)
+    public void registrar(long nanos, long cantidad) {
+        long valor = Math.max(0, nanos);
+        cuentas.addAndGet(cubetaDe(valor), cantidad);
+        sumaNanos.add(valor * cantidad);
+    }
+
+    static int cubetaDe(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int magnitud = 63 - Long.numberOfLeadingZeros(valor); // >= BITS_SUBCUBETA
+        int corrimiento = magnitud - BITS_SUBCUBETA;
+        int subcubeta = (int) (valor >>> corrimiento) & (SUBCUBETAS - 1);
+        return SUBCUBETAS + corrimiento * SUBCUBETAS + subcubeta;
+    }
+
+    // Mayor valor que cae en la cubeta
+    static long maximoDeCubeta(int cubeta) {
+        if (cubeta < SUBCUBETAS) {
+            return cubeta;
+        }
+        int corrimiento = (cubeta - SUBCUBETAS) / SUBCUBETAS;
+        long subcubeta = (cubeta - SUBCUBETAS) % SUBCUBETAS;
+        long minimo = (SUBCUBETAS + subcubeta) << corrimiento;
+        return minimo + (1L << corrimiento) - 1;
+    }
+
+    public long cantidad() {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cuentas.get(i);
+        }
+        return total;
+    }
+
+    public double promedio() {
+        long total = cantidad();
+        return total == 0 ? 0 : (double) sumaNanos.sum() / total;
+    }
+
+    public long maximo() {
+        for (int i = CUBETAS - 1; i >= 0; i--) {
+            if (cuentas.get(i) > 0) {
+                return maximoDeCubeta(i);
+            }
+        }
+        return 0;
+    }
+
+    // Valor por debajo del cual (o igual) queda el 'percentil' % de los registros; 0 si no hay registros
+    public long percentil(double percentil) {
+        if (percentil < 0 || percentil > 100) {
+            throw new IllegalArgumentException("El percentil debe estar entre 0 y 100: " + percentil);
+        }
+        long[] copia = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cuentas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return maximoDeCubeta(i);
+            }
+        }
+        return maximo();
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cuentas.set(i, 0);
+        }
+        sumaNanos.reset();
+    }
+}
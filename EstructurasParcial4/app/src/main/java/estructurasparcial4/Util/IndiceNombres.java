@@ -0,0 +1,318 @@
+package estructurasparcial4.Util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+// Índice de prefijos sobre los nombres de los perfiles para búsquedas mientras se escribe (typeahead).
+// Los nombres se normalizan sin tildes, en minúsculas y con un solo espacio entre palabras, y se indexa
+// el comienzo de cada palabra: "José María Pérez" se encuentra con "jose", "mar" o "perez".
+// Igual que GrafoAmistades, tiene una parte compacta y una mutable:
+// - Base: arrays ordenados por clave (nombre normalizado desde el comienzo de una palabra). Cada entrada
+//   es una referencia al nombre, el índice del perfil y el desplazamiento de la palabra, sin copiar
+//   texto. Un prefijo se ubica con búsqueda binaria. Las bajas se marcan en borradosBase.
+// - Delta: un TreeSet con las altas desde la última compactación.
+// Cuando el delta o las bajas crecen demasiado se funden en una base nueva (costo amortizado O(1) por alta).
+// No es seguro para varios hilos: MotorSugerencias lo modifica con el cerrojo de escritura del grafo y
+// lo consulta con el de lectura.
+public class IndiceNombres {
+
+    private static final int UMBRAL_MINIMO_DELTA = 1024;
+
+    private String[] nombrePorIndice = new String[16]; // nombre normalizado; null = sin perfil
+    private int cantidad;
+
+    // Base ordenada
+    private String[] nombresBase = new String[0];
+    private int[] indicesBase = new int[0];
+    private short[] desplazamientosBase = new short[0];
+    private BitSet borradosBase = new BitSet();
+    private int cantidadBorrados;
+
+    private final TreeSet<Entrada> delta = new TreeSet<>();
+
+    // Forma en la que se guardan y se buscan los nombres. Se llama en cada alta, así que evita
+    // expresiones regulares y solo descompone (NFD) los textos que tienen caracteres no ASCII
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String descompuesto = texto;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0x7F) {
+                descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder resultado = new StringBuilder(descompuesto.length());
+        boolean espacioPendiente = false;
+        char caracter;
+        int tipo;
+        for (int i = 0; i < descompuesto.length(); i++) {
+            caracter = descompuesto.charAt(i);
+            if (Character.isWhitespace(caracter)) {
+                espacioPendiente = resultado.length() > 0;
+                continue;
+            }
+            tipo = Character.getType(caracter);
+            if (tipo == Character.NON_SPACING_MARK || tipo == Character.COMBINING_SPACING_MARK
+                    || tipo == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (espacioPendiente) {
+                resultado.append(' ');
+                espacioPendiente = false;
+            }
+            resultado.append(Character.toLowerCase(caracter));
+        }
+        return resultado.toString();
+    }
+
+    // Indexa el nombre del perfil con ese índice; si ya estaba, lo reemplaza
+    public void agregar(int indice, String nombre) {
+        if (indice < 0) {
+            throw new IllegalArgumentException("Índice no puede ser negativo: " + indice);
+        }
+        quitar(indice);
+        String normalizado = normalizar(nombre);
+        if (indice >= nombrePorIndice.length) {
+            nombrePorIndice = Arrays.copyOf(nombrePorIndice,
+                    Math.max(indice + 1, nombrePorIndice.length + (nombrePorIndice.length >> 1)));
+        }
+        nombrePorIndice[indice] = normalizado;
+        cantidad++;
+        for (int desplazamiento = 0; desplazamiento >= 0; desplazamiento = siguientePalabra(normalizado, desplazamiento)) {
+            delta.add(new Entrada(normalizado, indice, desplazamiento));
+        }
+        compactarSiEsNecesario();
+    }
+
+    // Devuelve true si el índice estaba indexado
+    public boolean quitar(int indice) {
+        String normalizado = nombreNormalizado(indice);
+        if (normalizado == null) {
+            return false;
+        }
+        Entrada entrada;
+        int posicion;
+        for (int desplazamiento = 0; desplazamiento >= 0; desplazamiento = siguientePalabra(normalizado, desplazamiento)) {
+            entrada = new Entrada(normalizado, indice, desplazamiento);
+            if (!delta.remove(entrada)) {
+                posicion = buscarEnBase(entrada);
+                if (posicion >= 0 && !borradosBase.get(posicion)) {
+                    borradosBase.set(posicion);
+                    cantidadBorrados++;
+                }
+            }
+        }
+        nombrePorIndice[indice] = null;
+        cantidad--;
+        compactarSiEsNecesario();
+        return true;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    // Nombre normalizado del índice, o null si no está indexado
+    public String nombreNormalizado(int indice) {
+        return indice >= 0 && indice < nombrePorIndice.length ? nombrePorIndice[indice] : null;
+    }
+
+    // true si alguna palabra del nombre del índice empieza con el prefijo (ya normalizado)
+    public boolean coincide(int indice, String prefijoNormalizado) {
+        String normalizado = nombreNormalizado(indice);
+        if (normalizado == null) {
+            return false;
+        }
+        for (int desplazamiento = 0; desplazamiento >= 0; desplazamiento = siguientePalabra(normalizado, desplazamiento)) {
+            if (normalizado.startsWith(prefijoNormalizado, desplazamiento)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Llama a 'accion' con los índices cuyas palabras empiezan con el prefijo (ya normalizado), en orden
+    // alfabético de la palabra encontrada, hasta que 'accion' devuelva false. Un perfil con dos palabras
+    // que coinciden aparece dos veces
+    public void recorrerPrefijo(String prefijoNormalizado, IntPredicate accion) {
+        if (prefijoNormalizado == null || prefijoNormalizado.isEmpty()) {
+            throw new IllegalArgumentException("Prefijo no puede ser nulo o vacío");
+        }
+        int posicion = primeraPosicionBase(prefijoNormalizado);
+        Iterator<Entrada> enDelta = delta.tailSet(new Entrada(prefijoNormalizado, -1, 0), true).iterator();
+        Entrada siguienteDelta = siguienteCoincidencia(enDelta, prefijoNormalizado);
+        boolean quedaBase;
+        boolean tomarBase;
+        while (true) {
+            while (posicion < nombresBase.length && borradosBase.get(posicion)) {
+                posicion++;
+            }
+            quedaBase = posicion < nombresBase.length
+                    && nombresBase[posicion].startsWith(prefijoNormalizado, desplazamientosBase[posicion]);
+            if (!quedaBase && siguienteDelta == null) {
+                return;
+            }
+            tomarBase = quedaBase && (siguienteDelta == null || comparar(nombresBase[posicion], desplazamientosBase[posicion],
+                    indicesBase[posicion], siguienteDelta.nombre, siguienteDelta.desplazamiento, siguienteDelta.indice) < 0);
+            if (tomarBase) {
+                if (!accion.test(indicesBase[posicion++])) {
+                    return;
+                }
+            } else {
+                if (!accion.test(siguienteDelta.indice)) {
+                    return;
+                }
+                siguienteDelta = siguienteCoincidencia(enDelta, prefijoNormalizado);
+            }
+        }
+    }
+
+    private static Entrada siguienteCoincidencia(Iterator<Entrada> iterador, String prefijo) {
+        if (!iterador.hasNext()) {
+            return null;
+        }
+        Entrada entrada = iterador.next();
+        return entrada.nombre.startsWith(prefijo, entrada.desplazamiento) ? entrada : null;
+    }
+
+    // Comienzo de la palabra que sigue a 'desde', o -1 si no hay más (o no cabe en un short)
+    private static int siguientePalabra(String normalizado, int desde) {
+        int espacio = normalizado.indexOf(' ', desde);
+        return espacio < 0 || espacio + 1 > Short.MAX_VALUE ? -1 : espacio + 1;
+    }
+
+    // Primera posición de la base cuya clave es >= prefijo
+    private int primeraPosicionBase(String prefijo) {
+        int izq = 0;
+        int der = nombresBase.length;
+        int medio;
+        while (izq < der) {
+            medio = (izq + der) >>> 1;
+            if (compararTexto(nombresBase[medio], desplazamientosBase[medio], prefijo, 0) < 0) {
+                izq = medio + 1;
+            } else {
+                der = medio;
+            }
+        }
+        return izq;
+    }
+
+    private int buscarEnBase(Entrada entrada) {
+        int izq = 0;
+        int der = nombresBase.length - 1;
+        int medio;
+        int comparacion;
+        while (izq <= der) {
+            medio = (izq + der) >>> 1;
+            comparacion = comparar(nombresBase[medio], desplazamientosBase[medio], indicesBase[medio], entrada.nombre,
+                    entrada.desplazamiento, entrada.indice);
+            if (comparacion < 0) {
+                izq = medio + 1;
+            } else if (comparacion > 0) {
+                der = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    private void compactarSiEsNecesario() {
+        int tamanoBase = nombresBase.length;
+        if (delta.size() > Math.max(UMBRAL_MINIMO_DELTA, tamanoBase >> 3)
+                || cantidadBorrados > Math.max(UMBRAL_MINIMO_DELTA, tamanoBase >> 2)) {
+            compactar();
+        }
+    }
+
+    // Funde la base (sin las bajas) con el delta en una base nueva
+    private void compactar() {
+        int total = nombresBase.length - cantidadBorrados + delta.size();
+        String[] nombres = new String[total];
+        int[] indices = new int[total];
+        short[] desplazamientos = new short[total];
+        int destino = 0;
+        int posicion = 0;
+        Iterator<Entrada> enDelta = delta.iterator();
+        Entrada siguienteDelta = enDelta.hasNext() ? enDelta.next() : null;
+        while (destino < total) {
+            while (posicion < nombresBase.length && borradosBase.get(posicion)) {
+                posicion++;
+            }
+            if (posicion < nombresBase.length && (siguienteDelta == null || comparar(nombresBase[posicion],
+                    desplazamientosBase[posicion], indicesBase[posicion], siguienteDelta.nombre,
+                    siguienteDelta.desplazamiento, siguienteDelta.indice) < 0)) {
+                nombres[destino] = nombresBase[posicion];
+                indices[destino] = indicesBase[posicion];
+                desplazamientos[destino++] = desplazamientosBase[posicion++];
+            } else {
+                nombres[destino] = siguienteDelta.nombre;
+                indices[destino] = siguienteDelta.indice;
+                desplazamientos[destino++] = (short) siguienteDelta.desplazamiento;
+                siguienteDelta = enDelta.hasNext() ? enDelta.next() : null;
+            }
+        }
+        nombresBase = nombres;
+        indicesBase = indices;
+        desplazamientosBase = desplazamientos;
+        borradosBase = new BitSet(total);
+        cantidadBorrados = 0;
+        delta.clear();
+    }
+
+    // Orden de las claves: texto desde el desplazamiento, luego índice y luego desplazamiento
+    private static int comparar(String nombreA, int desplazamientoA, int indiceA, String nombreB, int desplazamientoB,
+            int indiceB) {
+        int comparacion = compararTexto(nombreA, desplazamientoA, nombreB, desplazamientoB);
+        if (comparacion != 0) {
+            return comparacion;
+        }
+        comparacion = Integer.compare(indiceA, indiceB);
+        return comparacion != 0 ? comparacion : Integer.compare(desplazamientoA, desplazamientoB);
+    }
+
+    private static int compararTexto(String a, int desdeA, String b, int desdeB) {
+        int largoA = a.length() - desdeA;
+        int largoB = b.length() - desdeB;
+        int limite = Math.min(largoA, largoB);
+        char caracterA;
+        char caracterB;
+        for (int i = 0; i < limite; i++) {
+            caracterA = a.charAt(desdeA + i);
+            caracterB = b.charAt(desdeB + i);
+            if (caracterA != caracterB) {
+                return caracterA - caracterB;
+            }
+        }
+        return largoA - largoB;
+    }
+
+    @Override
+    public String toString() {
+        return "IndiceNombres{perfiles=" + cantidad + ", base=" + (nombresBase.length - cantidadBorrados) + ", delta="
+                + delta.size() + "}";
+    }
+
+    private static final class Entrada implements Comparable<Entrada> {
+        private final String nombre;
+        private final int indice;
+        private final int desplazamiento;
+
+        private Entrada(String nombre, int indice, int desplazamiento) {
+            this.nombre = nombre;
+            this.indice = indice;
+            this.desplazamiento = desplazamiento;
+        }
+
+        @Override
+        public int compareTo(Entrada otra) {
+            return comparar(nombre, desplazamiento, indice, otra.nombre, otra.desplazamiento, otra.indice);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package estructurasparcial4.Util;
+
+import estructurasparcial4.Model.FiltroPerfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+// Índices secundarios de los perfiles por edad y por género, sobre los índices del InternadorIds:
+// - Edad: una cubeta (array de índices) por año de edad. posicionEnCubeta[i] permite quitar un perfil
+//   en O(1) moviendo el último de la cubeta a su lugar. Las edades mayores que EDAD_MAXIMA_CUBETA
+//   comparten la última cubeta y se comprueban una por una.
+// - Género: cada género distinto recibe un código (diccionario) y un BitSet con los índices que lo
+//   tienen. generoPorIndice[i] guarda el código + 1 (0 = sin perfil).
+// - edadPorIndice y generoPorIndice responden cumple(indice, filtro) en O(1), que es lo que usa el motor
+//   para filtrar candidatos de sugerencias sin tocar los objetos Perfil.
+// recorrer() empieza por el índice con menos perfiles para el filtro (las cubetas del rango o el bitmap
+// del género), así el costo depende de las coincidencias y no del tamaño de la red.
+// No es seguro para varios hilos: MotorSugerencias lo modifica con el cerrojo de escritura del grafo y
+// lo consulta con el de lectura.
+public class IndicePerfiles {
+
+    public static final int EDAD_MAXIMA_CUBETA = 150;
+    private static final int SIN_PERFIL = 0;
+
+    private short[] edadPorIndice = new short[16];
+    private short[] generoPorIndice = new short[16];
+    private int[] posicionEnCubeta = new int[16];
+
+    private final int[][] cubetas = new int[EDAD_MAXIMA_CUBETA + 1][];
+    private final int[] tamanoCubeta = new int[EDAD_MAXIMA_CUBETA + 1];
+
+    private final HashMap<String, Integer> codigoPorGenero = new HashMap<>();
+    private final List<String> generos = new ArrayList<>();
+    private final List<BitSet> bitmapPorGenero = new ArrayList<>();
+    private int[] perfilesPorGenero = new int[4];
+
+    private int cantidad;
+
+    public IndicePerfiles() {
+        for (int edad = 0; edad <= EDAD_MAXIMA_CUBETA; edad++) {
+            cubetas[edad] = new int[4];
+        }
+    }
+
+    // Indexa el perfil con ese índice; si ya estaba, reemplaza sus atributos
+    public void agregar(int indice, int edad, String genero) {
+        if (indice < 0) {
+            throw new IllegalArgumentException("Índice no puede ser negativo: " + indice);
+        }
+        quitar(indice);
+        asegurarCapacidad(indice + 1);
+
+        int codigo = codigoDe(FiltroPerfiles.normalizarGenero(genero));
+        edadPorIndice[indice] = (short) Math.max(0, Math.min(edad, Short.MAX_VALUE));
+        generoPorIndice[indice] = (short) (codigo + 1);
+        bitmapPorGenero.get(codigo).set(indice);
+        perfilesPorGenero[codigo]++;
+
+        int cubeta = cubetaDe(edadPorIndice[indice]);
+        if (tamanoCubeta[cubeta] == cubetas[cubeta].length) {
+            cubetas[cubeta] = Arrays.copyOf(cubetas[cubeta], cubetas[cubeta].length << 1);
+        }
+        posicionEnCubeta[indice] = tamanoCubeta[cubeta];
+        cubetas[cubeta][tamanoCubeta[cubeta]++] = indice;
+        cantidad++;
+    }
+
+    // Devuelve true si el índice estaba indexado
+    public boolean quitar(int indice) {
+        if (!contiene(indice)) {
+            return false;
+        }
+        int codigo = generoPorIndice[indice] - 1;
+        bitmapPorGenero.get(codigo).clear(indice);
+        perfilesPorGenero[codigo]--;
+
+        int cubeta = cubetaDe(edadPorIndice[indice]);
+        int posicion = posicionEnCubeta[indice];
+        int ultimo = cubetas[cubeta][--tamanoCubeta[cubeta]];
+        cubetas[cubeta][posicion] = ultimo;
+        posicionEnCubeta[ultimo] = posicion;
+
+        generoPorIndice[indice] = SIN_PERFIL;
+        cantidad--;
+        return true;
+    }
+
+    public boolean contiene(int indice) {
+        return indice >= 0 && indice < generoPorIndice.length && generoPorIndice[indice] != SIN_PERFIL;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    // Géneros distintos vistos hasta ahora (normalizados), en orden de aparición
+    public List<String> generos() {
+        return Collections.unmodifiableList(generos);
+    }
+
+    // O(1): edad y código de género del índice contra el filtro
+    public boolean cumple(int indice, FiltroPerfiles filtro) {
+        return cumple(indice, filtro, filtro.getGenero() == null ? -1 : codigoExistente(filtro.getGenero()));
+    }
+
+    // codigo < 0 con género en el filtro: ese género no tiene perfiles
+    private boolean cumple(int indice, FiltroPerfiles filtro, int codigo) {
+        if (!contiene(indice)) {
+            return false;
+        }
+        int edad = edadPorIndice[indice];
+        if (edad < filtro.getEdadMinima() || edad > filtro.getEdadMaxima()) {
+            return false;
+        }
+        return filtro.getGenero() == null || generoPorIndice[indice] - 1 == codigo;
+    }
+
+    public int contar(FiltroPerfiles filtro) {
+        int[] total = new int[1];
+        recorrer(filtro, indice -> total[0]++);
+        return total[0];
+    }
+
+    // Llama a 'accion' con cada índice que cumple el filtro (sin orden particular)
+    public void recorrer(FiltroPerfiles filtro, IntConsumer accion) {
+        if (filtro == null) {
+            throw new IllegalArgumentException("Filtro no puede ser nulo");
+        }
+        int desde = cubetaDe(filtro.getEdadMinima());
+        int hasta = cubetaDe(filtro.getEdadMaxima());
+        int porEdad = 0;
+        for (int cubeta = desde; cubeta <= hasta; cubeta++) {
+            porEdad += tamanoCubeta[cubeta];
+        }
+
+        int codigo = -1;
+        if (filtro.getGenero() != null) {
+            codigo = codigoExistente(filtro.getGenero());
+            if (codigo < 0) {
+                return;
+            }
+            if (perfilesPorGenero[codigo] < porEdad) {
+                BitSet bitmap = bitmapPorGenero.get(codigo);
+                for (int indice = bitmap.nextSetBit(0); indice >= 0; indice = bitmap.nextSetBit(indice + 1)) {
+                    if (cumple(indice, filtro, codigo)) {
+                        accion.accept(indice);
+                    }
+                }
+                return;
+            }
+        }
+        int[] contenido;
+        int indice;
+        for (int cubeta = desde; cubeta <= hasta; cubeta++) {
+            contenido = cubetas[cubeta];
+            for (int i = 0, fin = tamanoCubeta[cubeta]; i < fin; i++) {
+                indice = contenido[i];
+                // Solo las cubetas de los extremos (y la compartida) pueden tener edades fuera del rango
+                if ((cubeta > desde && cubeta < hasta && cubeta < EDAD_MAXIMA_CUBETA && filtro.getGenero() == null)
+                        || cumple(indice, filtro, codigo)) {
+                    accion.accept(indice);
+                }
+            }
+        }
+    }
+
+    // Llama a 'accion' con los primeros 'limite' índices >= desde que cumplen el filtro, en orden creciente
+    // (páginas en orden de alta). Devuelve cuántos encontró. Elige el recorrido más barato:
+    // - con género, si su bitmap es el más chico: nextSetBit() desde 'desde', y se corta al llenar la página
+    // - si las coincidencias por edad son muchas (m² > limite * perfiles), recorrer los índices en orden
+    //   llena la página en unos limite * perfiles / m pasos
+    // - si no, se juntan las coincidencias >= desde de las cubetas del rango y se ordenan: O(m log m)
+    public int recorrerDesde(FiltroPerfiles filtro, int desde, int limite, IntConsumer accion) {
+        if (filtro == null) {
+            throw new IllegalArgumentException("Filtro no puede ser nulo");
+        }
+        if (desde < 0 || limite <= 0) {
+            throw new IllegalArgumentException("El inicio no puede ser negativo y el límite debe ser mayor que 0");
+        }
+        int primeraCubeta = cubetaDe(filtro.getEdadMinima());
+        int ultimaCubeta = cubetaDe(filtro.getEdadMaxima());
+        long porEdad = 0;
+        for (int cubeta = primeraCubeta; cubeta <= ultimaCubeta; cubeta++) {
+            porEdad += tamanoCubeta[cubeta];
+        }
+        int codigo = -1;
+        if (filtro.getGenero() != null) {
+            codigo = codigoExistente(filtro.getGenero());
+            if (codigo < 0) {
+                return 0;
+            }
+        }
+        int encontrados = 0;
+        if (codigo >= 0 && perfilesPorGenero[codigo] <= porEdad) {
+            BitSet bitmap = bitmapPorGenero.get(codigo);
+            for (int indice = bitmap.nextSetBit(desde); indice >= 0 && encontrados < limite;
+                    indice = bitmap.nextSetBit(indice + 1)) {
+                if (cumple(indice, filtro, codigo)) {
+                    accion.accept(indice);
+                    encontrados++;
+                }
+            }
+            return encontrados;
+        }
+        if (porEdad * porEdad > (long) limite * cantidad) {
+            for (int indice = desde, fin = generoPorIndice.length; indice < fin && encontrados < limite; indice++) {
+                if (cumple(indice, filtro, codigo)) {
+                    accion.accept(indice);
+                    encontrados++;
+                }
+            }
+            return encontrados;
+        }
+        int[] coincidencias = new int[(int) Math.min(porEdad, 1024)];
+        int cantidadCoincidencias = 0;
+        int[] contenido;
+        int indice;
+        for (int cubeta = primeraCubeta; cubeta <= ultimaCubeta; cubeta++) {
+            contenido = cubetas[cubeta];
+            for (int i = 0, fin = tamanoCubeta[cubeta]; i < fin; i++) {
+                indice = contenido[i];
+                if (indice >= desde && cumple(indice, filtro, codigo)) {
+                    if (cantidadCoincidencias == coincidencias.length) {
+                        coincidencias = Arrays.copyOf(coincidencias, Math.max(16, coincidencias.length << 1));
+                    }
+                    coincidencias[cantidadCoincidencias++] = indice;
+                }
+            }
+        }
+        Arrays.sort(coincidencias, 0, cantidadCoincidencias);
+        for (; encontrados < limite && encontrados < cantidadCoincidencias; encontrados++) {
+            accion.accept(coincidencias[encontrados]);
+        }
+        return encontrados;
+    }
+
+    private static int cubetaDe(int edad) {
+        return Math.max(0, Math.min(edad, EDAD_MAXIMA_CUBETA));
+    }
+
+    private int codigoExistente(String generoNormalizado) {
+        Integer codigo = codigoPorGenero.get(generoNormalizado);
+        return codigo == null ? -1 : codigo;
+    }
+
+    private int codigoDe(String generoNormalizado) {
+        Integer codigo = codigoPorGenero.get(generoNormalizado);
+        if (codigo != null) {
+            return codigo;
+        }
+        if (generos.size() >= Short.MAX_VALUE - 1) {
+            throw new IllegalStateException("Demasiados géneros distintos para el índice");
+        }
+        int nuevo = generos.size();
+        codigoPorGenero.put(generoNormalizado, nuevo);
+        generos.add(generoNormalizado);
+        bitmapPorGenero.add(new BitSet());
+        if (nuevo == perfilesPorGenero.length) {
+            perfilesPorGenero = Arrays.copyOf(perfilesPorGenero, nuevo << 1);
+        }
+        return nuevo;
+    }
+
+    private void asegurarCapacidad(int capacidadMinima) {
+        if (capacidadMinima > generoPorIndice.length) {
+            int capacidad = Math.max(capacidadMinima, generoPorIndice.length + (generoPorIndice.length >> 1));
+            edadPorIndice = Arrays.copyOf(edadPorIndice, capacidad);
+            generoPorIndice = Arrays.copyOf(generoPorIndice, capacidad);
+            posicionEnCubeta = Arrays.copyOf(posicionEnCubeta, capacidad);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IndicePerfiles{perfiles=" + cantidad + ", generos=" + generos + "}";
+    }
+}
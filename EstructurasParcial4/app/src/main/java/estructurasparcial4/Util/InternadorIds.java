@@ -0,0 +1,169 @@
+package estructurasparcial4.Util;
+
+import java.util.Arrays;
+
+// Tabla que asigna a cada id de usuario un índice entero denso (0, 1, 2, ...) y permite
+// volver del índice al id. Reemplaza al par HashMap<String, Integer> / HashMap<Integer, String>:
+// - id -> índice: tabla hash de direccionamiento abierto (sondeo lineal) sobre un int[],
+//   sin Integer ni nodos de entrada por usuario.
+// - índice -> id: un String[] plano, ya que los índices son consecutivos.
+// La misma instancia se comparte entre la red (WeightedQuickUnionUF) y el resto del motor,
+// así cada id se resuelve a entero una sola vez por petición.
+// Concurrencia: las lecturas (indiceDe, idDe, tamano) no bloquean y pueden correr en paralelo con
+// agregar(); las altas se serializan con el monitor de la instancia. Una alta se publica al escribir
+// el campo volatile 'cantidad': un lector solo acepta ranuras con índice menor a la cantidad que leyó,
+// y los arrays nuevos (crecimiento, rehash) se publican completos por sus campos volatile.
+public class InternadorIds {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int VACIO = 0; // Las ranuras guardan índice + 1; 0 significa libre
+
+    private volatile int[] ranuras; // ranuras[h] = índice + 1 del id cuyo hash cae en h (tamaño potencia de 2)
+    private volatile String[] ids; // ids[i] = id del usuario con índice i
+    private volatile int cantidad; // número de ids registrados
+    private int umbralCrecimiento; // cantidad a partir de la cual se duplica la tabla (factor de carga 0.5)
+
+    public InternadorIds() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    public InternadorIds(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("Capacidad debe ser mayor que 0");
+        }
+        int tamanoTabla = Integer.highestOneBit(Math.max(capacidad * 2 - 1, 1)) << 1;
+        ranuras = new int[tamanoTabla];
+        ids = new String[capacidad];
+        umbralCrecimiento = tamanoTabla >> 1;
+        cantidad = 0;
+    }
+
+    // Reconstruye el internador a partir de sus arrays internos tal cual se guardaron (SnapshotBinario),
+    // sin volver a calcular los hash de los ids
+    public InternadorIds(String[] ids, int cantidad, int[] ranuras) {
+        if (ids == null || ranuras == null) {
+            throw new IllegalArgumentException("Arrays del internador no pueden ser nulos");
+        }
+        if (cantidad < 0 || cantidad > ids.length) {
+            throw new IllegalArgumentException("Cantidad de ids inválida: " + cantidad);
+        }
+        if (Integer.bitCount(ranuras.length) != 1 || cantidad > ranuras.length >> 1) {
+            throw new IllegalArgumentException("Tabla de ranuras inválida: " + ranuras.length);
+        }
+        this.ids = ids;
+        this.cantidad = cantidad;
+        this.ranuras = ranuras;
+        this.umbralCrecimiento = ranuras.length >> 1;
+    }
+
+    public int tamano() {
+        return cantidad;
+    }
+
+    // Acceso a la tabla de ranuras para persistirla (SnapshotBinario)
+    public int tamanoTabla() {
+        return ranuras.length;
+    }
+
+    public int ranura(int posicion) {
+        return ranuras[posicion];
+    }
+
+    public boolean contiene(String id) {
+        return indiceDe(id) >= 0;
+    }
+
+    // Devuelve el índice del id o -1 si no está registrado
+    public int indiceDe(String id) {
+        if (id == null) {
+            return -1;
+        }
+        // 'cantidad' se lee primero: todo lo que se publicó antes queda visible en ids y ranuras
+        int publicados = cantidad;
+        String[] idsActuales = ids;
+        int[] tabla = ranuras;
+        int mascara = tabla.length - 1;
+        int posicion = dispersar(id.hashCode()) & mascara;
+        int ranura;
+        while ((ranura = tabla[posicion]) != VACIO) {
+            // Una ranura recién ocupada por otro hilo puede verse antes que su id: se ignora
+            if (ranura <= publicados && idsActuales[ranura - 1].equals(id)) {
+                return ranura - 1;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        return -1;
+    }
+
+    // Devuelve el id asociado al índice
+    public String idDe(int indice) {
+        int publicados = cantidad;
+        if (indice < 0 || indice >= publicados) {
+            throw new IllegalArgumentException("Índice " + indice + " no es válido (0.." + (publicados - 1) + ")");
+        }
+        return ids[indice];
+    }
+
+    // Registra el id si no existía y devuelve su índice (el existente o el nuevo)
+    public int agregar(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID no puede ser nulo");
+        }
+        // Camino rápido sin bloquear para ids ya registrados
+        int existente = indiceDe(id);
+        if (existente >= 0) {
+            return existente;
+        }
+        return agregarBloqueando(id);
+    }
+
+    private synchronized int agregarBloqueando(String id) {
+        int[] tabla = ranuras;
+        int mascara = tabla.length - 1;
+        int posicion = dispersar(id.hashCode()) & mascara;
+        int ranura;
+        while ((ranura = tabla[posicion]) != VACIO) {
+            if (ids[ranura - 1].equals(id)) {
+                return ranura - 1;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+
+        int indice = cantidad;
+        if (indice == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+        }
+        ids[indice] = id;
+        tabla[posicion] = indice + 1;
+        cantidad = indice + 1; // publica el id nuevo
+
+        if (cantidad > umbralCrecimiento) {
+            rehash();
+        }
+        return indice;
+    }
+
+    // Duplica la tabla de ranuras y reubica los índices existentes. Los lectores siguen usando la
+    // tabla vieja (que tiene todos los ids publicados) hasta que se publica la nueva
+    private void rehash() {
+        int[] nuevas = new int[ranuras.length << 1];
+        int mascara = nuevas.length - 1;
+        int posicion;
+        String[] idsActuales = ids;
+        for (int i = 0; i < cantidad; i++) {
+            posicion = dispersar(idsActuales[i].hashCode()) & mascara;
+            while (nuevas[posicion] != VACIO) {
+                posicion = (posicion + 1) & mascara;
+            }
+            nuevas[posicion] = i + 1;
+        }
+        ranuras = nuevas;
+        umbralCrecimiento = nuevas.length >> 1;
+    }
+
+    // Mezcla los bits del hashCode de String para repartir mejor los ids consecutivos ("001", "002", ...)
+    private static int dispersar(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,188 @@
+package estructurasparcial4.Util;
+
+import estructurasparcial4.Model.ResumenLatencias;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas de producción de la red social:
+// - Por cada Operacion medida: un HistogramaLatencias y un LongAdder de errores. La cantidad de
+//   operaciones es la cantidad de registros del histograma (no hace falta otro contador). Quien mide
+//   toma System.nanoTime() al empezar y llama a registrar() o registrarError() al terminar; registrar
+//   cuesta unos 20 ns más las dos lecturas del reloj, sin cerrojos, así puede quedar siempre activo.
+// - find() dura unos pocos nanosegundos, así que se mide por muestreo: registrarMuestra() cuenta la
+//   medición con un peso (una de cada N llamadas, con peso N).
+// - Indicadores: valores que se calculan al leerlos (perfiles, componentes, aristas, aciertos de la
+//   cache...), registrados como LongSupplier por quien arma la aplicación. Así esta clase no depende
+//   de los servicios que mide.
+// Se publica por JMX como MXBean con registrarEnJmx() y se vuelca como texto con volcar().
+public class Metricas implements MetricasMXBean, AutoCloseable {
+
+    public enum Operacion {
+        SUGERIR_AMIGOS, GENERAR_AMISTAD, CREAR_PERFIL, GUARDAR_PERFILES, FIND
+    }
+
+    public static final String NOMBRE_JMX = "estructurasparcial4:type=Metricas";
+
+    private static final Operacion[] OPERACIONES = Operacion.values();
+
+    private final HistogramaLatencias[] latencias = new HistogramaLatencias[OPERACIONES.length];
+    private final LongAdder[] errores = new LongAdder[OPERACIONES.length];
+    private final Map<String, LongSupplier> indicadores = new LinkedHashMap<>();
+
+    private ObjectName nombreRegistrado;
+
+    public Metricas() {
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            latencias[i] = new HistogramaLatencias();
+            errores[i] = new LongAdder();
+        }
+    }
+
+    // Operación que terminó bien y empezó en inicioNanos (System.nanoTime())
+    public void registrar(Operacion operacion, long inicioNanos) {
+        int i = operacion.ordinal();
+        latencias[i].registrar(System.nanoTime() - inicioNanos);
+    }
+
+    // Operación que terminó con una excepción (o devolvió error) y empezó en inicioNanos
+    public void registrarError(Operacion operacion, long inicioNanos) {
+        int i = operacion.ordinal();
+        latencias[i].registrar(System.nanoTime() - inicioNanos);
+        errores[i].increment();
+    }
+
+    // Una medición que representa 'peso' operaciones (muestreo de operaciones muy frecuentes)
+    public void registrarMuestra(Operacion operacion, long inicioNanos, int peso) {
+        int i = operacion.ordinal();
+        latencias[i].registrar(System.nanoTime() - inicioNanos, peso);
+    }
+
+    // Agrega (o reemplaza) un indicador que se calcula cada vez que se lee
+    public synchronized void registrarIndicador(String nombre, LongSupplier fuente) {
+        if (nombre == null || nombre.trim().isEmpty() || fuente == null) {
+            throw new IllegalArgumentException("Nombre y fuente del indicador no pueden ser nulos o vacíos");
+        }
+        indicadores.put(nombre, fuente);
+    }
+
+    public long getOperaciones(Operacion operacion) {
+        return latencias[operacion.ordinal()].cantidad();
+    }
+
+    public long getErrores(Operacion operacion) {
+        return errores[operacion.ordinal()].sum();
+    }
+
+    public HistogramaLatencias getLatencias(Operacion operacion) {
+        return latencias[operacion.ordinal()];
+    }
+
+    public ResumenLatencias resumen(Operacion operacion) {
+        int i = operacion.ordinal();
+        HistogramaLatencias histograma = latencias[i];
+        return new ResumenLatencias(operacion.name(), histograma.cantidad(), errores[i].sum(), histograma.promedio(),
+                histograma.percentil(50), histograma.percentil(90), histograma.percentil(99),
+                histograma.percentil(99.9), histograma.maximo());
+    }
+
+    // Un indicador que falla al calcularse se informa como -1 en vez de romper la lectura de los demás
+    @Override
+    public synchronized Map<String, Long> getIndicadores() {
+        Map<String, Long> valores = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> indicador : indicadores.entrySet()) {
+            long valor;
+            try {
+                valor = indicador.getValue().getAsLong();
+            } catch (RuntimeException e) {
+                valor = -1;
+            }
+            valores.put(indicador.getKey(), valor);
+        }
+        return valores;
+    }
+
+    @Override
+    public List<ResumenLatencias> getOperaciones() {
+        List<ResumenLatencias> resumenes = new ArrayList<>(OPERACIONES.length);
+        for (Operacion operacion : OPERACIONES) {
+            resumenes.add(resumen(operacion));
+        }
+        return resumenes;
+    }
+
+    @Override
+    public String volcar() {
+        StringBuilder texto = new StringBuilder("-".repeat(10)).append('\n');
+        for (Map.Entry<String, Long> indicador : getIndicadores().entrySet()) {
+            texto.append(indicador.getKey()).append(": ").append(indicador.getValue()).append('\n');
+        }
+        for (ResumenLatencias resumen : getOperaciones()) {
+            texto.append(resumen).append('\n');
+        }
+        return texto.toString();
+    }
+
+    @Override
+    public void reiniciar() {
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            latencias[i].reiniciar();
+            errores[i].reset();
+        }
+    }
+
+    // Publica las métricas en el MBeanServer de la plataforma. Si ya había otras registradas con el
+    // mismo nombre (por ejemplo, de una instancia anterior en la misma JVM) se reemplazan
+    public synchronized void registrarEnJmx() {
+        if (nombreRegistrado != null) {
+            return;
+        }
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (servidor.isRegistered(nombre)) {
+                servidor.unregisterMBean(nombre);
+            }
+            servidor.registerMBean(this, nombre);
+            nombreRegistrado = nombre;
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron publicar las métricas por JMX: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized boolean isRegistradoEnJmx() {
+        return nombreRegistrado != null;
+    }
+
+    // Retira las métricas del MBeanServer (si esta instancia las había publicado)
+    @Override
+    public synchronized void close() {
+        if (nombreRegistrado == null) {
+            return;
+        }
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (servidor.isRegistered(nombreRegistrado)) {
+                servidor.unregisterMBean(nombreRegistrado);
+            }
+        } catch (JMException e) {
+            // Ya no estaba registrado o lo retiró otro: no hay nada más que hacer
+        } finally {
+            nombreRegistrado = null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Metricas{indicadores=" + indicadores.keySet() + "}";
+    }
+}
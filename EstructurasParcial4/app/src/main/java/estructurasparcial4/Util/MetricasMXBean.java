@@ -0,0 +1,22 @@
+package estructurasparcial4.Util;
+
+import estructurasparcial4.Model.ResumenLatencias;
+
+import java.util.List;
+import java.util.Map;
+
+// Lo que Metricas publica por JMX (jconsole, VisualVM, etc.) bajo el nombre Metricas.NOMBRE_JMX
+public interface MetricasMXBean {
+
+    // Valores actuales de los indicadores (perfiles, componentes, aristas, cache, ...)
+    Map<String, Long> getIndicadores();
+
+    // Un resumen por operación medida
+    List<ResumenLatencias> getOperaciones();
+
+    // Texto con todos los indicadores y resúmenes, para pegar en un reporte
+    String volcar();
+
+    // Pone en cero los contadores y los histogramas (los indicadores no se tocan)
+    void reiniciar();
+}
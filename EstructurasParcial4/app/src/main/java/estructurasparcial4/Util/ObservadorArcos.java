@@ -0,0 +1,12 @@
+package estructurasparcial4.Util;
+
+// Interfaz que permite a otras estructuras enterarse de los arcos que aparecen o desaparecen en un
+// GrafoAmistades (por ejemplo, ConectividadDinamica). Se llama con el cerrojo de escritura del grafo
+// tomado: el observador puede leer el grafo, pero no modificarlo.
+public interface ObservadorArcos {
+
+    // El arco origen->destino pasó a existir (nuevo o con calidad > 0 después de eliminado)
+    void arcoAgregado(int origen, int destino);
+
+    void arcoEliminado(int origen, int destino);
+}
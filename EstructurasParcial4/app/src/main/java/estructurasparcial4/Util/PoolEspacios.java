@@ -0,0 +1,73 @@
+package estructurasparcial4.Util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Presta espacios de trabajo reutilizables (buffers indexados por nodo, búsquedas en anchura) con un
+// máximo de instancias. Reemplaza a ThreadLocal: con hilos virtuales (uno por petición en ServidorApi)
+// cada hilo es nuevo, así que ThreadLocal armaba un buffer de O(usuarios) por petición.
+// - Las instancias se crean a demanda hasta 'maximo' (por defecto, la cantidad de procesadores, que es
+//   cuántas pueden estar calculando a la vez). Después, tomar() espera a que se devuelva una; un hilo
+//   virtual que espera no ocupa un hilo del sistema.
+// - Tomar y devolver no asignan memoria, así el camino de las sugerencias sigue sin crear objetos.
+// Quien toma un espacio debe devolverlo en un finally, y debe tomarlo ANTES del cerrojo del grafo: si
+// esperara un espacio con el cerrojo de lectura tomado, el dueño del espacio podría estar esperando ese
+// cerrojo detrás de un escritor encolado (y el escritor, a que se suelte la lectura).
+public class PoolEspacios<T> {
+
+    private final Supplier<T> fabrica;
+    private final int maximo;
+    private final ArrayBlockingQueue<T> libres;
+    private final AtomicInteger creados = new AtomicInteger();
+
+    public PoolEspacios(Supplier<T> fabrica) {
+        this(fabrica, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PoolEspacios(Supplier<T> fabrica, int maximo) {
+        if (fabrica == null) {
+            throw new IllegalArgumentException("La fábrica de espacios no puede ser nula");
+        }
+        if (maximo < 1) {
+            throw new IllegalArgumentException("El máximo de espacios debe ser mayor que 0");
+        }
+        this.fabrica = fabrica;
+        this.maximo = maximo;
+        this.libres = new ArrayBlockingQueue<>(maximo);
+    }
+
+    public T tomar() {
+        T espacio = libres.poll();
+        if (espacio != null) {
+            return espacio;
+        }
+        int actuales;
+        while ((actuales = creados.get()) < maximo) {
+            if (creados.compareAndSet(actuales, actuales + 1)) {
+                return fabrica.get();
+            }
+        }
+        try {
+            return libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras esperaba un espacio de trabajo", e);
+        }
+    }
+
+    public void devolver(T espacio) {
+        if (espacio != null) {
+            libres.offer(espacio);
+        }
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    // Instancias creadas hasta ahora (nunca más que getMaximo())
+    public int getCreados() {
+        return creados.get();
+    }
+}
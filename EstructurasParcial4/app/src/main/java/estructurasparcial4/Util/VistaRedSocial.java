@@ -0,0 +1,307 @@
+package estructurasparcial4.Util;
+
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.SingleGraph;
+import org.graphstream.ui.view.Viewer;
+import org.graphstream.ui.view.ViewerListener;
+import org.graphstream.ui.view.ViewerPipe;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+// Visualización por niveles de detalle para redes grandes, donde visualizarRedSocial() (un nodo por
+// usuario y una arista por amistad) deja de ser usable:
+// - Resumen: cada una de las MAX_SUPERNODOS componentes más grandes del union-find es un súper nodo con
+//   tamaño proporcional al logaritmo de su cantidad de usuarios. El resto de las componentes se junta en
+//   un solo nodo "resto". Las componentes no tienen amistades entre sí, así que el resumen no tiene aristas.
+// - Al hacer clic en un súper nodo se expande: se muestran hasta maxMiembros usuarios de la componente y
+//   las amistades entre ellos. Si son más de maxAristas, se muestra una muestra de ese tamaño aproximado
+//   (cada amistad entra según un hash de sus extremos, así expandir dos veces muestra lo mismo).
+//   Al hacer clic en un usuario expandido, su componente vuelve a ser un súper nodo.
+// Los ids de los nodos de la vista son "c" + raíz para los súper nodos y "u" + índice para los usuarios.
+// La red no es segura para varios hilos: se lee con el monitor bajo el que se modifica (en App, el
+// almacenamiento), y el grafo de amistades con su cerrojo de lectura.
+public class VistaRedSocial {
+
+    private static final int MAX_SUPERNODOS = 200;
+    private static final int MAX_MIEMBROS_POR_DEFECTO = 2000;
+    private static final int MAX_ARISTAS_POR_DEFECTO = 5000;
+    private static final long PAUSA_EVENTOS_MS = 50;
+    private static final String ID_RESTO = "resto";
+
+    private static final String HOJA_ESTILO =
+            "node { fill-color: lightblue; size: 12px; text-size: 12px; text-alignment: under; }" +
+            "node.componente { fill-color: steelblue; size-mode: dyn-size; text-alignment: center; text-color: white; }" +
+            "node.resto { fill-color: lightgray; size: 40px; text-alignment: center; }" +
+            "edge { fill-color: gray; size: 1px; }";
+
+    private final WeightedQuickUnionUF red;
+    private final GrafoAmistades grafo;
+    private final Object monitorRed;
+    private final SingleGraph vista;
+
+    private int maxMiembros = MAX_MIEMBROS_POR_DEFECTO;
+    private int maxAristas = MAX_ARISTAS_POR_DEFECTO;
+
+    // raíz de cada componente expandida -> índices de los usuarios mostrados
+    private final HashMap<Integer, int[]> expandidas = new HashMap<>();
+    // usuario mostrado -> raíz de la componente con la que se expandió
+    private final HashMap<Integer, Integer> raizDeMostrado = new HashMap<>();
+
+    private volatile boolean abierta;
+
+    public VistaRedSocial(WeightedQuickUnionUF red, GrafoAmistades grafo, Object monitorRed) {
+        if (red == null || grafo == null || monitorRed == null) {
+            throw new IllegalArgumentException("Red, grafo y monitor no pueden ser nulos");
+        }
+        this.red = red;
+        this.grafo = grafo;
+        this.monitorRed = monitorRed;
+        this.vista = new SingleGraph("Red Social (resumen)");
+        vista.setAttribute("ui.stylesheet", HOJA_ESTILO);
+    }
+
+    public SingleGraph getVista() {
+        return vista;
+    }
+
+    public void setMaxMiembros(int maxMiembros) {
+        if (maxMiembros < 1) {
+            throw new IllegalArgumentException("El máximo de miembros debe ser mayor que 0");
+        }
+        this.maxMiembros = maxMiembros;
+    }
+
+    public void setMaxAristas(int maxAristas) {
+        if (maxAristas < 0) {
+            throw new IllegalArgumentException("El máximo de aristas no puede ser negativo");
+        }
+        this.maxAristas = maxAristas;
+    }
+
+    // Arma el resumen de súper nodos (descarta lo que hubiera expandido). Devuelve la cantidad de súper nodos
+    public int construirResumen() {
+        vista.clear();
+        vista.setAttribute("ui.stylesheet", HOJA_ESTILO);
+        expandidas.clear();
+        raizDeMostrado.clear();
+        int[] raices;
+        int[] tamanos;
+        int usuarios;
+        int componentes;
+        synchronized (monitorRed) {
+            usuarios = red.getCantidadUsuarios() - red.getCantidadEliminados();
+            componentes = red.getCount();
+            raices = componentes == 0 ? new int[0] : red.componentesMasGrandes(MAX_SUPERNODOS);
+            tamanos = new int[raices.length];
+            for (int i = 0; i < raices.length; i++) {
+                tamanos[i] = red.tamanoComponente(raices[i]);
+            }
+        }
+        int usuariosEnSuperNodos = 0;
+        for (int i = 0; i < raices.length; i++) {
+            agregarSuperNodo(raices[i], tamanos[i]);
+            usuariosEnSuperNodos += tamanos[i];
+        }
+        if (componentes > raices.length) {
+            Node resto = vista.addNode(ID_RESTO);
+            resto.setAttribute("ui.class", "resto");
+            resto.setAttribute("ui.label", (componentes - raices.length) + " componentes más ("
+                    + (usuarios - usuariosEnSuperNodos) + " usuarios)");
+        }
+        return raices.length;
+    }
+
+    // Reemplaza el súper nodo de la componente por sus usuarios (hasta maxMiembros) y sus amistades.
+    // Devuelve la cantidad de aristas agregadas
+    public int expandir(int raiz) {
+        if (expandidas.containsKey(raiz) || vista.getNode(idSuperNodo(raiz)) == null) {
+            return 0;
+        }
+        List<Integer> miembros = new ArrayList<>();
+        synchronized (monitorRed) {
+            red.recorrerComponente(raiz, maxMiembros, miembros::add);
+        }
+        int[] mostrados = new int[miembros.size()];
+        BitSet esMostrado = new BitSet();
+        Node nodo;
+        for (int i = 0; i < mostrados.length; i++) {
+            mostrados[i] = miembros.get(i);
+            esMostrado.set(mostrados[i]);
+            raizDeMostrado.put(mostrados[i], raiz);
+            nodo = vista.addNode(idUsuario(mostrados[i]));
+            nodo.setAttribute("ui.label", grafo.getInternador().idDe(mostrados[i]));
+        }
+        vista.removeNode(idSuperNodo(raiz));
+        expandidas.put(raiz, mostrados);
+        return agregarAristas(mostrados, esMostrado);
+    }
+
+    // Vuelve a mostrar la componente como súper nodo
+    public void colapsar(int raiz) {
+        int[] mostrados = expandidas.remove(raiz);
+        if (mostrados == null) {
+            return;
+        }
+        for (int indice : mostrados) {
+            vista.removeNode(idUsuario(indice));
+            raizDeMostrado.remove(indice);
+        }
+        int tamano;
+        synchronized (monitorRed) {
+            tamano = red.tamanoComponente(raiz);
+        }
+        agregarSuperNodo(raiz, tamano);
+    }
+
+    public boolean estaExpandida(int raiz) {
+        return expandidas.containsKey(raiz);
+    }
+
+    // Abre la ventana con el resumen. Los clics se atienden en un hilo propio hasta que se cierra la ventana
+    public void mostrar() {
+        construirResumen();
+        Viewer visor = vista.display();
+        visor.setCloseFramePolicy(Viewer.CloseFramePolicy.CLOSE_VIEWER);
+        ViewerPipe tuberia = visor.newViewerPipe();
+        tuberia.addViewerListener(new OyenteClics());
+        tuberia.addSink(vista);
+        abierta = true;
+        Thread hilo = new Thread(() -> {
+            while (abierta) {
+                tuberia.pump();
+                try {
+                    Thread.sleep(PAUSA_EVENTOS_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }, "vista-red-social");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    // Clic en un súper nodo: expandir. Clic en un usuario: colapsar su componente
+    public void alternar(String idNodo) {
+        if (idNodo == null || idNodo.length() < 2) {
+            return;
+        }
+        try {
+            int numero = Integer.parseInt(idNodo.substring(1));
+            if (idNodo.charAt(0) == 'c') {
+                expandir(numero);
+            } else if (idNodo.charAt(0) == 'u' && raizDeMostrado.containsKey(numero)) {
+                colapsar(raizDeMostrado.get(numero));
+            }
+        } catch (NumberFormatException e) {
+            // "resto" u otro nodo que no se expande
+        }
+    }
+
+    private void agregarSuperNodo(int raiz, int tamano) {
+        Node nodo = vista.addNode(idSuperNodo(raiz));
+        nodo.setAttribute("ui.class", "componente");
+        nodo.setAttribute("ui.size", 15 + 15 * Math.log10(tamano));
+        nodo.setAttribute("ui.label", grafo.getInternador().idDe(raiz) + " (" + tamano + ")");
+    }
+
+    // Amistades entre usuarios mostrados (una por par). Primero se cuentan y, si pasan de maxAristas,
+    // cada una entra con probabilidad maxAristas / total según el hash de sus extremos
+    private int agregarAristas(int[] mostrados, BitSet esMostrado) {
+        grafo.cerrojoLectura().lock();
+        try {
+            long total = 0;
+            for (int indice : mostrados) {
+                total += contarAristasHacia(indice, esMostrado);
+            }
+            long umbral = total <= maxAristas ? Long.MAX_VALUE : (long) ((double) maxAristas / total * Integer.MAX_VALUE);
+            int agregadas = 0;
+            int vecino;
+            for (int indice : mostrados) {
+                for (int e = grafo.inicioCsr(indice), fin = grafo.finCsr(indice); e < fin; e++) {
+                    vecino = grafo.vecinoCsr(e);
+                    if (grafo.calidadCsr(e) > 0 && indice < vecino && esMostrado.get(vecino)
+                            && entraEnMuestra(indice, vecino, umbral)) {
+                        agregarArista(indice, vecino, grafo.calidadCsr(e));
+                        agregadas++;
+                    }
+                }
+                for (int d = grafo.primerDelta(indice); d >= 0; d = grafo.siguienteDelta(d)) {
+                    vecino = grafo.vecinoDelta(d);
+                    if (grafo.calidadDelta(d) > 0 && indice < vecino && esMostrado.get(vecino)
+                            && entraEnMuestra(indice, vecino, umbral)) {
+                        agregarArista(indice, vecino, grafo.calidadDelta(d));
+                        agregadas++;
+                    }
+                }
+            }
+            return agregadas;
+        } finally {
+            grafo.cerrojoLectura().unlock();
+        }
+    }
+
+    // Requiere el cerrojo de lectura
+    private int contarAristasHacia(int indice, BitSet esMostrado) {
+        int aristas = 0;
+        int vecino;
+        for (int e = grafo.inicioCsr(indice), fin = grafo.finCsr(indice); e < fin; e++) {
+            vecino = grafo.vecinoCsr(e);
+            if (grafo.calidadCsr(e) > 0 && indice < vecino && esMostrado.get(vecino)) {
+                aristas++;
+            }
+        }
+        for (int d = grafo.primerDelta(indice); d >= 0; d = grafo.siguienteDelta(d)) {
+            vecino = grafo.vecinoDelta(d);
+            if (grafo.calidadDelta(d) > 0 && indice < vecino && esMostrado.get(vecino)) {
+                aristas++;
+            }
+        }
+        return aristas;
+    }
+
+    private static boolean entraEnMuestra(int a, int b, long umbral) {
+        if (umbral == Long.MAX_VALUE) {
+            return true;
+        }
+        long h = (((long) a << 32) | (b & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return ((h ^ (h >>> 31)) & Integer.MAX_VALUE) < umbral;
+    }
+
+    private void agregarArista(int a, int b, int calidad) {
+        // Una amistad guardada en ambos sentidos solo se recorre desde el menor índice
+        String id = "e" + a + "_" + b;
+        if (vista.getEdge(id) == null) {
+            Edge arista = vista.addEdge(id, idUsuario(a), idUsuario(b), false);
+            arista.setAttribute("calidad", calidad);
+        }
+    }
+
+    private static String idSuperNodo(int raiz) {
+        return "c" + raiz;
+    }
+
+    private static String idUsuario(int indice) {
+        return "u" + indice;
+    }
+
+    private final class OyenteClics implements ViewerListener {
+        @Override
+        public void viewClosed(String nombreVista) {
+            abierta = false;
+        }
+
+        @Override
+        public void buttonPushed(String id) {
+        }
+
+        @Override
+        public void buttonReleased(String id) {
+            alternar(id);
+        }
+    }
+}
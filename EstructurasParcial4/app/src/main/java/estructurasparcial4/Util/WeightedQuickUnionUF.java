@@ -1,7 +1,11 @@
 package estructurasparcial4.Util;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
 
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
@@ -16,30 +20,109 @@ public class WeightedQuickUnionUF {
 
     private int[] parent; // parent[i] = padre de i
     private int[] size; // size[i] = tamaño del árbol raíz i
-    private int count; // número de componentes
-
-    // Para el mapa bidireccional que nos permite mapear usuarios a índices y
-    // viceversa
-    private final HashMap<String, Integer> usuarioAindex; // Mapa de usuario a índice
-    private final HashMap<Integer, String> indiceAusuario; // Mapa de índice a usuario
+    private int count; // número de componentes (sin contar a los usuarios eliminados)
+    // Un usuario cuyo perfil se eliminó queda como raíz con size 0: no cuenta como componente, indiceDe()
+    // no lo encuentra y no se puede unir. Se marca al reconstruir las componentes (reconstruirComponentes()
+    // con etiqueta -1) y vuelve a contar si se registra otra vez. size[] se guarda en el SnapshotBinario,
+    // así que la marca sobrevive al snapshot
+    private int eliminados;
+    // siguiente[i] = otro miembro de la componente de i. Los miembros de cada componente forman una
+    // lista circular; union() junta dos listas intercambiando siguiente[] de las raíces (O(1)), así
+    // listar una componente cuesta O(tamaño de la componente) y no un recorrido de toda la red
+    private int[] siguiente;
+
+    // Tabla que nos permite mapear usuarios a índices y viceversa. Puede compartirse
+    // con el resto del motor para que cada id se resuelva a entero una sola vez
+    private final InternadorIds internador;
 
     private int siguienteIndice; // Siguiente índice del usuario a añadir
 
+    private static final int CAPACIDAD_INICIAL = 16;
+    // Con más usuarios que esto toString() muestra un resumen en lugar de los arrays completos
+    private static final int MAXIMO_USUARIOS_EN_TEXTO = 64;
+
+    // find() cuesta unos pocos nanosegundos: con métricas se mide una de cada (MASCARA_MUESTREO_FIND + 1)
+    // llamadas y cuenta por todas. Sin métricas (null) solo se paga la comparación
+    private static final int MASCARA_MUESTREO_FIND = 63;
+    private Metricas metricas;
+    private long llamadasFind;
+
+    public WeightedQuickUnionUF() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    // La capacidad es solo una pista para evitar redimensionamientos al arrancar
+    // (por ejemplo, la cantidad de perfiles leídos). Los arrays crecen solos cuando se llenan.
+    // No se preinicializan: cada posición se inicializa en agregarUsuario()
     public WeightedQuickUnionUF(int capacity) {
+        this(capacity, new InternadorIds(capacity));
+    }
+
+    // Permite compartir el internador de ids con otras estructuras del motor
+    public WeightedQuickUnionUF(int capacity, InternadorIds internador) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("Capacidad debe ser mayor que 0");
         }
+        if (internador == null) {
+            throw new IllegalArgumentException("Internador no puede ser nulo");
+        }
         count = 0;
         parent = new int[capacity];
         size = new int[capacity];
-        usuarioAindex = new HashMap<>();
-        indiceAusuario = new HashMap<>();
+        siguiente = new int[capacity];
+        this.internador = internador;
         siguienteIndice = 0;
+        sincronizarConInternador();
+    }
 
-        // Preinicializa los arrays
-        for (int i = 0; i < capacity; i++) {
-            parent[i] = i;
-            size[i] = 1;
+    // Reconstruye la red desde los arrays guardados en un SnapshotBinario. Los arrays pasan a ser de la red;
+    // los ids del internador posteriores a 'usuarios' se registran como componentes unitarias
+    public WeightedQuickUnionUF(InternadorIds internador, int[] parent, int[] size, int usuarios, int count) {
+        if (internador == null) {
+            throw new IllegalArgumentException("Internador no puede ser nulo");
+        }
+        if (parent == null || size == null || parent.length != size.length || parent.length == 0) {
+            throw new IllegalArgumentException("Arrays parent y size inválidos");
+        }
+        if (usuarios < 0 || usuarios > parent.length || usuarios > internador.tamano()) {
+            throw new IllegalArgumentException("Cantidad de usuarios inválida: " + usuarios);
+        }
+        if (count < 0 || count > usuarios) {
+            throw new IllegalArgumentException("Cantidad de componentes inválida: " + count);
+        }
+        for (int i = 0; i < usuarios; i++) {
+            if (parent[i] < 0 || parent[i] >= usuarios) {
+                throw new IllegalArgumentException("Padre inválido para el índice " + i);
+            }
+        }
+        this.parent = parent;
+        this.size = size;
+        this.siguiente = new int[parent.length];
+        this.count = count;
+        this.internador = internador;
+        this.siguienteIndice = usuarios;
+        for (int i = 0; i < usuarios; i++) {
+            if (esEliminado(i)) {
+                eliminados++;
+            }
+        }
+        reconstruirListasDeMiembros();
+        sincronizarConInternador();
+    }
+
+    // El snapshot no guarda siguiente[]: cada raíz empieza como lista de un elemento y cada otro nodo se
+    // inserta a continuación de su raíz
+    private void reconstruirListasDeMiembros() {
+        for (int i = 0; i < siguienteIndice; i++) {
+            siguiente[i] = i;
+        }
+        int raiz;
+        for (int i = 0; i < siguienteIndice; i++) {
+            raiz = find(i);
+            if (raiz != i) {
+                siguiente[i] = siguiente[raiz];
+                siguiente[raiz] = i;
+            }
         }
     }
 
@@ -47,8 +130,112 @@ public class WeightedQuickUnionUF {
         return count;
     }
 
-    // El método find se le añadio path compression para optimizar las búsquedas
+    // Usuarios registrados cuyo perfil se eliminó (ver reconstruirComponentes())
+    public int getCantidadEliminados() {
+        return eliminados;
+    }
+
+    private boolean esEliminado(int userIndex) {
+        return parent[userIndex] == userIndex && size[userIndex] == 0;
+    }
+
+    public int getCapacidad() {
+        return parent.length;
+    }
+
+    public InternadorIds getInternador() {
+        return internador;
+    }
+
+    // Usuarios registrados en la red (los índices válidos son 0 .. getCantidadUsuarios() - 1)
+    public int getCantidadUsuarios() {
+        return siguienteIndice;
+    }
+
+    // Acceso directo a parent[] y size[] sin path compression (para persistir la red)
+    public int padreDe(int userIndex) {
+        validate(userIndex);
+        return parent[userIndex];
+    }
+
+    public int tamanoDe(int userIndex) {
+        validate(userIndex);
+        return size[userIndex];
+    }
+
+    // Devuelve el índice del usuario o -1 si no está registrado en la red o fue eliminado. Es solo
+    // lectura: un id que otra estructura agregó al internador compartido cuenta recién cuando se registra
+    // en la red (agregarUsuario() o sincronizarConInternador())
+    public int indiceDe(String userId) {
+        int indice = internador.indiceDe(userId);
+        return indice >= 0 && indice < siguienteIndice && !esEliminado(indice) ? indice : -1;
+    }
+
+    public String idDe(int userIndex) {
+        validate(userIndex);
+        return internador.idDe(userIndex);
+    }
+
+    // Registra como componentes unitarias los ids que otras estructuras hayan
+    // agregado al internador compartido y que la red aún no conoce
+    public void sincronizarConInternador() {
+        int total = internador.tamano();
+        if (total <= siguienteIndice) {
+            return;
+        }
+        while (total > parent.length) {
+            crecer();
+        }
+        for (int i = siguienteIndice; i < total; i++) {
+            parent[i] = i;
+            size[i] = 1;
+            siguiente[i] = i;
+        }
+        count += total - siguienteIndice;
+        siguienteIndice = total;
+    }
+
+    // Garantiza espacio para al menos 'capacidadMinima' usuarios sin más redimensionamientos
+    public void asegurarCapacidad(int capacidadMinima) {
+        if (capacidadMinima > parent.length) {
+            redimensionar(capacidadMinima);
+        }
+    }
+
+    // Crecimiento geométrico (x1.5) para que agregarUsuario() sea O(1) amortizado
+    private void crecer() {
+        int nuevaCapacidad = parent.length + (parent.length >> 1) + 1;
+        if (nuevaCapacidad < 0 || nuevaCapacidad > Integer.MAX_VALUE - 8) {
+            if (parent.length >= Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Capacidad máxima alcanzada");
+            }
+            nuevaCapacidad = Integer.MAX_VALUE - 8;
+        }
+        redimensionar(nuevaCapacidad);
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+        parent = Arrays.copyOf(parent, nuevaCapacidad);
+        size = Arrays.copyOf(size, nuevaCapacidad);
+        siguiente = Arrays.copyOf(siguiente, nuevaCapacidad);
+    }
+
+    public void setMetricas(Metricas metricas) {
+        this.metricas = metricas;
+    }
+
     public int find(int userIndex) {
+        if (metricas != null && (++llamadasFind & MASCARA_MUESTREO_FIND) == 0) {
+            long inicio = System.nanoTime();
+            int raiz = buscarRaiz(userIndex);
+            metricas.registrarMuestra(Metricas.Operacion.FIND, inicio, MASCARA_MUESTREO_FIND + 1);
+            return raiz;
+        }
+        return buscarRaiz(userIndex);
+    }
+
+    // El método find se le añadio path compression para optimizar las búsquedas
+    private int buscarRaiz(int userIndex) {
         validate(userIndex);
 
         // Primera pasada que encuentra la raíz
@@ -87,6 +274,9 @@ public class WeightedQuickUnionUF {
         int rootQ = find(q);
         if (rootP == rootQ)
             return;
+        if (size[rootP] == 0 || size[rootQ] == 0) {
+            throw new IllegalArgumentException("No se puede unir un usuario eliminado de la red");
+        }
 
         if (size[rootP] < size[rootQ]) {
             parent[rootP] = rootQ;
@@ -95,55 +285,203 @@ public class WeightedQuickUnionUF {
             parent[rootQ] = rootP;
             size[rootP] += size[rootQ];
         }
+        // Une las dos listas circulares de miembros
+        int siguienteP = siguiente[rootP];
+        siguiente[rootP] = siguiente[rootQ];
+        siguiente[rootQ] = siguienteP;
         count--;
     }
 
-    // Método que registra a un perfil a la red social en ambos mapas de manera bidireccional
-    public void agregarUsuario(String userId) {
-        if (usuarioAindex.containsKey(userId)) {
-            return; 
+    // Reemplaza las componentes por las de 'etiquetas' (misma etiqueta = misma componente; una por usuario
+    // registrado; -1 = usuario eliminado). Es la única forma de separar componentes: la usa
+    // MotorSugerencias.vincularRed() con las épocas de ConectividadDinamica después de eliminar amistades
+    // o perfiles. O(usuarios)
+    public void reconstruirComponentes(int[] etiquetas) {
+        if (etiquetas == null || etiquetas.length != siguienteIndice) {
+            throw new IllegalArgumentException("Se esperaba una etiqueta por cada uno de los " + siguienteIndice + " usuarios");
+        }
+        int maximaEtiqueta = -1;
+        for (int etiqueta : etiquetas) {
+            if (etiqueta < -1) {
+                throw new IllegalArgumentException("Etiqueta de componente negativa: " + etiqueta);
+            }
+            maximaEtiqueta = Math.max(maximaEtiqueta, etiqueta);
         }
+        // El primer usuario de cada etiqueta es la raíz; los demás cuelgan de ella y se insertan en su lista
+        int[] raizPorEtiqueta = new int[maximaEtiqueta + 1];
+        Arrays.fill(raizPorEtiqueta, -1);
+        int raiz;
+        count = 0;
+        eliminados = 0;
+        for (int i = 0; i < siguienteIndice; i++) {
+            if (etiquetas[i] < 0) {
+                parent[i] = i;
+                size[i] = 0;
+                siguiente[i] = i;
+                eliminados++;
+                continue;
+            }
+            raiz = raizPorEtiqueta[etiquetas[i]];
+            if (raiz < 0) {
+                raizPorEtiqueta[etiquetas[i]] = i;
+                parent[i] = i;
+                size[i] = 1;
+                siguiente[i] = i;
+                count++;
+            } else {
+                parent[i] = raiz;
+                size[raiz]++;
+                siguiente[i] = siguiente[raiz];
+                siguiente[raiz] = i;
+            }
+        }
+    }
+
+    // Cantidad de usuarios en la componente del usuario
+    public int tamanoComponente(int userIndex) {
+        return size[find(userIndex)];
+    }
 
-        if (siguienteIndice >= parent.length) {
-            throw new IllegalStateException("Capacidad máxima alcanzada");
+    public int tamanoComponente(String userId) {
+        int indice = indiceDe(userId);
+        if (indice < 0) {
+            throw new IllegalArgumentException("Usuario no existe: " + userId);
         }
+        return tamanoComponente(indice);
+    }
 
-        int index = siguienteIndice;
-        usuarioAindex.put(userId, index);
-        indiceAusuario.put(index, userId);
-        parent[index] = index;
-        size[index] = 1;
-        siguienteIndice++;
-        count++;  
+    // Recorre los miembros de la componente del usuario (él incluido) en O(tamaño de la componente)
+    public void recorrerComponente(int userIndex, IntConsumer accion) {
+        validate(userIndex);
+        int miembro = userIndex;
+        do {
+            accion.accept(miembro);
+            miembro = siguiente[miembro];
+        } while (miembro != userIndex);
+    }
+
+    // Igual que recorrerComponente() pero se detiene después de 'maximo' miembros (para muestras de
+    // componentes muy grandes). Devuelve cuántos recorrió
+    public int recorrerComponente(int userIndex, int maximo, IntConsumer accion) {
+        validate(userIndex);
+        int recorridos = 0;
+        int miembro = userIndex;
+        while (recorridos < maximo) {
+            accion.accept(miembro);
+            recorridos++;
+            miembro = siguiente[miembro];
+            if (miembro == userIndex) {
+                break;
+            }
+        }
+        return recorridos;
+    }
+
+    public int[] miembrosDe(int userIndex) {
+        int[] miembros = new int[tamanoComponente(userIndex)];
+        int miembro = userIndex;
+        for (int i = 0; i < miembros.length; i++) {
+            miembros[i] = miembro;
+            miembro = siguiente[miembro];
+        }
+        return miembros;
+    }
+
+    // Raíces de las k componentes más grandes, de mayor a menor (a igual tamaño, menor raíz primero).
+    // Un heap de mínimos con las k mejores vistas hasta el momento: O(n log k) en un recorrido
+    public int[] componentesMasGrandes(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("La cantidad de componentes debe ser mayor que 0");
+        }
+        PriorityQueue<Integer> mejores = new PriorityQueue<>(Math.min(k, count) + 1,
+                (a, b) -> size[a] != size[b] ? Integer.compare(size[a], size[b]) : Integer.compare(b, a));
+        for (int i = 0; i < siguienteIndice; i++) {
+            if (parent[i] != i || size[i] == 0) {
+                continue;
+            }
+            if (mejores.size() < k) {
+                mejores.add(i);
+            } else if (size[i] > size[mejores.peek()]) {
+                mejores.poll();
+                mejores.add(i);
+            }
+        }
+        int[] raices = new int[mejores.size()];
+        for (int i = raices.length - 1; i >= 0; i--) {
+            raices[i] = mejores.poll();
+        }
+        return raices;
+    }
+
+    // Tamaño de componente -> cantidad de componentes con ese tamaño
+    public SortedMap<Integer, Integer> histogramaTamanos() {
+        SortedMap<Integer, Integer> histograma = new TreeMap<>();
+        for (int i = 0; i < siguienteIndice; i++) {
+            if (parent[i] == i && size[i] > 0) {
+                histograma.merge(size[i], 1, Integer::sum);
+            }
+        }
+        return histograma;
+    }
+
+    // Método que registra a un perfil a la red social en el internador
+    public void agregarUsuario(String userId) {
+        int index = internador.agregar(userId);
+        if (index < siguienteIndice) {
+            // Un usuario eliminado que vuelve a registrarse es otra vez una componente unitaria
+            if (esEliminado(index)) {
+                size[index] = 1;
+                eliminados--;
+                count++;
+            }
+            return;
+        }
+
+        // Normalmente index == siguienteIndice; si otro componente agregó ids al
+        // internador compartido, se registran también
+        sincronizarConInternador();
     }
 
     // Método que verifica si dos perfiles están conectados mediante su id
     public boolean conectados(String idPerfil1, String idPerfil2) {
-        Integer indiceA = usuarioAindex.get(idPerfil1);
-        Integer indiceB = usuarioAindex.get(idPerfil2);
+        int indiceA = indiceDe(idPerfil1);
+        int indiceB = indiceDe(idPerfil2);
 
-        if (indiceA == null || indiceB == null) {
+        if (indiceA < 0 || indiceB < 0) {
             return false;
         }
         return find(indiceA) == find(indiceB);
     }
 
+    // Versión por índices para quien ya resolvió los ids con el internador
+    public boolean conectados(int indiceA, int indiceB) {
+        return find(indiceA) == find(indiceB);
+    }
+
      // Método que genera una amistad entre dos usuarios con una calidad dada empleando union()
     public void generarAmistad(String idPerfil1, String idPerfil2, int calidad) {
         if (calidad < 1 || calidad > 5) {
             throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
         }
 
-        Integer indiceA = usuarioAindex.get(idPerfil1);
-        Integer indiceB = usuarioAindex.get(idPerfil2);
+        int indiceA = indiceDe(idPerfil1);
+        int indiceB = indiceDe(idPerfil2);
 
-        if (indiceA == null || indiceB == null) {
+        if (indiceA < 0 || indiceB < 0) {
             throw new IllegalArgumentException("Uno o ambos usuarios no existen");
         }
 
         union(indiceA, indiceB);  
     }
 
+    // Versión por índices de generarAmistad()
+    public void generarAmistad(int indiceA, int indiceB, int calidad) {
+        if (calidad < 1 || calidad > 5) {
+            throw new IllegalArgumentException("Calidad debe estar entre 1 y 5");
+        }
+        union(indiceA, indiceB);
+    }
+
     // Método que visualiza la red social basado del método imprimirArbol()
      public String visualizarRedSocial(AlmacenamientoPerfiles almacenamiento) {
         Node nodo = null;
@@ -156,7 +494,10 @@ public class WeightedQuickUnionUF {
                 "edge { fill-color: gray; size: 2px; text-size: 12px; }");
 
         for (int i = 0; i < siguienteIndice; i++) {
-            idPerfil = indiceAusuario.get(i);
+            if (esEliminado(i)) {
+                continue;
+            }
+            idPerfil = internador.idDe(i);
             nodo = grafo.addNode(idPerfil);
             nodo.setAttribute("ui.label", idPerfil);
         }
@@ -169,11 +510,12 @@ public class WeightedQuickUnionUF {
         String a;
         String b;
         String idExtremo;
-        for (Perfil perfil : almacenamiento.obtenerTodosPerfiles().values()) {
+        for (Perfil perfil : almacenamiento.obtenerPerfiles()) {
             a = perfil.getId();
             for (Map.Entry<String, Integer> entrada : perfil.getAmigosDirectos().entrySet()) {
                 b = entrada.getKey();
-                if (a.compareTo(b) <= 0) {
+                // Las amistades hacia ids sin perfil no tienen nodo en la red
+                if (a.compareTo(b) <= 0 && grafo.getNode(b) != null) {
                     idExtremo = a + "-" + b;
                     grafo.addEdge(idExtremo, a, b, false);
         
@@ -188,9 +530,17 @@ public class WeightedQuickUnionUF {
     @Override
     public String toString() {
         String estado = "-".repeat(10) + "\n";
-        estado += "Parent [ ] = " + java.util.Arrays.toString(java.util.Arrays.copyOf(parent, siguienteIndice)) + "\n";
-        estado += "Size   [ ] = " + java.util.Arrays.toString(java.util.Arrays.copyOf(size, siguienteIndice)) + "\n";
-        estado += "Usuarios: " + siguienteIndice + ", Componentes: " + count + "\n";
+        if (siguienteIndice > MAXIMO_USUARIOS_EN_TEXTO) {
+            estado += "Usuarios: " + (siguienteIndice - eliminados) + ", Componentes: " + count + "\n";
+            estado += "Componentes más grandes (usuario raíz = tamaño): ";
+            for (int raiz : componentesMasGrandes(5)) {
+                estado += internador.idDe(raiz) + " = " + size[raiz] + "  ";
+            }
+            return estado + "\n";
+        }
+        estado += "Parent [ ] = " + Arrays.toString(Arrays.copyOf(parent, siguienteIndice)) + "\n";
+        estado += "Size   [ ] = " + Arrays.toString(Arrays.copyOf(size, siguienteIndice)) + "\n";
+        estado += "Usuarios: " + (siguienteIndice - eliminados) + ", Componentes: " + count + "\n";
         return estado;
     }
 }
\ No newline at end of file
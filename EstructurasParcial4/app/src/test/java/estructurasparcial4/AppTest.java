@@ -8,14 +8,65 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import estructurasparcial4.Model.CaminoAmistad;
+import estructurasparcial4.Model.FiltroPerfiles;
 import estructurasparcial4.Model.Perfil;
+import estructurasparcial4.Model.ResumenLatencias;
 import estructurasparcial4.Model.SugerenciaAmigo;
 import estructurasparcial4.Service.AlmacenamientoPerfiles;
+import estructurasparcial4.Service.BuscadorCaminos;
+import estructurasparcial4.Service.CacheSugerencias;
+import estructurasparcial4.Service.LeerPerfiles;
+import estructurasparcial4.Service.LoteSugerencias;
 import estructurasparcial4.Service.MotorSugerencias;
+import estructurasparcial4.Service.PuntuacionPonderada;
+import estructurasparcial4.Service.RegistroMutaciones;
+import estructurasparcial4.Service.ServidorApi;
+import estructurasparcial4.Service.SnapshotBinario;
+import estructurasparcial4.Service.VistaEgoRed;
+import estructurasparcial4.Util.BosqueUnionFind;
+import estructurasparcial4.Util.ConectividadDinamica;
+import estructurasparcial4.Util.GrafoAmistades;
+import estructurasparcial4.Util.IndiceNombres;
+import estructurasparcial4.Util.IndicePerfiles;
+import estructurasparcial4.Util.HistogramaLatencias;
+import estructurasparcial4.Util.InternadorIds;
+import estructurasparcial4.Util.Metricas;
+import estructurasparcial4.Util.PoolEspacios;
+import estructurasparcial4.Util.VistaRedSocial;
 import estructurasparcial4.Util.WeightedQuickUnionUF;
 
+import org.graphstream.graph.implementations.SingleGraph;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 // Se le pidió a la IA la generación de pruebas unitarias que validaran el comportamiento esencial de la aplicación
 class AppTest {
@@ -422,6 +473,72 @@ class AppTest {
         assertEquals(3, sugerencias.get(1).getPrioridad());
     }
     
+    @Test
+    @DisplayName("Sugerencias con igual prioridad se ordenan por nombre en llamadas repetidas")
+    void testSugerirAmigosOrdenPorNombre() {
+        almacenamiento.crearPerfil(new Perfil("user1", "Juan", (short) 25, "M"));
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+        almacenamiento.crearPerfil(new Perfil("user3", "zoe", (short) 28, "F"));
+        almacenamiento.crearPerfil(new Perfil("user4", "Bruno", (short) 27, "M"));
+        almacenamiento.crearPerfil(new Perfil("user5", "andrés", (short) 32, "M"));
+        almacenamiento.crearPerfil(new Perfil("user6", "Carla", (short) 22, "F"));
+
+        motorSugerencias.generarAmistad("user1", "user2", 4);
+        motorSugerencias.generarAmistad("user1", "user6", 2);
+        motorSugerencias.generarAmistad("user2", "user3", 1);
+        motorSugerencias.generarAmistad("user2", "user4", 1);
+        motorSugerencias.generarAmistad("user6", "user4", 5);
+        motorSugerencias.generarAmistad("user6", "user5", 5);
+        motorSugerencias.generarAmistad("user6", "user3", 3);
+
+        for (int repeticion = 0; repeticion < 3; repeticion++) {
+            List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1");
+            assertEquals(3, sugerencias.size());
+            // La prioridad es la calidad con el amigo en común: user2 (4) o user6 (2)
+            assertEquals("user4", sugerencias.get(0).getUserIdSugerido());
+            assertEquals(4, sugerencias.get(0).getPrioridad());
+            assertEquals("user3", sugerencias.get(1).getUserIdSugerido());
+            assertEquals(4, sugerencias.get(1).getPrioridad());
+            assertEquals("user5", sugerencias.get(2).getUserIdSugerido());
+            assertEquals(2, sugerencias.get(2).getPrioridad());
+        }
+    }
+
+    @Test
+    @DisplayName("Top-K de sugerencias coincide con el inicio de la lista completa")
+    void testSugerirAmigosTopK() {
+        almacenamiento.crearPerfil(new Perfil("centro", "Centro", (short) 25, "M"));
+        for (int i = 0; i < 5; i++) {
+            almacenamiento.crearPerfil(new Perfil("amigo" + i, "Amigo " + i, (short) 25, "M"));
+            motorSugerencias.generarAmistad("centro", "amigo" + i, i + 1);
+        }
+        java.util.Random aleatorio = new java.util.Random(7);
+        for (int i = 0; i < 300; i++) {
+            almacenamiento.crearPerfil(new Perfil("c" + i, "Nombre " + aleatorio.nextInt(1000), (short) 25, "F"));
+            motorSugerencias.generarAmistad("amigo" + aleatorio.nextInt(5), "c" + i, 3);
+        }
+
+        List<SugerenciaAmigo> completas = motorSugerencias.sugerirAmigos("centro");
+        assertEquals(300, completas.size());
+        for (int k : new int[] { 1, 10, 57, 299, 300, 1000 }) {
+            List<SugerenciaAmigo> mejores = motorSugerencias.sugerirAmigos("centro", k);
+            assertEquals(Math.min(k, 300), mejores.size());
+            for (int i = 0; i < mejores.size(); i++) {
+                assertEquals(completas.get(i).getUserIdSugerido(), mejores.get(i).getUserIdSugerido());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Top-K con k no positivo debe lanzar excepción")
+    void testSugerirAmigosTopKInvalido() {
+        almacenamiento.crearPerfil(new Perfil("user1", "Juan", (short) 25, "M"));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            motorSugerencias.sugerirAmigos("user1", 0);
+        });
+    }
+
     @Test
     @DisplayName("Sugerir amigos para usuario inexistente debe lanzar excepción")
     void testSugerirAmigosUsuarioInexistente() {
@@ -542,4 +659,1994 @@ class AppTest {
         // user1 y user3 no están conectados
         assertFalse(redSocial.conectados("user1", "user3"));
     }
+
+    @Test
+    @DisplayName("La red social crece más allá de la capacidad inicial")
+    void testRedSocialCreceSinLimite() {
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(2);
+        for (int i = 0; i < 5000; i++) {
+            uf.agregarUsuario("u" + i);
+        }
+        for (int i = 1; i < 5000; i++) {
+            uf.generarAmistad("u" + (i - 1), "u" + i, 3);
+        }
+
+        assertTrue(uf.getCapacidad() >= 5000);
+        assertEquals(1, uf.getCount());
+        assertTrue(uf.conectados("u0", "u4999"));
+    }
+
+    @Test
+    @DisplayName("Asegurar capacidad evita redimensionamientos posteriores")
+    void testAsegurarCapacidad() {
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF();
+        uf.asegurarCapacidad(300);
+        int capacidad = uf.getCapacidad();
+        for (int i = 0; i < 300; i++) {
+            uf.agregarUsuario("u" + i);
+        }
+
+        assertEquals(capacidad, uf.getCapacidad());
+        assertEquals(300, uf.getCount());
+    }
+
+    // ==================== PRUEBAS DE ESTADISTICAS DE COMPONENTES ====================
+
+    // u0-u1-u2 y u3-u4 conectados; u5, u6 y u7 solos
+    private WeightedQuickUnionUF crearRedConComponentes() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4);
+        for (int i = 0; i < 8; i++) {
+            red.agregarUsuario("u" + i);
+        }
+        red.union(0, 1);
+        red.union(1, 2);
+        red.union(3, 4);
+        return red;
+    }
+
+    @Test
+    @DisplayName("Tamaño y miembros de la componente de un usuario")
+    void testMiembrosDeComponente() {
+        WeightedQuickUnionUF red = crearRedConComponentes();
+
+        assertEquals(3, red.tamanoComponente("u2"));
+        assertEquals(1, red.tamanoComponente(7));
+        int[] miembros = red.miembrosDe(2);
+        Arrays.sort(miembros);
+        assertArrayEquals(new int[] { 0, 1, 2 }, miembros);
+        List<Integer> recorridos = new ArrayList<>();
+        red.recorrerComponente(4, recorridos::add);
+        recorridos.sort(null);
+        assertEquals(Arrays.asList(3, 4), recorridos);
+        assertThrows(IllegalArgumentException.class, () -> red.tamanoComponente("noExiste"));
+    }
+
+    @Test
+    @DisplayName("Componentes más grandes e histograma de tamaños")
+    void testComponentesMasGrandesEHistograma() {
+        WeightedQuickUnionUF red = crearRedConComponentes();
+
+        int[] mayores = red.componentesMasGrandes(2);
+        assertEquals(2, mayores.length);
+        assertEquals(red.find(0), mayores[0]);
+        assertEquals(red.find(3), mayores[1]);
+        assertEquals(5, red.componentesMasGrandes(100).length);
+
+        Map<Integer, Integer> histograma = red.histogramaTamanos();
+        assertEquals(3, histograma.get(1));
+        assertEquals(1, histograma.get(2));
+        assertEquals(1, histograma.get(3));
+        assertThrows(IllegalArgumentException.class, () -> red.componentesMasGrandes(0));
+    }
+
+    @Test
+    @DisplayName("Los miembros de cada componente se reconstruyen al cargar la red desde sus arrays")
+    void testMiembrosTrasReconstruirRed() {
+        WeightedQuickUnionUF original = crearRedConComponentes();
+        int usuarios = original.getCantidadUsuarios();
+        int[] parent = new int[usuarios];
+        int[] size = new int[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            parent[i] = original.padreDe(i);
+            size[i] = original.tamanoDe(i);
+        }
+
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(original.getInternador(), parent, size, usuarios,
+                original.getCount());
+        red.union(4, 5);
+
+        int[] miembros = red.miembrosDe(5);
+        Arrays.sort(miembros);
+        assertArrayEquals(new int[] { 3, 4, 5 }, miembros);
+        assertEquals(3, red.miembrosDe(0).length);
+    }
+
+    // ==================== PRUEBAS DE INTERNADOR DE IDS ====================
+
+    @Test
+    @DisplayName("Internador asigna índices densos y resuelve en ambos sentidos")
+    void testInternadorIds() {
+        InternadorIds internador = new InternadorIds(2);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, internador.agregar("u" + i));
+        }
+
+        assertEquals(1000, internador.tamano());
+        assertEquals(7, internador.agregar("u7"));
+        assertEquals(1000, internador.tamano());
+        assertEquals(999, internador.indiceDe("u999"));
+        assertEquals("u500", internador.idDe(500));
+        assertEquals(-1, internador.indiceDe("u1000"));
+        assertEquals(-1, internador.indiceDe(null));
+    }
+
+    @Test
+    @DisplayName("La red social comparte el internador con el resto del motor")
+    void testRedSocialInternadorCompartido() {
+        InternadorIds internador = new InternadorIds();
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(4, internador);
+        uf.agregarUsuario("user1");
+        internador.agregar("user2");
+
+        // Consultar no registra: el id cuenta en la red recién al sincronizar
+        assertEquals(-1, uf.indiceDe("user2"));
+        assertEquals(1, uf.getCount());
+        uf.sincronizarConInternador();
+        assertEquals(1, uf.indiceDe("user2"));
+        assertEquals(2, uf.getCount());
+        uf.generarAmistad("user1", "user2", 3);
+        assertTrue(uf.conectados(0, 1));
+        assertEquals("user2", uf.idDe(1));
+    }
+
+    // ==================== PRUEBAS DE GRAFO DE AMISTADES (CSR) ====================
+
+    @Test
+    @DisplayName("El grafo conserva los arcos al compactar el delta en el CSR")
+    void testGrafoCompactacion() {
+        InternadorIds internador = new InternadorIds();
+        GrafoAmistades grafo = new GrafoAmistades(internador);
+        for (int i = 0; i < 3000; i++) {
+            internador.agregar("u" + i);
+        }
+        for (int i = 1; i < 3000; i++) {
+            grafo.agregarAmistad(0, i, (i % 5) + 1);
+        }
+        grafo.compactar();
+
+        assertEquals(0, grafo.getCantidadDelta());
+        assertEquals(5998, grafo.getCantidadArcos());
+        assertEquals(2999, grafo.grado(0));
+        assertEquals(3, grafo.calidad(0, 2));
+        assertEquals(3, grafo.calidad(2, 0));
+        assertEquals(0, grafo.calidad(1, 2));
+    }
+
+    @Test
+    @DisplayName("El grafo actualiza la calidad y elimina arcos")
+    void testGrafoActualizarYEliminar() {
+        InternadorIds internador = new InternadorIds();
+        GrafoAmistades grafo = new GrafoAmistades(internador);
+        internador.agregar("a");
+        internador.agregar("b");
+        grafo.agregarAmistad(0, 1, 2);
+        grafo.compactar();
+        grafo.agregarArco(0, 1, 5);
+
+        assertEquals(5, grafo.calidad(0, 1));
+        assertEquals(2, grafo.getCantidadArcos());
+        assertTrue(grafo.eliminarArco(0, 1));
+        assertFalse(grafo.eliminarArco(0, 1));
+        assertEquals(0, grafo.grado(0));
+        grafo.compactar();
+        assertEquals(1, grafo.getCantidadArcos());
+    }
+
+    @Test
+    @DisplayName("Un amigo sin perfil no se agrega al internador ni a la red hasta que se crea")
+    void testAmigoSinPerfilQuedaPendiente() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4, motorSugerencias.getInternador());
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        perfil1.agregarAmigo("fantasma", 3);
+        perfil1.agregarAmigo("user2", 4);
+        almacenamiento.crearPerfil(perfil1);
+        red.agregarUsuario("user1");
+
+        assertEquals(-1, motorSugerencias.getInternador().indiceDe("fantasma"));
+        assertEquals(2, motorSugerencias.getCantidadAmistadesPendientes());
+        assertEquals(1, red.getCount());
+        assertEquals(-1, red.indiceDe("fantasma"));
+        assertThrows(IllegalArgumentException.class, () -> perfil1.agregarAmigo("otroFantasma", 2));
+
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+        assertEquals(4, perfil1.obtenerCalidadAmistad("user2"));
+        assertNull(almacenamiento.buscarPerfil("user2").obtenerCalidadAmistad("user1"));
+        assertEquals(1, motorSugerencias.getCantidadAmistadesPendientes());
+        assertEquals(-1, red.indiceDe("user2"));
+        assertEquals(1, red.getCount());
+    }
+
+    @Test
+    @DisplayName("Las amistades hacia ids sin perfil sobreviven al snapshot JSON y al binario")
+    void testAmigoSinPerfilEnSnapshots() throws Exception {
+        Path directorio = Files.createTempDirectory("amigos-sin-perfil");
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4);
+        MotorSugerencias motor = crearRedCompartida(almacenamiento, red);
+        Perfil perfil5 = new Perfil("user5", "Nombre5", (short) 30, "F");
+        perfil5.agregarAmigo("fantasma", 3);
+        almacenamiento.crearPerfil(perfil5);
+        red.agregarUsuario("user5");
+        assertEquals(3, perfil5.getAmigosDirectos().get("fantasma"));
+
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        assertTrue(lector.guardarPerfiles(almacenamiento));
+        AlmacenamientoPerfiles desdeJson = new AlmacenamientoPerfiles();
+        MotorSugerencias motorJson = new MotorSugerencias(desdeJson);
+        new LeerPerfiles(lector.getRutaArchivo()).cargarPerfilesEnAlmacenamiento(desdeJson);
+        assertEquals(1, motorJson.getCantidadAmistadesPendientes());
+        assertEquals(3, desdeJson.buscarPerfil("user5").getAmigosDirectos().get("fantasma"));
+
+        SnapshotBinario snapshot = new SnapshotBinario(directorio.resolve("Perfiles.bin").toString());
+        assertTrue(snapshot.guardar(almacenamiento, motor, red));
+        AlmacenamientoPerfiles desdeBinario = new AlmacenamientoPerfiles();
+        assertTrue(snapshot.cargar(desdeBinario));
+        assertEquals(1, snapshot.getMotor().getCantidadAmistadesPendientes());
+        assertEquals(-1, snapshot.getRedSocial().indiceDe("fantasma"));
+
+        // Cuando aparece el perfil, la amistad pasa al grafo
+        desdeBinario.crearPerfil(new Perfil("fantasma", "Fantasma", (short) 40, "M"));
+        assertEquals(3, desdeBinario.buscarPerfil("user5").obtenerCalidadAmistad("fantasma"));
+        assertNull(desdeBinario.buscarPerfil("user5").getAmigosSinPerfil());
+    }
+
+    @Test
+    @DisplayName("Un perfil vinculado al grafo delega sus amistades en él")
+    void testPerfilVinculadoAlGrafo() {
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        perfil1.agregarAmigo("user2", 4);
+        almacenamiento.crearPerfil(perfil1);
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+
+        assertTrue(perfil1.estaVinculado());
+        assertTrue(perfil1.esAmigo("user2"));
+        assertEquals(4, perfil1.obtenerCalidadAmistad("user2"));
+        assertEquals(1, motorSugerencias.getGrafo().grado(perfil1.getIndice()));
+
+        perfil1.eliminarAmigo("user2");
+        assertFalse(perfil1.esAmigo("user2"));
+        assertTrue(perfil1.getAmigosDirectos().isEmpty());
+    }
+
+    // ==================== PRUEBAS DE REGISTRO DE MUTACIONES ====================
+
+    @Test
+    @DisplayName("Las mutaciones registradas se recuperan desde el snapshot y el registro")
+    void testRegistroMutacionesRecuperacion() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        Perfil perfil2 = new Perfil("user2", "Ana", (short) 30, "F");
+        almacenamiento.crearPerfil(perfil1);
+        registro.registrarPerfilCreado(perfil1);
+        almacenamiento.crearPerfil(perfil2);
+        registro.registrarPerfilCreado(perfil2);
+        motorSugerencias.generarAmistad("user1", "user2", 4);
+        registro.registrarAmistad("user1", "user2", 4);
+        registro.close();
+
+        assertTrue(registro.getBytesEnRegistro() > 0);
+        assertFalse(Files.exists(directorio.resolve("Perfiles.json")));
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        MotorSugerencias motorRecuperado = new MotorSugerencias(recuperado);
+        RegistroMutaciones registroRecuperado = new RegistroMutaciones(new LeerPerfiles(lector.getRutaArchivo()), recuperado);
+
+        assertEquals(3, registroRecuperado.recuperar(motorRecuperado));
+        assertEquals(2, recuperado.obtenerTotalPerfiles());
+        assertEquals(4, recuperado.buscarPerfil("user2").obtenerCalidadAmistad("user1"));
+    }
+
+    @Test
+    @DisplayName("El registro queda en el orden en que se aplicaron las mutaciones de distintos hilos")
+    void testRegistroMutacionesOrdenConcurrente() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        Perfil centro = new Perfil("user0", "Centro", (short) 30, "M");
+        almacenamiento.crearPerfil(centro);
+        registro.registrarPerfilCreado(centro);
+
+        // Un hilo crea perfiles y otro, apenas aparece cada uno, lo hace amigo del centro
+        int cantidad = 50;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        Future<?> creador = ejecutor.submit(() -> {
+            for (int i = 1; i <= cantidad; i++) {
+                Perfil perfil = new Perfil("user" + i, "Usuario" + i, (short) 20, "F");
+                long secuencia;
+                synchronized (almacenamiento) {
+                    almacenamiento.crearPerfil(perfil);
+                    secuencia = registro.encolarPerfilCreado(perfil);
+                }
+                registro.esperarDurable(secuencia);
+            }
+        });
+        Future<?> amigador = ejecutor.submit(() -> {
+            for (int i = 1; i <= cantidad; i++) {
+                while (!almacenamiento.existePerfil("user" + i)) {
+                    Thread.onSpinWait();
+                }
+                long secuencia;
+                synchronized (almacenamiento) {
+                    motorSugerencias.generarAmistad("user0", "user" + i, 3);
+                    secuencia = registro.encolarAmistad("user0", "user" + i, 3);
+                }
+                registro.esperarDurable(secuencia);
+            }
+        });
+        creador.get(30, TimeUnit.SECONDS);
+        amigador.get(30, TimeUnit.SECONDS);
+        ejecutor.shutdown();
+        registro.close();
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        MotorSugerencias motorRecuperado = new MotorSugerencias(recuperado);
+        assertEquals(1 + 2 * cantidad, new RegistroMutaciones(lector, recuperado).recuperar(motorRecuperado));
+        assertEquals(cantidad, recuperado.buscarPerfil("user0").getAmigosDirectos().size());
+    }
+
+    @Test
+    @DisplayName("La compactación escribe el snapshot y vacía el registro")
+    void testRegistroMutacionesCompactacion() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        almacenamiento.crearPerfil(perfil1);
+        registro.registrarPerfilCreado(perfil1);
+
+        registro.compactar();
+        Perfil perfil2 = new Perfil("user2", "Ana", (short) 30, "F");
+        almacenamiento.crearPerfil(perfil2);
+        registro.registrarPerfilCreado(perfil2);
+        registro.close();
+
+        assertTrue(Files.exists(directorio.resolve("Perfiles.json")));
+        assertFalse(Files.exists(directorio.resolve("Perfiles.json.wal.compactando")));
+
+        LeerPerfiles lectorRecuperado = new LeerPerfiles(lector.getRutaArchivo());
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        MotorSugerencias motorRecuperado = new MotorSugerencias(recuperado);
+        lectorRecuperado.cargarPerfilesEnAlmacenamiento(recuperado);
+        assertEquals(1, recuperado.obtenerTotalPerfiles());
+        assertEquals(1, new RegistroMutaciones(lectorRecuperado, recuperado).recuperar(motorRecuperado));
+        assertEquals(2, recuperado.obtenerTotalPerfiles());
+    }
+
+    @Test
+    @DisplayName("Un registro incompleto al final del archivo se descarta")
+    void testRegistroMutacionesEscrituraIncompleta() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        almacenamiento.crearPerfil(perfil1);
+        registro.registrarPerfilCreado(perfil1);
+        registro.close();
+
+        Path rutaRegistro = directorio.resolve("Perfiles.json.wal");
+        long tamanoValido = Files.size(rutaRegistro);
+        Files.write(rutaRegistro, new byte[] { 0, 0, 0, 40, 1, 2 }, java.nio.file.StandardOpenOption.APPEND);
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        assertEquals(1, new RegistroMutaciones(lector, recuperado).recuperar(new MotorSugerencias(recuperado)));
+        assertEquals(tamanoValido, Files.size(rutaRegistro));
+    }
+
+    @Test
+    @DisplayName("Tras una escritura fallida el registro se detiene y no confirma mutaciones que se perderían")
+    void testRegistroMutacionesFallaEscritura() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento) {
+            @Override
+            protected FileChannel abrirCanal(Path ruta) throws IOException {
+                return new CanalConFalla(super.abrirCanal(ruta), 2);
+            }
+        };
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        registro.registrarPerfilCreado(new Perfil("user1", "Juan", (short) 25, "M"));
+
+        // La segunda escritura deja medio registro en el archivo y falla
+        assertThrows(IllegalStateException.class,
+                () -> registro.registrarPerfilCreado(new Perfil("user2", "Ana", (short) 30, "F")));
+        assertThrows(IllegalStateException.class,
+                () -> registro.registrarPerfilCreado(new Perfil("user3", "Carlos", (short) 28, "M")));
+        registro.close();
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        assertEquals(1, new RegistroMutaciones(lector, recuperado).recuperar(new MotorSugerencias(recuperado)));
+        assertTrue(recuperado.existePerfil("user1"));
+        assertFalse(recuperado.existePerfil("user3"));
+    }
+
+    // Canal que delega en el archivo real y, en la escritura número 'escrituraQueFalla', escribe la mitad
+    // del buffer y lanza una IOException (como un disco lleno a mitad de un lote)
+    private static class CanalConFalla extends FileChannel {
+        private final FileChannel canal;
+        private final int escrituraQueFalla;
+        private int escrituras;
+
+        CanalConFalla(FileChannel canal, int escrituraQueFalla) {
+            this.canal = canal;
+            this.escrituraQueFalla = escrituraQueFalla;
+        }
+
+        @Override
+        public int write(ByteBuffer origen) throws IOException {
+            if (++escrituras == escrituraQueFalla) {
+                ByteBuffer mitad = origen.duplicate();
+                mitad.limit(origen.position() + origen.remaining() / 2);
+                canal.write(mitad);
+                throw new IOException("No queda espacio en el dispositivo");
+            }
+            return canal.write(origen);
+        }
+
+        @Override
+        public int read(ByteBuffer destino) throws IOException {
+            return canal.read(destino);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinos, int inicio, int cantidad) throws IOException {
+            return canal.read(destinos, inicio, cantidad);
+        }
+
+        @Override
+        public long write(ByteBuffer[] origenes, int inicio, int cantidad) throws IOException {
+            return canal.write(origenes, inicio, cantidad);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return canal.position();
+        }
+
+        @Override
+        public FileChannel position(long posicion) throws IOException {
+            canal.position(posicion);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return canal.size();
+        }
+
+        @Override
+        public FileChannel truncate(long tamano) throws IOException {
+            canal.truncate(tamano);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metadatos) throws IOException {
+            canal.force(metadatos);
+        }
+
+        @Override
+        public long transferTo(long posicion, long cantidad, WritableByteChannel destino) throws IOException {
+            return canal.transferTo(posicion, cantidad, destino);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel origen, long posicion, long cantidad) throws IOException {
+            return canal.transferFrom(origen, posicion, cantidad);
+        }
+
+        @Override
+        public int read(ByteBuffer destino, long posicion) throws IOException {
+            return canal.read(destino, posicion);
+        }
+
+        @Override
+        public int write(ByteBuffer origen, long posicion) throws IOException {
+            return canal.write(origen, posicion);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode modo, long posicion, long tamano) throws IOException {
+            return canal.map(modo, posicion, tamano);
+        }
+
+        @Override
+        public FileLock lock(long posicion, long tamano, boolean compartido) throws IOException {
+            return canal.lock(posicion, tamano, compartido);
+        }
+
+        @Override
+        public FileLock tryLock(long posicion, long tamano, boolean compartido) throws IOException {
+            return canal.tryLock(posicion, tamano, compartido);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            canal.close();
+        }
+    }
+
+    // ==================== PRUEBAS DE CARGA DE PERFILES ====================
+
+    // Escribe un Perfiles.json temporal con n perfiles en cadena (userI es amigo de userI+1)
+    private LeerPerfiles crearArchivoPerfiles(int cantidad) throws Exception {
+        Path directorio = Files.createTempDirectory("carga-perfiles");
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < cantidad; i++) {
+            json.append("  {\"id\": \"user").append(i).append("\", \"nombre\": \"Nombre").append(i)
+                    .append("\", \"edad\": 20, \"genero\": \"F\", \"amigosDirectos\": {");
+            if (i + 1 < cantidad) {
+                json.append("\"user").append(i + 1).append("\": 3");
+            }
+            json.append("}}").append(i + 1 < cantidad ? ",\n" : "\n");
+        }
+        json.append("]");
+        Path archivo = directorio.resolve("Perfiles.json");
+        Files.writeString(archivo, json);
+        return new LeerPerfiles(archivo.toString());
+    }
+
+    @Test
+    @DisplayName("La carga en streaming registra perfiles en almacenamiento y red")
+    void testCargaPerfilesStreaming() throws Exception {
+        LeerPerfiles lector = crearArchivoPerfiles(50);
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(lector.estimarCantidadPerfiles(),
+                motorSugerencias.getInternador());
+
+        lector.cargarPerfilesEnAlmacenamiento(almacenamiento, red);
+
+        assertEquals(50, lector.obtenerCantidadPerfiles());
+        assertEquals(50, almacenamiento.obtenerTotalPerfiles());
+        assertEquals(50, red.getCount());
+        assertEquals(3, almacenamiento.buscarPerfil("user10").obtenerCalidadAmistad("user11"));
+
+        // El archivo se lee una sola vez
+        lector.cargarPerfilesEnAlmacenamiento(almacenamiento, red);
+        assertEquals(50, almacenamiento.obtenerTotalPerfiles());
+    }
+
+    @Test
+    @DisplayName("La carga paralela produce el mismo almacenamiento que la secuencial")
+    void testCargaPerfilesParalela() throws Exception {
+        LeerPerfiles lector = crearArchivoPerfiles(3000);
+        lector.cargarPerfilesEnAlmacenamiento(almacenamiento, null, 4);
+
+        AlmacenamientoPerfiles secuencial = new AlmacenamientoPerfiles();
+        new LeerPerfiles(lector.getRutaArchivo()).cargarPerfilesEnAlmacenamiento(secuencial);
+
+        assertEquals(3000, almacenamiento.obtenerTotalPerfiles());
+        assertEquals(secuencial.obtenerTotalPerfiles(), almacenamiento.obtenerTotalPerfiles());
+        for (Perfil perfil : secuencial.obtenerTodosPerfiles().values()) {
+            assertEquals(perfil.getAmigosDirectos(),
+                    almacenamiento.buscarPerfil(perfil.getId()).getAmigosDirectos());
+        }
+    }
+
+    @Test
+    @DisplayName("Cargar un archivo inexistente no agrega perfiles")
+    void testCargaPerfilesArchivoInexistente() throws Exception {
+        Path directorio = Files.createTempDirectory("carga-perfiles");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("NoExiste.json").toString());
+
+        lector.cargarPerfilesEnAlmacenamiento(almacenamiento);
+
+        assertEquals(0, lector.obtenerCantidadPerfiles());
+        assertEquals(0, almacenamiento.obtenerTotalPerfiles());
+        assertThrows(IllegalArgumentException.class,
+                () -> lector.cargarPerfilesEnAlmacenamiento(almacenamiento, null, 0));
+    }
+
+    // ==================== PRUEBAS DE SNAPSHOT BINARIO ====================
+
+    // Red pequeña con motor y union-find compartiendo internador: user1-user2-user3 y user4 aislado
+    private MotorSugerencias crearRedCompartida(AlmacenamientoPerfiles destino, WeightedQuickUnionUF red) {
+        MotorSugerencias motor = new MotorSugerencias(destino, red.getInternador());
+        for (int i = 1; i <= 4; i++) {
+            destino.crearPerfil(new Perfil("user" + i, "Nombre" + i, (short) (20 + i), i % 2 == 0 ? "F" : "M"));
+            red.agregarUsuario("user" + i);
+        }
+        motor.generarAmistad("user1", "user2", 5);
+        motor.generarAmistad("user2", "user3", 2);
+        motor.cargarLazosDesdePerfiles(red);
+        return motor;
+    }
+
+    @Test
+    @DisplayName("El snapshot binario restaura perfiles, grafo y red")
+    void testSnapshotBinarioIdaYVuelta() throws Exception {
+        Path directorio = Files.createTempDirectory("snapshot-binario");
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4);
+        MotorSugerencias motor = crearRedCompartida(almacenamiento, red);
+        SnapshotBinario snapshot = new SnapshotBinario(directorio.resolve("Perfiles.bin").toString());
+
+        assertTrue(snapshot.guardar(almacenamiento, motor, red));
+
+        AlmacenamientoPerfiles cargado = new AlmacenamientoPerfiles();
+        SnapshotBinario lector = new SnapshotBinario(snapshot.getRuta());
+        assertTrue(lector.cargar(cargado));
+
+        assertEquals(4, cargado.obtenerTotalPerfiles());
+        Perfil perfil3 = cargado.buscarPerfil("user3");
+        assertEquals("Nombre3", perfil3.getNombre());
+        assertEquals(23, perfil3.getEdad());
+        assertEquals("M", perfil3.getGenero());
+        assertEquals(2, perfil3.obtenerCalidadAmistad("user2"));
+
+        WeightedQuickUnionUF redCargada = lector.getRedSocial();
+        assertEquals(red.getCount(), redCargada.getCount());
+        assertTrue(redCargada.conectados("user1", "user3"));
+        assertFalse(redCargada.conectados("user1", "user4"));
+
+        List<SugerenciaAmigo> sugerencias = lector.getMotor().sugerirAmigos("user1");
+        assertEquals(1, sugerencias.size());
+        assertEquals("user3", sugerencias.get(0).getUserIdSugerido());
+
+        // El estado cargado sigue aceptando cambios
+        cargado.crearPerfil(new Perfil("user5", "Nombre5", (short) 30, "F"));
+        redCargada.agregarUsuario("user5");
+        lector.getMotor().generarAmistad("user4", "user5", 3);
+        redCargada.generarAmistad("user4", "user5", 3);
+        assertTrue(redCargada.conectados("user4", "user5"));
+    }
+
+    @Test
+    @DisplayName("Un snapshot binario inexistente o truncado no se carga")
+    void testSnapshotBinarioInvalido() throws Exception {
+        Path directorio = Files.createTempDirectory("snapshot-binario");
+        Path archivo = directorio.resolve("Perfiles.bin");
+        assertFalse(new SnapshotBinario(archivo.toString()).cargar(almacenamiento));
+
+        AlmacenamientoPerfiles original = new AlmacenamientoPerfiles();
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4);
+        SnapshotBinario snapshot = new SnapshotBinario(archivo.toString());
+        assertTrue(snapshot.guardar(original, crearRedCompartida(original, red), red));
+
+        byte[] contenido = Files.readAllBytes(archivo);
+        Files.write(archivo, Arrays.copyOf(contenido, contenido.length - 3));
+
+        assertFalse(snapshot.cargar(almacenamiento));
+        assertEquals(0, almacenamiento.obtenerTotalPerfiles());
+    }
+
+    @Test
+    @DisplayName("La compactación con snapshot binario conserva las mutaciones del registro")
+    void testRegistroMutacionesConSnapshotBinario() throws Exception {
+        Path directorio = Files.createTempDirectory("snapshot-binario");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        SnapshotBinario snapshot = new SnapshotBinario(lector.getRutaArchivo() + ".bin");
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(4);
+        MotorSugerencias motor = crearRedCompartida(almacenamiento, red);
+
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.usarSnapshotBinario(snapshot, motor, red);
+        registro.recuperar(motor, red);
+        registro.iniciar();
+        registro.compactar();
+        Perfil perfil5 = new Perfil("user5", "Nombre5", (short) 30, "F");
+        almacenamiento.crearPerfil(perfil5);
+        red.agregarUsuario("user5");
+        registro.registrarPerfilCreado(perfil5);
+        motor.generarAmistad("user4", "user5", 3);
+        red.generarAmistad("user4", "user5", 3);
+        registro.registrarAmistad("user4", "user5", 3);
+        registro.close();
+
+        assertTrue(snapshot.existe());
+        assertFalse(Files.exists(directorio.resolve("Perfiles.json")));
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        SnapshotBinario snapshotRecuperado = new SnapshotBinario(snapshot.getRuta());
+        assertTrue(snapshotRecuperado.cargar(recuperado));
+        assertEquals(4, recuperado.obtenerTotalPerfiles());
+
+        RegistroMutaciones registroRecuperado = new RegistroMutaciones(lector, recuperado);
+        assertEquals(2, registroRecuperado.recuperar(snapshotRecuperado.getMotor(), snapshotRecuperado.getRedSocial()));
+        assertEquals(5, recuperado.obtenerTotalPerfiles());
+        assertTrue(snapshotRecuperado.getRedSocial().conectados("user4", "user5"));
+        assertEquals(3, recuperado.buscarPerfil("user5").obtenerCalidadAmistad("user4"));
+    }
+
+    // ==================== PRUEBAS DE CONCURRENCIA ====================
+
+    // Ejecuta la tarea en 'hilos' hilos que arrancan a la vez y devuelve el primer error lanzado
+    private Throwable ejecutarEnParalelo(int hilos, IntConsumer tarea) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            futuros.add(ejecutor.submit(() -> {
+                salida.await();
+                tarea.accept(hilo);
+                return null;
+            }));
+        }
+        salida.countDown();
+        Throwable error = null;
+        for (Future<?> futuro : futuros) {
+            try {
+                futuro.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                error = error == null ? e.getCause() : error;
+            }
+        }
+        ejecutor.shutdownNow();
+        return error;
+    }
+
+    @Test
+    @DisplayName("Crear el mismo perfil desde varios hilos solo tiene éxito una vez")
+    void testCrearPerfilConcurrente() throws Exception {
+        AtomicInteger creados = new AtomicInteger();
+        Throwable error = ejecutarEnParalelo(8, hilo -> {
+            for (int i = 0; i < 200; i++) {
+                try {
+                    almacenamiento.crearPerfil(new Perfil("user" + i, "Nombre" + i, (short) 20, "M"));
+                    creados.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // Otro hilo lo creó primero
+                }
+            }
+        });
+
+        assertNull(error);
+        assertEquals(200, creados.get());
+        assertEquals(200, almacenamiento.obtenerTotalPerfiles());
+        for (int i = 0; i < 200; i++) {
+            assertTrue(almacenamiento.buscarPerfil("user" + i).estaVinculado());
+        }
+    }
+
+    @Test
+    @DisplayName("Las sugerencias se calculan mientras otros hilos crean amistades")
+    void testSugerenciasConEscriturasConcurrentes() throws Exception {
+        int usuarios = 300;
+        for (int i = 0; i < usuarios; i++) {
+            almacenamiento.crearPerfil(new Perfil("user" + i, "Nombre" + i, (short) 20, "F"));
+        }
+
+        // Hilos 0 y 1 escriben la cadena user(i)-user(i+1) por mitades; el resto lee sugerencias
+        Throwable error = ejecutarEnParalelo(6, hilo -> {
+            if (hilo < 2) {
+                for (int i = hilo; i < usuarios - 1; i += 2) {
+                    motorSugerencias.generarAmistad("user" + i, "user" + (i + 1), 1 + i % 5);
+                }
+            } else {
+                for (int vuelta = 0; vuelta < 20; vuelta++) {
+                    for (int i = hilo; i < usuarios; i += 17) {
+                        for (SugerenciaAmigo sugerencia : motorSugerencias.sugerirAmigos("user" + i, 5)) {
+                            assertNotEquals("user" + i, sugerencia.getUserIdSugerido());
+                        }
+                    }
+                }
+            }
+        });
+
+        assertNull(error);
+        assertEquals(2L * (usuarios - 1), motorSugerencias.getGrafo().getCantidadArcos());
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user10");
+        assertEquals(2, sugerencias.size());
+        assertEquals(List.of("user8", "user12"),
+                List.of(sugerencias.get(0).getUserIdSugerido(), sugerencias.get(1).getUserIdSugerido()));
+    }
+
+    @Test
+    @DisplayName("obtenerTodosPerfiles devuelve una copia independiente del almacenamiento")
+    void testObtenerTodosPerfilesEsCopia() {
+        almacenamiento.crearPerfil(new Perfil("user1", "Juan", (short) 25, "M"));
+
+        HashMap<String, Perfil> copia = almacenamiento.obtenerTodosPerfiles();
+        copia.remove("user1");
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+
+        assertEquals(2, almacenamiento.obtenerTotalPerfiles());
+        assertTrue(copia.isEmpty());
+        assertEquals(2, almacenamiento.obtenerPerfiles().size());
+        assertThrows(UnsupportedOperationException.class, () -> almacenamiento.obtenerPerfiles().clear());
+    }
+
+    // ==================== PRUEBAS DE CARGA MASIVA DE LAZOS ====================
+
+    @Test
+    @DisplayName("BosqueUnionFind une, fusiona y aplana")
+    void testBosqueUnionFind() {
+        BosqueUnionFind a = new BosqueUnionFind(6);
+        BosqueUnionFind b = new BosqueUnionFind(6);
+        assertTrue(a.union(0, 1));
+        assertFalse(a.union(1, 0));
+        assertTrue(b.union(1, 2));
+        assertTrue(b.union(4, 5));
+
+        a.fusionar(b);
+        a.aplanar();
+
+        assertEquals(a.find(0), a.find(2));
+        assertEquals(a.find(4), a.find(5));
+        assertNotEquals(a.find(0), a.find(3));
+        assertEquals(3, a.getCount());
+        assertThrows(IllegalArgumentException.class, () -> a.fusionar(new BosqueUnionFind(5)));
+        assertThrows(IllegalArgumentException.class, () -> a.find(6));
+    }
+
+    @Test
+    @DisplayName("La carga de lazos en paralelo deja la misma conectividad que la secuencial")
+    void testCargarLazosEnParalelo() {
+        int usuarios = 3000;
+        WeightedQuickUnionUF paralela = new WeightedQuickUnionUF(usuarios, motorSugerencias.getInternador());
+        WeightedQuickUnionUF esperada = new WeightedQuickUnionUF(usuarios);
+        for (int i = 0; i < usuarios; i++) {
+            almacenamiento.crearPerfil(new Perfil("user" + i, "Nombre" + i, (short) 20, "M"));
+            paralela.agregarUsuario("user" + i);
+            esperada.agregarUsuario("user" + i);
+        }
+        java.util.Random aleatorio = new java.util.Random(7);
+        int a;
+        int b;
+        for (int i = 0; i < 2500; i++) {
+            a = aleatorio.nextInt(usuarios);
+            b = aleatorio.nextInt(usuarios);
+            if (a != b) {
+                motorSugerencias.generarAmistad("user" + a, "user" + b, 1 + aleatorio.nextInt(5));
+                esperada.generarAmistad("user" + a, "user" + b, 1);
+            }
+        }
+
+        String resultado = motorSugerencias.cargarLazosDesdePerfiles(paralela, 4);
+
+        assertTrue(resultado.contains("Lazos de amistad cargados: " + (usuarios - esperada.getCount())));
+        assertEquals(esperada.getCount(), paralela.getCount());
+        for (int i = 0; i < usuarios; i += 37) {
+            for (int j = 1; j < usuarios; j += 101) {
+                assertEquals(esperada.conectados("user" + i, "user" + j), paralela.conectados("user" + i, "user" + j));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.cargarLazosDesdePerfiles(paralela, 0));
+    }
+
+    @Test
+    @DisplayName("Una amistad guardada en una sola dirección también conecta a los usuarios")
+    void testCargarLazosAmistadEnUnaDireccion() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(3);
+        Perfil perfil1 = new Perfil("user1", "Juan", (short) 25, "M");
+        Perfil perfil2 = new Perfil("user2", "Maria", (short) 30, "F");
+        Perfil perfil3 = new Perfil("user3", "Pedro", (short) 28, "M");
+        // Solo user3 -> user1: el arco va de un índice mayor a uno menor
+        perfil3.agregarAmigo("user1", 4);
+        almacenamiento.crearPerfil(perfil1);
+        almacenamiento.crearPerfil(perfil2);
+        almacenamiento.crearPerfil(perfil3);
+        red.agregarUsuario("user1");
+        red.agregarUsuario("user2");
+        red.agregarUsuario("user3");
+
+        String resultado = motorSugerencias.cargarLazosDesdePerfiles(red, 2);
+
+        assertTrue(resultado.contains("Lazos de amistad cargados: 1"));
+        assertTrue(red.conectados("user1", "user3"));
+        assertFalse(red.conectados("user1", "user2"));
+    }
+
+    // ==================== PRUEBAS DE PUNTUACION DE SUGERENCIAS ====================
+
+    // user1 es amigo de user2 y user3 (calidad 5); user4 es amigo de ambos (calidad 3) y user5 solo de user2 (calidad 5)
+    private void crearRedConAmigosEnComun() {
+        almacenamiento.crearPerfil(new Perfil("user1", "Juan", (short) 25, "M"));
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+        almacenamiento.crearPerfil(new Perfil("user3", "Carlos", (short) 28, "M"));
+        almacenamiento.crearPerfil(new Perfil("user4", "Zoe", (short) 27, "F"));
+        almacenamiento.crearPerfil(new Perfil("user5", "Bruno", (short) 32, "M"));
+        motorSugerencias.generarAmistad("user1", "user2", 5);
+        motorSugerencias.generarAmistad("user1", "user3", 5);
+        motorSugerencias.generarAmistad("user2", "user4", 3);
+        motorSugerencias.generarAmistad("user3", "user4", 3);
+        motorSugerencias.generarAmistad("user2", "user5", 5);
+    }
+
+    @Test
+    @DisplayName("La puntuación por defecto usa la mejor calidad con un amigo en común")
+    void testPuntuacionCalidadMaxima() {
+        crearRedConAmigosEnComun();
+
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1");
+
+        assertEquals(2, sugerencias.size());
+        // Empatan en 5: decide el nombre
+        assertEquals("user5", sugerencias.get(0).getUserIdSugerido());
+        assertEquals("user4", sugerencias.get(1).getUserIdSugerido());
+        assertEquals(5.0, sugerencias.get(1).getPuntaje());
+        assertEquals(5, sugerencias.get(1).getPrioridad());
+    }
+
+    @Test
+    @DisplayName("La puntuación ponderada suma los caminos de todos los amigos en común")
+    void testPuntuacionPonderadaCuentaAmigosEnComun() {
+        crearRedConAmigosEnComun();
+        PuntuacionPonderada suma = new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.SUMA, false, 0);
+
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1", 10, suma);
+
+        assertEquals("user4", sugerencias.get(0).getUserIdSugerido());
+        assertEquals(1.6, sugerencias.get(0).getPuntaje(), 1e-9); // 2 caminos de (5 + 3) / 10
+        assertEquals(5, sugerencias.get(0).getPrioridad());
+        assertEquals("user5", sugerencias.get(1).getUserIdSugerido());
+        assertEquals(1.0, sugerencias.get(1).getPuntaje(), 1e-9);
+
+        // Con el producto, user4 aporta 2 * 15/25 = 1.2 y user5 25/25 = 1.0
+        motorSugerencias.setEstrategiaPuntuacion(
+                new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.PRODUCTO, false, 0));
+        assertEquals(1.2, motorSugerencias.sugerirAmigos("user1").get(0).getPuntaje(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Adamic-Adar resta peso a los amigos en común muy conectados")
+    void testPuntuacionAdamicAdar() {
+        crearRedConAmigosEnComun();
+        // user2 pasa a tener muchos amigos: lo que aporta a user5 vale menos que lo que user3 aporta a user4
+        for (int i = 0; i < 20; i++) {
+            almacenamiento.crearPerfil(new Perfil("extra" + i, "Extra", (short) 20, "M"));
+            motorSugerencias.generarAmistad("user2", "extra" + i, 1);
+        }
+        PuntuacionPonderada adamicAdar = new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.PRODUCTO,
+                true, 0);
+
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1", 3, adamicAdar);
+
+        assertEquals("user4", sugerencias.get(0).getUserIdSugerido());
+        double pesoUser2 = 1.0 / Math.log(23); // grado de user2: user1, user4, user5 y 20 extra
+        double pesoUser3 = 1.0 / Math.log(2);
+        assertEquals(0.6 * pesoUser2 + 0.6 * pesoUser3, sugerencias.get(0).getPuntaje(), 1e-9);
+        assertEquals("user5", sugerencias.get(1).getUserIdSugerido());
+        assertEquals(pesoUser2, sugerencias.get(1).getPuntaje(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("El tercer salto sugiere amigos de amigos de amigos con menos puntaje")
+    void testPuntuacionTercerSalto() {
+        for (int i = 1; i <= 4; i++) {
+            almacenamiento.crearPerfil(new Perfil("user" + i, "Nombre" + i, (short) 20, "M"));
+        }
+        motorSugerencias.generarAmistad("user1", "user2", 4);
+        motorSugerencias.generarAmistad("user2", "user3", 5);
+        motorSugerencias.generarAmistad("user3", "user4", 5);
+        PuntuacionPonderada tresSaltos = new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.PRODUCTO,
+                false, 0.5);
+
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1", 10, tresSaltos);
+
+        assertEquals(2, sugerencias.size());
+        assertEquals("user3", sugerencias.get(0).getUserIdSugerido());
+        assertEquals(0.8, sugerencias.get(0).getPuntaje(), 1e-9);
+        assertEquals("user4", sugerencias.get(1).getUserIdSugerido());
+        assertEquals(0.5 * 0.8 * 1.0, sugerencias.get(1).getPuntaje(), 1e-9);
+        assertEquals(4, sugerencias.get(1).getPrioridad());
+        // Sin tercer salto user4 no aparece
+        assertEquals(1, motorSugerencias.sugerirAmigos("user1").size());
+    }
+
+    @Test
+    @DisplayName("El presupuesto de arcos corta la exploración empezando por los amigos de menor calidad")
+    void testPresupuestoArcosPorSugerencia() {
+        crearRedConAmigosEnComun();
+        // user1 tiene 3 amigos; los de calidad 5 (user2, user3) se expanden antes que user6 (calidad 1)
+        almacenamiento.crearPerfil(new Perfil("user6", "Pedro", (short) 40, "M"));
+        almacenamiento.crearPerfil(new Perfil("user7", "Luis", (short) 41, "M"));
+        motorSugerencias.generarAmistad("user1", "user6", 1);
+        motorSugerencias.generarAmistad("user6", "user7", 5);
+
+        assertEquals(3, motorSugerencias.sugerirAmigos("user1").size());
+
+        // 3 arcos de user1 + los 3 de user2: ya no alcanza para user3 ni user6
+        motorSugerencias.setPresupuestoArcos(6);
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1");
+
+        assertEquals(2, sugerencias.size());
+        assertEquals("user5", sugerencias.get(0).getUserIdSugerido());
+        assertEquals("user4", sugerencias.get(1).getUserIdSugerido());
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.setPresupuestoArcos(0));
+    }
+
+    @Test
+    @DisplayName("Configuraciones de puntuación inválidas deben lanzar excepción")
+    void testPuntuacionInvalida() {
+        Perfil perfil = new Perfil("user1", "Juan", (short) 25, "M");
+        assertThrows(IllegalArgumentException.class, () -> new PuntuacionPonderada(null, true, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.SUMA, true, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.setEstrategiaPuntuacion(null));
+        assertThrows(IllegalArgumentException.class, () -> new SugerenciaAmigo("user1", 3, Double.NaN, perfil));
+        assertThrows(IllegalArgumentException.class, () -> new SugerenciaAmigo("user1", 3, -1.0, perfil));
+        assertEquals(0.5, new SugerenciaAmigo("user1", 3, 0.5, perfil).getPuntaje());
+    }
+
+    // ==================== PRUEBAS DE CACHE DE SUGERENCIAS ====================
+
+    @Test
+    @DisplayName("La cache responde la segunda petición y sirve el prefijo para un k menor")
+    void testCacheSugerenciasAciertos() {
+        crearRedConAmigosEnComun();
+        motorSugerencias.activarCache(1000);
+        CacheSugerencias cache = motorSugerencias.getCacheSugerencias();
+
+        List<SugerenciaAmigo> primera = motorSugerencias.sugerirAmigos("user1");
+        List<SugerenciaAmigo> segunda = motorSugerencias.sugerirAmigos("user1");
+        List<SugerenciaAmigo> prefijo = motorSugerencias.sugerirAmigos("user1", 1);
+
+        assertEquals(1, cache.getFallos());
+        assertEquals(2, cache.getAciertos());
+        assertEquals(primera, segunda);
+        assertEquals(1, prefijo.size());
+        assertEquals("user5", prefijo.get(0).getUserIdSugerido());
+
+        // Cambiar la estrategia vacía la cache
+        motorSugerencias.setEstrategiaPuntuacion(
+                new PuntuacionPonderada(PuntuacionPonderada.CombinacionCalidad.SUMA, false, 0));
+        assertEquals(0, cache.tamano());
+    }
+
+    @Test
+    @DisplayName("Una amistad nueva invalida solo a los usuarios cercanos a la amistad")
+    void testCacheSugerenciasInvalidacion() {
+        crearRedConAmigosEnComun();
+        almacenamiento.crearPerfil(new Perfil("user6", "Pedro", (short) 40, "M"));
+        almacenamiento.crearPerfil(new Perfil("user7", "Luis", (short) 41, "M"));
+        motorSugerencias.generarAmistad("user6", "user7", 4);
+        motorSugerencias.activarCache(1000);
+        CacheSugerencias cache = motorSugerencias.getCacheSugerencias();
+        motorSugerencias.sugerirAmigos("user1");
+        motorSugerencias.sugerirAmigos("user6");
+
+        // user3 es amigo de user1, así que la lista de user1 se invalida; user6 está en otra componente
+        motorSugerencias.generarAmistad("user3", "user5", 5);
+
+        assertEquals(1, cache.tamano());
+        motorSugerencias.sugerirAmigos("user6");
+        assertEquals(1, cache.getAciertos());
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1");
+        assertEquals(3, cache.getFallos());
+        assertEquals(2, sugerencias.size());
+    }
+
+    @Test
+    @DisplayName("La cache desaloja la lista usada hace más tiempo al superar su peso")
+    void testCacheSugerenciasDesalojo() {
+        crearRedConAmigosEnComun();
+        // user1 pesa 3 (dos sugerencias + 1); user2 y user3 pesan 2 cada uno
+        motorSugerencias.activarCache(6);
+        CacheSugerencias cache = motorSugerencias.getCacheSugerencias();
+        motorSugerencias.sugerirAmigos("user1");
+        motorSugerencias.sugerirAmigos("user2");
+        motorSugerencias.sugerirAmigos("user3");
+
+        assertEquals(1, cache.getDesalojos());
+        assertEquals(4, cache.getPeso());
+        motorSugerencias.sugerirAmigos("user2");
+        assertEquals(1, cache.getAciertos());
+        motorSugerencias.sugerirAmigos("user1");
+        assertEquals(4, cache.getFallos());
+    }
+
+    @Test
+    @DisplayName("Un cambio hecho directamente sobre el perfil se detecta por la versión del grafo")
+    void testCacheSugerenciasVersionGrafo() {
+        crearRedConAmigosEnComun();
+        almacenamiento.crearPerfil(new Perfil("user6", "Pedro", (short) 40, "M"));
+        almacenamiento.crearPerfil(new Perfil("user7", "Luis", (short) 41, "M"));
+        motorSugerencias.generarAmistad("user6", "user7", 4);
+        motorSugerencias.activarCache(1000);
+        assertEquals(2, motorSugerencias.sugerirAmigos("user1").size());
+
+        almacenamiento.buscarPerfil("user1").agregarAmigo("user6", 4);
+        List<SugerenciaAmigo> sugerencias = motorSugerencias.sugerirAmigos("user1");
+
+        assertEquals(3, sugerencias.size());
+        assertEquals(0, motorSugerencias.getCacheSugerencias().getAciertos());
+    }
+
+    @Test
+    @DisplayName("Una lista guardada con menos sugerencias que las pedidas sirve para cualquier k")
+    void testCacheSugerenciasListaCompleta() {
+        Perfil perfil = new Perfil("user2", "Ana", (short) 30, "F");
+        List<SugerenciaAmigo> dos = Arrays.asList(new SugerenciaAmigo("user2", 5, perfil),
+                new SugerenciaAmigo("user3", 4, perfil));
+        CacheSugerencias cache = new CacheSugerencias(100);
+
+        cache.guardar(0, 2, dos);
+        assertNull(cache.buscar(0, 3));
+        cache.guardar(0, 5, dos);
+        assertEquals(2, cache.buscar(0, 50).size());
+        cache.invalidar(0);
+        assertNull(cache.buscar(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CacheSugerencias(0));
+    }
+
+    // ==================== PRUEBAS DE LOTE DE SUGERENCIAS ====================
+
+    @Test
+    @DisplayName("El lote escribe una línea por usuario con las mismas sugerencias que el motor")
+    void testLoteSugerenciasTodosLosUsuarios() throws Exception {
+        crearRedConAmigosEnComun();
+        Path directorio = Files.createTempDirectory("lote-sugerencias");
+        Path destino = directorio.resolve("sugerencias.tsv");
+        LoteSugerencias lote = new LoteSugerencias(motorSugerencias, 10, 2);
+        List<Integer> avances = new ArrayList<>();
+        lote.setObservadorProgreso((procesados, total) -> avances.add(procesados));
+
+        assertTrue(lote.ejecutar(destino));
+
+        List<String> lineas = Files.readAllLines(destino);
+        assertEquals(5, lineas.size());
+        assertEquals("user1\tuser5\t5.0\tuser4\t5.0", lineas.get(0));
+        assertEquals(Arrays.asList(5), avances);
+        assertFalse(Files.exists(LoteSugerencias.rutaPuntoControl(destino)));
+        assertThrows(IllegalArgumentException.class, () -> new LoteSugerencias(motorSugerencias, 0, 1));
+    }
+
+    @Test
+    @DisplayName("Un lote cancelado se reanuda desde su punto de control")
+    void testLoteSugerenciasReanudar() throws Exception {
+        for (int i = 0; i < 3000; i++) {
+            almacenamiento.crearPerfil(new Perfil("u" + i, "Usuario " + i, (short) 30, "M"));
+        }
+        for (int i = 1; i < 3000; i++) {
+            motorSugerencias.generarAmistad("u" + (i - 1), "u" + i, 1 + i % 5);
+        }
+        Path directorio = Files.createTempDirectory("lote-sugerencias");
+        Path completo = directorio.resolve("completo.tsv");
+        Path reanudado = directorio.resolve("reanudado.tsv");
+        assertTrue(new LoteSugerencias(motorSugerencias, 3, 2).ejecutar(completo));
+
+        LoteSugerencias lote = new LoteSugerencias(motorSugerencias, 3, 2);
+        lote.setObservadorProgreso((procesados, total) -> lote.cancelar());
+        assertFalse(lote.ejecutar(reanudado));
+        assertEquals(1024, lote.getUsuariosProcesados());
+        assertTrue(Files.exists(LoteSugerencias.rutaPuntoControl(reanudado)));
+
+        LoteSugerencias continuacion = new LoteSugerencias(motorSugerencias, 3, 2);
+        assertTrue(continuacion.ejecutar(reanudado));
+        assertEquals(3000 - 1024, continuacion.getLineasEscritas());
+        assertEquals(Files.readAllLines(completo), Files.readAllLines(reanudado));
+    }
+
+    // ==================== PRUEBAS DE CONECTIVIDAD DINAMICA ====================
+
+    @Test
+    @DisplayName("Eliminar un puente separa a los usuarios antes y después de reconstruir")
+    void testConectividadEliminarPuente() {
+        almacenamiento.crearPerfil(new Perfil("user1", "Juan", (short) 25, "M"));
+        almacenamiento.crearPerfil(new Perfil("user2", "Ana", (short) 30, "F"));
+        almacenamiento.crearPerfil(new Perfil("user3", "Carlos", (short) 28, "M"));
+        motorSugerencias.generarAmistad("user1", "user2", 4);
+        motorSugerencias.generarAmistad("user2", "user3", 4);
+        assertTrue(motorSugerencias.conectados("user1", "user3"));
+        ConectividadDinamica conectividad = motorSugerencias.getConectividad();
+
+        assertTrue(motorSugerencias.eliminarAmistad("user2", "user3"));
+
+        assertTrue(conectividad.isReconstruccionPendiente());
+        assertFalse(motorSugerencias.conectados("user1", "user3"));
+        assertTrue(motorSugerencias.conectados("user1", "user2"));
+        conectividad.reconstruir();
+        assertFalse(conectividad.isReconstruccionPendiente());
+        assertFalse(motorSugerencias.conectados("user1", "user3"));
+        assertFalse(motorSugerencias.eliminarAmistad("user2", "user3"));
+        motorSugerencias.generarAmistad("user1", "user3", 2);
+        assertTrue(motorSugerencias.conectados("user2", "user3"));
+    }
+
+    @Test
+    @DisplayName("Si queda un camino de reemplazo la eliminación no ensucia la época")
+    void testConectividadCaminoDeReemplazo() {
+        crearRedConAmigosEnComun();
+        ConectividadDinamica conectividad = motorSugerencias.getConectividad();
+
+        // user2 y user4 siguen unidos por user1 y user3
+        assertTrue(motorSugerencias.eliminarAmistad("user2", "user4"));
+
+        assertEquals(1, conectividad.getReemplazosEncontrados());
+        assertFalse(conectividad.isReconstruccionPendiente());
+        assertTrue(motorSugerencias.conectados("user5", "user4"));
+        assertEquals(0, conectividad.getConsultasConRecorrido());
+
+        // Sin user1-user2 ya no hay reemplazo: user2 y user5 quedan aparte
+        motorSugerencias.eliminarAmistad("user1", "user2");
+        assertTrue(conectividad.isReconstruccionPendiente());
+        assertFalse(motorSugerencias.conectados("user5", "user4"));
+    }
+
+    @Test
+    @DisplayName("Con la época sucia una componente enorme se responde con la época reconstruida")
+    void testConectividadPresupuestoYCopia() {
+        InternadorIds internador = new InternadorIds();
+        GrafoAmistades grafo = new GrafoAmistades(internador);
+        int nodos = 200_000;
+        for (int i = 0; i < nodos; i++) {
+            internador.agregar("u" + i);
+        }
+        for (int i = 1; i < nodos; i++) {
+            grafo.agregarAmistad(i - 1, i, 3);
+        }
+        try (ConectividadDinamica conectividad = new ConectividadDinamica(grafo)) {
+            // Cortar la cadena al medio separa dos mitades más grandes que el presupuesto de una consulta
+            assertTrue(grafo.eliminarAmistad(nodos / 2 - 1, nodos / 2));
+            assertTrue(conectividad.isReconstruccionPendiente());
+            long epoca = conectividad.getEpoca();
+            // La consulta no alcanza a confirmar el camino: arma la época nueva en lugar de responder
+            // con la vieja, que todavía los tiene conectados
+            assertFalse(conectividad.conectados(0, nodos - 1));
+            assertEquals(1, conectividad.getConsultasSinPresupuesto());
+            assertTrue(conectividad.getEpoca() > epoca);
+            assertFalse(conectividad.isReconstruccionPendiente());
+
+            // La reconstrucción trabaja sobre una copia: cambiar el grafo no cambia la copia
+            GrafoAmistades copia = grafo.copiar();
+            grafo.agregarAmistad(0, nodos - 1, 2);
+            assertEquals(0, copia.calidad(0, nodos - 1));
+            assertEquals(copia.getCantidadArcos() + 2, grafo.getCantidadArcos());
+
+            grafo.eliminarAmistad(0, nodos - 1);
+            conectividad.reconstruir();
+            assertFalse(conectividad.isReconstruccionPendiente());
+            assertFalse(conectividad.conectados(0, nodos - 1));
+            assertTrue(conectividad.conectados(0, nodos / 2 - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("La red vinculada separa sus componentes cuando se publica la época nueva")
+    void testConectividadVincularRed() {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(16, motorSugerencias.getInternador());
+        crearRedConAmigosEnComun();
+        for (String id : new String[] { "user1", "user2", "user3", "user4", "user5" }) {
+            red.agregarUsuario(id);
+        }
+        red.generarAmistad("user1", "user2", 5);
+        red.generarAmistad("user2", "user5", 5);
+        red.generarAmistad("user3", "user4", 3);
+        // Eliminaciones anteriores a vincular: se copian al vincular
+        motorSugerencias.eliminarAmistad("user1", "user3");
+        motorSugerencias.eliminarAmistad("user2", "user4");
+        assertEquals(2, red.getCount());
+        motorSugerencias.vincularRed(red, almacenamiento);
+        motorSugerencias.vincularRed(red, almacenamiento);
+        assertEquals(2, red.getCount());
+        assertEquals(3, red.tamanoComponente("user5"));
+
+        // Eliminar el puente user1-user2 ensucia la época; al reconstruir la red queda en 3 componentes
+        motorSugerencias.eliminarAmistad("user1", "user2");
+        assertEquals(2, red.getCount());
+        motorSugerencias.getConectividad().reconstruir();
+        assertEquals(3, red.getCount());
+        assertEquals(1, red.tamanoComponente("user1"));
+        assertFalse(red.conectados("user1", "user5"));
+        int[] miembros = red.miembrosDe(red.indiceDe("user5"));
+        Arrays.sort(miembros);
+        assertArrayEquals(new int[] { red.indiceDe("user2"), red.indiceDe("user5") }, miembros);
+        assertThrows(IllegalArgumentException.class, () -> red.reconstruirComponentes(new int[2]));
+    }
+
+    @Test
+    @DisplayName("Un perfil eliminado deja de contar como componente de la red vinculada")
+    void testConectividadVincularRedPerfilEliminado() throws Exception {
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(8, motorSugerencias.getInternador());
+        for (String id : new String[] { "u1", "u2", "u3" }) {
+            almacenamiento.crearPerfil(new Perfil(id, id, (short) 20, "M"));
+            red.agregarUsuario(id);
+        }
+        motorSugerencias.generarAmistad("u1", "u2", 3);
+        motorSugerencias.generarAmistad("u2", "u3", 3);
+        red.generarAmistad("u1", "u2", 3);
+        red.generarAmistad("u2", "u3", 3);
+        motorSugerencias.vincularRed(red, almacenamiento);
+
+        almacenamiento.eliminarPerfil("u3");
+        motorSugerencias.getConectividad().reconstruir();
+        assertEquals(1, red.getCount());
+        assertEquals(1, red.getCantidadEliminados());
+        assertEquals(-1, red.indiceDe("u3"));
+        assertFalse(red.conectados("u1", "u3"));
+        assertEquals(Map.of(2, 1), red.histogramaTamanos());
+
+        // La marca se guarda en el snapshot binario
+        Path directorio = Files.createTempDirectory("snapshot-binario");
+        SnapshotBinario snapshot = new SnapshotBinario(directorio.resolve("Perfiles.bin").toString());
+        assertTrue(snapshot.guardar(almacenamiento, motorSugerencias, red));
+        assertTrue(snapshot.cargar(new AlmacenamientoPerfiles()));
+        assertEquals(1, snapshot.getRedSocial().getCount());
+        assertEquals(-1, snapshot.getRedSocial().indiceDe("u3"));
+
+        // Si el usuario vuelve, vuelve como componente unitaria
+        almacenamiento.crearPerfil(new Perfil("u3", "u3", (short) 20, "M"));
+        red.agregarUsuario("u3");
+        assertEquals(2, red.getCount());
+        assertEquals(1, red.tamanoComponente("u3"));
+    }
+
+    @Test
+    @DisplayName("Eliminar un perfil borra sus amistades y lo desconecta")
+    void testConectividadEliminarPerfil() {
+        crearRedConAmigosEnComun();
+        assertTrue(motorSugerencias.conectados("user1", "user5"));
+
+        almacenamiento.eliminarPerfil("user2");
+
+        assertFalse(motorSugerencias.conectados("user1", "user5"));
+        assertTrue(motorSugerencias.conectados("user1", "user4"));
+        assertFalse(almacenamiento.buscarPerfil("user4").getAmigosDirectos().containsKey("user2"));
+        assertEquals(0, motorSugerencias.getGrafo().grado(motorSugerencias.getInternador().indiceDe("user2")));
+        assertFalse(motorSugerencias.conectados("user1", "noExiste"));
+    }
+
+    @Test
+    @DisplayName("Las eliminaciones registradas se reproducen al recuperar")
+    void testRegistroMutacionesEliminaciones() throws Exception {
+        Path directorio = Files.createTempDirectory("registro-mutaciones");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamiento);
+        registro.recuperar(motorSugerencias);
+        registro.iniciar();
+        for (String id : new String[] { "user1", "user2", "user3" }) {
+            Perfil perfil = new Perfil(id, "Nombre " + id, (short) 25, "M");
+            almacenamiento.crearPerfil(perfil);
+            registro.registrarPerfilCreado(perfil);
+        }
+        registro.registrarAmistad("user1", "user2", 4);
+        registro.registrarAmistad("user2", "user3", 4);
+        registro.registrarAmistadEliminada("user1", "user2");
+        registro.registrarPerfilEliminado("user3");
+        registro.close();
+
+        AlmacenamientoPerfiles recuperado = new AlmacenamientoPerfiles();
+        MotorSugerencias motorRecuperado = new MotorSugerencias(recuperado);
+        RegistroMutaciones registroRecuperado = new RegistroMutaciones(new LeerPerfiles(lector.getRutaArchivo()), recuperado);
+
+        assertEquals(7, registroRecuperado.recuperar(motorRecuperado));
+        assertEquals(2, recuperado.obtenerTotalPerfiles());
+        assertNull(recuperado.buscarPerfil("user2").obtenerCalidadAmistad("user1"));
+        assertTrue(recuperado.buscarPerfil("user2").getAmigosDirectos().isEmpty());
+    }
+
+    // ==================== PRUEBAS DE BUSQUEDA DE CAMINOS ====================
+
+    @Test
+    @DisplayName("El camino más corto da los grados de separación y los usuarios intermedios")
+    void testCaminoMasCorto() {
+        crearRedConAmigosEnComun();
+        BuscadorCaminos buscador = new BuscadorCaminos(motorSugerencias);
+
+        CaminoAmistad camino = buscador.caminoMasCorto("user5", "user3");
+
+        assertTrue(camino.isEncontrado());
+        assertEquals(3, camino.getSaltos());
+        assertEquals("user5", camino.getUsuarios().get(0));
+        assertEquals("user2", camino.getUsuarios().get(1));
+        assertEquals("user3", camino.getUsuarios().get(3));
+        assertEquals(3, camino.getCalidadMinima());
+        assertEquals(1, buscador.caminoMasCorto("user1", "user2").getSaltos());
+        assertEquals(0, buscador.caminoMasCorto("user1", "user1").getSaltos());
+    }
+
+    @Test
+    @DisplayName("El camino de mejor calidad evita las amistades débiles aunque sea más largo")
+    void testCaminoDeMejorCalidad() {
+        for (String id : new String[] { "a", "b", "c", "d", "e" }) {
+            almacenamiento.crearPerfil(new Perfil(id, "Usuario " + id, (short) 30, "F"));
+        }
+        motorSugerencias.generarAmistad("a", "b", 1);
+        motorSugerencias.generarAmistad("b", "d", 1);
+        motorSugerencias.generarAmistad("a", "c", 5);
+        motorSugerencias.generarAmistad("c", "e", 5);
+        motorSugerencias.generarAmistad("e", "d", 4);
+        BuscadorCaminos buscador = new BuscadorCaminos(motorSugerencias);
+
+        CaminoAmistad corto = buscador.caminoMasCorto("a", "d");
+        CaminoAmistad mejor = buscador.caminoDeMejorCalidad("a", "d");
+
+        assertEquals(Arrays.asList("a", "b", "d"), corto.getUsuarios());
+        assertEquals(1, corto.getCalidadMinima());
+        assertEquals(Arrays.asList("a", "c", "e", "d"), mejor.getUsuarios());
+        assertEquals(4, mejor.getCalidadMinima());
+    }
+
+    @Test
+    @DisplayName("La búsqueda de caminos respeta el presupuesto y detecta componentes separadas")
+    void testCaminoPresupuestoYSinCamino() {
+        for (int i = 0; i < 10; i++) {
+            almacenamiento.crearPerfil(new Perfil("u" + i, "Usuario " + i, (short) 30, "M"));
+        }
+        for (int i = 1; i < 8; i++) {
+            motorSugerencias.generarAmistad("u" + (i - 1), "u" + i, 3);
+        }
+        motorSugerencias.generarAmistad("u8", "u9", 3);
+        BuscadorCaminos buscador = new BuscadorCaminos(motorSugerencias);
+
+        // Por defecto se corta a los 6 saltos
+        assertFalse(buscador.caminoMasCorto("u0", "u7").isEncontrado());
+        buscador.setMaxSaltos(7);
+        assertEquals(7, buscador.caminoMasCorto("u0", "u7").getSaltos());
+        buscador.setMaxSaltos(3);
+        assertEquals(CaminoAmistad.Resultado.PRESUPUESTO_AGOTADO, buscador.caminoMasCorto("u0", "u7").getResultado());
+        assertEquals(3, buscador.caminoMasCorto("u0", "u3").getSaltos());
+        assertEquals(CaminoAmistad.Resultado.SIN_CAMINO, buscador.caminoMasCorto("u0", "u9").getResultado());
+        assertEquals(-1, buscador.caminoDeMejorCalidad("u0", "u9").getSaltos());
+        assertThrows(IllegalArgumentException.class, () -> buscador.caminoMasCorto("u0", "noExiste"));
+        assertThrows(IllegalArgumentException.class, () -> buscador.setMaxSaltos(0));
+    }
+
+    // ==================== PRUEBAS DE INDICES DE PERFILES ====================
+
+    @Test
+    @DisplayName("El índice de perfiles filtra por edad y género y se mantiene al quitar perfiles")
+    void testIndicePerfiles() {
+        IndicePerfiles indice = new IndicePerfiles();
+        indice.agregar(0, 25, "M");
+        indice.agregar(1, 30, "F");
+        indice.agregar(2, 22, " f ");
+        indice.agregar(3, 45, "Otro");
+        indice.agregar(4, 200, "M");
+
+        assertEquals(2, indice.contar(FiltroPerfiles.porGenero("F")));
+        assertEquals(3, indice.contar(FiltroPerfiles.porEdad(20, 30)));
+        assertEquals(1, indice.contar(new FiltroPerfiles(20, 30, "m")));
+        assertEquals(1, indice.contar(FiltroPerfiles.porEdad(150, 300)));
+        assertEquals(0, indice.contar(FiltroPerfiles.porGenero("X")));
+        assertTrue(indice.cumple(2, new FiltroPerfiles(20, 25, "F")));
+        assertEquals(Arrays.asList("M", "F", "OTRO"), indice.generos());
+
+        assertTrue(indice.quitar(1));
+        assertFalse(indice.quitar(1));
+        indice.agregar(0, 40, "M");
+        assertEquals(1, indice.contar(FiltroPerfiles.porGenero("F")));
+        assertEquals(1, indice.contar(FiltroPerfiles.porEdad(20, 30)));
+        assertEquals(2, indice.contar(new FiltroPerfiles(40, 45, null)));
+        assertEquals(4, indice.cantidad());
+        assertThrows(IllegalArgumentException.class, () -> FiltroPerfiles.porEdad(30, 20));
+    }
+
+    @Test
+    @DisplayName("Las páginas del índice de perfiles salen en orden de índice con cualquier recorrido")
+    void testIndicePerfilesRecorrerDesde() {
+        IndicePerfiles indice = new IndicePerfiles();
+        java.util.Random aleatorio = new java.util.Random(11);
+        int[] edades = new int[3000];
+        String[] generos = new String[edades.length];
+        for (int i = 0; i < edades.length; i++) {
+            edades[i] = 18 + aleatorio.nextInt(60);
+            generos[i] = i % 100 == 0 ? "X" : (i % 2 == 0 ? "M" : "F");
+            indice.agregar(i, edades[i], generos[i]);
+        }
+        for (int i = 0; i < edades.length; i += 7) {
+            indice.quitar(i);
+        }
+        // Género raro (bitmap), rango amplio (recorrido en orden) y edad puntual (cubetas ordenadas)
+        FiltroPerfiles[] filtros = { FiltroPerfiles.porGenero("X"), FiltroPerfiles.porEdad(18, 70),
+                FiltroPerfiles.porEdad(40, 40), new FiltroPerfiles(30, 31, "F") };
+        for (FiltroPerfiles filtro : filtros) {
+            for (int desde : new int[] { 0, 1234, 2999 }) {
+                List<Integer> esperados = new ArrayList<>();
+                for (int i = desde; i < edades.length && esperados.size() < 25; i++) {
+                    if (i % 7 != 0 && filtro.cumple(new Perfil("p", "p", (short) edades[i], generos[i]))) {
+                        esperados.add(i);
+                    }
+                }
+                List<Integer> pagina = new ArrayList<>();
+                assertEquals(esperados.size(), indice.recorrerDesde(filtro, desde, 25, pagina::add));
+                assertEquals(esperados, pagina, filtro + " desde " + desde);
+            }
+        }
+        assertEquals(0, indice.recorrerDesde(FiltroPerfiles.porGenero("Z"), 0, 10, i -> { }));
+    }
+
+    @Test
+    @DisplayName("Las sugerencias filtradas solo incluyen candidatos que cumplen el filtro")
+    void testSugerenciasFiltradas() {
+        crearRedConAmigosEnComun();
+        motorSugerencias.activarCache(1000);
+
+        List<SugerenciaAmigo> todas = motorSugerencias.sugerirAmigos("user1", 10);
+        List<SugerenciaAmigo> mujeres = motorSugerencias.sugerirAmigos("user1", 10, FiltroPerfiles.porGenero("F"));
+        List<SugerenciaAmigo> mayores = motorSugerencias.sugerirAmigos("user1", 10, FiltroPerfiles.porEdad(30, 40));
+
+        assertEquals(2, todas.size());
+        assertEquals(1, mujeres.size());
+        assertEquals("user4", mujeres.get(0).getUserIdSugerido());
+        assertEquals(1, mayores.size());
+        assertEquals("user5", mayores.get(0).getUserIdSugerido());
+        // Los candidatos descartados no quedan sucios para la petición siguiente
+        assertEquals(1, motorSugerencias.sugerirAmigos("user1", 10, FiltroPerfiles.porGenero("M")).size());
+        assertEquals(2, motorSugerencias.sugerirAmigos("user1", 10).size());
+    }
+
+    @Test
+    @DisplayName("La búsqueda de perfiles por atributos sigue las altas y bajas del almacenamiento")
+    void testBuscarPerfilesPorAtributos() {
+        crearRedConAmigosEnComun();
+
+        List<Perfil> hombres = motorSugerencias.buscarPerfiles(FiltroPerfiles.porGenero("M"));
+        assertEquals(Arrays.asList("user1", "user3", "user5"),
+                Arrays.asList(hombres.get(0).getId(), hombres.get(1).getId(), hombres.get(2).getId()));
+        assertEquals(3, motorSugerencias.contarPerfiles(FiltroPerfiles.porEdad(27, 30)));
+
+        almacenamiento.eliminarPerfil("user3");
+        almacenamiento.crearPerfil(new Perfil("user6", "Luis", (short) 29, "M"));
+
+        assertEquals(3, motorSugerencias.contarPerfiles(FiltroPerfiles.porGenero("M")));
+        assertEquals(3, motorSugerencias.contarPerfiles(FiltroPerfiles.porEdad(27, 30)));
+        assertEquals("user6", motorSugerencias.buscarPerfiles(new FiltroPerfiles(28, 30, "M")).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("El listado de perfiles se pagina en orden de alta y se corta al llenar la página")
+    void testListarPerfilesPaginado() {
+        crearRedConAmigosEnComun();
+
+        List<Perfil> primera = motorSugerencias.listarPerfiles(FiltroPerfiles.porGenero("M"), 0, 2);
+        assertEquals(Arrays.asList("user1", "user3"), Arrays.asList(primera.get(0).getId(), primera.get(1).getId()));
+        List<Perfil> segunda = motorSugerencias.listarPerfiles(FiltroPerfiles.porGenero("M"),
+                primera.get(1).getIndice() + 1, 2);
+        assertEquals(1, segunda.size());
+        assertEquals("user5", segunda.get(0).getId());
+
+        almacenamiento.eliminarPerfil("user2");
+        List<Perfil> todos = motorSugerencias.listarPerfiles(null, 0, 10);
+        assertEquals(almacenamiento.obtenerTotalPerfiles(), todos.size());
+        assertFalse(todos.stream().anyMatch(perfil -> perfil.getId().equals("user2")));
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.listarPerfiles(null, -1, 10));
+    }
+
+    // ==================== PRUEBAS DE BUSQUEDA POR NOMBRE ====================
+
+    @Test
+    @DisplayName("El índice de nombres busca por el comienzo de cada palabra sin tildes ni mayúsculas")
+    void testIndiceNombresPrefijos() {
+        IndiceNombres indice = new IndiceNombres();
+        indice.agregar(0, "José María Pérez");
+        indice.agregar(1, "  ana   GARCÍA ");
+        indice.agregar(2, "Mariana López");
+
+        assertEquals("jose maria perez", IndiceNombres.normalizar("José  María Pérez"));
+        assertEquals(Arrays.asList(0, 2), recorrerNombres(indice, "mar"));
+        assertEquals(Arrays.asList(1), recorrerNombres(indice, IndiceNombres.normalizar("AN")));
+        assertEquals(Arrays.asList(0), recorrerNombres(indice, "perez"));
+        assertEquals(Arrays.asList(1), recorrerNombres(indice, "ana garcia"));
+        assertTrue(indice.coincide(1, "garc"));
+        assertFalse(indice.coincide(1, "arc"));
+
+        assertTrue(indice.quitar(2));
+        assertFalse(indice.quitar(2));
+        indice.agregar(0, "Pedro Martínez");
+        assertEquals(Arrays.asList(0), recorrerNombres(indice, "mar"));
+        assertEquals(2, indice.cantidad());
+    }
+
+    @Test
+    @DisplayName("El índice de nombres sigue correcto después de compactar altas y bajas")
+    void testIndiceNombresCompactacion() {
+        IndiceNombres indice = new IndiceNombres();
+        for (int i = 0; i < 5000; i++) {
+            indice.agregar(i, "Usuario " + i);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            indice.quitar(i);
+        }
+        for (int i = 5000; i < 5100; i++) {
+            indice.agregar(i, "Usuaria " + i);
+        }
+
+        assertEquals(2600, indice.cantidad());
+        assertEquals(Arrays.asList(1999, 4999), recorrerNombres(indice, "usuario ")
+                .stream().filter(i -> i == 1999 || i == 4999).toList());
+        assertEquals(2500, recorrerNombres(indice, "usuario").size());
+        assertEquals(100, recorrerNombres(indice, "usuaria").size());
+        assertEquals(Arrays.asList(5050), recorrerNombres(indice, "5050"));
+        assertTrue(recorrerNombres(indice, "4998").isEmpty());
+    }
+
+    private List<Integer> recorrerNombres(IndiceNombres indice, String prefijo) {
+        List<Integer> encontrados = new ArrayList<>();
+        indice.recorrerPrefijo(prefijo, encontrados::add);
+        return encontrados;
+    }
+
+    @Test
+    @DisplayName("La búsqueda por nombre muestra primero a los amigos y amigos de amigos de quien busca")
+    void testBuscarPorNombreOrdenaPorCercania() {
+        crearRedConAmigosEnComun();
+        almacenamiento.crearPerfil(new Perfil("user6", "Carla", (short) 40, "F"));
+        almacenamiento.crearPerfil(new Perfil("user7", "Bruna", (short) 22, "F"));
+        almacenamiento.crearPerfil(new Perfil("user8", "Carolina", (short) 35, "F"));
+        motorSugerencias.generarAmistad("user4", "user8", 2);
+
+        // user1: amigo user3 (Carlos); user8 (Carolina) está a tres saltos; Carla no tiene amigos
+        List<Perfil> desdeUser1 = motorSugerencias.buscarPorNombre("car", "user1", 10);
+        assertEquals(Arrays.asList("user3", "user6", "user8"),
+                Arrays.asList(desdeUser1.get(0).getId(), desdeUser1.get(1).getId(), desdeUser1.get(2).getId()));
+
+        // user2: amigo de user4, que es amigo de user8 (Carolina) antes que Carla y Carlos (que está a dos saltos)
+        List<Perfil> desdeUser2 = motorSugerencias.buscarPorNombre("CAR", "user2", 2);
+        assertEquals(2, desdeUser2.size());
+        assertEquals("user3", desdeUser2.get(0).getId());
+        assertEquals("user8", desdeUser2.get(1).getId());
+
+        List<Perfil> sinBuscador = motorSugerencias.buscarPorNombre("bru", null, 10);
+        assertEquals(Arrays.asList("user7", "user5"), Arrays.asList(sinBuscador.get(0).getId(), sinBuscador.get(1).getId()));
+        assertTrue(motorSugerencias.buscarPorNombre("bruno", "user5", 10).isEmpty());
+
+        almacenamiento.eliminarPerfil("user3");
+        assertEquals(2, motorSugerencias.buscarPorNombre("car", "user1", 10).size());
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.buscarPorNombre("  ", null, 10));
+    }
+
+    // ==================== PRUEBAS DE SERVIDOR API ====================
+
+    private HttpResponse<String> enviar(HttpClient cliente, ServidorApi servidor, String metodo, String ruta, String cuerpo)
+            throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + servidor.getPuerto() + ruta));
+        if (cuerpo == null) {
+            peticion.method(metodo, HttpRequest.BodyPublishers.noBody());
+        } else {
+            peticion.header("Content-Type", "application/json").method(metodo, HttpRequest.BodyPublishers.ofString(cuerpo));
+        }
+        return cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private ServidorApi crearServidorDePrueba() throws Exception {
+        Path directorio = Files.createTempDirectory("servidor-api");
+        LeerPerfiles lector = new LeerPerfiles(directorio.resolve("Perfiles.json").toString());
+        AlmacenamientoPerfiles almacenamientoServidor = new AlmacenamientoPerfiles();
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(16);
+        MotorSugerencias motor = new MotorSugerencias(almacenamientoServidor, red.getInternador());
+        RegistroMutaciones registro = new RegistroMutaciones(lector, almacenamientoServidor);
+        registro.iniciar();
+        return new ServidorApi(almacenamientoServidor, motor, red, registro, new BuscadorCaminos(motor));
+    }
+
+    @Test
+    @DisplayName("La API crea perfiles y amistades y responde sugerencias, conexión y estadísticas")
+    void testServidorApiRutas() throws Exception {
+        HttpClient cliente = HttpClient.newHttpClient();
+        try (ServidorApi servidor = crearServidorDePrueba()) {
+            servidor.iniciar(0);
+            assertEquals(201, enviar(cliente, servidor, "POST", "/perfiles",
+                    "{\"id\":\"user1\",\"nombre\":\"Juan\",\"edad\":25,\"genero\":\"M\"}").statusCode());
+            assertEquals(201, enviar(cliente, servidor, "POST", "/perfiles",
+                    "{\"id\":\"user2\",\"nombre\":\"Ana\",\"edad\":30,\"genero\":\"F\"}").statusCode());
+            assertEquals(201, enviar(cliente, servidor, "POST", "/perfiles",
+                    "{\"id\":\"user3\",\"nombre\":\"Carlos\",\"edad\":28,\"genero\":\"M\"}").statusCode());
+            assertEquals(201, enviar(cliente, servidor, "POST", "/amistades",
+                    "{\"usuarioA\":\"user1\",\"usuarioB\":\"user2\",\"calidad\":5}").statusCode());
+            assertEquals(201, enviar(cliente, servidor, "POST", "/amistades",
+                    "{\"usuarioA\":\"user2\",\"usuarioB\":\"user3\",\"calidad\":4}").statusCode());
+
+            HttpResponse<String> sugerencias = enviar(cliente, servidor, "GET", "/sugerencias?usuario=user1&k=5", null);
+            assertEquals(200, sugerencias.statusCode());
+            assertTrue(sugerencias.body().contains("\"id\":\"user3\""));
+            assertTrue(sugerencias.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+
+            HttpResponse<String> conexion = enviar(cliente, servidor, "GET", "/conexion?a=user1&b=user3", null);
+            assertEquals(200, conexion.statusCode());
+            assertTrue(conexion.body().contains("\"conectados\":true"));
+            assertTrue(conexion.body().contains("\"saltos\":2"));
+
+            HttpResponse<String> estadisticas = enviar(cliente, servidor, "GET", "/estadisticas", null);
+            assertTrue(estadisticas.body().contains("\"perfiles\":3"));
+            assertTrue(estadisticas.body().contains("\"componentes\":1"));
+
+            HttpResponse<String> hombres = enviar(cliente, servidor, "GET", "/perfiles?genero=m&edadMax=26", null);
+            assertTrue(hombres.body().contains("\"total\":1"));
+            assertTrue(hombres.body().contains("\"id\":\"user1\""));
+            assertTrue(enviar(cliente, servidor, "GET", "/sugerencias?usuario=user1&genero=F", null).body()
+                    .contains("\"sugerencias\":[]"));
+            assertTrue(enviar(cliente, servidor, "GET", "/buscar?q=Car&usuario=user1", null).body()
+                    .contains("\"id\":\"user3\""));
+            HttpResponse<String> pagina = enviar(cliente, servidor, "GET", "/perfiles?desde=1", null);
+            assertTrue(pagina.body().contains("\"total\":3"));
+            assertFalse(pagina.body().contains("\"id\":\"user1\""));
+            assertFalse(pagina.body().contains("\"siguiente\""));
+            assertEquals(12, servidor.getPeticionesAtendidas());
+        }
+    }
+
+    @Test
+    @DisplayName("La API responde errores con su código HTTP y valida el límite de peticiones")
+    void testServidorApiErrores() throws Exception {
+        HttpClient cliente = HttpClient.newHttpClient();
+        try (ServidorApi servidor = crearServidorDePrueba()) {
+            assertThrows(IllegalArgumentException.class, () -> servidor.setMaxPeticionesEnCurso(0));
+            servidor.setMaxPeticionesEnCurso(8);
+            servidor.iniciar(0);
+            assertThrows(IllegalStateException.class, () -> servidor.setMaxPeticionesEnCurso(16));
+
+            assertEquals(400, enviar(cliente, servidor, "POST", "/perfiles", "{\"id\":\"user1\"}").statusCode());
+            assertEquals(400, enviar(cliente, servidor, "POST", "/perfiles", "no es json").statusCode());
+            assertEquals(400, enviar(cliente, servidor, "GET", "/sugerencias?usuario=noExiste", null).statusCode());
+            assertEquals(400, enviar(cliente, servidor, "GET", "/sugerencias", null).statusCode());
+            assertEquals(405, enviar(cliente, servidor, "DELETE", "/perfiles", null).statusCode());
+            assertEquals(400, enviar(cliente, servidor, "GET", "/perfiles?edadMin=40&edadMax=20", null).statusCode());
+            assertEquals(404, enviar(cliente, servidor, "GET", "/estadisticas/otra", null).statusCode());
+            assertTrue(enviar(cliente, servidor, "GET", "/conexion?a=x&b=y", null).body().contains("\"error\""));
+            assertEquals(0, servidor.getPeticionesAtendidas());
+        }
+    }
+
+    @Test
+    @DisplayName("El pool de espacios reutiliza instancias y nunca crea más que su máximo")
+    void testPoolEspaciosAcotado() throws Exception {
+        AtomicInteger fabricados = new AtomicInteger();
+        PoolEspacios<int[]> pool = new PoolEspacios<>(() -> {
+            fabricados.incrementAndGet();
+            return new int[4];
+        }, 2);
+        assertThrows(IllegalArgumentException.class, () -> new PoolEspacios<>(() -> new int[1], 0));
+
+        int[] primero = pool.tomar();
+        pool.devolver(primero);
+        assertSame(primero, pool.tomar());
+        int[] segundo = pool.tomar();
+        assertEquals(2, pool.getCreados());
+
+        // Con los dos prestados, un tercero espera a que se devuelva uno
+        CountDownLatch tomado = new CountDownLatch(1);
+        Thread esperando = Thread.ofVirtual().start(() -> {
+            pool.devolver(pool.tomar());
+            tomado.countDown();
+        });
+        assertFalse(tomado.await(100, TimeUnit.MILLISECONDS));
+        pool.devolver(segundo);
+        assertTrue(tomado.await(5, TimeUnit.SECONDS));
+        esperando.join();
+        pool.devolver(primero);
+        assertEquals(2, fabricados.get());
+
+        // Muchas peticiones en hilos virtuales comparten los mismos buffers de trabajo
+        ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<int[]>> resultados = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            resultados.add(ejecutor.submit(() -> {
+                int[] espacio = pool.tomar();
+                try {
+                    return espacio;
+                } finally {
+                    pool.devolver(espacio);
+                }
+            }));
+        }
+        for (Future<int[]> resultado : resultados) {
+            assertTrue(resultado.get() == primero || resultado.get() == segundo);
+        }
+        ejecutor.shutdown();
+        assertEquals(2, fabricados.get());
+    }
+
+    // ==================== PRUEBAS DE VISTA POR NIVELES ====================
+
+    // Red con una componente grande (estrella de 'tamanoGrande' usuarios con el centro en el índice 0)
+    // y 'sueltos' usuarios sin amigos
+    private VistaRedSocial crearVistaDePrueba(int tamanoGrande, int sueltos) {
+        InternadorIds internador = new InternadorIds();
+        WeightedQuickUnionUF red = new WeightedQuickUnionUF(tamanoGrande + sueltos, internador);
+        GrafoAmistades grafo = new GrafoAmistades(internador);
+        for (int i = 0; i < tamanoGrande + sueltos; i++) {
+            red.agregarUsuario("user" + i);
+        }
+        for (int i = 1; i < tamanoGrande; i++) {
+            red.union(0, i);
+            grafo.agregarAmistad(0, i, 3);
+        }
+        return new VistaRedSocial(red, grafo, red);
+    }
+
+    @Test
+    @DisplayName("La vista por niveles resume cada componente en un súper nodo y agrupa las que sobran")
+    void testVistaRedSocialResumen() {
+        VistaRedSocial vista = crearVistaDePrueba(50, 300);
+
+        assertEquals(200, vista.construirResumen());
+        assertEquals(201, vista.getVista().getNodeCount());
+        assertEquals(0, vista.getVista().getEdgeCount());
+        assertEquals("user0 (50)", vista.getVista().getNode("c0").getAttribute("ui.label"));
+        assertNotNull(vista.getVista().getNode("resto"));
+        assertThrows(IllegalArgumentException.class, () -> new VistaRedSocial(null, null, this));
+    }
+
+    @Test
+    @DisplayName("La vista por niveles expande y colapsa una componente al hacer clic")
+    void testVistaRedSocialExpandirColapsar() {
+        VistaRedSocial vista = crearVistaDePrueba(10, 2);
+        assertEquals(3, vista.construirResumen());
+
+        vista.alternar("c0");
+        assertTrue(vista.estaExpandida(0));
+        assertNull(vista.getVista().getNode("c0"));
+        assertEquals(12, vista.getVista().getNodeCount());
+        assertEquals(9, vista.getVista().getEdgeCount());
+        assertEquals("user7", vista.getVista().getNode("u7").getAttribute("ui.label"));
+        assertEquals(0, vista.expandir(0));
+
+        vista.alternar("u7");
+        assertFalse(vista.estaExpandida(0));
+        assertEquals(3, vista.getVista().getNodeCount());
+        assertEquals(0, vista.getVista().getEdgeCount());
+        vista.alternar("resto");
+        assertEquals(3, vista.getVista().getNodeCount());
+    }
+
+    @Test
+    @DisplayName("La vista por niveles limita los miembros y muestrea las aristas de componentes grandes")
+    void testVistaRedSocialMuestreo() {
+        VistaRedSocial vista = crearVistaDePrueba(5000, 0);
+        vista.setMaxAristas(500);
+        vista.setMaxMiembros(3000);
+        vista.construirResumen();
+
+        int aristas = vista.expandir(0);
+        assertEquals(3000, vista.getVista().getNodeCount());
+        assertEquals(aristas, vista.getVista().getEdgeCount());
+        assertTrue(aristas > 350 && aristas < 650, "aristas: " + aristas);
+        assertThrows(IllegalArgumentException.class, () -> vista.setMaxMiembros(0));
+    }
+
+    // ==================== PRUEBAS DE EGO-RED ====================
+
+    // Cadena user0 - user1 - ... - user{n-1} con calidad (i % 5) + 1 y user0 también amigo de user2
+    private void crearCadenaDePrueba(int n) {
+        for (int i = 0; i < n; i++) {
+            almacenamiento.crearPerfil(new Perfil("user" + i, "Usuario " + i, (short) 30, "F"));
+        }
+        for (int i = 1; i < n; i++) {
+            motorSugerencias.generarAmistad("user" + (i - 1), "user" + i, (i % 5) + 1);
+        }
+        motorSugerencias.generarAmistad("user0", "user2", 4);
+    }
+
+    @Test
+    @DisplayName("La ego-red muestra la vecindad a k saltos con la calidad de cada amistad y las sugerencias")
+    void testVistaEgoRedVecindad() {
+        crearCadenaDePrueba(10);
+        VistaEgoRed vista = new VistaEgoRed(motorSugerencias);
+
+        SingleGraph ego = vista.construir("user0", 1);
+        // user1 y user2 son amigos; user3 entra como sugerencia (amigo de amigos)
+        assertEquals(4, ego.getNodeCount());
+        assertEquals(4, ego.getEdgeCount());
+        assertEquals(Integer.valueOf(2), ego.getEdge("user0-user1").getAttribute("calidad"));
+        assertEquals("centro", ego.getNode("user0").getAttribute("ui.class"));
+        assertEquals("sugerencia", ego.getNode("user3").getAttribute("ui.class"));
+        assertEquals(Integer.valueOf(-1), ego.getNode("user3").getAttribute("nivel"));
+        assertNull(ego.getNode("user4"));
+
+        vista.setMaxSugerencias(0);
+        ego = vista.construir("user0", 3);
+        assertEquals(5, ego.getNodeCount());
+        assertEquals(Integer.valueOf(2), ego.getNode("user3").getAttribute("nivel"));
+        assertEquals(Integer.valueOf(3), ego.getNode("user4").getAttribute("nivel"));
+        assertFalse(vista.isTruncada());
+    }
+
+    @Test
+    @DisplayName("La ego-red se corta en el máximo de nodos, valida la entrada y guarda la imagen")
+    void testVistaEgoRedLimitesEImagen() throws Exception {
+        crearCadenaDePrueba(50);
+        VistaEgoRed vista = new VistaEgoRed(motorSugerencias);
+        vista.setMaxNodos(6);
+
+        assertEquals(6, vista.construir("user0", 40).getNodeCount());
+        assertTrue(vista.isTruncada());
+        assertThrows(IllegalArgumentException.class, () -> vista.construir("noExiste", 1));
+        assertThrows(IllegalArgumentException.class, () -> vista.construir("user0", 0));
+        assertThrows(IllegalArgumentException.class, () -> vista.setMaxNodos(0));
+
+        Path archivo = Files.createTempDirectory("egoRed").resolve("user0.png");
+        vista.guardarImagen("user0", 2, archivo.toString());
+        assertTrue(Files.size(archivo) > 0);
+    }
+
+    // ==================== PRUEBAS DE METRICAS ====================
+
+    @Test
+    @DisplayName("El histograma de latencias da percentiles con error relativo de a lo sumo 1/16")
+    void testHistogramaLatenciasPercentiles() {
+        HistogramaLatencias histograma = new HistogramaLatencias();
+        assertEquals(0, histograma.percentil(99));
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histograma.registrar(nanos);
+        }
+        histograma.registrar(5_000_000_000L, 10);
+
+        assertEquals(100_010, histograma.cantidad());
+        assertEquals(1, histograma.percentil(0));
+        long p50 = histograma.percentil(50);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 + 50_000 / 16, "p50: " + p50);
+        long p99 = histograma.percentil(99);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 + 99_000 / 16, "p99: " + p99);
+        long maximo = histograma.maximo();
+        assertTrue(maximo >= 5_000_000_000L && maximo <= 5_000_000_000L + 5_000_000_000L / 16);
+        assertEquals(maximo, histograma.percentil(100));
+        assertThrows(IllegalArgumentException.class, () -> histograma.percentil(101));
+
+        histograma.reiniciar();
+        assertEquals(0, histograma.cantidad());
+        assertEquals(0, histograma.maximo());
+    }
+
+    @Test
+    @DisplayName("Las métricas cuentan operaciones y errores de los servicios y muestrean find()")
+    void testMetricasOperaciones() {
+        Metricas metricas = new Metricas();
+        almacenamiento.setMetricas(metricas);
+        motorSugerencias.setMetricas(metricas);
+        redSocial.setMetricas(metricas);
+        metricas.registrarIndicador("perfiles", almacenamiento::obtenerTotalPerfiles);
+        metricas.registrarIndicador("roto", () -> {
+            throw new IllegalStateException("sin datos");
+        });
+
+        almacenamiento.crearPerfil(new Perfil("user1", "Ana", (short) 20, "F"));
+        almacenamiento.crearPerfil(new Perfil("user2", "Luis", (short) 22, "M"));
+        assertThrows(IllegalArgumentException.class,
+                () -> almacenamiento.crearPerfil(new Perfil("user1", "Otra", (short) 30, "F")));
+        motorSugerencias.generarAmistad("user1", "user2", 4);
+        motorSugerencias.sugerirAmigos("user1", 5);
+        assertThrows(IllegalArgumentException.class, () -> motorSugerencias.sugerirAmigos("noExiste", 5));
+
+        redSocial.agregarUsuario("user1");
+        for (int i = 0; i < 640; i++) {
+            redSocial.find(0);
+        }
+
+        assertEquals(3, metricas.getOperaciones(Metricas.Operacion.CREAR_PERFIL));
+        assertEquals(1, metricas.getErrores(Metricas.Operacion.CREAR_PERFIL));
+        assertEquals(1, metricas.getOperaciones(Metricas.Operacion.GENERAR_AMISTAD));
+        assertEquals(2, metricas.getOperaciones(Metricas.Operacion.SUGERIR_AMIGOS));
+        assertEquals(1, metricas.getErrores(Metricas.Operacion.SUGERIR_AMIGOS));
+        assertEquals(640, metricas.getOperaciones(Metricas.Operacion.FIND));
+        assertEquals(640, metricas.getLatencias(Metricas.Operacion.FIND).cantidad());
+        assertEquals(Long.valueOf(2), metricas.getIndicadores().get("perfiles"));
+        assertEquals(Long.valueOf(-1), metricas.getIndicadores().get("roto"));
+        assertTrue(metricas.volcar().contains("GENERAR_AMISTAD"));
+
+        metricas.reiniciar();
+        assertEquals(0, metricas.getOperaciones(Metricas.Operacion.FIND));
+    }
+
+    @Test
+    @DisplayName("Las métricas se publican por JMX y se retiran al cerrarlas")
+    void testMetricasJmx() throws Exception {
+        ObjectName nombre = new ObjectName(Metricas.NOMBRE_JMX);
+        try (Metricas metricas = new Metricas()) {
+            metricas.registrarIndicador("perfiles", () -> 42);
+            metricas.registrar(Metricas.Operacion.GUARDAR_PERFILES, System.nanoTime());
+            metricas.registrarEnJmx();
+            assertTrue(metricas.isRegistradoEnJmx());
+
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            assertTrue(servidor.isRegistered(nombre));
+            CompositeData[] operaciones = (CompositeData[]) servidor.getAttribute(nombre, "Operaciones");
+            assertEquals(Metricas.Operacion.values().length, operaciones.length);
+            assertEquals(1L, operaciones[Metricas.Operacion.GUARDAR_PERFILES.ordinal()].get("operaciones"));
+            assertTrue(servidor.invoke(nombre, "volcar", null, null).toString().contains("perfiles: 42"));
+            ResumenLatencias resumen = metricas.resumen(Metricas.Operacion.GUARDAR_PERFILES);
+            assertEquals(1, resumen.getOperaciones());
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(nombre));
+    }
 }